@@ -25,18 +25,39 @@
 package com.horvath.cobbler.application;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
+import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
 
-import com.horvath.cobbler.command.LoadFileCmd;
+import com.horvath.cobbler.command.AbstractSettingsCmd;
 import com.horvath.cobbler.command.LoadSettingsCmd;
 import com.horvath.cobbler.command.NewEmptyDocumentCmd;
+import com.horvath.cobbler.command.NormalizeLinesCmd;
+import com.horvath.cobbler.command.ReplayJournalCmd;
 import com.horvath.cobbler.exception.CobblerException;
 import com.horvath.cobbler.gui.CobblerWindow;
-import com.horvath.cobbler.gui.action.OpenFileAction;
+import com.horvath.cobbler.gui.action.LoadFileWorker;
+import com.horvath.cobbler.gui.action.ReloadFileWorker;
+import com.horvath.cobbler.io.ArchiveIndex;
+import com.horvath.cobbler.io.AutosaveService;
+import com.horvath.cobbler.io.DocumentText;
+import com.horvath.cobbler.io.EditJournal;
+import com.horvath.cobbler.io.FileWatcher;
+import com.horvath.cobbler.io.LineDiff;
+import com.horvath.cobbler.io.Session;
+import com.horvath.cobbler.io.SessionFile;
+import com.horvath.cobbler.io.TextFileFormat;
+import com.horvath.cobbler.io.TextFileReader;
+import com.horvath.cobbler.io.TextFileWriter;
 
 /**
  * Main application class.
@@ -47,8 +68,18 @@ public final class CobblerApplication {
 	
 	public static final String APP_VERSION = "0.0.4";
 	public static final String APP_NAME = "Cobbler";
+	
+	/**
+	 * Option to normalize files without showing the window, followed by the 
+	 * stages and the files: <code>--normalize tabs,sequence=clear,trim FILE...</code>
+	 */
+	public static final String NORMALIZE_OPTION = "--normalize";
 
 	public static void main(String[] args) {
+		
+		if (args.length > 0 && args[0].equals(NORMALIZE_OPTION)) {
+			System.exit(normalizeFiles(args));
+		}
 
 		final String arg = args.length > 0 ? args[0] : "";
 
@@ -59,6 +90,88 @@ public final class CobblerApplication {
 		});
 	}
 
+	/**
+	 * Normalizes the lines of files in place, each written back in the charset 
+	 * and line terminators it was read in. 
+	 * @param args String[] - the option, the stages and the files
+	 * @return int - exit status, 0 if every file was normalized
+	 */
+	private static int normalizeFiles(String[] args) {
+		if (args.length < 3) {
+			System.err.println("Usage: " + NORMALIZE_OPTION + " STAGES FILE...");
+			return 2;
+		}
+		
+		int status = 0;
+		try {
+			List<NormalizeLinesCmd.Stage> stages = NormalizeLinesCmd.parseStages(args[1], 
+					LoadSettingsCmd.DEFAULT_LINE_NUM_INCREMENT);
+			
+			for (int i = 2; i < args.length; i++) {
+				File file = new File(args[i]);
+				try {
+					NormalizeLinesCmd cmd = normalizeFile(file, stages);
+					System.out.println(file.getPath() + (cmd.getSkipCount() > 0 ? ": " + cmd.getMessage() : ""));
+					
+				} catch (CobblerException ex) {
+					System.err.println(file.getPath() + ": " + ex.getMessage());
+					status = 1;
+				}
+			}
+			
+		} catch (CobblerException ex) {
+			System.err.println(ex.getMessage());
+			status = 2;
+		}
+		return status;
+	}
+
+	/**
+	 * Normalizes the lines of a file in place. The file is read into a document that
+	 * its format tracks, and only the columns that change are replaced, so the save
+	 * copies the unchanged bytes and keeps the terminator of every line. 
+	 * @param file File
+	 * @param stages List of NormalizeLinesCmd.Stage
+	 * @return NormalizeLinesCmd - the command that normalized the text
+	 * @throws CobblerException
+	 */
+	static NormalizeLinesCmd normalizeFile(File file, List<NormalizeLinesCmd.Stage> stages) throws CobblerException {
+		PlainDocument document = new PlainDocument();
+		TextFileReader reader = new TextFileReader(file);
+		reader.read(document);
+		
+		TextFileFormat format = reader.getFormat();
+		format.attach(document);
+		
+		try {
+			NormalizeLinesCmd cmd = new NormalizeLinesCmd(new DocumentText(document), stages, true);
+			cmd.perform();
+			
+			// from the last to the first, so that the offsets of the earlier ones stay valid
+			List<LineDiff.Hunk> edits = cmd.getEdits();
+			for (int i = edits.size() - 1; i >= 0; i--) {
+				LineDiff.Hunk edit = edits.get(i);
+				if (edit.getLength() > 0) {
+					document.remove(edit.getOffset(), edit.getLength());
+				}
+				if (!edit.getText().isEmpty()) {
+					document.insertString(edit.getOffset(), edit.getText(), null);
+				}
+			}
+			
+			if (!edits.isEmpty()) {
+				new TextFileWriter(document, file, format).write();
+			}
+			return cmd;
+			
+		} catch (BadLocationException ex) {
+			throw new CobblerException(ex.getMessage(), ex);
+			
+		} finally {
+			format.detach();
+		}
+	}
+
 	/**
 	 * Initializes application systems.
 	 */
@@ -80,21 +193,46 @@ public final class CobblerApplication {
 			// create and load settings data file
 			LoadSettingsCmd settingsCmd = new LoadSettingsCmd();
 			settingsCmd.perform();
+			
+			// read the last session while the window is being built
+			SessionFile sessionFile = new SessionFile(new File(AbstractSettingsCmd.APP_SESSION));
+			CobblerState.getInstance().setSessionFile(sessionFile);
+			Future<Session> lastSession = sessionFile.readInBackground();
+			
+			// journal edits so they can be recovered if the application does not shut down cleanly
+			CobblerState.getInstance().setJournalFile(new File(AbstractSettingsCmd.APP_JOURNAL));
+			
+			// autosave to sidecar files under the settings folder, as often as the settings allow
+			AutosaveService autosave = new AutosaveService(new File(AbstractSettingsCmd.APP_AUTOSAVE_FOLDER));
+			autosave.setEnabled(CobblerState.getInstance().isAutosaveOn(), CobblerState.getInstance().getAutosaveInterval());
+			CobblerState.getInstance().setAutosave(autosave);
+			
+			// reload the file when another program changes it
+			CobblerState.getInstance().setFileWatcher(new FileWatcher(
+					() -> SwingUtilities.invokeLater(ReloadFileWorker::fileChanged)));
 
 			File file = new File(arg);
-			if (file.exists()) {
-				// load file into state
-				LoadFileCmd cmd = new LoadFileCmd(file);
-				cmd.perform();
+			if (recoverUnsavedChanges()) {
+				Debugger.printLog("Recovered unsaved changes", this.getClass().getName());
+				restoreSession(lastSession, null);
 				
-				if (cmd.isSuccess()) {
-					OpenFileAction.updateGuiForOpenedFile(file.getAbsolutePath());
-				}
+			} else if (ArchiveIndex.exists(file)) {
+				// the documents of the last session open in tabs next to the file
+				restoreSession(lastSession, file);
+				
+				// load file into state on a worker, the window is shown while it is read
+				CobblerState state = CobblerState.getInstance();
+				new LoadFileWorker(file, state.getRecentFileCodePage(file.getAbsolutePath()), 
+						state.getRecentFileRecordFormat(file.getAbsolutePath())).start();
 				
 			} else {
 				// initialize the application with a new empty document
 				NewEmptyDocumentCmd newDocCmd = new NewEmptyDocumentCmd();
 				newDocCmd.perform();
+				CobblerWindow.getWindow().restartRecovery();
+				
+				// the document viewed last takes the place of the empty one
+				restoreSession(lastSession, null);
 			}
 
 		} catch (CobblerException ex) {
@@ -102,6 +240,110 @@ public final class CobblerApplication {
 		}
 		
 		CobblerWindow.getWindow().setVisible(true);
+		
+		// find out which of the recent files are still there, without holding up the window
+		CobblerWindow.getWindow().checkRecentFiles(0);
+	}
+	
+	/**
+	 * Reopens the documents of the last session, once it has been read. 
+	 * @param lastSession Future<Session>
+	 * @param opening File - a file being opened into the window, may be null
+	 */
+	private void restoreSession(Future<Session> lastSession, File opening) {
+		try {
+			Session session = lastSession.get();
+			if (session != null) {
+				CobblerWindow.getWindow().restoreSession(session, opening);
+			}
+			
+		} catch (InterruptedException | ExecutionException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+		}
+	}
+	
+	/**
+	 * Offers to recover the unsaved changes left in the edit journals by a session 
+	 * that did not shut down cleanly, each document into a tab of its own. 
+	 * @return boolean - true if changes were recovered into the text area
+	 */
+	private boolean recoverUnsavedChanges() {
+		CobblerState state = CobblerState.getInstance();
+		CobblerWindow window = CobblerWindow.getWindow();
+		
+		List<File> files = EditJournal.list(new File(AbstractSettingsCmd.APP_JOURNAL));
+		ArrayList<EditJournal.Recovery> recoveries = new ArrayList<>();
+		StringBuilder names = new StringBuilder();
+		for (File file : files) {
+			try {
+				EditJournal.Recovery recovery = EditJournal.read(file);
+				if (recovery != null && !recovery.isEmpty()) {
+					recoveries.add(recovery);
+					names.append(names.length() > 0 ? ", " : "")
+							.append(recovery.getBase() != null ? recovery.getBase().getName() : "an unnamed document");
+				}
+				
+			} catch (CobblerException ex) {
+				Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+				window.simpleMessagePopup("Recovery Error", ex.getMessage(), JOptionPane.ERROR_MESSAGE);
+			}
+		}
+		
+		boolean recovered = false;
+		if (!recoveries.isEmpty()) {
+			int result = JOptionPane.showConfirmDialog(null, 
+					APP_NAME + " did not shut down cleanly. Do you want to recover the unsaved changes to " 
+					+ names + "?", "Recover Unsaved Changes", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
+			
+			if (result == JOptionPane.YES_OPTION) {
+				for (EditJournal.Recovery recovery : recoveries) {
+					recovered |= recoverUnsavedChanges(recovery);
+				}
+			}
+		}
+		
+		// the journals that were not recovered, or were recovered into new ones, are not needed any more
+		for (File file : files) {
+			if (!state.isJournalInUse(file) && !file.delete()) {
+				Debugger.printLog("Unable to delete " + file.getName(), this.getClass().getName(), Level.WARNING);
+			}
+		}
+		return recovered;
+	}
+	
+	/**
+	 * Replays the unsaved changes of one document, into the text area when it holds
+	 * an empty document and into a new tab otherwise. 
+	 * @param recovery EditJournal.Recovery
+	 * @return boolean - true if the changes were recovered
+	 */
+	private boolean recoverUnsavedChanges(EditJournal.Recovery recovery) {
+		CobblerState state = CobblerState.getInstance();
+		CobblerWindow window = CobblerWindow.getWindow();
+		
+		try {
+			window.openDocument();
+			ReplayJournalCmd cmd = new ReplayJournalCmd(recovery, window.getTextArea().getDocument());
+			cmd.perform();
+			
+			if (cmd.isSuccess()) {
+				window.getTextArea().setCaretPosition(0);
+				window.getTextArea().discardAllEdits();
+				window.updateDocumentNameDisplay(state.getFile().getName());
+				window.restartAutosave();
+				state.getCurrentDocument().setRecovering(true);
+				if (state.getFileWatcher() != null) {
+					state.getFileWatcher().watch(recovery.getBase());
+				}
+				return true;
+			}
+			window.simpleMessagePopup("Recovery Error", cmd.getMessage(), JOptionPane.WARNING_MESSAGE);
+			
+		} catch (CobblerException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+			window.simpleMessagePopup("Recovery Error", ex.getMessage(), JOptionPane.ERROR_MESSAGE);
+		}
+		return false;
 	}
 
 }
@@ -25,10 +25,23 @@
 package com.horvath.cobbler.application;
 
 import java.io.File;
-import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.swing.text.Document;
 
 import com.horvath.cobbler.command.LoadSettingsCmd;
+import com.horvath.cobbler.exception.CobblerException;
 import com.horvath.cobbler.gui.syntax.GuiTheme;
+import com.horvath.cobbler.io.AutosaveService;
+import com.horvath.cobbler.io.DocumentSnapshot;
+import com.horvath.cobbler.io.EbcdicCodePage;
+import com.horvath.cobbler.io.EditJournal;
+import com.horvath.cobbler.io.FileWatcher;
+import com.horvath.cobbler.io.LargeTextFile;
+import com.horvath.cobbler.io.RecordFormat;
+import com.horvath.cobbler.io.SessionFile;
+import com.horvath.cobbler.io.TextFileFormat;
 
 /**
  * The application state.
@@ -37,24 +50,28 @@ import com.horvath.cobbler.gui.syntax.GuiTheme;
  */
 public final class CobblerState {
 
-	private static CobblerState instance = null;
+	private static final CobblerState instance = new CobblerState();
 	
-	private File file;
-	private String data;
-	private boolean dirty;
+	private volatile DocumentState current = new DocumentState();
+	private File journalFile;
+	private final HashSet<File> journalFiles = new HashSet<>();
+	private AutosaveService autosave;
+	private FileWatcher fileWatcher;
+	private SessionFile sessionFile;
 	private GuiTheme currentTheme;
-	private ArrayList<String> recentFilesList;
+	private final RecentFiles recentFiles = new RecentFiles(LoadSettingsCmd.DEFAULT_RECENT_FILES);
 	private boolean spellcheckOn;
 	private boolean showInvisibleCharacters;
-	private int maxNumOfRecentFiles = LoadSettingsCmd.DEFAULT_RECENT_FILES;
 	private int addLineIncrementValue;
+	private boolean autosaveOn;
+	private int autosaveInterval = LoadSettingsCmd.DEFAULT_AUTOSAVE_INTERVAL;
+	private int undoMemoryLimit = LoadSettingsCmd.DEFAULT_UNDO_MEMORY_LIMIT;
 	
 	/**
 	 * Constructor. 
 	 */
 	private CobblerState() {
 		Debugger.printLog("Initializing state", this.getClass().getName());
-		this.recentFilesList = new ArrayList<>();
 	}
 	
 	/**
@@ -62,9 +79,6 @@ public final class CobblerState {
 	 * @return CobblerState
 	 */
 	public static CobblerState getInstance() {
-		if (instance == null) {
-			instance = new CobblerState();
-		}
 		return instance;
 	}
 	
@@ -73,52 +87,265 @@ public final class CobblerState {
 	 * @param filepath String
 	 */
 	public void updateRecentFiles(String filepath) {
-		
-		if (recentFilesList.isEmpty()) {
-			recentFilesList.add(filepath);
-			return;
-		}
-		
-		// if we already have this one, but it is not the last one opened
-		if (recentFilesList.contains(filepath) && !recentFilesList.get(0).equals(filepath)) {
-			// move from middle or end of list
-			recentFilesList.remove(filepath);
-			// to the beginning of list
-			recentFilesList.add(0, filepath);
-			
-		} else if (!recentFilesList.contains(filepath)) {
-			// we don't already have this, add it to the start
-			recentFilesList.add(0, filepath);
-		}
-		
-		// if recent files collection is greater than max, then truncate 
-		while (recentFilesList.size() > maxNumOfRecentFiles) {
-			recentFilesList.remove(recentFilesList.size() - 1);
-		}
+		recentFiles.touch(filepath);
+	}
+	
+	/**
+	 * Returns the EBCDIC code page a recent file was last opened or saved in. 
+	 * @param filepath String
+	 * @return EbcdicCodePage - null if the file is not EBCDIC text
+	 */
+	public EbcdicCodePage getRecentFileCodePage(String filepath) {
+		RecentFiles.Entry entry = recentFiles.get(filepath);
+		return entry != null ? entry.getCodePage() : null;
+	}
+	
+	/**
+	 * Sets the EBCDIC code page a recent file was last opened or saved in. 
+	 * @param filepath String
+	 * @param codePage EbcdicCodePage - null if the file is not EBCDIC text
+	 */
+	public void setRecentFileCodePage(String filepath, EbcdicCodePage codePage) {
+		recentFiles.setCodePage(filepath, codePage);
+	}
+
+	/**
+	 * Returns the record format a recent file was last opened or saved in. 
+	 * @param filepath String
+	 * @return RecordFormat - null if the file is not a record format dataset
+	 */
+	public RecordFormat getRecentFileRecordFormat(String filepath) {
+		RecentFiles.Entry entry = recentFiles.get(filepath);
+		return entry != null ? entry.getRecordFormat() : null;
+	}
+	
+	/**
+	 * Sets the record format a recent file was last opened or saved in. 
+	 * @param filepath String
+	 * @param recordFormat RecordFormat - null if the file is not a record format dataset
+	 */
+	public void setRecentFileRecordFormat(String filepath, RecordFormat recordFormat) {
+		recentFiles.setRecordFormat(filepath, recordFormat);
+	}
+
+	/**
+	 * Returns the state of the document being viewed, which the rest of the 
+	 * accessors of the document read and change. 
+	 * @return DocumentState
+	 */
+	public DocumentState getCurrentDocument() {
+		return current;
+	}
+	
+	/**
+	 * Makes the state of another open document the one being viewed. 
+	 * @param current DocumentState
+	 */
+	public void setCurrentDocument(DocumentState current) {
+		this.current = current;
 	}
 
 	public File getFile() {
-		return file;
+		return current.getFile();
+	}
+	
+	public String getName() {
+		return current.getName();
 	}
 
 	public void setFile(File file) {
-		this.file = file;
+		current.setFile(file);
+	}
+	
+	/**
+	 * Sets the file of the working document, noting whether it is a file on disk. 
+	 * @param file File
+	 * @param onDisk boolean
+	 * @see DocumentState#setFile(File, boolean)
+	 */
+	public void setFile(File file, boolean onDisk) {
+		current.setFile(file, onDisk);
 	}
 
+	/**
+	 * Returns the text of the working document. 
+	 * @return String
+	 * @see DocumentState#getData()
+	 */
 	public String getData() {
-		return data;
+		return current.getData();
 	}
 
+	/**
+	 * Returns the text of the working document without copying it. 
+	 * @return CharSequence
+	 * @see DocumentState#getText()
+	 */
+	public CharSequence getText() {
+		return current.getText();
+	}
+
+	/**
+	 * Sets the text of the working document. 
+	 * @param data String
+	 * @see DocumentState#setData(String)
+	 */
 	public void setData(String data) {
-		this.data = data;
+		current.setData(data);
+	}
+	
+	/**
+	 * Returns the number of edits made to the working document. 
+	 * @return long
+	 */
+	public long getVersion() {
+		return current.getVersion();
+	}
+	
+	/**
+	 * Returns a boolean indicating if a result computed against a version of the 
+	 * working document is still current, so that stale results can be dropped. 
+	 * @param version long
+	 * @return boolean
+	 */
+	public boolean isCurrent(long version) {
+		return current.isCurrent(version);
+	}
+	
+	/**
+	 * Returns an immutable snapshot of the working document at its current version. 
+	 * @return DocumentSnapshot
+	 * @throws CobblerException
+	 * @see DocumentState#getSnapshot()
+	 */
+	public DocumentSnapshot getSnapshot() throws CobblerException {
+		return current.getSnapshot();
+	}
+
+	public Document getDocument() {
+		return current.getDocument();
+	}
+
+	public void setDocument(Document document) {
+		current.setDocument(document);
+	}
+
+	public LargeTextFile getLargeFile() {
+		return current.getLargeFile();
+	}
+	
+	public void setLargeFile(LargeTextFile largeFile) {
+		current.setLargeFile(largeFile);
+	}
+
+	public TextFileFormat getFileFormat() {
+		return current.getFileFormat();
+	}
+
+	public void setFileFormat(TextFileFormat fileFormat) {
+		current.setFileFormat(fileFormat);
+	}
+
+	public RecordFormat getRecordFormat() {
+		return current.getRecordFormat();
+	}
+
+	public void setRecordFormat(RecordFormat recordFormat) {
+		current.setRecordFormat(recordFormat);
+	}
+
+	/**
+	 * Returns the edit journal of the current document, giving the document a 
+	 * journal file of its own the first time. 
+	 * @return EditJournal - null when edits are not journaled
+	 */
+	public EditJournal getJournal() {
+		return getJournal(current);
+	}
+	
+	/**
+	 * Returns the edit journal of a document, giving the document a journal file 
+	 * of its own the first time. 
+	 * @param document DocumentState
+	 * @return EditJournal - null when edits are not journaled
+	 */
+	public synchronized EditJournal getJournal(DocumentState document) {
+		if (document.getJournal() == null && journalFile != null) {
+			int number = 0;
+			while (!journalFiles.add(EditJournal.getFile(journalFile, number))) {
+				number++;
+			}
+			document.setJournal(new EditJournal(EditJournal.getFile(journalFile, number)));
+		}
+		return document.getJournal();
+	}
+	
+	/**
+	 * Closes the edit journal of a document and deletes its file, which can then 
+	 * be used by another document. 
+	 * @param document DocumentState
+	 */
+	public synchronized void closeJournal(DocumentState document) {
+		EditJournal documentJournal = document.getJournal();
+		if (documentJournal != null) {
+			documentJournal.close();
+			journalFiles.remove(documentJournal.getFile());
+			document.setJournal(null);
+		}
+	}
+	
+	/**
+	 * Returns a boolean indicating if a journal file belongs to an open document. 
+	 * @param file File
+	 * @return boolean
+	 */
+	public synchronized boolean isJournalInUse(File file) {
+		return journalFiles.contains(file);
+	}
+
+	public File getJournalFile() {
+		return journalFile;
+	}
+
+	/**
+	 * Sets the file of the first edit journal, the journals of further documents 
+	 * are numbered after it. 
+	 * @param journalFile File - null to not journal edits
+	 */
+	public void setJournalFile(File journalFile) {
+		this.journalFile = journalFile;
+	}
+
+	public AutosaveService getAutosave() {
+		return autosave;
+	}
+
+	public void setAutosave(AutosaveService autosave) {
+		this.autosave = autosave;
+	}
+	
+	public FileWatcher getFileWatcher() {
+		return fileWatcher;
+	}
+	
+	public void setFileWatcher(FileWatcher fileWatcher) {
+		this.fileWatcher = fileWatcher;
+	}
+	
+	public SessionFile getSessionFile() {
+		return sessionFile;
+	}
+	
+	public void setSessionFile(SessionFile sessionFile) {
+		this.sessionFile = sessionFile;
 	}
 
 	public boolean isDirty() {
-		return dirty;
+		return current.isDirty();
 	}
 
 	public void setDirty(boolean dirty) {
-		this.dirty = dirty;
+		current.setDirty(dirty);
 	}
 
 	public GuiTheme getCurrentTheme() {
@@ -132,8 +359,16 @@ public final class CobblerState {
 		this.currentTheme = currentTheme;
 	}	
 
-	public ArrayList<String> getRecentFilesList() {
-		return recentFilesList;
+	public RecentFiles getRecentFiles() {
+		return recentFiles;
+	}
+
+	/**
+	 * Returns the paths of the recently opened files, most recent first. 
+	 * @return List of String - a copy, changing it does not change the recent files
+	 */
+	public List<String> getRecentFilesList() {
+		return recentFiles.getPaths();
 	}
 
 	public boolean isSpellcheckOn() {
@@ -153,11 +388,16 @@ public final class CobblerState {
 	}
 
 	public int getMaxNumOfRecentFiles() {
-		return maxNumOfRecentFiles;
+		return recentFiles.getMax();
 	}
 
-	public void setMaxNumOfRecentFiles(int maxNumOfRecentFiles) {
-		this.maxNumOfRecentFiles = maxNumOfRecentFiles;
+	/**
+	 * Sets the number of recent files to keep, dropping the least recent ones over it. 
+	 * @param maxNumOfRecentFiles int
+	 * @return boolean - true if recent files were dropped
+	 */
+	public boolean setMaxNumOfRecentFiles(int maxNumOfRecentFiles) {
+		return recentFiles.setMax(maxNumOfRecentFiles);
 	}
 	
 
@@ -169,11 +409,39 @@ public final class CobblerState {
 		this.addLineIncrementValue = addLineIncrementValue;
 	}
 
+	public boolean isAutosaveOn() {
+		return autosaveOn;
+	}
+
+	public void setAutosaveOn(boolean autosaveOn) {
+		this.autosaveOn = autosaveOn;
+	}
+
+	public int getAutosaveInterval() {
+		return autosaveInterval;
+	}
+
+	public void setAutosaveInterval(int autosaveInterval) {
+		this.autosaveInterval = autosaveInterval;
+	}
+
+	/**
+	 * Returns the number of megabytes the undo history of each open document may take up. 
+	 * @return int
+	 */
+	public int getUndoMemoryLimit() {
+		return undoMemoryLimit;
+	}
+
+	public void setUndoMemoryLimit(int undoMemoryLimit) {
+		this.undoMemoryLimit = undoMemoryLimit;
+	}
+
 	@Override
 	public String toString() {
-		return "CobblerState [file=" + file + ", data=" + data + ", dirty=" + dirty + ", currentTheme=" + currentTheme
+		return "CobblerState [current=" + current + ", currentTheme=" + currentTheme
 				+ ", spellcheckOn=" + spellcheckOn + ", showInvisibleCharacters=" + showInvisibleCharacters
-				+ ", maxNumOfRecentFiles=" + maxNumOfRecentFiles + ", addLineIncrementValue=" + addLineIncrementValue
+				+ ", maxNumOfRecentFiles=" + getMaxNumOfRecentFiles() + ", addLineIncrementValue=" + addLineIncrementValue
 				+ "]";
 	}
 
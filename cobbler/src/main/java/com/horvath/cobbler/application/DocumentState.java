@@ -0,0 +1,424 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.application;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+import com.horvath.cobbler.command.LineNumberCounts;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.CompressedText;
+import com.horvath.cobbler.io.DocumentSnapshot;
+import com.horvath.cobbler.io.DocumentText;
+import com.horvath.cobbler.io.EditJournal;
+import com.horvath.cobbler.io.LargeTextFile;
+import com.horvath.cobbler.io.LineHashes;
+import com.horvath.cobbler.io.RecordFormat;
+import com.horvath.cobbler.io.SnapshotTracker;
+import com.horvath.cobbler.io.TextFileFormat;
+
+/**
+ * The state of one open document: the file it belongs to, its text and the
+ * format it is saved in. Each tab of the window owns one. 
+ * <p>
+ * A document that has not been viewed for a while can be parked, which 
+ * compresses its text outside the heap and lets go of the document along with
+ * everything the text area keeps for it. It is restored into a new document the 
+ * next time it is viewed. 
+ * 
+ * @author jhorvath
+ */
+public final class DocumentState {
+	
+	private File file;
+	private boolean onDisk;
+	private String data;
+	private Document document;
+	private SnapshotTracker snapshots;
+	private volatile long version;
+	private long dataVersion = -1;
+	private TextFileFormat fileFormat;
+	private RecordFormat recordFormat;
+	private boolean dirty;
+	private LineHashes lineHashes;
+	private LineNumberCounts lineNumberCounts;
+	private long savedFingerprint = LineHashes.fingerprint("");
+	private boolean savedKnown = true;
+	private CompressedText parked;
+	private LargeTextFile largeFile;
+	private EditJournal journal;
+	private boolean recovering;
+	
+	public File getFile() {
+		return file;
+	}
+
+	public void setFile(File file) {
+		setFile(file, false);
+	}
+	
+	/**
+	 * Sets the file of the document, noting whether it is a file on disk. It is 
+	 * checked where the file is read or written, so that the event thread never 
+	 * asks the file system, which may be a slow network or removable mount. 
+	 * @param file File
+	 * @param onDisk boolean - false for a member of an archive or a file not saved yet
+	 */
+	public void setFile(File file, boolean onDisk) {
+		this.file = file;
+		this.onDisk = file != null && onDisk;
+	}
+	
+	/**
+	 * Returns a boolean indicating if the file of the document was on disk when 
+	 * it was last loaded or saved. 
+	 * @return boolean
+	 */
+	public boolean isOnDisk() {
+		return onDisk;
+	}
+	
+	/**
+	 * Returns the name of the file of the document. 
+	 * @return String - empty for a document that has no file yet
+	 */
+	public String getName() {
+		return file != null ? file.getName() : "";
+	}
+
+	/**
+	 * Returns the text of the document. When the state is backed by a
+	 * document, the text is a snapshot of the document taken the first time it is
+	 * asked for after an edit, so edits themselves never copy the document. 
+	 * @return String
+	 */
+	public String getData() {
+		if (document != null && (data == null || dataVersion != getVersion())) {
+			final Document source = document;
+			source.render(() -> {
+				try {
+					data = source.getText(0, source.getLength());
+				} catch (BadLocationException ex) {
+					Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+					data = "";
+				}
+				// edits wait for the read lock, so the text is of this version
+				dataVersion = getVersion();
+			});
+		}
+		return data;
+	}
+
+	/**
+	 * Returns the text of the document without copying it. When the state 
+	 * is backed by a document and no current snapshot has been taken, the text is 
+	 * a live view of the document, which must be read on the event thread. 
+	 * @return CharSequence
+	 */
+	public CharSequence getText() {
+		if (document != null && (data == null || dataVersion != getVersion())) {
+			return new DocumentText(document);
+		}
+		return data;
+	}
+
+	/**
+	 * Sets the text of the document. When the state is backed by a document,
+	 * the text stands in for the document until the document is next edited. 
+	 * @param data String
+	 */
+	public void setData(String data) {
+		this.data = data;
+		this.dataVersion = getVersion();
+	}
+	
+	/**
+	 * Returns the number of edits made to the document, which tells whether
+	 * a snapshot of its text is still current. 
+	 * @return long
+	 */
+	public long getVersion() {
+		final SnapshotTracker tracker = snapshots;
+		return tracker != null ? tracker.getVersion() : version;
+	}
+	
+	/**
+	 * Returns a boolean indicating if a result computed against a version of the 
+	 * document is still current, so that stale results can be dropped. 
+	 * @param version long
+	 * @return boolean
+	 */
+	public boolean isCurrent(long version) {
+		return version == getVersion();
+	}
+	
+	/**
+	 * Returns the tracker that counts the edits to the document and takes its snapshots. 
+	 * @return SnapshotTracker - null when no document backs the state
+	 */
+	public SnapshotTracker getSnapshotTracker() {
+		return snapshots;
+	}
+	
+	/**
+	 * Returns an immutable snapshot of the document at its current version,
+	 * which background work can read while the document keeps being edited. 
+	 * Snapshots share the text that has not been edited between them. 
+	 * @return DocumentSnapshot
+	 * @throws CobblerException
+	 */
+	public DocumentSnapshot getSnapshot() throws CobblerException {
+		final SnapshotTracker tracker = snapshots;
+		if (tracker != null) {
+			return tracker.snapshot();
+		}
+		return DocumentSnapshot.of(data != null ? data : "", version);
+	}
+
+	public Document getDocument() {
+		return document;
+	}
+
+	/**
+	 * Sets the document that backs the state. A document given to a state with no 
+	 * unsaved changes is taken as holding the saved text. 
+	 * @param document Document - may be null
+	 */
+	public void setDocument(Document document) {
+		final boolean wasDirty = isDirty();
+		final long next = getVersion() + 1;
+		
+		// the tracker of a document is kept while it backs the state, as the autosave shares it
+		if (snapshots != null && document != this.document) {
+			snapshots.dispose();
+			snapshots = null;
+		}
+		if (document != null && snapshots == null) {
+			snapshots = new SnapshotTracker(document, next);
+		}
+		this.document = document;
+		version = next;
+		
+		if (lineHashes != null) {
+			lineHashes.dispose();
+		}
+		this.lineHashes = document != null ? new LineHashes(document) : null;
+		
+		if (lineNumberCounts != null) {
+			lineNumberCounts.dispose();
+		}
+		this.lineNumberCounts = document != null ? new LineNumberCounts(document) : null;
+		if (lineHashes == null) {
+			dirty = wasDirty;
+		} else if (!wasDirty) {
+			savedFingerprint = lineHashes.getFingerprint();
+		}
+	}
+	
+	/**
+	 * Compresses the text of the document outside the heap and lets go of the 
+	 * document. A document with unsaved changes is never parked. 
+	 * @throws CobblerException
+	 */
+	public void park() throws CobblerException {
+		if (isDirty() || document == null || parked != null) {
+			return;
+		}
+		parked = CompressedText.compress(document);
+		if (fileFormat != null) {
+			fileFormat.detach();
+		}
+		setDocument(null);
+		data = null;
+	}
+	
+	/**
+	 * Restores the text of a parked document into a new, empty document, which 
+	 * then backs the state. 
+	 * @param document Document
+	 * @throws CobblerException
+	 */
+	public void unpark(Document document) throws CobblerException {
+		if (parked == null) {
+			return;
+		}
+		parked.restore(document);
+		parked = null;
+		setDocument(document);
+		
+		// only a document without unsaved changes is parked
+		setDirty(false);
+		
+		// the restored text is the text the format was tracking edits to
+		if (fileFormat != null) {
+			fileFormat.attach(document);
+		}
+	}
+	
+	/**
+	 * Returns a boolean indicating if the document is parked. 
+	 * @return boolean
+	 */
+	public boolean isParked() {
+		return parked != null;
+	}
+	
+	/**
+	 * Returns the compressed text of a parked document. 
+	 * @return CompressedText - null when the document is not parked
+	 */
+	public CompressedText getParkedText() {
+		return parked;
+	}
+	
+	/**
+	 * Returns the file that is viewed a line at a time, because it is too large to 
+	 * be loaded into the document. 
+	 * @return LargeTextFile - null when the document holds the text
+	 */
+	public LargeTextFile getLargeFile() {
+		return largeFile;
+	}
+	
+	/**
+	 * Sets the file that is viewed a line at a time. The file viewed before is closed. 
+	 * @param largeFile LargeTextFile - null when the document holds the text
+	 */
+	public void setLargeFile(LargeTextFile largeFile) {
+		if (this.largeFile != null && this.largeFile != largeFile) {
+			try {
+				this.largeFile.close();
+			} catch (IOException ex) {
+				Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+			}
+		}
+		this.largeFile = largeFile;
+	}
+
+	public TextFileFormat getFileFormat() {
+		return fileFormat;
+	}
+
+	/**
+	 * Sets the format the document is saved in. The previous format stops
+	 * tracking edits to the document.
+	 * @param fileFormat TextFileFormat
+	 */
+	public void setFileFormat(TextFileFormat fileFormat) {
+		if (this.fileFormat != null && this.fileFormat != fileFormat) {
+			this.fileFormat.detach();
+		}
+		this.fileFormat = fileFormat;
+	}
+
+	public RecordFormat getRecordFormat() {
+		return recordFormat;
+	}
+
+	public void setRecordFormat(RecordFormat recordFormat) {
+		this.recordFormat = recordFormat;
+	}
+
+	/**
+	 * Returns a boolean indicating if the document has unsaved changes. When the 
+	 * state is backed by a document, the fingerprint of its text is compared with
+	 * the one it had when it was last saved, so edits that were undone or typed 
+	 * back do not count as changes. 
+	 * @return boolean
+	 */
+	public boolean isDirty() {
+		final LineHashes hashes = lineHashes;
+		if (hashes != null) {
+			return !savedKnown || hashes.getFingerprint() != savedFingerprint;
+		}
+		return dirty;
+	}
+
+	/**
+	 * Sets if the document has unsaved changes. Clearing it takes the text as it is 
+	 * now as the saved text. Setting it marks the document changed until it is next 
+	 * cleared, for text that does not match any saved file. 
+	 * @param dirty boolean
+	 */
+	public void setDirty(boolean dirty) {
+		this.dirty = dirty;
+		this.savedKnown = !dirty;
+		if (!dirty && lineHashes != null) {
+			savedFingerprint = lineHashes.getFingerprint();
+		}
+	}
+	
+	/**
+	 * Returns the fingerprint of the text the document was last saved or loaded with. 
+	 * @return long
+	 */
+	public long getSavedFingerprint() {
+		return savedFingerprint;
+	}
+
+	/**
+	 * Returns what the sequence number area of each line of the document holds, 
+	 * kept up to date with its edits. 
+	 * @return LineNumberCounts - null when the state is not backed by a document
+	 */
+	public LineNumberCounts getLineNumberCounts() {
+		return lineNumberCounts;
+	}
+
+	/**
+	 * Returns the journal the edits to the document are recorded in. 
+	 * @return EditJournal - null until the document is journaled
+	 */
+	public EditJournal getJournal() {
+		return journal;
+	}
+	
+	public void setJournal(EditJournal journal) {
+		this.journal = journal;
+	}
+	
+	/**
+	 * Returns a boolean indicating if the edits to the document are being journaled
+	 * and autosaved, which goes on while other documents are viewed. 
+	 * @return boolean
+	 */
+	public boolean isRecovering() {
+		return recovering;
+	}
+	
+	public void setRecovering(boolean recovering) {
+		this.recovering = recovering;
+	}
+	
+	@Override
+	public String toString() {
+		return "DocumentState [file=" + file + ", dirty=" + isDirty() + ", parked=" + isParked() + "]";
+	}
+
+}
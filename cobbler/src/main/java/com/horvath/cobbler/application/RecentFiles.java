@@ -0,0 +1,606 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.application;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import com.horvath.cobbler.command.AbstractLineNumberCmd.LineState;
+import com.horvath.cobbler.command.CheckLineNumberStateCmd;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.ArchiveIndex;
+import com.horvath.cobbler.io.EbcdicCodePage;
+import com.horvath.cobbler.io.RecordFormat;
+import com.horvath.cobbler.io.TextFileReader;
+
+/**
+ * The files opened most recently, with what is known about each of them. 
+ * <p>
+ * The files are kept in order of use, so bringing a file to the front or dropping
+ * one does not search the list. Besides the code page and record format a file was
+ * used with, the size, time of last change, line number state and caret of each 
+ * file are cached, so the recent files menu is drawn without touching the file 
+ * system. Whether the files are still there is checked on a background thread, 
+ * which on a network drive can take a while. 
+ * 
+ * @author jhorvath
+ */
+public final class RecentFiles {
+	
+	/**
+	 * Files no bigger than this many bytes are read to find their line number state. 
+	 */
+	static final long LINE_STATE_SCAN_LIMIT = 1024 * 1024;
+	
+	/**
+	 * Score added for each character of a filter that matches. 
+	 */
+	private static final int MATCH_SCORE = 1;
+	
+	/**
+	 * Score added when a character matches right after the one before it. 
+	 */
+	private static final int CONSECUTIVE_SCORE = 4;
+	
+	/**
+	 * Score added when a character matches at the start of a word of the path. 
+	 */
+	private static final int WORD_START_SCORE = 3;
+	
+	/**
+	 * Score added when the whole filter matches in the name of the file. 
+	 */
+	private static final int FILE_NAME_SCORE = 10;
+	
+	/**
+	 * What is known about a recent file. 
+	 */
+	public static final class Entry {
+		
+		private final String path;
+		private EbcdicCodePage codePage;
+		private RecordFormat recordFormat;
+		private long size = -1;
+		private long lastModified = 0;
+		private LineState lineState;
+		private int caret = 0;
+		private boolean missing = false;
+		
+		/**
+		 * Constructor. 
+		 * @param path String - absolute path of the file
+		 */
+		public Entry(String path) {
+			this.path = path;
+		}
+		
+		/**
+		 * Copy constructor. 
+		 * @param entry Entry
+		 */
+		private Entry(Entry entry) {
+			this.path = entry.path;
+			this.codePage = entry.codePage;
+			this.recordFormat = entry.recordFormat;
+			this.size = entry.size;
+			this.lastModified = entry.lastModified;
+			this.lineState = entry.lineState;
+			this.caret = entry.caret;
+			this.missing = entry.missing;
+		}
+
+		public String getPath() {
+			return path;
+		}
+		
+		/**
+		 * Returns the name of the file, without the folder it is in. 
+		 * @return String
+		 */
+		public String getName() {
+			return new File(path).getName();
+		}
+
+		public EbcdicCodePage getCodePage() {
+			return codePage;
+		}
+
+		public void setCodePage(EbcdicCodePage codePage) {
+			this.codePage = codePage;
+		}
+
+		public RecordFormat getRecordFormat() {
+			return recordFormat;
+		}
+
+		public void setRecordFormat(RecordFormat recordFormat) {
+			this.recordFormat = recordFormat;
+		}
+
+		/**
+		 * Returns the size of the file when it was last checked. 
+		 * @return long - -1 if it has not been checked
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		public void setSize(long size) {
+			this.size = size;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public void setLastModified(long lastModified) {
+			this.lastModified = lastModified;
+		}
+
+		/**
+		 * Returns the line number state of the file when it was last checked. 
+		 * @return LineState - null if it is not known
+		 */
+		public LineState getLineState() {
+			return lineState;
+		}
+
+		public void setLineState(LineState lineState) {
+			this.lineState = lineState;
+		}
+
+		public int getCaret() {
+			return caret;
+		}
+
+		public void setCaret(int caret) {
+			this.caret = caret;
+		}
+
+		/**
+		 * Returns a boolean indicating if the file was not found when it was last checked. 
+		 * @return boolean
+		 */
+		public boolean isMissing() {
+			return missing;
+		}
+
+		public void setMissing(boolean missing) {
+			this.missing = missing;
+		}
+	}
+	
+	// guarded by this, most recently used last
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+	private int max;
+	private boolean validating = false;
+	private long lastValidated = 0;
+	
+	private ExecutorService validator;
+	
+	/**
+	 * Constructor. 
+	 * @param max int - the number of files to keep
+	 */
+	public RecentFiles(int max) {
+		this.max = max;
+	}
+	
+	/**
+	 * Moves a file to the front of the recent files, adding it if it is not there. 
+	 * @param path String
+	 * @return Entry - a copy of what is known about the file
+	 */
+	public synchronized Entry touch(String path) {
+		Entry entry = entries.remove(path);
+		if (entry == null) {
+			entry = new Entry(path);
+		}
+		entry.missing = false;
+		entries.put(path, entry);
+		trim();
+		return new Entry(entry);
+	}
+	
+	/**
+	 * Adds a file behind the others, as when the recent files are read from the 
+	 * settings from most to least recent. A file that is already there is replaced.
+	 * @param entry Entry
+	 */
+	public synchronized void addOldest(Entry entry) {
+		LinkedHashMap<String, Entry> newer = new LinkedHashMap<>(entries);
+		newer.remove(entry.path);
+		entries.clear();
+		entries.put(entry.path, new Entry(entry));
+		entries.putAll(newer);
+		trim();
+	}
+	
+	/**
+	 * Returns a copy of what is known about a file, without changing its place. 
+	 * @param path String
+	 * @return Entry - null if it is not a recent file
+	 */
+	public synchronized Entry get(String path) {
+		Entry entry = entries.get(path);
+		return entry != null ? new Entry(entry) : null;
+	}
+	
+	/**
+	 * Removes a file from the recent files. 
+	 * @param path String
+	 * @return boolean - true if it was there
+	 */
+	public synchronized boolean remove(String path) {
+		return entries.remove(path) != null;
+	}
+	
+	/**
+	 * Removes all of the recent files. 
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+	
+	/**
+	 * Returns the number of recent files. 
+	 * @return int
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * Returns copies of the recent files, most recent first. 
+	 * @return List of Entry
+	 */
+	public synchronized List<Entry> getEntries() {
+		ArrayList<Entry> list = new ArrayList<>(entries.size());
+		for (Entry entry : entries.values()) {
+			list.add(0, new Entry(entry));
+		}
+		return list;
+	}
+	
+	/**
+	 * Returns the paths of the recent files, most recent first. 
+	 * @return List of String
+	 */
+	public synchronized List<String> getPaths() {
+		ArrayList<String> list = new ArrayList<>(entries.keySet());
+		Collections.reverse(list);
+		return list;
+	}
+	
+	public synchronized int getMax() {
+		return max;
+	}
+	
+	/**
+	 * Sets the number of files to keep, dropping the least recent ones over it. 
+	 * @param max int
+	 * @return boolean - true if files were dropped
+	 */
+	public synchronized boolean setMax(int max) {
+		this.max = max;
+		return trim();
+	}
+	
+	/**
+	 * Drops the least recent files over the maximum. 
+	 * @return boolean - true if files were dropped
+	 */
+	private boolean trim() {
+		boolean trimmed = false;
+		Iterator<String> paths = entries.keySet().iterator();
+		while (entries.size() > max && paths.hasNext()) {
+			paths.next();
+			paths.remove();
+			trimmed = true;
+		}
+		return trimmed;
+	}
+	
+	/**
+	 * Sets the code page a file was last used with. 
+	 * @param path String
+	 * @param codePage EbcdicCodePage - null if the file is not EBCDIC text
+	 */
+	public synchronized void setCodePage(String path, EbcdicCodePage codePage) {
+		Entry entry = entries.get(path);
+		if (entry != null) {
+			entry.codePage = codePage;
+		}
+	}
+	
+	/**
+	 * Sets the record format a file was last used with. 
+	 * @param path String
+	 * @param recordFormat RecordFormat - null if the file is not made up of records
+	 */
+	public synchronized void setRecordFormat(String path, RecordFormat recordFormat) {
+		Entry entry = entries.get(path);
+		if (entry != null) {
+			entry.recordFormat = recordFormat;
+		}
+	}
+	
+	/**
+	 * Sets where the caret of a file was left. 
+	 * @param path String
+	 * @param caret int
+	 */
+	public synchronized void setCaret(String path, int caret) {
+		Entry entry = entries.get(path);
+		if (entry != null) {
+			entry.caret = caret;
+		}
+	}
+	
+	/**
+	 * Returns the recent files that match a filter, best match first. The characters
+	 * of the filter have to appear in the path in the same order, but not next to 
+	 * each other, so <code>pyrl</code> finds <code>PAYROLL.cbl</code>. Files that 
+	 * match equally well are in order of use. 
+	 * @param filter String
+	 * @return List of Entry
+	 */
+	public List<Entry> filter(String filter) {
+		List<Entry> list = getEntries();
+		if (filter == null || filter.isEmpty()) {
+			return list;
+		}
+		
+		ArrayList<Entry> matches = new ArrayList<>();
+		ArrayList<Integer> scores = new ArrayList<>();
+		for (Entry entry : list) {
+			int score = score(filter, entry.path);
+			if (score < 0) {
+				continue;
+			}
+			// insert behind the files with the same score, so the order of use is kept
+			int index = matches.size();
+			while (index > 0 && scores.get(index - 1) < score) {
+				index--;
+			}
+			matches.add(index, entry);
+			scores.add(index, score);
+		}
+		return matches;
+	}
+	
+	/**
+	 * Scores how well a filter matches a path. Matches in the name of the file, at 
+	 * the start of words and of characters next to each other score higher.
+	 * @param filter String
+	 * @param path String
+	 * @return int - -1 if the filter does not match
+	 */
+	static int score(String filter, String path) {
+		String lowerFilter = filter.toLowerCase();
+		String lowerPath = path.toLowerCase();
+		int nameStart = Math.max(lowerPath.lastIndexOf('/'), lowerPath.lastIndexOf('\\')) + 1;
+		
+		// the name of the file is tried on its own first
+		int score = score(lowerFilter, lowerPath, nameStart);
+		if (score >= 0) {
+			return score + FILE_NAME_SCORE;
+		}
+		return score(lowerFilter, lowerPath, 0);
+	}
+	
+	/**
+	 * Scores how well a filter matches a path from a position on. Each place the
+	 * first character of the filter appears is tried as the start of the match, 
+	 * and the rest of the filter is matched as early as possible from there. 
+	 * @param filter String - in lower case
+	 * @param path String - in lower case
+	 * @param from int
+	 * @return int - -1 if the filter does not match
+	 */
+	private static int score(String filter, String path, int from) {
+		if (filter.isEmpty()) {
+			return 0;
+		}
+		int best = -1;
+		char first = filter.charAt(0);
+		for (int start = path.indexOf(first, from); start >= 0; start = path.indexOf(first, start + 1)) {
+			int score = scoreFrom(filter, path, start);
+			if (score < 0) {
+				// the rest of the filter does not fit after a later start either
+				break;
+			}
+			best = Math.max(best, score);
+		}
+		return best;
+	}
+	
+	/**
+	 * Scores a match that starts at a position of the path. 
+	 * @param filter String - in lower case
+	 * @param path String - in lower case
+	 * @param start int - where the first character of the filter is
+	 * @return int - -1 if the filter does not match
+	 */
+	private static int scoreFrom(String filter, String path, int start) {
+		int score = 0;
+		int previous = -2;
+		int p = start;
+		for (int f = 0; f < filter.length(); f++) {
+			char c = filter.charAt(f);
+			while (p < path.length() && path.charAt(p) != c) {
+				p++;
+			}
+			if (p == path.length()) {
+				return -1;
+			}
+			
+			score += MATCH_SCORE;
+			if (p == previous + 1) {
+				score += CONSECUTIVE_SCORE;
+			}
+			if (p == 0 || !Character.isLetterOrDigit(path.charAt(p - 1))) {
+				score += WORD_START_SCORE;
+			}
+			previous = p++;
+		}
+		return score;
+	}
+	
+	/**
+	 * Checks on a background thread whether the recent files are still there, and 
+	 * what their size, time of last change and line number state are. Nothing is 
+	 * checked if a check is underway, or one was started less than the given time
+	 * ago. 
+	 * @param maxAge long - milliseconds a previous check is good for
+	 * @param onChanged Runnable - run on the background thread if a file changed
+	 */
+	public synchronized void validate(long maxAge, Runnable onChanged) {
+		long now = System.currentTimeMillis();
+		if (validating || (lastValidated != 0 && now - lastValidated < maxAge)) {
+			return;
+		}
+		validating = true;
+		lastValidated = now;
+		
+		if (validator == null) {
+			validator = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "Cobbler recent files");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		validator.execute(() -> {
+			try {
+				if (validateAll() && onChanged != null) {
+					onChanged.run();
+				}
+			} finally {
+				synchronized (this) {
+					validating = false;
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Checks each of the recent files. The file system is only touched while the 
+	 * recent files are not locked, so they can be used in the meantime. 
+	 * @return boolean - true if anything changed
+	 */
+	boolean validateAll() {
+		boolean changed = false;
+		for (Entry cached : getEntries()) {
+			Entry checked = check(cached);
+			synchronized (this) {
+				Entry entry = entries.get(cached.path);
+				if (entry == null) {
+					continue;
+				}
+				if (entry.missing != checked.missing || entry.size != checked.size 
+						|| entry.lastModified != checked.lastModified || entry.lineState != checked.lineState) {
+					entry.missing = checked.missing;
+					entry.size = checked.size;
+					entry.lastModified = checked.lastModified;
+					entry.lineState = checked.lineState;
+					changed = true;
+				}
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * Checks a file on disk. 
+	 * @param cached Entry - what was known about the file
+	 * @return Entry - what is known about it now
+	 */
+	private static Entry check(Entry cached) {
+		Entry checked = new Entry(cached);
+		File file = new File(cached.path);
+		checked.missing = !ArchiveIndex.exists(file);
+		if (checked.missing) {
+			return checked;
+		}
+		
+		checked.size = ArchiveIndex.length(file);
+		checked.lastModified = file.exists() ? file.lastModified() : 0;
+		
+		// the line number state is only looked for again once the file has changed
+		boolean unchanged = checked.size == cached.size && checked.lastModified == cached.lastModified;
+		if ((!unchanged || cached.lineState == null) && cached.recordFormat == null 
+				&& checked.size <= LINE_STATE_SCAN_LIMIT) {
+			checked.lineState = readLineState(file, cached.codePage);
+		}
+		return checked;
+	}
+	
+	/**
+	 * Reads a file to find out whether its lines are numbered. 
+	 * @param file File
+	 * @param codePage EbcdicCodePage - null if the file is not EBCDIC text
+	 * @return LineState - null if the file could not be read
+	 */
+	private static LineState readLineState(File file, EbcdicCodePage codePage) {
+		try {
+			String text = new TextFileReader(file, codePage != null ? codePage.getCharset() : null).read();
+			CheckLineNumberStateCmd cmd = new CheckLineNumberStateCmd(text);
+			cmd.perform();
+			return cmd.isSuccess() ? cmd.getLineState() : null;
+			
+		} catch (CobblerException ex) {
+			Debugger.printLog(ex.getMessage() + " " + file.getName(), RecentFiles.class.getName(), Level.WARNING);
+			return null;
+		}
+	}
+	
+	/**
+	 * Stops checking the recent files. 
+	 */
+	public void close() {
+		ExecutorService stopping;
+		synchronized (this) {
+			stopping = validator;
+			validator = null;
+		}
+		if (stopping == null) {
+			return;
+		}
+		stopping.shutdownNow();
+		try {
+			stopping.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
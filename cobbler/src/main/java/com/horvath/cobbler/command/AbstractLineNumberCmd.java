@@ -24,13 +24,17 @@
 
 package com.horvath.cobbler.command;
 
+import java.util.ArrayList;
+
+import com.horvath.cobbler.io.TextLines;
+
 public abstract class AbstractLineNumberCmd extends CobblerCommand {
 	
 	/**
 	 * In Cobol line numbers take up the first 6 columns of a row. Comment
 	 * indicators are in column 7, and statements (Areas A & B) start at column 8.
 	 */
-	protected final static int LAST_NUM_COL = 6;
+	protected final static int LAST_NUM_COL = LineTransform.SEQUENCE_COLUMNS;
 
 	public enum LineState {
 		NUMBERED,
@@ -41,31 +45,15 @@ public abstract class AbstractLineNumberCmd extends CobblerCommand {
 	/**
 	 * Splits the given string on line returns and returns an array of the individual lines.
 	 * 
-	 * @param string String
+	 * @param string CharSequence
 	 * @return String[]
 	 */
-	public static String[] splitStringOnNewlines(String string) {
-		return string.split("\\r?\\n|\\r");
-	}
-	
-	/**
-	 * Checks if the first six characters are all digits. Only returns true if
-	 * the string is 6 or more characters in length and the first 6 are digits.
-	 * 
-	 * @param line String
-	 * @return boolean
-	 */
-	protected boolean firstSixAllDigit(String line) {
-		boolean result = false;
-
-		if (line.length() >= LAST_NUM_COL) {
-			char[] chars = line.toCharArray();
-			if (Character.isDigit(chars[0]) && Character.isDigit(chars[1]) && Character.isDigit(chars[2])
-					&& Character.isDigit(chars[3]) && Character.isDigit(chars[4]) && Character.isDigit(chars[5])) {
-				result = true;
-			}
+	public static String[] splitStringOnNewlines(CharSequence string) {
+		ArrayList<String> list = new ArrayList<>();
+		TextLines lines = new TextLines(string);
+		while (lines.next()) {
+			list.add(lines.getLine());
 		}
-
-		return result;
+		return list.toArray(new String[list.size()]);
 	}
 }
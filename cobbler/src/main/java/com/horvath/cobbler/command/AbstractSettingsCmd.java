@@ -46,13 +46,25 @@ public abstract class AbstractSettingsCmd extends CobblerCommand {
 	public static final String SETTING_FOLDER = USER_HOME + File.separator + "Cobbler";
 	public static final String APP_SETTINGS = SETTING_FOLDER + File.separator + "Cobbler.properties";
 	public static final String APP_DICTIONARY = SETTING_FOLDER + File.separator + "english_dic.zip"; 
+	public static final String APP_JOURNAL = SETTING_FOLDER + File.separator + "Cobbler.journal";
+	public static final String APP_SESSION = SETTING_FOLDER + File.separator + "Cobbler.session";
+	public static final String APP_AUTOSAVE_FOLDER = SETTING_FOLDER + File.separator + "autosave";
 	
 	protected static final String FIELD_THEME = "theme";
 	protected static final String FIELD_RECENT_FILE = "recent";
+	protected static final String FIELD_RECENT_FILE_CODE_PAGE = "recent_codepage";
+	protected static final String FIELD_RECENT_FILE_RECORD_FORMAT = "recent_recfm";
+	protected static final String FIELD_RECENT_FILE_SIZE = "recent_size";
+	protected static final String FIELD_RECENT_FILE_MODIFIED = "recent_modified";
+	protected static final String FIELD_RECENT_FILE_LINE_STATE = "recent_line_state";
+	protected static final String FIELD_RECENT_FILE_CARET = "recent_caret";
 	protected static final String FIELD_SPELL_CHECK_ON = "spellcheck";
 	protected static final String FIELD_SHOW_INVISIBLES = "show_invisibles";
 	protected static final String FIELD_RECENT_FILES_MAX = "max_recent_files";
 	protected static final String FIELD_ADD_LINE_INCREMENT_VALUE = "add_line_increment";
+	protected static final String FIELD_AUTOSAVE_ON = "autosave";
+	protected static final String FIELD_AUTOSAVE_INTERVAL = "autosave_interval";
+	protected static final String FIELD_UNDO_MEMORY_LIMIT = "undo_memory_limit";
 		
 	/**
 	 * Checks that settings folder and file exist, and if they don't creates them. 
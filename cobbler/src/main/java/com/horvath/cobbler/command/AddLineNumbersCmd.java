@@ -24,140 +24,152 @@
 
 package com.horvath.cobbler.command;
 
+import java.util.Collections;
+import java.util.List;
+
 import com.horvath.cobbler.application.CobblerState;
 import com.horvath.cobbler.application.Debugger;
 import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.LineDiff;
 
 /**
  * Performs operations of adding hard coded line numbers to a Cobol file. 
+ * Given a range of lines, the command numbers just those lines, and produces 
+ * the edits that change them in place rather than the whole new text. 
  * @author jhorvath 
  */
 public final class AddLineNumbersCmd extends AbstractLineNumberCmd {
 	
-	private String[] lines;
+	private CharSequence text;
 	private LineState lineState;
 	private int increment;
 	private String result = ""; 
+	private int firstLine = -1;
+	private int lastLine = -1;
+	private List<LineDiff.Hunk> edits = Collections.emptyList();
 	
 	/**
 	 * Constructor. 
-	 * @param text String 
+	 * @param text CharSequence 
 	 * @param lineState LineState
 	 * @param increment int 
 	 */
-	public AddLineNumbersCmd(String text, LineState lineState, int increment) {
-		this.lines = splitStringOnNewlines(text);
+	public AddLineNumbersCmd(CharSequence text, LineState lineState, int increment) {
+		this.text = text;
 		this.lineState = lineState;
 		this.increment = increment;
 	}
+	
+	/**
+	 * Constructor for numbering a range of lines in place. The first line of the 
+	 * range follows on from the number of the line before it, if that line has one. 
+	 * @param text CharSequence 
+	 * @param lineState LineState - of the lines in the range
+	 * @param increment int 
+	 * @param firstLine int - index of the first line to number
+	 * @param lastLine int - index of the last line to number
+	 */
+	public AddLineNumbersCmd(CharSequence text, LineState lineState, int increment, int firstLine, int lastLine) {
+		this(text, lineState, increment);
+		this.firstLine = firstLine;
+		this.lastLine = lastLine;
+	}
 
 	@Override
 	public void perform() throws CobblerException {
 		Debugger.printLog("Adding line numbers. increment: " + increment + " - " + lineState, this.getClass().getName());
 		success = false;
 		
-		if (lineState == LineState.INDETERMINATE) {
-			doIndeterminateNumbering();
-			
+		Numbering numbering = new Numbering(increment, lineState == LineState.INDETERMINATE);
+		if (firstLine >= 0) {
+			edits = numbering.edits(text, firstLine, lastLine);
 		} else {
-			doNumbering();
+			result = numbering.apply(text);
+			CobblerState.getInstance().setData(result);
 		}
-		
-		CobblerState.getInstance().setData(result);
 		success = true;
 	}
 	
 	/**
-	 * Build hard coded line numbers. 
-	 * This method replaces any characters in the first six columns of each line.
+	 * Writes hard coded line numbers over the first six columns of each line. 
 	 */
-	private void doNumbering() {
-		int counter = increment; 
-		StringBuilder sb = new StringBuilder();
+	private static final class Numbering extends LineTransform {
 		
-		for (String line : this.lines) {
-			
-			String formatted = String.format("%06d", counter);
-			
-			if (line.length() < LAST_NUM_COL || line.trim().isEmpty()) {
-				sb.append(formatted);
-				sb.append(System.lineSeparator());
+		private final int increment;
+		private final boolean indeterminate;
+		private int counter;
+		private int linesBefore = 0;
+		
+		/**
+		 * Constructor. 
+		 * @param increment int
+		 * @param indeterminate boolean - true to do the best with lines whose first 
+		 *        six columns are not all white-spaces or all digits
+		 */
+		Numbering(int increment, boolean indeterminate) {
+			this.increment = increment;
+			this.indeterminate = indeterminate;
+			this.counter = increment;
+		}
+
+		@Override
+		protected void precedingLine(CharSequence text, int start, int end) {
+			linesBefore++;
+			if (isSequenceDigits(text, start, end)) {
+				int number = 0;
+				for (int i = start; i < start + LAST_NUM_COL; i++) {
+					number = number * 10 + Character.digit(text.charAt(i), 10);
+				}
+				counter = number + increment;
 			} else {
-				line = formatted + line.substring(LAST_NUM_COL, line.length());
-				sb.append(formatted);
-				sb.append(line.substring(LAST_NUM_COL, line.length()));
-				sb.append(System.lineSeparator());
+				counter = (linesBefore + 1) * increment;
 			}
-			
-			counter = counter + increment;
 		}
-		
-		this.result = sb.toString();
-	}
-	
-	/**
-	 * Build hard coded line numbers. This method does its best to handle
-	 * indeterminate cases where the first six columns are not all white-spaces or
-	 * all digits.
-	 */
-	private void doIndeterminateNumbering() {
-		int counter = increment; 
-		StringBuilder sb = new StringBuilder();
-		
-		for (String line : this.lines) {
+
+		@Override
+		protected LineTransform fork(int firstLine) {
+			Numbering chunk = new Numbering(increment, indeterminate);
+			chunk.counter = (firstLine + 1) * increment;
+			return chunk;
+		}
+
+		@Override
+		protected void transformLine(CharSequence text, int start, int end, Output out) {
+			out.appendNumber(counter, LAST_NUM_COL);
+			counter = counter + increment;
 			
-			String formatted = String.format("%06d", counter);
+			if (isBlank(text, start, end)) {
+				return;
+			}
 			
-			if (line.trim().isEmpty()) {
-				sb.append(formatted);
-				sb.append(System.lineSeparator());
+			if (!indeterminate) {
+				// any characters in the first six columns are replaced
+				if (end - start >= LAST_NUM_COL) {
+					out.append(text, start + LAST_NUM_COL, end);
+				}
 				
-			} else if (firstSixAllDigit(line) || firstSizAllSpaces(line)) {
-				line = formatted + line.substring(LAST_NUM_COL, line.length());
-				sb.append(formatted);
-				sb.append(line.substring(LAST_NUM_COL, line.length()));
-				sb.append(System.lineSeparator());
+			} else if (isSequenceDigits(text, start, end) || isSequenceSpaces(text, start, end)) {
+				out.append(text, start + LAST_NUM_COL, end);
 				
 			} else {
 				// strip off any white space off the front and move the rest over
-				line = line.trim();
-				sb.append(formatted);
-				if (line.charAt(0) == '*' || line.charAt(0) == '-') {
-					sb.append(line);
-				} else {
+				int trimmedStart = trimStart(text, start, end);
+				char first = text.charAt(trimmedStart);
+				if (first != '*' && first != '-') {
 					// shove the text over to Area A, starting at column 8
-					sb.append(" ");
-					sb.append(line);
+					out.append(' ');
 				}
-				sb.append(System.lineSeparator());
+				out.append(text, trimmedStart, trimEnd(text, trimmedStart, end));
 			}
-			
-			counter = counter + increment;
 		}
-		
-		this.result = sb.toString();
 	}
 	
 	/**
-	 * Checks if the first six characters are all white spaces. Only returns true if
-	 * the string is 6 or more characters in length and the first 6 are
-	 * white-spaces.
-	 * 
-	 * @param line String
-	 * @return boolean
+	 * Returns the edits that number the range of lines in place. 
+	 * @return List of LineDiff.Hunk - empty unless a range of lines was given
 	 */
-	private boolean firstSizAllSpaces(String line) {
-		boolean result = false;
-
-		if (line.length() >= LAST_NUM_COL) {
-			char[] chars = line.toCharArray();
-			if (chars[0] == ' ' && chars[1] == ' ' && chars[2] == ' ' && chars[3] == ' ' && chars[4] == ' '
-					&& chars[5] == ' ') {
-				result = true;
-			}
-		}
-
-		return result;
+	public List<LineDiff.Hunk> getEdits() {
+		return edits;
 	}
 	
 	/**
@@ -24,28 +24,35 @@
 
 package com.horvath.cobbler.command;
 
-import java.util.ArrayList;
-
 import com.horvath.cobbler.application.Debugger;
 import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.DocumentSnapshot;
+import com.horvath.cobbler.io.TextLines;
 
 /**
  * Performs check on string for is the file appears to be numbered, not
- * numbered, or if the state of the file cannot be easily determined.
+ * numbered, or if the state of the file cannot be easily determined. 
+ * The text is read where it is kept, so the live text of the document 
+ * can be checked without copying it. Given a {@link DocumentSnapshot}, the
+ * check can run off the event thread, and the result carries the version
+ * of the document it was made against.
  * @author jhorvath
  */
 public final class CheckLineNumberStateCmd extends AbstractLineNumberCmd {
 
-	private String[] lines;
-	private boolean indeterminate = false;
+	private CharSequence text;
 	private LineState lineState;
+	private long version = -1;
 	
 	/**
 	 * Constructor. 
-	 * @param text String
+	 * @param text CharSequence
 	 */
-	public CheckLineNumberStateCmd(String text) {
-		this.lines = splitStringOnNewlines(text);
+	public CheckLineNumberStateCmd(CharSequence text) {
+		this.text = text;
+		if (text instanceof DocumentSnapshot) {
+			this.version = ((DocumentSnapshot) text).getVersion();
+		}
 	}
 	
 	@Override
@@ -54,145 +61,21 @@ public final class CheckLineNumberStateCmd extends AbstractLineNumberCmd {
 		
 		success = false;
 		
-		ArrayList<Boolean> spacesBooleanList = new ArrayList<>();
-		ArrayList<Boolean> digitsBooleanList = new ArrayList<>();
-		
-		for (String line : lines) {
-			
-			if (line.contains("\t")) {
-				indeterminate = true; 
-			}
-			
-			if (line.length() >= LAST_NUM_COL) {
-				// do the whitespace and digit tests
-				boolean spaceline = isSixCharsForWhiteSpace(line);
-				spacesBooleanList.add(spaceline);
-				
-				boolean digitsLine = isSixCharsForDigits(line);
-				digitsBooleanList.add(digitsLine);
-				
-			} else {
-				line = line.trim();
-				if (line.isEmpty()) {
-					continue;
-				} else {
-					// some strange condition has been found
-					indeterminate = true;
-				}
-			}
+		int kinds = 0;
+		TextLines lines = new TextLines(text);
+		while (lines.next()) {
+			kinds |= LineNumberCounts.classify(text, lines.getStart(), lines.getEnd());
 			
-			if (indeterminate) {
+			// nothing further can change an indeterminate result
+			if ((kinds & (LineNumberCounts.TABS | LineNumberCounts.OTHER)) != 0) {
 				break;
 			}
 		}
 		
-		// check lists for indeterminate state
-		checkListsForIndeterminateState(spacesBooleanList, digitsBooleanList);
-		
-		// set result enumeration
-		if (digitsBooleanList.contains(true)) {
-			lineState = LineState.NUMBERED;
-			
-		} else if (spacesBooleanList.contains(true)) {
-			lineState = LineState.NOT_NUMBERED;
-			
-		} 
-		
-		// if global indeterminate
-		if (indeterminate) {
-			lineState = LineState.INDETERMINATE;
-		}
-		
+		lineState = LineNumberCounts.toLineState(kinds);
 		success = true;
 	}
 	
-	/**
-	 * Looks at the first six chars of line to check if they are all word spaces or not.
-	 * Returns true if the first six chars are wordspaces, otherwise returns false.
-	 * 
-	 * @param line String 
-	 * @return boolean 
-	 */
-	private boolean isSixCharsForWhiteSpace(String line) {
-		boolean firstSixColumnsWhiteSpace = true;
-		char[] chars = line.toCharArray();
-		
-		for (int i = 0; i < LAST_NUM_COL; i++) {
-			char c = chars[i];
-			
-			if (c != ' ') {
-				firstSixColumnsWhiteSpace = false;
-				
-				// if the non-word space char is not a digit
-				if (!Character.isDigit(c)) {
-					this.indeterminate = true;
-				}
-				break;
-			}
-		}
-		
-		return firstSixColumnsWhiteSpace;
-	}
-	
-	/**
-	 * Looks at the first six chars of line to check if they are all digits or not. 
-	 * Returns true if first six chars are digits, otherwise returns false.
-	 * 
-	 * @param line String 
-	 * @return boolean 
-	 */
-	private boolean isSixCharsForDigits(String line) {
-		boolean firstSixColumnsdigits = true;
-		char[] chars = line.toCharArray();
-				
-		for (int i = 0; i < 6; i++) {
-			char c = chars[i];
-			
-			// if the char is NOT a digit
-			if (!Character.isDigit(c)) {
-				firstSixColumnsdigits = false;
-				
-				// if the non-digit char is not a word space
-				if (c != ' ') {
-					this.indeterminate = true;
-				}
-				break;
-			}
-		}
-		
-		return firstSixColumnsdigits;
-	}
-	
-	/**
-	 * Checks that the given array lists do not both contain true values. 
-	 * If both lists contain a true value, then state is indertiminate.
-	 *  
-	 * @param listA ArrayList<Boolean>
-	 * @param listB ArrayList<Boolean>
-	 */
-	private void checkListsForIndeterminateState(ArrayList<Boolean> listA, ArrayList<Boolean> listB) {
-		boolean foundTrueListA = false;
-		boolean foundTrueListB = false;
-		
-		for (boolean b : listA) {
-			if (b) {
-				foundTrueListA = true;
-				break;
-			}
-		}
-		
-		for (boolean b : listB) {
-			if (b) {
-				foundTrueListB = true;
-				break;
-			}
-		}
-		
-		if (foundTrueListA && foundTrueListB ) {
-			this.indeterminate = true;
-		}
-	}
-
 	/**
 	 * Get the line state result of the string given to command.
 	 * @return LineState
@@ -200,5 +83,14 @@ public final class CheckLineNumberStateCmd extends AbstractLineNumberCmd {
 	public LineState getLineState() {
 		return lineState;
 	}
+	
+	/**
+	 * Returns the version of the document the line state was found for, or -1 
+	 * if the command was not given a snapshot. 
+	 * @return long
+	 */
+	public long getVersion() {
+		return version;
+	}
 
 }
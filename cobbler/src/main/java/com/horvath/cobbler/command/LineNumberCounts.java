@@ -0,0 +1,350 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.command;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentEvent.ElementChange;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.Segment;
+
+import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.command.AbstractLineNumberCmd.LineState;
+
+/**
+ * Keeps what the sequence number area, columns 1 to 6, of each line of a document 
+ * holds, updated from its edits, with a count of the lines of each kind. 
+ * <p>
+ * An edit only classifies the lines it touched, so the line state of the whole 
+ * document is known from the counts without reading its text. The kinds of the
+ * lines are kept in an array with a gap at the last edit, which an edit further
+ * along the document moves, so the edits of a renumbering are cheap too. 
+ * 
+ * @author jhorvath
+ */
+public final class LineNumberCounts implements DocumentListener {
+	
+	/**
+	 * Kind of a line whose first six columns are all digits. 
+	 */
+	public static final int DIGITS = 1;
+	
+	/**
+	 * Kind of a line whose first six columns are all spaces. 
+	 */
+	public static final int SPACES = 2;
+	
+	/**
+	 * Kind of a line with a tab anywhere in it. 
+	 */
+	public static final int TABS = 4;
+	
+	/**
+	 * Kind of a line with something other than digits or spaces in its first 
+	 * six columns, or with text but fewer than six columns. 
+	 */
+	public static final int OTHER = 8;
+	
+	private final Document document;
+	private final Segment segment = new Segment();
+	
+	// the kinds of the lines, around a gap
+	private byte[] kinds = new byte[256];
+	private int gapStart = 0;
+	private int gapEnd = kinds.length;
+	
+	private int digitsCount;
+	private int spacesCount;
+	private int tabsCount;
+	private int otherCount;
+	
+	/**
+	 * Constructor. Classifies the lines of the document and starts following its 
+	 * edits. Must be called on the event thread. 
+	 * @param document Document
+	 */
+	public LineNumberCounts(Document document) {
+		this.document = document;
+		
+		document.render(() -> {
+			Element root = document.getDefaultRootElement();
+			byte[] lines = new byte[root.getElementCount()];
+			for (int i = 0; i < lines.length; i++) {
+				lines[i] = classifyLine(root.getElement(i));
+			}
+			replace(0, 0, lines);
+			
+			// added under the read lock, so no edit falls between classifying and listening
+			document.addDocumentListener(this);
+		});
+	}
+	
+	/**
+	 * Stops following the edits of the document. 
+	 */
+	public void dispose() {
+		document.removeDocumentListener(this);
+	}
+	
+	@Override
+	public void insertUpdate(DocumentEvent e) {
+		update(e);
+	}
+
+	@Override
+	public void removeUpdate(DocumentEvent e) {
+		update(e);
+	}
+
+	@Override
+	public void changedUpdate(DocumentEvent e) {
+		// attribute changes leave the text as it was
+	}
+	
+	/**
+	 * Classifies again the lines an edit replaced or changed. 
+	 * @param e DocumentEvent
+	 */
+	private void update(DocumentEvent e) {
+		Element root = document.getDefaultRootElement();
+		ElementChange change = e.getChange(root);
+		
+		final int index;
+		final int removed;
+		final Element[] added;
+		if (change != null) {
+			index = change.getIndex();
+			removed = change.getChildrenRemoved().length;
+			added = change.getChildrenAdded();
+		} else {
+			// the edit stayed within one line
+			index = root.getElementIndex(e.getOffset());
+			removed = 1;
+			added = new Element[] { root.getElement(index) };
+		}
+		
+		byte[] lines = new byte[added.length];
+		for (int i = 0; i < added.length; i++) {
+			lines[i] = classifyLine(added[i]);
+		}
+		replace(index, removed, lines);
+	}
+	
+	/**
+	 * Returns the kind of a line of the document, without its line feed. 
+	 * @param line Element
+	 * @return byte
+	 */
+	private byte classifyLine(Element line) {
+		final int start = line.getStartOffset();
+		final int end = Math.min(line.getEndOffset() - 1, document.getLength());
+		
+		try {
+			document.getText(start, end - start, segment);
+			
+		} catch (BadLocationException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+			return 0;
+		}
+		return (byte) classify(segment, 0, segment.length());
+	}
+	
+	/**
+	 * Replaces the kinds of a run of lines, and counts the lines of each kind again. 
+	 * @param index int - the first line
+	 * @param removed int - number of lines replaced
+	 * @param lines byte[] - the kinds of the lines that take their place
+	 */
+	private void replace(int index, int removed, byte[] lines) {
+		moveGap(index);
+		for (int i = gapEnd; i < gapEnd + removed; i++) {
+			count(kinds[i], -1);
+		}
+		gapEnd += removed;
+		
+		if (gapEnd - gapStart < lines.length) {
+			final int after = kinds.length - gapEnd;
+			byte[] grown = Arrays.copyOf(kinds, Math.max(kinds.length * 2, gapStart + lines.length + after));
+			System.arraycopy(kinds, gapEnd, grown, grown.length - after, after);
+			kinds = grown;
+			gapEnd = grown.length - after;
+		}
+		
+		for (byte kind : lines) {
+			count(kind, 1);
+			kinds[gapStart++] = kind;
+		}
+	}
+	
+	/**
+	 * Moves the gap to start before a line. 
+	 * @param index int
+	 */
+	private void moveGap(int index) {
+		if (index < gapStart) {
+			final int n = gapStart - index;
+			System.arraycopy(kinds, index, kinds, gapEnd - n, n);
+			gapStart -= n;
+			gapEnd -= n;
+		} else if (index > gapStart) {
+			final int n = index - gapStart;
+			System.arraycopy(kinds, gapEnd, kinds, gapStart, n);
+			gapStart += n;
+			gapEnd += n;
+		}
+	}
+	
+	/**
+	 * Adds to or takes from the counts of the kinds a line is. 
+	 * @param kind int
+	 * @param delta int
+	 */
+	private void count(int kind, int delta) {
+		if ((kind & DIGITS) != 0) {
+			digitsCount += delta;
+		}
+		if ((kind & SPACES) != 0) {
+			spacesCount += delta;
+		}
+		if ((kind & TABS) != 0) {
+			tabsCount += delta;
+		}
+		if ((kind & OTHER) != 0) {
+			otherCount += delta;
+		}
+	}
+	
+	/**
+	 * Returns the number of lines of the document. 
+	 * @return int
+	 */
+	public int getLineCount() {
+		return kinds.length - (gapEnd - gapStart);
+	}
+	
+	/**
+	 * Returns the kind of a line. 
+	 * @param line int
+	 * @return int - a combination of the kinds, 0 for a blank line or one mixing 
+	 *         digits and spaces
+	 */
+	public int getKind(int line) {
+		return kinds[line < gapStart ? line : line + gapEnd - gapStart];
+	}
+	
+	/**
+	 * Returns the line state of the whole document. Must be called on the event thread. 
+	 * @return LineState - null if no line tells either way
+	 */
+	public LineState getLineState() {
+		int found = 0;
+		found |= digitsCount > 0 ? DIGITS : 0;
+		found |= spacesCount > 0 ? SPACES : 0;
+		found |= tabsCount > 0 ? TABS : 0;
+		found |= otherCount > 0 ? OTHER : 0;
+		return toLineState(found);
+	}
+	
+	/**
+	 * Returns the line state of a range of lines. Must be called on the event thread. 
+	 * @param firstLine int
+	 * @param lastLine int
+	 * @return LineState - null if no line tells either way
+	 */
+	public LineState getLineState(int firstLine, int lastLine) {
+		int found = 0;
+		for (int i = Math.max(0, firstLine); i <= lastLine && i < getLineCount(); i++) {
+			found |= getKind(i);
+		}
+		return toLineState(found);
+	}
+	
+	/**
+	 * Returns the line state of text whose lines are of the given kinds. Lines 
+	 * both with and without numbers, or with anything else in the sequence number 
+	 * area, make the state indeterminate. 
+	 * @param kinds int - the kinds of all the lines combined
+	 * @return LineState - null if no line tells either way
+	 */
+	public static LineState toLineState(int kinds) {
+		if ((kinds & (TABS | OTHER)) != 0 || (kinds & (DIGITS | SPACES)) == (DIGITS | SPACES)) {
+			return LineState.INDETERMINATE;
+		} else if ((kinds & DIGITS) != 0) {
+			return LineState.NUMBERED;
+		} else if ((kinds & SPACES) != 0) {
+			return LineState.NOT_NUMBERED;
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns the kind of a line. The first six columns are looked at up to the first
+	 * character that is not a space, and up to the first that is not a digit, so a
+	 * line mixing the two is of neither kind. 
+	 * @param text CharSequence
+	 * @param start int - offset of the first character of the line
+	 * @param end int - offset after the last character of the line
+	 * @return int - a combination of the kinds, 0 for a blank line or one mixing 
+	 *         digits and spaces
+	 */
+	public static int classify(CharSequence text, int start, int end) {
+		int kind = 0;
+		for (int i = start; i < end; i++) {
+			if (text.charAt(i) == '\t') {
+				kind = TABS;
+				break;
+			}
+		}
+		
+		if (end - start < LineTransform.SEQUENCE_COLUMNS) {
+			return LineTransform.isBlank(text, start, end) ? kind : kind | OTHER;
+		}
+		
+		final int area = start + LineTransform.SEQUENCE_COLUMNS;
+		int space = start;
+		while (space < area && text.charAt(space) == ' ') {
+			space++;
+		}
+		int digit = start;
+		while (digit < area && Character.isDigit(text.charAt(digit))) {
+			digit++;
+		}
+		
+		if (space == area) {
+			return kind | SPACES;
+		} else if (digit == area) {
+			return kind | DIGITS;
+		} else if (!Character.isDigit(text.charAt(space)) || text.charAt(digit) != ' ') {
+			return kind | OTHER;
+		}
+		return kind;
+	}
+
+}
@@ -0,0 +1,532 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.command;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.horvath.cobbler.io.LineDiff;
+import com.horvath.cobbler.io.TextLines;
+
+/**
+ * Rewrites a text a line at a time, in a single pass over the text. 
+ * <p>
+ * The lines are handed to {@link #transformLine(CharSequence, int, int, Output)} 
+ * by their offsets, and what a transform writes goes straight into one growing 
+ * character buffer, so no String is made per line. Every line written is ended 
+ * with the line terminator of the editor document. The static methods classify 
+ * the sequence number area, columns 1 to 6, of a line where it is kept. 
+ * <p>
+ * A transform can also be turned into the edits that change a range of lines in 
+ * place. Each line is compared with what the transform makes of it, and only the
+ * columns between the first and last characters that differ are replaced, so 
+ * renumbering a line costs the six characters of its sequence number. 
+ * <p>
+ * A large text is transformed in chunks on the common {@link ForkJoinPool} when the 
+ * transform can {@link #fork(int)} a copy of itself for the lines of a chunk. The
+ * lines of each chunk are counted first, which tells every chunk the index of its
+ * first line, and the chunks written are joined in order, so the result is the same
+ * as that of a single pass. 
+ * 
+ * @author jhorvath
+ */
+public abstract class LineTransform {
+	
+	/**
+	 * Number of columns of the sequence number area at the start of a Cobol line. 
+	 */
+	public static final int SEQUENCE_COLUMNS = 6;
+	
+	/**
+	 * Line terminator written after each line, that of the editor document. The 
+	 * terminators of the file on disk are restored when the document is saved.
+	 */
+	public static final char EOL = '\n';
+	
+	/**
+	 * Length of the smallest text that is transformed in chunks. 
+	 */
+	static final int PARALLEL_MIN_LENGTH = 1 << 20;
+	
+	/**
+	 * Length of the smallest chunk a text is split into. 
+	 */
+	private static final int CHUNK_MIN_LENGTH = 1 << 18;
+	
+	/**
+	 * Number of chunks for each thread of the pool, so that a thread finished early 
+	 * can take over the work of one that is not. 
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+	
+	/**
+	 * The buffer the lines of a transformed text are written into. 
+	 */
+	public static final class Output {
+		
+		private char[] chars;
+		private int length = 0;
+		
+		/**
+		 * Constructor. 
+		 * @param capacity int - number of characters expected
+		 */
+		Output(int capacity) {
+			this.chars = new char[Math.max(16, capacity)];
+		}
+		
+		/**
+		 * Writes a character. 
+		 * @param c char
+		 */
+		public void append(char c) {
+			ensureCapacity(1);
+			chars[length++] = c;
+		}
+		
+		/**
+		 * Writes a run of characters of a text. 
+		 * @param text CharSequence
+		 * @param start int - offset of the first character
+		 * @param end int - offset after the last character
+		 */
+		public void append(CharSequence text, int start, int end) {
+			if (end <= start) {
+				return;
+			}
+			ensureCapacity(end - start);
+			if (text instanceof String) {
+				((String) text).getChars(start, end, chars, length);
+				length += end - start;
+			} else {
+				for (int i = start; i < end; i++) {
+					chars[length++] = text.charAt(i);
+				}
+			}
+		}
+		
+		/**
+		 * Writes a run of characters of an array. 
+		 * @param source char[]
+		 * @param start int - index of the first character
+		 * @param end int - index after the last character
+		 */
+		public void append(char[] source, int start, int end) {
+			if (end <= start) {
+				return;
+			}
+			ensureCapacity(end - start);
+			System.arraycopy(source, start, chars, length, end - start);
+			length += end - start;
+		}
+		
+		/**
+		 * Writes a character a number of times. 
+		 * @param c char
+		 * @param count int
+		 */
+		public void repeat(char c, int count) {
+			ensureCapacity(count);
+			Arrays.fill(chars, length, length + count, c);
+			length += count;
+		}
+		
+		/**
+		 * Writes a number in decimal digits, padded with zeros on the left to a width, 
+		 * in the way <code>String.format("%06d", number)</code> would. 
+		 * @param number int - not negative
+		 * @param width int
+		 */
+		public void appendNumber(int number, int width) {
+			int digits = 1;
+			for (int n = number / 10; n > 0; n /= 10) {
+				digits++;
+			}
+			int count = Math.max(digits, width);
+			ensureCapacity(count);
+			
+			// the digits are written from the right
+			int i = length + count;
+			for (int n = number; i > length + count - digits; n /= 10) {
+				chars[--i] = (char) ('0' + n % 10);
+			}
+			Arrays.fill(chars, length, i, '0');
+			length += count;
+		}
+		
+		/**
+		 * Forgets what was written, keeping the buffer. 
+		 */
+		void clear() {
+			length = 0;
+		}
+		
+		/**
+		 * Returns the number of characters written. 
+		 * @return int
+		 */
+		public int length() {
+			return length;
+		}
+		
+		/**
+		 * Makes room for more characters, doubling the buffer as it fills up. 
+		 * @param more int
+		 */
+		private void ensureCapacity(int more) {
+			if (length + more > chars.length) {
+				chars = Arrays.copyOf(chars, Math.max(length + more, chars.length * 2));
+			}
+		}
+		
+		@Override
+		public String toString() {
+			return new String(chars, 0, length);
+		}
+	}
+	
+	/**
+	 * Transforms a text. Lines are split as by {@link TextLines}. 
+	 * @param text CharSequence
+	 * @return String - the transformed lines, each ended with {@link #EOL}
+	 */
+	public final String apply(CharSequence text) {
+		final int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		if (text.length() < PARALLEL_MIN_LENGTH || parallelism < 2) {
+			return apply(text, 1);
+		}
+		return apply(text, Math.min(parallelism * CHUNKS_PER_THREAD, text.length() / CHUNK_MIN_LENGTH));
+	}
+	
+	/**
+	 * Transforms a text split into a number of chunks at line boundaries. 
+	 * @param text CharSequence
+	 * @param chunkCount int - 1 to transform the text in a single pass
+	 * @return String - the transformed lines, each ended with {@link #EOL}
+	 */
+	final String apply(CharSequence text, int chunkCount) {
+		if (chunkCount < 2 || fork(0) == null) {
+			Output out = outputFor(text.length());
+			transformLines(new TextLines(text), out);
+			return out.toString();
+		}
+		
+		// the chunks are read from several threads, which a view of a document does not allow
+		final String source = text.toString();
+		List<Chunk> chunks = split(source, chunkCount);
+		
+		List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks.size());
+		for (Chunk chunk : chunks) {
+			tasks.add(ForkJoinTask.adapt(chunk::countLines));
+		}
+		ForkJoinTask.invokeAll(tasks);
+		
+		// each chunk starts numbering where the lines of the chunks before it end
+		int firstLine = 0;
+		tasks.clear();
+		for (Chunk chunk : chunks) {
+			chunk.transform = fork(firstLine);
+			firstLine += chunk.lineCount;
+			tasks.add(ForkJoinTask.adapt(chunk::transformLines));
+		}
+		ForkJoinTask.invokeAll(tasks);
+		
+		int length = 0;
+		for (Chunk chunk : chunks) {
+			join(chunk.transform);
+			length += chunk.out.length;
+		}
+		char[] chars = new char[length];
+		int offset = 0;
+		for (Chunk chunk : chunks) {
+			System.arraycopy(chunk.out.chars, 0, chars, offset, chunk.out.length);
+			offset += chunk.out.length;
+		}
+		return new String(chars);
+	}
+	
+	/**
+	 * Splits a text into chunks of around the same length, each starting at the start of a line. 
+	 * @param text String
+	 * @param chunkCount int
+	 * @return List of Chunk - in order, covering the whole text
+	 */
+	private List<Chunk> split(String text, int chunkCount) {
+		List<Chunk> chunks = new ArrayList<>(chunkCount);
+		final long length = text.length();
+		int start = 0;
+		
+		for (int i = 1; i < chunkCount && start < length; i++) {
+			int end = Math.max(start, (int) (length * i / chunkCount));
+			
+			// move past the terminator of the line the chunk would end in
+			while (end < length && text.charAt(end) != '\n' && text.charAt(end) != '\r') {
+				end++;
+			}
+			if (end < length && text.charAt(end) == '\r' && end + 1 < length && text.charAt(end + 1) == '\n') {
+				end++;
+			}
+			end = (int) Math.min(end + 1L, length);
+			
+			chunks.add(new Chunk(text, start, end));
+			start = end;
+		}
+		if (start < length || chunks.isEmpty()) {
+			chunks.add(new Chunk(text, start, text.length()));
+		}
+		return chunks;
+	}
+	
+	/**
+	 * Transforms the lines stepped through, ending each with {@link #EOL}. 
+	 * @param lines TextLines
+	 * @param out Output
+	 */
+	private void transformLines(TextLines lines, Output out) {
+		final CharSequence text = lines.getText();
+		while (lines.next()) {
+			transformLine(text, lines.getStart(), lines.getEnd(), out);
+			out.append(EOL);
+		}
+	}
+	
+	/**
+	 * Returns a buffer for the transformed version of a number of characters. 
+	 * @param length int
+	 * @return Output
+	 */
+	private static Output outputFor(int length) {
+		// room for the text with a sequence number added to lines of around 60 characters
+		return new Output(length + length / 8 + 16);
+	}
+	
+	/**
+	 * A part of a text transformed on its own, by a transform forked for its lines. 
+	 */
+	private static final class Chunk {
+		
+		private final String text;
+		private final int start;
+		private final int end;
+		private int lineCount = 0;
+		private LineTransform transform;
+		private Output out;
+		
+		/**
+		 * Constructor. 
+		 * @param text String - the whole text
+		 * @param start int - offset of the start of the first line
+		 * @param end int - offset after the terminator of the last line
+		 */
+		Chunk(String text, int start, int end) {
+			this.text = text;
+			this.start = start;
+			this.end = end;
+		}
+		
+		/**
+		 * Counts the lines of the chunk. 
+		 */
+		void countLines() {
+			TextLines lines = new TextLines(text, start, end);
+			while (lines.next()) {
+				lineCount++;
+			}
+		}
+		
+		/**
+		 * Transforms the lines of the chunk. 
+		 */
+		void transformLines() {
+			out = outputFor(end - start);
+			transform.transformLines(new TextLines(text, start, end), out);
+		}
+	}
+	
+	/**
+	 * Returns the edits that transform a range of lines in place. Lines are split
+	 * as by {@link TextLines}, and their terminators are left as they are. 
+	 * @param text CharSequence
+	 * @param firstLine int - index of the first line to transform
+	 * @param lastLine int - index of the last line to transform
+	 * @return List of LineDiff.Hunk - the replacements, in order of their offsets
+	 */
+	public final List<LineDiff.Hunk> edits(CharSequence text, int firstLine, int lastLine) {
+		List<LineDiff.Hunk> edits = new ArrayList<>();
+		Output out = new Output(256);
+		
+		TextLines lines = new TextLines(text);
+		for (int index = 0; index <= lastLine && lines.next(); index++) {
+			final int start = lines.getStart();
+			final int end = lines.getEnd();
+			if (index < firstLine) {
+				precedingLine(text, start, end);
+				continue;
+			}
+			
+			out.clear();
+			transformLine(text, start, end, out);
+			
+			// only the columns from the first to the last that differ are replaced
+			final int length = end - start;
+			int prefix = 0;
+			while (prefix < length && prefix < out.length && text.charAt(start + prefix) == out.chars[prefix]) {
+				prefix++;
+			}
+			if (prefix == length && prefix == out.length) {
+				continue;
+			}
+			int suffix = 0;
+			while (suffix < length - prefix && suffix < out.length - prefix 
+					&& text.charAt(end - 1 - suffix) == out.chars[out.length - 1 - suffix]) {
+				suffix++;
+			}
+			edits.add(new LineDiff.Hunk(start + prefix, length - prefix - suffix, 
+					new String(out.chars, prefix, out.length - prefix - suffix)));
+		}
+		return edits;
+	}
+	
+	/**
+	 * Called with each line before the range being transformed, so a transform can
+	 * pick up where those lines leave off. Does nothing unless overridden. 
+	 * @param text CharSequence - the whole text
+	 * @param start int - offset of the first character of the line
+	 * @param end int - offset after the last character of the line
+	 */
+	protected void precedingLine(CharSequence text, int start, int end) {
+	}
+	
+	/**
+	 * Returns a new transform for the lines of a chunk of the text, from the line 
+	 * at an index on, or null if the lines must be transformed in a single pass. 
+	 * Returns null unless overridden. 
+	 * @param firstLine int - index of the first line of the chunk
+	 * @return LineTransform
+	 */
+	protected LineTransform fork(int firstLine) {
+		return null;
+	}
+	
+	/**
+	 * Takes in what a transform forked for a chunk gathered, once its lines are 
+	 * transformed. The chunks are joined in the order of their lines. Does nothing 
+	 * unless overridden. 
+	 * @param chunk LineTransform - returned by {@link #fork(int)}
+	 */
+	protected void join(LineTransform chunk) {
+	}
+	
+	/**
+	 * Writes the transformed version of a line, without its line terminator. 
+	 * @param text CharSequence - the whole text
+	 * @param start int - offset of the first character of the line
+	 * @param end int - offset after the last character of the line
+	 * @param out Output
+	 */
+	protected abstract void transformLine(CharSequence text, int start, int end, Output out);
+	
+	/**
+	 * Returns a boolean indicating if the first six columns of a line are all digits. 
+	 * @param text CharSequence
+	 * @param start int - offset of the first character of the line
+	 * @param end int - offset after the last character of the line
+	 * @return boolean - false if the line is shorter than six columns
+	 */
+	public static boolean isSequenceDigits(CharSequence text, int start, int end) {
+		if (end - start < SEQUENCE_COLUMNS) {
+			return false;
+		}
+		for (int i = start; i < start + SEQUENCE_COLUMNS; i++) {
+			if (!Character.isDigit(text.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns a boolean indicating if the first six columns of a line are all spaces. 
+	 * @param text CharSequence
+	 * @param start int - offset of the first character of the line
+	 * @param end int - offset after the last character of the line
+	 * @return boolean - false if the line is shorter than six columns
+	 */
+	public static boolean isSequenceSpaces(CharSequence text, int start, int end) {
+		if (end - start < SEQUENCE_COLUMNS) {
+			return false;
+		}
+		for (int i = start; i < start + SEQUENCE_COLUMNS; i++) {
+			if (text.charAt(i) != ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns a boolean indicating if a line is empty once trimmed, in the way 
+	 * {@link String#trim()} trims. 
+	 * @param text CharSequence
+	 * @param start int - offset of the first character of the line
+	 * @param end int - offset after the last character of the line
+	 * @return boolean
+	 */
+	public static boolean isBlank(CharSequence text, int start, int end) {
+		return trimStart(text, start, end) == end;
+	}
+	
+	/**
+	 * Returns the offset of the first character of a line that {@link String#trim()} would keep. 
+	 * @param text CharSequence
+	 * @param start int
+	 * @param end int
+	 * @return int - end if the line is blank
+	 */
+	public static int trimStart(CharSequence text, int start, int end) {
+		while (start < end && text.charAt(start) <= ' ') {
+			start++;
+		}
+		return start;
+	}
+	
+	/**
+	 * Returns the offset after the last character of a line that {@link String#trim()} would keep. 
+	 * @param text CharSequence
+	 * @param start int
+	 * @param end int
+	 * @return int - start if the line is blank
+	 */
+	public static int trimEnd(CharSequence text, int start, int end) {
+		while (end > start && text.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		return end;
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.command;
+
+import java.io.File;
+import java.util.List;
+import java.util.logging.Level;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.EbcdicCodePage;
+import com.horvath.cobbler.io.LineDiff;
+import com.horvath.cobbler.io.RecordFileReader;
+import com.horvath.cobbler.io.RecordFormat;
+import com.horvath.cobbler.io.TextFileFormat;
+import com.horvath.cobbler.io.TextFileReader;
+
+/**
+ * Command for recovering the unsaved work a crash left in the autosave sidecar of
+ * a file. The sidecar is read in the format of the file and compared with the 
+ * document holding the file, and the lines that differ are returned as edits, so 
+ * that the recovered work can be undone like any other edit. 
+ * @author jhorvath 
+ */
+public final class LoadAutosaveCmd extends CobblerCommand {
+	
+	private File sidecar;
+	private Document document;
+	private TextFileFormat format;
+	private RecordFormat recordFormat;
+	private List<LineDiff.Hunk> edits;
+	
+	public static final String ERROR_NO_AUTOSAVE = "There is no autosaved copy of the file.";
+	
+	/**
+	 * Constructor. 
+	 * @param sidecar File - the sidecar the document was autosaved to
+	 * @param document Document - the document holding the file
+	 * @param format TextFileFormat - the format the file was read in, may be null
+	 * @param recordFormat RecordFormat - the record format of the file, null for a text file
+	 */
+	public LoadAutosaveCmd(File sidecar, Document document, TextFileFormat format, RecordFormat recordFormat) {
+		this.sidecar = sidecar;
+		this.document = document;
+		this.format = format;
+		this.recordFormat = recordFormat;
+	}
+	
+	/**
+	 * Returns a boolean indicating if a sidecar was autosaved after its file was 
+	 * last written, so it may hold work that was never saved. 
+	 * @param sidecar File
+	 * @param file File
+	 * @return boolean
+	 */
+	public static boolean isNewer(File sidecar, File file) {
+		return sidecar.isFile() && file.isFile() && sidecar.lastModified() > file.lastModified();
+	}
+
+	@Override
+	public void perform() throws CobblerException {
+		
+		this.success = false;
+		
+		if (sidecar == null || !sidecar.isFile()) {
+			this.message = ERROR_NO_AUTOSAVE;
+			Debugger.printLog(this.message, this.getClass().getName(), Level.WARNING);
+			return;
+		}
+		
+		Debugger.printLog("Loading autosaved copy " + sidecar.getName(), this.getClass().getName());
+		
+		// the sidecar was written in the format of the file
+		StringBuilder contents = new StringBuilder((int) Math.min(Integer.MAX_VALUE, sidecar.length()));
+		TextFileReader.ChunkHandler collector = (chars, length) -> contents.append(chars, 0, length);
+		
+		if (recordFormat != null) {
+			new RecordFileReader(sidecar, recordFormat).read(collector);
+		} else {
+			EbcdicCodePage codePage = format != null ? EbcdicCodePage.fromCharset(format.getCharset()) : null;
+			new TextFileReader(sidecar, codePage != null ? codePage.getCharset() : null).read(collector);
+		}
+		
+		this.edits = LineDiff.diff(getText(), contents.toString());
+		this.success = true;
+	}
+	
+	/**
+	 * Returns a copy of the text in the document. 
+	 * @return String
+	 */
+	private String getText() {
+		final Segment segment = new Segment();
+		final String[] text = new String[1];
+		document.render(() -> {
+			try {
+				document.getText(0, document.getLength(), segment);
+				text[0] = segment.toString();
+				
+			} catch (BadLocationException ex) {
+				Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+				text[0] = "";
+			}
+		});
+		return text[0];
+	}
+	
+	/**
+	 * Returns the edits that turn the document into the autosaved copy, in document order. 
+	 * @return List<LineDiff.Hunk> - null until the command has been performed
+	 */
+	public List<LineDiff.Hunk> getEdits() {
+		return edits;
+	}
+
+}
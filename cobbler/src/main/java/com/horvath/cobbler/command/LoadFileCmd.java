@@ -27,9 +27,18 @@ package com.horvath.cobbler.command;
 import java.io.File;
 import java.util.logging.Level;
 
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
 import com.horvath.cobbler.application.CobblerState;
 import com.horvath.cobbler.application.Debugger;
 import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.ArchiveIndex;
+import com.horvath.cobbler.io.EbcdicCodePage;
+import com.horvath.cobbler.io.LargeTextFile;
+import com.horvath.cobbler.io.RecordFileReader;
+import com.horvath.cobbler.io.RecordFormat;
+import com.horvath.cobbler.io.TextFileFormat;
 import com.horvath.cobbler.io.TextFileReader;
 
 /**
@@ -39,30 +48,147 @@ import com.horvath.cobbler.io.TextFileReader;
 public final class LoadFileCmd extends CobblerCommand {
 	
 	private File file;
+	private Document document;
+	private EbcdicCodePage codePage;
+	private RecordFormat recordFormat;
+	private TextFileReader.ChunkHandler appender;
+	private LargeTextFile.ProgressListener indexListener;
+	private boolean updatesState = true;
+	
+	// what was read, until it is applied to the state
+	private boolean loaded = false;
+	private boolean onDisk = false;
+	private String data;
+	private LargeTextFile largeFile;
+	private TextFileFormat format;
+	
+	/**
+	 * Size in bytes from which a text file is viewed a line at a time instead of 
+	 * being loaded into the document. 
+	 */
+	public static final long LARGE_FILE_THRESHOLD = 64L * 1024 * 1024;
+	
+	private static long largeFileThreshold = LARGE_FILE_THRESHOLD;
 	
 	public static final String ERROR_FILE_IS_NULL = "The file must not be null.";
 	public static final String ERROR_FILE_NOT_FOUND = "The file was not found.";
 	public static final String ERROR_UNKOWN_LOAD_PROBLEM = "There was an unexpected problem loading the file.";
+	public static final String ERROR_NOT_PERFORMED = "The file must be read before it is applied to the state.";
 
 	/**
 	 * Constructor. 
 	 * @param file File 
 	 */
 	public LoadFileCmd(File file) {
+		this(file, null);
+	}
+	
+	/**
+	 * Constructor. When a document is given, the file contents are decoded
+	 * straight into the document and the state is backed by it, instead of
+	 * holding a String copy of the file.
+	 * 
+	 * @param file File 
+	 * @param document Document
+	 */
+	public LoadFileCmd(File file, Document document) {
+		this(file, document, (EbcdicCodePage) null);
+	}
+	
+	/**
+	 * Constructor. The file is decoded from the given EBCDIC code page instead
+	 * of having its charset detected.
+	 * 
+	 * @param file File 
+	 * @param document Document - may be null to load the file into the state data
+	 * @param codePage EbcdicCodePage - may be null to detect the charset
+	 */
+	public LoadFileCmd(File file, Document document, EbcdicCodePage codePage) {
+		this.file = file;
+		this.document = document;
+		this.codePage = codePage;
+	}
+	
+	/**
+	 * Constructor. The file is read as a record format dataset, each record
+	 * becoming a line of the document.
+	 * 
+	 * @param file File 
+	 * @param document Document - may be null to load the file into the state data
+	 * @param recordFormat RecordFormat
+	 */
+	public LoadFileCmd(File file, Document document, RecordFormat recordFormat) {
 		this.file = file;
+		this.document = document;
+		this.recordFormat = recordFormat;
+	}
+	
+	/**
+	 * Sets a handler that the decoded chunks are passed to instead of being 
+	 * inserted into the document, so that a command performed off the event 
+	 * thread can have them appended to the document on the event thread. The 
+	 * document is not cleared by the command and must be empty when it is performed. 
+	 * 
+	 * @param appender TextFileReader.ChunkHandler - may be null to insert into the document directly
+	 */
+	public void setAppender(TextFileReader.ChunkHandler appender) {
+		this.appender = appender;
+	}
+	
+	/**
+	 * Sets whether performing the command backs the state with the file it read. A
+	 * command performed off the event thread only reads the file, and its owner calls
+	 * {@link #applyToState()} on the event thread afterwards, since updating the state
+	 * adds listeners to the document and changes what the window shows. 
+	 * 
+	 * @param updatesState boolean - true by default
+	 */
+	public void setUpdatesState(boolean updatesState) {
+		this.updatesState = updatesState;
+	}
+	
+	/**
+	 * Sets a listener told how far a large file has been indexed, which can stop 
+	 * the load by throwing. 
+	 * @param indexListener LargeTextFile.ProgressListener - may be null
+	 */
+	public void setIndexListener(LargeTextFile.ProgressListener indexListener) {
+		this.indexListener = indexListener;
+	}
+	
+	/**
+	 * Sets the size from which text files are viewed a line at a time. 
+	 * @param threshold long - size in bytes
+	 */
+	static void setLargeFileThreshold(long threshold) {
+		largeFileThreshold = threshold;
+	}
+	
+	/**
+	 * Reads a file into a document. 
+	 */
+	private interface DocumentSource {
+		
+		/**
+		 * Appends the contents of the file to the document. 
+		 * @param document Document
+		 * @throws CobblerException
+		 */
+		void read(Document document) throws CobblerException;
 	}
 	
 	@Override
 	public void perform() throws CobblerException {
 		
 		this.success = false;
+		this.loaded = false;
 		
 		if (file == null) {
 			this.message = ERROR_FILE_IS_NULL;
 			Debugger.printLog(this.message, this.getClass().getName(), Level.WARNING);
 			return;
 		}
-		if (!file.exists()) {
+		if (!ArchiveIndex.exists(file)) {
 			this.message = ERROR_FILE_NOT_FOUND;
 			Debugger.printLog(this.message + " " + this.file.getAbsolutePath(), this.getClass().getName(), Level.WARNING);
 			return;
@@ -70,23 +196,171 @@ public final class LoadFileCmd extends CobblerCommand {
 		
 		Debugger.printLog("Loading file " + file.getName(), this.getClass().getName());
 		
-		String data;
-		try {
-			TextFileReader reader = new TextFileReader(file);
-			data = reader.read();
+		TextFileReader reader = new TextFileReader(file, codePage != null ? codePage.getCharset() : null);
+		RecordFileReader recordReader = recordFormat != null ? new RecordFileReader(file, recordFormat) : null;
+		
+		this.data = null;
+		this.largeFile = null;
+		this.format = null;
+		
+		if (document == null) {
+			try {
+				this.data = recordReader != null ? recordReader.read() : reader.read();
+				
+			} catch (CobblerException ex) {
+				throw new CobblerException(ERROR_UNKOWN_LOAD_PROBLEM);
+			}
 			
-		} catch (CobblerException ex) {
-			throw new CobblerException(ERROR_UNKOWN_LOAD_PROBLEM);
+		} else if (isLargeFile() && loadLargeFile()) {
+			// the file is read from disk as it is viewed, the document stays empty
+			
+		} else {
+			if (appender != null) {
+				loadIntoDocument(recordReader != null 
+						? doc -> recordReader.read(appender) 
+						: doc -> reader.read(appender));
+			} else {
+				loadIntoDocument(recordReader != null ? recordReader::read : reader::read);
+			}
+			
+			// remember the file's encoding and line terminators for saving
+			if (recordReader == null) {
+				this.format = reader.getFormat();
+				Debugger.printLog(this.format.toString(), this.getClass().getName());
+			}
 		}
 		
-		// load data into state
+		// checked here, as the state may be backed on the event thread
+		this.onDisk = file.isFile();
+		this.loaded = true;
+		this.success = true;
+		
+		if (updatesState) {
+			applyToState();
+		}
+	}
+	
+	/**
+	 * Backs the state with the file the command has read. Called by the command 
+	 * itself, unless it was told not to update the state, in which case the owner
+	 * calls it on the event thread once the command has been performed. 
+	 * @throws CobblerException
+	 */
+	public void applyToState() throws CobblerException {
+		if (!loaded) {
+			throw new CobblerException(ERROR_NOT_PERFORMED);
+		}
 		CobblerState state = CobblerState.getInstance();
-		state.setData(data);
-		state.setFile(file);
+		
+		if (document == null) {
+			// load data into state
+			state.setLargeFile(null);
+			state.setDocument(null);
+			state.setFileFormat(null);
+			state.setData(data);
+			
+		} else {
+			// state text is read from the document, or from disk for a large file, when it is needed
+			state.setFileFormat(null);
+			state.setDocument(document);
+			state.setData(null);
+			state.setLargeFile(largeFile);
+			
+			if (format != null) {
+				state.setFileFormat(format);
+				format.attach(document);
+			}
+		}
+		
+		// records are saved back in the format they were read in
+		state.setRecordFormat(recordFormat);
+		state.setFile(file, onDisk);
 		// clear the dirty flag
 		state.setDirty(false);
+	}
+	
+	/**
+	 * Returns a boolean indicating if the file is too large to be loaded into the 
+	 * document. Only a text file on disk can be viewed a line at a time. 
+	 * @return boolean
+	 */
+	private boolean isLargeFile() {
+		return recordFormat == null && file.isFile() && file.length() >= largeFileThreshold;
+	}
+	
+	/**
+	 * Indexes the file for viewing it a line at a time, leaving the document empty. 
+	 * @return boolean - false if the file's charset can not be viewed a line at a time
+	 * @throws CobblerException
+	 */
+	private boolean loadLargeFile() throws CobblerException {
+		try {
+			if (appender == null) {
+				document.remove(0, document.getLength());
+			}
+			largeFile = LargeTextFile.open(file, codePage != null ? codePage.getCharset() : null, indexListener);
+			
+		} catch (BadLocationException | CobblerException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+			resetState();
+			throw new CobblerException(ERROR_UNKOWN_LOAD_PROBLEM);
+		}
 		
-		this.success = true;
+		if (largeFile == null) {
+			Debugger.printLog("The charset of " + file.getName() + " can not be viewed a line at a time", 
+					this.getClass().getName());
+			return false;
+		}
+		
+		Debugger.printLog(file.getName() + " is viewed a line at a time, " + largeFile.getLineCount() + " lines", 
+				this.getClass().getName());
+		return true;
+	}
+	
+	/**
+	 * Replaces the contents of the document with the contents of the file. 
+	 * @param source DocumentSource
+	 * @throws CobblerException
+	 */
+	private void loadIntoDocument(DocumentSource source) throws CobblerException {
+		try {
+			if (appender == null) {
+				document.remove(0, document.getLength());
+			}
+			source.read(document);
+			
+		} catch (BadLocationException | CobblerException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+			
+			// do not leave a partial file in the document where it could be saved over the original,
+			// an appender's document is cleared by its owner on the event thread
+			if (appender == null) {
+				try {
+					document.remove(0, document.getLength());
+				} catch (BadLocationException e) {
+					Debugger.printLog(e.getMessage(), this.getClass().getName(), Level.WARNING);
+				}
+			}
+			resetState();
+			throw new CobblerException(ERROR_UNKOWN_LOAD_PROBLEM);
+		}
+	}
+	
+	/**
+	 * Leaves the state backed by the empty document of an unnamed file after a failed
+	 * load. A command that does not update the state leaves this to its owner. 
+	 */
+	private void resetState() {
+		if (!updatesState) {
+			return;
+		}
+		CobblerState state = CobblerState.getInstance();
+		state.setDocument(document);
+		state.setData(null);
+		state.setLargeFile(null);
+		state.setRecordFormat(null);
+		state.setFile(new File(""));
+		state.setDirty(false);
 	}
 
 }
@@ -27,14 +27,17 @@ package com.horvath.cobbler.command;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
 import java.util.Properties;
 import java.util.logging.Level;
 
 import com.horvath.cobbler.application.CobblerState;
 import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.application.RecentFiles;
+import com.horvath.cobbler.command.AbstractLineNumberCmd.LineState;
 import com.horvath.cobbler.exception.CobblerException;
 import com.horvath.cobbler.gui.syntax.GuiTheme;
+import com.horvath.cobbler.io.EbcdicCodePage;
+import com.horvath.cobbler.io.RecordFormat;
 
 /**
  * Reads application properties file into state. Default values for settings are
@@ -53,7 +56,12 @@ public final class LoadSettingsCmd extends AbstractSettingsCmd {
 	/**
 	 * The maximum number of recent files allowed.
 	 */
-	public static final int MAX_SUPPORTED_RECENT_FILES = 20;
+	public static final int MAX_SUPPORTED_RECENT_FILES = 200;
+
+	/**
+	 * Values that are used for options of how many recent files to keep.
+	 */
+	public static final Integer[] RECENT_FILES_OPTIONS = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 12, 14, 16, 18, 20, 30, 50, 100, 200 };
 
 	/**
 	 * Values that are used for options to increment added line numbers by.
@@ -65,6 +73,26 @@ public final class LoadSettingsCmd extends AbstractSettingsCmd {
 	 */
 	public static final int DEFAULT_LINE_NUM_INCREMENT = 10;
 
+	/**
+	 * Values in seconds that are used for options of how often to autosave.
+	 */
+	public static final Integer[] AUTOSAVE_INTERVAL_OPTIONS = { 10, 30, 60, 120, 300, 600 };
+
+	/**
+	 * Default number of seconds between autosaves.
+	 */
+	public static final int DEFAULT_AUTOSAVE_INTERVAL = 30;
+
+	/**
+	 * Values in megabytes that are used for options of how much memory the undo history may take up.
+	 */
+	public static final Integer[] UNDO_MEMORY_LIMIT_OPTIONS = { 8, 16, 32, 64, 128, 256 };
+
+	/**
+	 * Default number of megabytes the undo history of a document may take up.
+	 */
+	public static final int DEFAULT_UNDO_MEMORY_LIMIT = 32;
+
 	@Override
 	public void perform() throws CobblerException {
 		Debugger.printLog("Load Settings Properties File", this.getClass().getName());
@@ -96,17 +124,44 @@ public final class LoadSettingsCmd extends AbstractSettingsCmd {
 					state.setCurrentTheme(GuiTheme.Default);
 				}
 
-				// load recent files
-				ArrayList<String> fileList = new ArrayList<>();
+				// load value for maximum number of recent files, before the files it limits
+				String maxRecentFilesString = prop.getProperty(FIELD_RECENT_FILES_MAX);
+				try {
+					int max = Integer.parseInt(maxRecentFilesString);
+
+					// make sure number in range we will allow
+					if (max < 1) {
+						max = DEFAULT_RECENT_FILES;
+					} else if (max > MAX_SUPPORTED_RECENT_FILES) {
+						max = MAX_SUPPORTED_RECENT_FILES;
+					}
+
+					state.setMaxNumOfRecentFiles(max);
+
+				} catch (NumberFormatException e) {
+					state.setMaxNumOfRecentFiles(DEFAULT_RECENT_FILES);
+				}
+
+				// load recent files, most recent first, with what was known about them
 				for (int i = 0; i < state.getMaxNumOfRecentFiles(); i++) {
 					String filepath = prop.getProperty(FIELD_RECENT_FILE + i);
 					if (filepath == null) {
 						break;
 					}
-					fileList.add(filepath);
-				}
-				if (!fileList.isEmpty()) {
-					state.getRecentFilesList().addAll(fileList);
+					RecentFiles.Entry entry = new RecentFiles.Entry(filepath);
+					entry.setCodePage(EbcdicCodePage.fromString(prop.getProperty(FIELD_RECENT_FILE_CODE_PAGE + i)));
+					entry.setRecordFormat(RecordFormat.fromString(prop.getProperty(FIELD_RECENT_FILE_RECORD_FORMAT + i)));
+					entry.setSize(parseLong(prop.getProperty(FIELD_RECENT_FILE_SIZE + i), -1));
+					entry.setLastModified(parseLong(prop.getProperty(FIELD_RECENT_FILE_MODIFIED + i), 0));
+					entry.setCaret((int) Math.min(Integer.MAX_VALUE, 
+							Math.max(0, parseLong(prop.getProperty(FIELD_RECENT_FILE_CARET + i), 0))));
+					try {
+						String lineState = prop.getProperty(FIELD_RECENT_FILE_LINE_STATE + i);
+						entry.setLineState(lineState != null ? LineState.valueOf(lineState) : null);
+					} catch (IllegalArgumentException e) {
+						entry.setLineState(null);
+					}
+					state.getRecentFiles().addOldest(entry);
 				}
 
 				// load spell check setting
@@ -126,37 +181,52 @@ public final class LoadSettingsCmd extends AbstractSettingsCmd {
 				}
 
 				// load value for maximum number of recent files
-				String maxRecentFilesString = prop.getProperty(FIELD_RECENT_FILES_MAX);
+				String addLineIncrementValueString = prop.getProperty(FIELD_ADD_LINE_INCREMENT_VALUE);
 				try {
-					int max = Integer.parseInt(maxRecentFilesString);
+					int addLineIncrementValue = Integer.parseInt(addLineIncrementValueString);
 
 					// make sure number in range we will allow
-					if (max < 1) {
-						max = DEFAULT_RECENT_FILES;
-					} else if (max > MAX_SUPPORTED_RECENT_FILES) {
-						max = MAX_SUPPORTED_RECENT_FILES;
+					if (addLineIncrementValueInValidRange(addLineIncrementValue)) {
+						// this will allow manual entry from properties file
+						state.setAddLineIncrementValue(addLineIncrementValue);
+					} else {
+						state.setAddLineIncrementValue(DEFAULT_LINE_NUM_INCREMENT);
 					}
+				} catch (NumberFormatException e) {
+					state.setAddLineIncrementValue(DEFAULT_LINE_NUM_INCREMENT);
+				}
 
-					state.setMaxNumOfRecentFiles(max);
+				// load autosave settings, autosave is on unless it was turned off
+				String autosaveOnProp = prop.getProperty(FIELD_AUTOSAVE_ON);
+				state.setAutosaveOn(!"false".equalsIgnoreCase(autosaveOnProp));
+
+				String autosaveIntervalString = prop.getProperty(FIELD_AUTOSAVE_INTERVAL);
+				try {
+					int autosaveInterval = Integer.parseInt(autosaveIntervalString);
 
+					// make sure number in range we will allow
+					if (autosaveIntervalInValidRange(autosaveInterval)) {
+						state.setAutosaveInterval(autosaveInterval);
+					} else {
+						state.setAutosaveInterval(DEFAULT_AUTOSAVE_INTERVAL);
+					}
 				} catch (NumberFormatException e) {
-					state.setMaxNumOfRecentFiles(DEFAULT_RECENT_FILES);
+					state.setAutosaveInterval(DEFAULT_AUTOSAVE_INTERVAL);
 				}
 
-				// load value for maximum number of recent files
-				String addLineIncrementValueString = prop.getProperty(FIELD_ADD_LINE_INCREMENT_VALUE);
+				// load how much memory the undo history may take up
+				String undoMemoryLimitString = prop.getProperty(FIELD_UNDO_MEMORY_LIMIT);
 				try {
-					int addLineIncrementValue = Integer.parseInt(addLineIncrementValueString);
+					int undoMemoryLimit = Integer.parseInt(undoMemoryLimitString);
 
 					// make sure number in range we will allow
-					if (addLineIncrementValueInValidRange(addLineIncrementValue)) {
-						// this will allow manual entry from properties file
-						state.setAddLineIncrementValue(addLineIncrementValue);
+					if (undoMemoryLimitInValidRange(undoMemoryLimit)) {
+						state.setUndoMemoryLimit(undoMemoryLimit);
 					} else {
-						state.setAddLineIncrementValue(DEFAULT_LINE_NUM_INCREMENT);
+						state.setUndoMemoryLimit(DEFAULT_UNDO_MEMORY_LIMIT);
 					}
 				} catch (NumberFormatException e) {
-					state.setAddLineIncrementValue(DEFAULT_LINE_NUM_INCREMENT);
+					state.setUndoMemoryLimit(DEFAULT_UNDO_MEMORY_LIMIT);
 				}
 			}
 
@@ -180,6 +250,23 @@ public final class LoadSettingsCmd extends AbstractSettingsCmd {
 		state.setShowInvisibleCharacters(false);
 		state.setMaxNumOfRecentFiles(DEFAULT_RECENT_FILES);
 		state.setAddLineIncrementValue(DEFAULT_LINE_NUM_INCREMENT);
+		state.setAutosaveOn(true);
+		state.setAutosaveInterval(DEFAULT_AUTOSAVE_INTERVAL);
+		state.setUndoMemoryLimit(DEFAULT_UNDO_MEMORY_LIMIT);
+	}
+
+	/**
+	 * Parses a number read from the properties file. 
+	 * @param text String
+	 * @param defaultValue long - returned when there is no number
+	 * @return long
+	 */
+	private static long parseLong(String text, long defaultValue) {
+		try {
+			return text != null ? Long.parseLong(text) : defaultValue;
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
 	}
 
 	/**
@@ -192,4 +279,26 @@ public final class LoadSettingsCmd extends AbstractSettingsCmd {
 	public static boolean addLineIncrementValueInValidRange(int value) {
 		return value > 0 && value <= 100;
 	}
+
+	/**
+	 * Validates if the given number of seconds is within acceptable range to
+	 * autosave every.
+	 * 
+	 * @param value int
+	 * @return boolean
+	 */
+	public static boolean autosaveIntervalInValidRange(int value) {
+		return value >= 5 && value <= 3600;
+	}
+
+	/**
+	 * Validates if the given number of megabytes is within acceptable range for
+	 * the undo history to take up.
+	 * 
+	 * @param value int
+	 * @return boolean
+	 */
+	public static boolean undoMemoryLimitInValidRange(int value) {
+		return value >= 1 && value <= 1024;
+	}
 }
@@ -44,6 +44,9 @@ public final class NewEmptyDocumentCmd extends CobblerCommand {
 		// clear out the state
 		CobblerState state = CobblerState.getInstance();
 		state.setData("");
+		state.setLargeFile(null);
+		state.setFileFormat(null);
+		state.setRecordFormat(null);
 		state.setFile(new File(""));
 		state.setDirty(false);
 
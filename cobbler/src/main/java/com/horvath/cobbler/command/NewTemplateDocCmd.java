@@ -38,7 +38,7 @@ import com.horvath.cobbler.exception.CobblerException;
  */
 public final class NewTemplateDocCmd extends CobblerCommand {
 	
-	private static final String EOL = System.lineSeparator();
+	private static final String EOL = "\n";
 	private static final String COMMENT_SPACE = "      ";
 	private static final String INDENT_SPACE = "       ";
 	public static final String DOCUMENT_NAME = "HelloWorld.cob";
@@ -59,6 +59,8 @@ public final class NewTemplateDocCmd extends CobblerCommand {
 		
 		CobblerState state = CobblerState.getInstance();
 		state.setData(contents);
+		state.setFileFormat(null);
+		state.setRecordFormat(null);
 		state.setFile(new File("HelloWorld.cob"));
 		state.setDirty(false);
 
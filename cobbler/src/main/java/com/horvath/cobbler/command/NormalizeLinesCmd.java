@@ -0,0 +1,596 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.command;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.LineDiff;
+
+/**
+ * Normalizes the fixed format columns of each line of a text in one pass, for 
+ * preparing a member to be uploaded. 
+ * <p>
+ * The pipeline is a list of stages run in order on each line. A line is copied 
+ * into a buffer once, and every stage changes the buffer in place, so the stages
+ * cost no extra pass over the text and no String per line. The stages only look 
+ * at the line and its index, which lets the text be split into chunks that are
+ * normalized in parallel. 
+ * 
+ * @author jhorvath
+ */
+public final class NormalizeLinesCmd extends AbstractLineNumberCmd {
+	
+	/**
+	 * Number of columns of a fixed format line. 
+	 */
+	public static final int LINE_COLUMNS = 80;
+	
+	/**
+	 * Column index of the identification area, columns 73 to 80. 
+	 */
+	public static final int IDENTIFICATION_COLUMN = 72;
+	
+	/**
+	 * Number of columns of the identification area. 
+	 */
+	public static final int IDENTIFICATION_COLUMNS = 8;
+	
+	/**
+	 * Tab size of the tabs stage when none is given. 
+	 */
+	public static final int DEFAULT_TAB_SIZE = 8;
+	
+	public static final String ERROR_UNKNOWN_STAGE = "Unknown normalization stage: ";
+	public static final String ERROR_BAD_STAGE_VALUE = "Bad value for normalization stage: ";
+	
+	/**
+	 * What is done to the sequence number area, columns 1 to 6. 
+	 */
+	public enum SequenceArea {
+		KEEP,
+		CLEAR,
+		RENUMBER
+	}
+	
+	/**
+	 * What is done to the identification area, columns 73 to 80. 
+	 */
+	public enum IdentificationArea {
+		KEEP,
+		CLEAR,
+		RESEQUENCE
+	}
+	
+	/**
+	 * A step of the pipeline, which changes a line in place. 
+	 */
+	public interface Stage {
+		
+		/**
+		 * Changes a line. 
+		 * @param line Line
+		 * @param index int - index of the line in the text
+		 */
+		void apply(Line line, int index);
+	}
+	
+	/**
+	 * The characters of the line being normalized, without its terminator. The 
+	 * columns are counted from 0. 
+	 */
+	public static final class Line {
+		
+		private char[] chars = new char[LINE_COLUMNS * 2];
+		private char[] spare = new char[0];
+		private int length = 0;
+		private boolean skipped = false;
+		
+		/**
+		 * Copies a line of a text into the buffer. 
+		 * @param text CharSequence
+		 * @param start int
+		 * @param end int
+		 */
+		void load(CharSequence text, int start, int end) {
+			length = 0;
+			skipped = false;
+			ensureCapacity(end - start);
+			if (text instanceof String) {
+				((String) text).getChars(start, end, chars, 0);
+			} else {
+				for (int i = start; i < end; i++) {
+					chars[i - start] = text.charAt(i);
+				}
+			}
+			length = end - start;
+		}
+		
+		/**
+		 * Returns the number of characters of the line. 
+		 * @return int
+		 */
+		public int length() {
+			return length;
+		}
+		
+		/**
+		 * Returns the character in a column. 
+		 * @param column int - from 0
+		 * @return char
+		 */
+		public char charAt(int column) {
+			return chars[column];
+		}
+		
+		/**
+		 * Cuts the line short, or pads it with spaces. 
+		 * @param length int
+		 */
+		public void setLength(int length) {
+			if (length > this.length) {
+				ensureCapacity(length);
+				Arrays.fill(chars, this.length, length, ' ');
+			}
+			this.length = length;
+		}
+		
+		/**
+		 * Fills columns with a character. The columns past the end of the line are left alone. 
+		 * @param from int
+		 * @param to int - the column after the last one
+		 * @param c char
+		 */
+		public void fill(int from, int to, char c) {
+			if (from < length) {
+				Arrays.fill(chars, from, Math.min(to, length), c);
+			}
+		}
+		
+		/**
+		 * Writes a number over a run of columns, padded with zeros on the left. The
+		 * digits that do not fit are dropped, so the number wraps around.
+		 * @param from int
+		 * @param width int
+		 * @param number int - not negative
+		 */
+		public void writeNumber(int from, int width, int number) {
+			if (length < from + width) {
+				setLength(from + width);
+			}
+			for (int i = from + width - 1; i >= from; i--) {
+				chars[i] = (char) ('0' + number % 10);
+				number /= 10;
+			}
+		}
+		
+		/**
+		 * Replaces each tab with the spaces up to the next tab stop. The line is 
+		 * written into a spare buffer that then takes the place of the line's. 
+		 * @param tabSize int
+		 */
+		public void expandTabs(int tabSize) {
+			if (indexOf('\t') < 0) {
+				return;
+			}
+			if (spare.length < chars.length) {
+				spare = new char[chars.length];
+			}
+			
+			int column = 0;
+			for (int i = 0; i < length; i++) {
+				final int width = chars[i] == '\t' ? tabSize - column % tabSize : 1;
+				if (column + width > spare.length) {
+					spare = Arrays.copyOf(spare, Math.max(column + width, spare.length * 2));
+				}
+				if (chars[i] == '\t') {
+					Arrays.fill(spare, column, column + width, ' ');
+				} else {
+					spare[column] = chars[i];
+				}
+				column += width;
+			}
+			
+			char[] expanded = spare;
+			spare = chars;
+			chars = expanded;
+			length = column;
+		}
+		
+		/**
+		 * Returns the column of the first occurrence of a character. 
+		 * @param c char
+		 * @return int - -1 if the line does not have the character
+		 */
+		public int indexOf(char c) {
+			for (int i = 0; i < length; i++) {
+				if (chars[i] == c) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		
+		/**
+		 * Returns a boolean indicating if the line is empty once trimmed. 
+		 * @return boolean
+		 */
+		public boolean isBlank() {
+			return trimmedLength() == 0;
+		}
+		
+		/**
+		 * Returns the length of the line without the white-space at its end. 
+		 * @return int
+		 */
+		public int trimmedLength() {
+			int end = length;
+			while (end > 0 && chars[end - 1] <= ' ') {
+				end--;
+			}
+			return end;
+		}
+		
+		/**
+		 * Marks the line as one a stage could not handle, leaving it as it was. 
+		 */
+		public void skip() {
+			skipped = true;
+		}
+		
+		/**
+		 * Makes room for a number of characters. 
+		 * @param capacity int
+		 */
+		private void ensureCapacity(int capacity) {
+			if (capacity > chars.length) {
+				chars = Arrays.copyOf(chars, Math.max(capacity, chars.length * 2));
+			}
+		}
+	}
+	
+	private CharSequence text;
+	private List<Stage> stages;
+	private String result = "";
+	private int skipCount = 0;
+	private List<LineDiff.Hunk> edits = Collections.emptyList();
+	private boolean inPlace = false;
+	
+	/**
+	 * Constructor. 
+	 * @param text CharSequence
+	 * @param stages List of Stage - run on each line in order
+	 */
+	public NormalizeLinesCmd(CharSequence text, List<Stage> stages) {
+		this.text = text;
+		this.stages = stages;
+	}
+	
+	/**
+	 * Constructor. 
+	 * @param text CharSequence
+	 * @param stages List of Stage - run on each line in order
+	 * @param inPlace boolean - true to make the edits that normalize the text in 
+	 *        place, rather than the normalized text
+	 */
+	public NormalizeLinesCmd(CharSequence text, List<Stage> stages, boolean inPlace) {
+		this(text, stages);
+		this.inPlace = inPlace;
+	}
+
+	@Override
+	public void perform() throws CobblerException {
+		Debugger.printLog("Normalizing lines in " + stages.size() + " stages.", this.getClass().getName());
+		success = false;
+		
+		Pipeline pipeline = new Pipeline(stages, 0);
+		if (inPlace) {
+			edits = pipeline.edits(text, 0, Integer.MAX_VALUE);
+		} else {
+			result = pipeline.apply(text);
+		}
+		skipCount = pipeline.skipCount;
+		
+		if (skipCount > 0) {
+			this.message = skipCount + " lines could not be fully normalized and were left as they were.";
+		}
+		success = true;
+	}
+	
+	/**
+	 * Runs the stages on each line. 
+	 */
+	private static final class Pipeline extends LineTransform {
+		
+		private final List<Stage> stages;
+		private final Line line = new Line();
+		private int index;
+		private int skipCount = 0;
+		
+		/**
+		 * Constructor. 
+		 * @param stages List of Stage
+		 * @param firstLine int - index of the first line normalized
+		 */
+		Pipeline(List<Stage> stages, int firstLine) {
+			this.stages = stages;
+			this.index = firstLine;
+		}
+		
+		@Override
+		protected LineTransform fork(int firstLine) {
+			return new Pipeline(stages, firstLine);
+		}
+		
+		@Override
+		protected void join(LineTransform chunk) {
+			skipCount += ((Pipeline) chunk).skipCount;
+		}
+		
+		@Override
+		protected void transformLine(CharSequence text, int start, int end, Output out) {
+			line.load(text, start, end);
+			for (Stage stage : stages) {
+				stage.apply(line, index);
+				if (line.skipped) {
+					break;
+				}
+			}
+			index++;
+			
+			if (line.skipped) {
+				skipCount++;
+				out.append(text, start, end);
+			} else {
+				out.append(line.chars, 0, line.length);
+			}
+		}
+	}
+	
+	/**
+	 * Returns a stage replacing tabs with spaces up to the next tab stop. 
+	 * @param tabSize int
+	 * @return Stage
+	 */
+	public static Stage expandTabs(int tabSize) {
+		final int size = Math.max(1, tabSize);
+		return (line, index) -> line.expandTabs(size);
+	}
+	
+	/**
+	 * Returns a stage for the sequence number area, columns 1 to 6. Clearing only 
+	 * blanks columns that are all digits, and skips a line with anything else in 
+	 * them. Renumbering writes the number over the columns of every line, starting
+	 * at the increment, and leaves a blank line with just its number. 
+	 * @param area SequenceArea
+	 * @param increment int
+	 * @return Stage
+	 */
+	public static Stage sequenceArea(SequenceArea area, int increment) {
+		switch (area) {
+		case CLEAR:
+			return (line, index) -> {
+				if (line.length() >= LAST_NUM_COL && isDigits(line, 0, LAST_NUM_COL)) {
+					line.fill(0, LAST_NUM_COL, ' ');
+				} else if (!line.isBlank() && (line.length() < LAST_NUM_COL || !isSpaces(line, 0, LAST_NUM_COL))) {
+					line.skip();
+				}
+			};
+		case RENUMBER:
+			return (line, index) -> {
+				if (line.isBlank()) {
+					line.setLength(0);
+				}
+				line.writeNumber(0, LAST_NUM_COL, number(index, increment, LAST_NUM_COL));
+			};
+		default:
+			return (line, index) -> { };
+		}
+	}
+	
+	/**
+	 * Returns a stage for the identification area, columns 73 to 80. Clearing 
+	 * blanks what the line has in those columns. Resequencing writes an eight 
+	 * digit number into them, starting at the increment, padding the line with 
+	 * spaces to reach them. 
+	 * @param area IdentificationArea
+	 * @param increment int
+	 * @return Stage
+	 */
+	public static Stage identificationArea(IdentificationArea area, int increment) {
+		final int end = IDENTIFICATION_COLUMN + IDENTIFICATION_COLUMNS;
+		switch (area) {
+		case CLEAR:
+			return (line, index) -> line.fill(IDENTIFICATION_COLUMN, end, ' ');
+		case RESEQUENCE:
+			return (line, index) -> line.writeNumber(IDENTIFICATION_COLUMN, IDENTIFICATION_COLUMNS, 
+					number(index, increment, IDENTIFICATION_COLUMNS));
+		default:
+			return (line, index) -> { };
+		}
+	}
+	
+	/**
+	 * Returns a stage cutting off the columns past a number of columns. 
+	 * @param columns int
+	 * @return Stage
+	 */
+	public static Stage truncate(int columns) {
+		return (line, index) -> {
+			if (line.length() > columns) {
+				line.setLength(columns);
+			}
+		};
+	}
+	
+	/**
+	 * Returns a stage removing white-space from the end of the line. 
+	 * @return Stage
+	 */
+	public static Stage trimTrailing() {
+		return (line, index) -> line.setLength(line.trimmedLength());
+	}
+	
+	/**
+	 * Makes the stages from a comma separated list of stage names, each with an 
+	 * optional value after an equals sign, such as 
+	 * <code>tabs=4,sequence=renumber,ident=clear,truncate,trim</code>. The stages 
+	 * are run in the order they are listed. An <code>increment=N</code> entry sets
+	 * the increment of the stages listed after it. 
+	 * @param spec String
+	 * @param increment int - for renumbering and resequencing, unless the list sets it
+	 * @return List of Stage
+	 * @throws CobblerException
+	 */
+	public static List<Stage> parseStages(String spec, int increment) throws CobblerException {
+		List<Stage> stages = new ArrayList<>();
+		int step = increment;
+		for (String part : spec.split(",")) {
+			final String[] pair = part.trim().split("=", 2);
+			final String name = pair[0].trim().toLowerCase();
+			final String value = pair.length > 1 ? pair[1].trim() : null;
+			
+			try {
+				switch (name) {
+				case "tabs":
+					stages.add(expandTabs(value != null ? Integer.parseInt(value) : DEFAULT_TAB_SIZE));
+					break;
+				case "sequence":
+					stages.add(sequenceArea(SequenceArea.valueOf(required(part, value).toUpperCase()), step));
+					break;
+				case "ident":
+					stages.add(identificationArea(IdentificationArea.valueOf(required(part, value).toUpperCase()), step));
+					break;
+				case "truncate":
+					stages.add(truncate(value != null ? Integer.parseInt(value) : LINE_COLUMNS));
+					break;
+				case "trim":
+					stages.add(trimTrailing());
+					break;
+				case "increment":
+					step = Integer.parseInt(required(part, value));
+					break;
+				case "":
+					break;
+				default:
+					throw new CobblerException(ERROR_UNKNOWN_STAGE + name);
+				}
+			} catch (IllegalArgumentException ex) {
+				throw new CobblerException(ERROR_BAD_STAGE_VALUE + part.trim());
+			}
+		}
+		return stages;
+	}
+	
+	/**
+	 * Returns the value of a stage that must have one. 
+	 * @param part String - the stage as listed
+	 * @param value String
+	 * @return String
+	 * @throws CobblerException
+	 */
+	private static String required(String part, String value) throws CobblerException {
+		if (value == null || value.isEmpty()) {
+			throw new CobblerException(ERROR_BAD_STAGE_VALUE + part.trim());
+		}
+		return value;
+	}
+	
+	/**
+	 * Returns the number of a line, wrapped to fit a number of digits. 
+	 * @param index int
+	 * @param increment int
+	 * @param digits int
+	 * @return int
+	 */
+	private static int number(int index, int increment, int digits) {
+		long modulus = 1;
+		for (int i = 0; i < digits; i++) {
+			modulus *= 10;
+		}
+		return (int) (((index + 1L) * increment) % modulus);
+	}
+	
+	/**
+	 * Returns a boolean indicating if a run of columns are all digits. 
+	 * @param line Line
+	 * @param from int
+	 * @param to int
+	 * @return boolean
+	 */
+	private static boolean isDigits(Line line, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (!Character.isDigit(line.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns a boolean indicating if a run of columns are all spaces. 
+	 * @param line Line
+	 * @param from int
+	 * @param to int
+	 * @return boolean
+	 */
+	private static boolean isSpaces(Line line, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (line.charAt(i) != ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the edits that normalize the text in place. 
+	 * @return List of LineDiff.Hunk - empty unless the command was made for edits
+	 */
+	public List<LineDiff.Hunk> getEdits() {
+		return edits;
+	}
+	
+	/**
+	 * Returns the number of lines left as they were because a stage could not handle them. 
+	 * @return int
+	 */
+	public int getSkipCount() {
+		return skipCount;
+	}
+	
+	/**
+	 * Returns the normalized text. 
+	 * @return String - each line ended with a line feed
+	 */
+	public String getResult() {
+		return result;
+	}
+
+}
@@ -0,0 +1,206 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.command;
+import java.io.File;
+import java.util.List;
+import java.util.logging.Level;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+import com.horvath.cobbler.application.CobblerState;
+import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.application.DocumentState;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.EbcdicCodePage;
+import com.horvath.cobbler.io.LineDiff;
+import com.horvath.cobbler.io.RecordFileReader;
+import com.horvath.cobbler.io.RecordFormat;
+import com.horvath.cobbler.io.TextFileFormat;
+import com.horvath.cobbler.io.TextFileReader;
+
+/**
+ * Command for reloading a file that was changed outside of the application. 
+ * <p>
+ * Rather than replacing the whole document, the file is compared with the document
+ * line by line and only the lines that differ are replaced, which leaves the caret, 
+ * the scroll position and the undo history of the rest of the document alone. The
+ * file is read and compared by {@link #perform()}, which may run off the event 
+ * thread, and the changes are made to the document by {@link #applyChanges()} on
+ * the event thread. 
+ * 
+ * @author jhorvath 
+ */
+public final class ReloadFileCmd extends CobblerCommand {
+	
+	private File file;
+	private Document document;
+	private DocumentState owner;
+	private TextFileFormat loadedFormat;
+	private RecordFormat recordFormat;
+	private List<LineDiff.Hunk> hunks;
+	private TextFileFormat format;
+	
+	public static final String ERROR_FILE_IS_NULL = "The file must not be null.";
+	public static final String ERROR_FILE_NOT_FOUND = "The file was not found.";
+	public static final String ERROR_NOT_PERFORMED = "The file must be read before its changes are applied.";
+	
+	/**
+	 * Constructor for the document being viewed. 
+	 * @param file File - the file the document was loaded from
+	 * @param document Document - the document holding the file
+	 */
+	public ReloadFileCmd(File file, Document document) {
+		this(file, document, CobblerState.getInstance().getCurrentDocument());
+	}
+	
+	/**
+	 * Constructor. The formats the file was loaded in are taken from the state of the
+	 * document now, so that the command does not depend on which document is viewed
+	 * by the time it runs. Must be called on the event thread. 
+	 * @param file File - the file the document was loaded from
+	 * @param document Document - the document holding the file
+	 * @param owner DocumentState - the state backed by the document
+	 */
+	public ReloadFileCmd(File file, Document document, DocumentState owner) {
+		this.file = file;
+		this.document = document;
+		this.owner = owner;
+		this.loadedFormat = owner.getFileFormat();
+		this.recordFormat = owner.getRecordFormat();
+	}
+
+	@Override
+	public void perform() throws CobblerException {
+		
+		this.success = false;
+		
+		if (file == null) {
+			this.message = ERROR_FILE_IS_NULL;
+			Debugger.printLog(this.message, this.getClass().getName(), Level.WARNING);
+			return;
+		}
+		if (!file.exists()) {
+			this.message = ERROR_FILE_NOT_FOUND;
+			Debugger.printLog(this.message + " " + this.file.getAbsolutePath(), this.getClass().getName(), Level.WARNING);
+			return;
+		}
+		
+		Debugger.printLog("Reloading file " + file.getName(), this.getClass().getName());
+		
+		// read the file the way it was loaded
+		StringBuilder contents = new StringBuilder((int) Math.min(Integer.MAX_VALUE, file.length()));
+		TextFileReader.ChunkHandler collector = (chars, length) -> contents.append(chars, 0, length);
+		
+		if (recordFormat != null) {
+			new RecordFileReader(file, recordFormat).read(collector);
+			this.format = null;
+			
+		} else {
+			EbcdicCodePage codePage = loadedFormat != null ? EbcdicCodePage.fromCharset(loadedFormat.getCharset()) : null;
+			TextFileReader reader = new TextFileReader(file, codePage != null ? codePage.getCharset() : null);
+			reader.read(collector);
+			this.format = reader.getFormat();
+		}
+		
+		long start = System.nanoTime();
+		this.hunks = LineDiff.diff(getText(), contents.toString());
+		Debugger.printLog(hunks.size() + " changed line ranges found in " 
+				+ (System.nanoTime() - start) / 1000000 + " ms", this.getClass().getName());
+		
+		this.success = true;
+	}
+	
+	/**
+	 * Replaces the lines of the document that differ from the file, then marks the
+	 * document as holding the file unchanged. Must be called on the event thread after
+	 * the command was performed, with the document as it was when it was compared. 
+	 * @throws CobblerException
+	 */
+	public void applyChanges() throws CobblerException {
+		if (hunks == null) {
+			throw new CobblerException(ERROR_NOT_PERFORMED);
+		}
+		
+		// the format of the file as it was is not tracked through the changes
+		if (format != null && owner.getFileFormat() != null) {
+			owner.getFileFormat().detach();
+		}
+		
+		try {
+			// from the last to the first, so that the offsets of the earlier ones stay valid
+			for (int i = hunks.size() - 1; i >= 0; i--) {
+				LineDiff.Hunk hunk = hunks.get(i);
+				if (hunk.getLength() > 0) {
+					document.remove(hunk.getOffset(), hunk.getLength());
+				}
+				if (!hunk.getText().isEmpty()) {
+					document.insertString(hunk.getOffset(), hunk.getText(), null);
+				}
+			}
+			
+		} catch (BadLocationException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+			throw new CobblerException(ex.getMessage());
+		}
+		
+		// the file may have been saved in another encoding or with other line terminators
+		if (format != null) {
+			owner.setFileFormat(format);
+			format.attach(document);
+		}
+		owner.setDirty(false);
+	}
+	
+	/**
+	 * Returns a copy of the text in the document. 
+	 * @return String
+	 */
+	private String getText() {
+		final Segment segment = new Segment();
+		final String[] text = new String[1];
+		document.render(() -> {
+			try {
+				document.getText(0, document.getLength(), segment);
+				text[0] = segment.toString();
+				
+			} catch (BadLocationException ex) {
+				Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+				text[0] = "";
+			}
+		});
+		return text[0];
+	}
+	
+	/**
+	 * Returns the number of changed line ranges found by the command. 
+	 * @return int
+	 */
+	public int getChangeCount() {
+		return hunks != null ? hunks.size() : 0;
+	}
+
+}
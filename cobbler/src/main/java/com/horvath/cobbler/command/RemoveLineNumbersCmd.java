@@ -24,30 +24,50 @@
 
 package com.horvath.cobbler.command;
 
+import java.util.Collections;
+import java.util.List;
+
 import com.horvath.cobbler.application.CobblerState;
 import com.horvath.cobbler.application.Debugger;
 import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.LineDiff;
 
 /**
  * Command for removing hard coded line numbers from Cobol files. 
+ * Given a range of lines, the command removes the numbers of just those lines, 
+ * and produces the edits that change them in place rather than the whole new text. 
  * @author jhorvath
  */
 public final class RemoveLineNumbersCmd extends AbstractLineNumberCmd {
 	
-	private String[] lines;
+	private CharSequence text;
 	private int skipCount;
 	private String result = ""; 
+	private int firstLine = -1;
+	private int lastLine = -1;
+	private List<LineDiff.Hunk> edits = Collections.emptyList();
 	protected final static String SKIP_COUNT_MESSAGE = " lines were skipped in line number removal.";
 	
 	/**
 	 * Constructor. 
-	 * @param text String 
-	 * @param lineState LineState 
+	 * @param text CharSequence 
 	 */
-	public RemoveLineNumbersCmd(String text) {
-		this.lines = splitStringOnNewlines(text);
+	public RemoveLineNumbersCmd(CharSequence text) {
+		this.text = text;
 		this.skipCount = 0;
 	}
+	
+	/**
+	 * Constructor for removing the numbers of a range of lines in place. 
+	 * @param text CharSequence 
+	 * @param firstLine int - index of the first line
+	 * @param lastLine int - index of the last line
+	 */
+	public RemoveLineNumbersCmd(CharSequence text, int firstLine, int lastLine) {
+		this(text);
+		this.firstLine = firstLine;
+		this.lastLine = lastLine;
+	}
 
 	@Override
 	public void perform() throws CobblerException {
@@ -60,7 +80,9 @@ public final class RemoveLineNumbersCmd extends AbstractLineNumberCmd {
 			this.message = this.skipCount + SKIP_COUNT_MESSAGE;
 		}
 		
-		CobblerState.getInstance().setData(result);
+		if (firstLine < 0) {
+			CobblerState.getInstance().setData(result);
+		}
 		success = true;
 	}
 	
@@ -68,25 +90,51 @@ public final class RemoveLineNumbersCmd extends AbstractLineNumberCmd {
 	 * Remove the line numbers. 
 	 */
 	private void removeNumbering() {
-		StringBuilder sb = new StringBuilder();
+		Removal removal = new Removal();
 		
-		for (String line : this.lines) {
-			
-			if (firstSixAllDigit(line)) {
-				final String sixSpaces = "      ";
-				sb.append(sixSpaces);
-				sb.append(line.substring(LAST_NUM_COL, line.length()));
-				sb.append(System.lineSeparator());
-				
-			} else {
-				this.skipCount++;
-				sb.append(line);
-				sb.append(System.lineSeparator());
-			}
+		if (firstLine >= 0) {
+			edits = removal.edits(text, firstLine, lastLine);
+		} else {
+			result = removal.apply(text);
+		}
+		skipCount = removal.skipCount;
+	}
 
+	/**
+	 * Blanks out the first six columns of the lines where they are all digits. 
+	 */
+	private static final class Removal extends LineTransform {
+		
+		private int skipCount = 0;
+		
+		@Override
+		protected LineTransform fork(int firstLine) {
+			return new Removal();
+		}
+		
+		@Override
+		protected void join(LineTransform chunk) {
+			skipCount += ((Removal) chunk).skipCount;
 		}
 		
-		this.result = sb.toString();
+		@Override
+		protected void transformLine(CharSequence text, int start, int end, Output out) {
+			if (isSequenceDigits(text, start, end)) {
+				out.repeat(' ', LAST_NUM_COL);
+				out.append(text, start + LAST_NUM_COL, end);
+			} else {
+				skipCount++;
+				out.append(text, start, end);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the edits that remove the numbers of the range of lines in place. 
+	 * @return List of LineDiff.Hunk - empty unless a range of lines was given
+	 */
+	public List<LineDiff.Hunk> getEdits() {
+		return edits;
 	}
 
 	public String getResult() {
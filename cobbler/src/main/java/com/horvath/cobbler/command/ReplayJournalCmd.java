@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.command;
+
+import java.io.File;
+import java.util.logging.Level;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+import com.horvath.cobbler.application.CobblerState;
+import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.EditJournal;
+import com.horvath.cobbler.io.RecordFormat;
+
+/**
+ * Command for recovering the unsaved edits of a session that did not shut down
+ * cleanly, by loading the file they were made to and replaying them from the 
+ * edit journal. 
+ * @author jhorvath 
+ */
+public final class ReplayJournalCmd extends CobblerCommand {
+	
+	private EditJournal.Recovery recovery;
+	private Document document;
+	
+	public static final String ERROR_NO_EDITS = "There are no unsaved edits to recover.";
+	public static final String ERROR_FILE_CHANGED = "The file the unsaved edits were made to has changed since.";
+	
+	/**
+	 * Constructor. 
+	 * @param recovery EditJournal.Recovery - the edits read from the journal
+	 * @param document Document - the document to recover the edits into
+	 */
+	public ReplayJournalCmd(EditJournal.Recovery recovery, Document document) {
+		this.recovery = recovery;
+		this.document = document;
+	}
+
+	@Override
+	public void perform() throws CobblerException {
+		
+		this.success = false;
+		
+		if (recovery == null || recovery.isEmpty()) {
+			this.message = ERROR_NO_EDITS;
+			Debugger.printLog(this.message, this.getClass().getName(), Level.WARNING);
+			return;
+		}
+		if (!recovery.isBaseUnchanged()) {
+			this.message = ERROR_FILE_CHANGED;
+			Debugger.printLog(this.message + " " + recovery.getBase().getAbsolutePath(), 
+					this.getClass().getName(), Level.WARNING);
+			return;
+		}
+		
+		CobblerState state = CobblerState.getInstance();
+		File base = recovery.getBase();
+		
+		if (base != null && base.isFile()) {
+			Debugger.printLog("Recovering unsaved edits to " + base.getName(), this.getClass().getName());
+			
+			// load the file the way it was last opened or saved
+			String path = base.getAbsolutePath();
+			RecordFormat recordFormat = state.getRecentFileRecordFormat(path);
+			LoadFileCmd cmd = recordFormat != null 
+					? new LoadFileCmd(base, document, recordFormat) 
+					: new LoadFileCmd(base, document, state.getRecentFileCodePage(path));
+			cmd.perform();
+			
+			if (!cmd.isSuccess()) {
+				this.message = cmd.getMessage();
+				return;
+			}
+			
+		} else {
+			Debugger.printLog("Recovering unsaved edits to an unnamed document", this.getClass().getName());
+			
+			NewEmptyDocumentCmd cmd = new NewEmptyDocumentCmd();
+			cmd.perform();
+			
+			try {
+				document.remove(0, document.getLength());
+			} catch (BadLocationException ex) {
+				throw new CobblerException(ex.getMessage(), ex);
+			}
+			state.setDocument(document);
+			state.setData(null);
+			base = null;
+		}
+		
+		// the replayed edits are journaled again, in case there is another crash before they are saved
+		EditJournal journal = state.getJournal();
+		if (journal != null) {
+			journal.start(base, document);
+		}
+		recovery.apply(document);
+		
+		state.setDirty(true);
+		this.success = true;
+	}
+
+}
@@ -25,11 +25,17 @@
 package com.horvath.cobbler.command;
 
 import java.io.File;
+import java.nio.charset.Charset;
 import java.util.logging.Level;
 
 import com.horvath.cobbler.application.CobblerState;
 import com.horvath.cobbler.application.Debugger;
 import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.EbcdicCodePage;
+import com.horvath.cobbler.io.FileWatcher;
+import com.horvath.cobbler.io.RecordFileWriter;
+import com.horvath.cobbler.io.RecordFormat;
+import com.horvath.cobbler.io.TextFileFormat;
 import com.horvath.cobbler.io.TextFileWriter;
 
 /**
@@ -39,9 +45,12 @@ import com.horvath.cobbler.io.TextFileWriter;
 public final class SaveFileCmd extends CobblerCommand {
 	
 	private File file;
+	private Charset charset;
 	
 	public static final String ERROR_FILE_IS_NULL = "The file must not be null.";
 	public static final String ERROR_UNKOWN_LOAD_PROBLEM = "There was an unexpected problem loading the file.";
+	public static final String MESSAGE_UNCHANGED = "The file already holds the document, it was not written.";
+	public static final String ERROR_LARGE_FILE_READ_ONLY = "The file is too large to be edited and is only viewed, it can not be saved.";
 	
 	/**
 	 * Constructor. 
@@ -49,7 +58,19 @@ public final class SaveFileCmd extends CobblerCommand {
 	 * @param file File 
 	 */
 	public SaveFileCmd(File file) {
+		this(file, null);
+	}
+	
+	/**
+	 * Constructor. A document is saved in the given charset instead of the
+	 * charset it was read in.
+	 * 
+	 * @param file File 
+	 * @param charset Charset - may be null to keep the charset of the document
+	 */
+	public SaveFileCmd(File file, Charset charset) {
 		this.file = file;
+		this.charset = charset;
 	}
 
 	@Override
@@ -67,20 +88,98 @@ public final class SaveFileCmd extends CobblerCommand {
 		
 		CobblerState state = CobblerState.getInstance();
 		
-		String data = state.getData();
+		// the document of a file viewed a line at a time is empty
+		if (state.getLargeFile() != null) {
+			this.message = ERROR_LARGE_FILE_READ_ONLY;
+			Debugger.printLog(this.message + " " + file.getName(), this.getClass().getName(), Level.WARNING);
+			return;
+		}
+		
+		if (isUnchanged(state)) {
+			this.message = MESSAGE_UNCHANGED;
+			Debugger.printLog(this.message + " " + file.getName(), this.getClass().getName());
+			this.success = true;
+			return;
+		}
+		
 		try {
-			TextFileWriter writer = new TextFileWriter(data, file);
-			writer.write();
+			RecordFormat recordFormat = state.getRecordFormat();
+			if (recordFormat != null && charset != null) {
+				// records change code page, or become text lines when saved as text
+				EbcdicCodePage codePage = EbcdicCodePage.fromCharset(charset);
+				recordFormat = codePage != null ? recordFormat.withCodePage(codePage) : null;
+			}
+			
+			if (recordFormat != null) {
+				saveRecords(state, recordFormat);
+			} else {
+				saveText(state);
+			}
 			
-			// update file in the state 
-			state.setFile(this.file);
+			// update file in the state, a member saved back into an archive is not on disk
+			state.setFile(this.file, this.file.isFile());
 			// clear the dirty flag
 			state.setDirty(false);
 			this.success = true;
 			
 		} catch (CobblerException ex) {
-			throw new CobblerException(ERROR_UNKOWN_LOAD_PROBLEM);
+			throw new CobblerException(ERROR_UNKOWN_LOAD_PROBLEM + " " + ex.getMessage(), ex);
 		}
 	}
+	
+	/**
+	 * Saves the document or text data as a text file. 
+	 * @param state CobblerState
+	 * @throws CobblerException
+	 */
+	private void saveText(CobblerState state) throws CobblerException {
+		TextFileFormat format = state.getFileFormat();
+		if (charset != null && (format == null || !charset.equals(format.getCharset()))) {
+			format = TextFileFormat.defaultFormat(charset);
+		}
+		
+		// stream the document when the state is backed by one, otherwise write the text data
+		TextFileWriter writer = state.getDocument() != null 
+				? new TextFileWriter(state.getDocument(), file, format) 
+				: new TextFileWriter(state.getData(), file);
+		writer.write();
+		
+		// the saved file is the source for unedited text from now on
+		if (writer.getWrittenFormat() != null) {
+			state.setFileFormat(writer.getWrittenFormat());
+			writer.getWrittenFormat().attach(state.getDocument());
+		}
+		state.setRecordFormat(null);
+	}
+	
+	/**
+	 * Saves the document or text data as a record format dataset, one record per line. 
+	 * @param state CobblerState
+	 * @param recordFormat RecordFormat
+	 * @throws CobblerException
+	 */
+	private void saveRecords(CobblerState state, RecordFormat recordFormat) throws CobblerException {
+		RecordFileWriter writer = state.getDocument() != null 
+				? new RecordFileWriter(state.getDocument(), file, recordFormat) 
+				: new RecordFileWriter(state.getData(), file, recordFormat);
+		writer.write();
+		
+		state.setFileFormat(null);
+		state.setRecordFormat(recordFormat);
+	}
+
+	/**
+	 * Returns a boolean indicating if saving would write the file with what it already
+	 * holds: the document is saved to its own file in its own format, it has no 
+	 * unsaved changes and the file has not been changed since it was loaded or saved. 
+	 * @param state CobblerState
+	 * @return boolean
+	 */
+	private boolean isUnchanged(CobblerState state) {
+		FileWatcher watcher = state.getFileWatcher();
+		return charset == null && !state.isDirty() && file.isFile()
+				&& file.equals(state.getFile()) && watcher != null 
+				&& file.getAbsoluteFile().equals(watcher.getFile()) && !watcher.hasChanged();
+	}
 
 }
@@ -29,13 +29,17 @@ import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Properties;
 import java.util.logging.Level;
 
 import com.horvath.cobbler.application.CobblerApplication;
 import com.horvath.cobbler.application.CobblerState;
 import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.application.RecentFiles;
 import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.EbcdicCodePage;
+import com.horvath.cobbler.io.RecordFormat;
 
 /**
  * Saves state settings data to properties file.
@@ -64,11 +68,36 @@ public final class SaveSettingsCmd extends AbstractSettingsCmd {
 			prop.setProperty(FIELD_SHOW_INVISIBLES, String.valueOf(state.isShowInvisibleCharacters()));
 			prop.setProperty(FIELD_RECENT_FILES_MAX, String.valueOf(state.getMaxNumOfRecentFiles()));
 			prop.setProperty(FIELD_ADD_LINE_INCREMENT_VALUE, String.valueOf(state.getAddLineIncrementValue()));
-
-			// for (String recentFile : CobblerState.getInstance().getRecentFilesList()) {
-			for (int i = 0; i < state.getRecentFilesList().size(); i++) {
-				String filepath = state.getRecentFilesList().get(i);
-				prop.setProperty(FIELD_RECENT_FILE + i, filepath);
+			prop.setProperty(FIELD_AUTOSAVE_ON, String.valueOf(state.isAutosaveOn()));
+			prop.setProperty(FIELD_AUTOSAVE_INTERVAL, String.valueOf(state.getAutosaveInterval()));
+			prop.setProperty(FIELD_UNDO_MEMORY_LIMIT, String.valueOf(state.getUndoMemoryLimit()));
+
+			// the recent files, most recent first, with what is known about them
+			List<RecentFiles.Entry> recentFiles = state.getRecentFiles().getEntries();
+			for (int i = 0; i < recentFiles.size(); i++) {
+				RecentFiles.Entry entry = recentFiles.get(i);
+				prop.setProperty(FIELD_RECENT_FILE + i, entry.getPath());
+				
+				EbcdicCodePage codePage = entry.getCodePage();
+				if (codePage != null) {
+					prop.setProperty(FIELD_RECENT_FILE_CODE_PAGE + i, codePage.name());
+				}
+				
+				RecordFormat recordFormat = entry.getRecordFormat();
+				if (recordFormat != null) {
+					prop.setProperty(FIELD_RECENT_FILE_RECORD_FORMAT + i, recordFormat.toString());
+				}
+				
+				if (entry.getSize() >= 0) {
+					prop.setProperty(FIELD_RECENT_FILE_SIZE + i, String.valueOf(entry.getSize()));
+					prop.setProperty(FIELD_RECENT_FILE_MODIFIED + i, String.valueOf(entry.getLastModified()));
+				}
+				if (entry.getLineState() != null) {
+					prop.setProperty(FIELD_RECENT_FILE_LINE_STATE + i, entry.getLineState().name());
+				}
+				if (entry.getCaret() > 0) {
+					prop.setProperty(FIELD_RECENT_FILE_CARET + i, String.valueOf(entry.getCaret()));
+				}
 			}
 
 			final String comment = "Settings file for " + CobblerApplication.APP_NAME + " version "
@@ -47,10 +47,12 @@ import org.fife.ui.rtextarea.SearchContext;
 import com.horvath.cobbler.application.CobblerApplication;
 import com.horvath.cobbler.application.Debugger;
 import com.horvath.cobbler.gui.action.AddLineNumbersAction;
+import com.horvath.cobbler.gui.action.CloseDocumentAction;
 import com.horvath.cobbler.gui.action.FindReplaceDialogAction;
 import com.horvath.cobbler.gui.action.GoToLineAction;
 import com.horvath.cobbler.gui.action.NewCobTemplateAction;
 import com.horvath.cobbler.gui.action.NewDocumentAction;
+import com.horvath.cobbler.gui.action.NormalizeLinesAction;
 import com.horvath.cobbler.gui.action.OpenFileAction;
 import com.horvath.cobbler.gui.action.PrintAction;
 import com.horvath.cobbler.gui.action.RemoveLineNumsAction;
@@ -70,6 +72,7 @@ public final class CobblerMenuBar extends JMenuBar {
 	protected JMenuItem newTemplatedItem;
 	protected JMenuItem openItem;
 	protected JMenu recentFilesMenu;
+	protected JMenuItem findRecentItem;
 	protected JMenuItem closeItem;
 	protected JMenuItem saveItem;
 	protected JMenuItem saveAsItem;
@@ -91,6 +94,7 @@ public final class CobblerMenuBar extends JMenuBar {
 	protected JMenuItem showHideFindReplaceBarItem;
 	protected JMenuItem addLineNumsItem;
 	protected JMenuItem removeLineNumsItem;
+	protected JMenuItem normalizeLinesItem;
 	protected JMenuItem settingItem;
 	
 	protected JMenu helpMenu;
@@ -117,6 +121,7 @@ public final class CobblerMenuBar extends JMenuBar {
 		newTemplatedItem = new JMenuItem();
 		openItem = new JMenuItem();
 		recentFilesMenu = new JMenu("Recent Files");
+		findRecentItem = new JMenuItem();
 		closeItem = new JMenuItem();
 		saveItem = new JMenuItem();
 		saveAsItem = new JMenuItem();
@@ -138,6 +143,7 @@ public final class CobblerMenuBar extends JMenuBar {
 		showHideFindReplaceBarItem = new JMenuItem();
 		addLineNumsItem = new JMenuItem();
 		removeLineNumsItem = new JMenuItem();
+		normalizeLinesItem = new JMenuItem();
 		settingItem = new JMenuItem();
 
 		helpMenu = new JMenu("Help");
@@ -178,8 +184,16 @@ public final class CobblerMenuBar extends JMenuBar {
 		openItem.setText("Open...");
 		openItem.setAccelerator(KeyStroke.getKeyStroke('O', Toolkit.getDefaultToolkit().getMenuShortcutKeyMask()));
 		
-		closeItem.setAction(new NewDocumentAction());
+		findRecentItem.addActionListener(e -> {
+			RecentFilesDialog recentFilesDialog = new RecentFilesDialog();
+			recentFilesDialog.setVisible(true);
+		});
+		findRecentItem.setText("Find Recent File...");
+		findRecentItem.setAccelerator(KeyStroke.getKeyStroke('E', Toolkit.getDefaultToolkit().getMenuShortcutKeyMask()));
+		
+		closeItem.setAction(new CloseDocumentAction());
 		closeItem.setText("Close");
+		closeItem.setAccelerator(KeyStroke.getKeyStroke('W', Toolkit.getDefaultToolkit().getMenuShortcutKeyMask()));
 		
 		saveItem.setAction(new SaveAction(SaveAction.SaveType.SAVE));
 		saveItem.setText("Save");
@@ -201,6 +215,7 @@ public final class CobblerMenuBar extends JMenuBar {
 		fileMenu.add(newTemplatedItem);
 		fileMenu.add(openItem);
 		fileMenu.add(recentFilesMenu);
+		fileMenu.add(findRecentItem);
 		fileMenu.add(closeItem);
 		fileMenu.add(saveItem);
 		fileMenu.add(saveAsItem);
@@ -346,6 +361,10 @@ public final class CobblerMenuBar extends JMenuBar {
 		removeLineNumsItem.setAction(new RemoveLineNumsAction());
 		removeLineNumsItem.setText("Remove Line Numbers");
 		
+		normalizeLinesItem.setAction(new NormalizeLinesAction());
+		normalizeLinesItem.setText("Normalize Lines...");
+		normalizeLinesItem.setToolTipText("Prepares the fixed format columns of each line for upload.");
+		
 		settingItem.addActionListener(e -> {
 			SettingsDialog settingsDialog = new SettingsDialog();
 			settingsDialog.setVisible(true);
@@ -360,6 +379,7 @@ public final class CobblerMenuBar extends JMenuBar {
 		utilitiesMenu.addSeparator();
 		utilitiesMenu.add(addLineNumsItem);
 		utilitiesMenu.add(removeLineNumsItem);
+		utilitiesMenu.add(normalizeLinesItem);
 		utilitiesMenu.addSeparator();
 		utilitiesMenu.add(settingItem);
 	}
@@ -32,23 +32,33 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Image;
 import java.awt.Insets;
+import java.awt.event.ActionListener;
 import java.awt.event.KeyAdapter;
 import java.awt.event.MouseAdapter;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.List;
 import java.util.logging.Level;
 
 import javax.swing.BorderFactory;
 import javax.swing.ImageIcon;
+import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.UIManager;
 import javax.swing.WindowConstants;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
 
 import org.fife.rsta.ui.CollapsibleSectionPanel;
 import org.fife.rsta.ui.search.FindDialog;
@@ -58,7 +68,6 @@ import org.fife.rsta.ui.search.ReplaceToolBar;
 import org.fife.rsta.ui.search.SearchEvent;
 import org.fife.rsta.ui.search.SearchListener;
 import org.fife.ui.rsyntaxtextarea.Theme;
-import org.fife.ui.rtextarea.RTextScrollPane;
 import org.fife.ui.rtextarea.SearchContext;
 import org.fife.ui.rtextarea.SearchEngine;
 import org.fife.ui.rtextarea.SearchResult;
@@ -66,10 +75,19 @@ import org.fife.ui.rtextarea.SearchResult;
 import com.horvath.cobbler.application.CobblerApplication;
 import com.horvath.cobbler.application.CobblerState;
 import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.application.DocumentState;
+import com.horvath.cobbler.application.RecentFiles;
+import com.horvath.cobbler.command.AbstractLineNumberCmd.LineState;
+import com.horvath.cobbler.command.LineNumberCounts;
+import com.horvath.cobbler.exception.CobblerException;
 import com.horvath.cobbler.gui.action.OpenRecentAction;
 import com.horvath.cobbler.gui.action.ShutdownAction;
 import com.horvath.cobbler.gui.syntax.CobSyntaxTextArea;
 import com.horvath.cobbler.gui.syntax.GuiTheme;
+import com.horvath.cobbler.io.AutosaveService;
+import com.horvath.cobbler.io.EditJournal;
+import com.horvath.cobbler.io.Session;
+import com.horvath.cobbler.io.SessionFile;
 
 /**
  * Class that defines the main application window. 
@@ -84,8 +102,7 @@ public final class CobblerWindow extends JFrame implements SearchListener {
 	private CobblerMenuBar cobMenuBar;
 	private JPanel docNamePanel;
 	private JLabel docNameLabel;
-	private CobSyntaxTextArea textArea;
-	private RTextScrollPane scrollpane;
+	private DocumentTabs tabs;
 	
 	private FindDialog findDialog = null;
 	private ReplaceDialog replaceDialog = null;
@@ -94,9 +111,33 @@ public final class CobblerWindow extends JFrame implements SearchListener {
 	private ReplaceToolBar replaceToolBar;
 	private boolean findReplaceBarDisplayed;
 	private StatusBar statusBar;
+	private Timer editUpdateTimer;
+	private Timer sessionUpdateTimer;
+	private SearchContext searchContext;
+	private boolean recentFilesMenuStale = true;
+	
+	/**
+	 * Number of recent files shown in the recent files menu, the rest are found by name.
+	 */
+	public static final int RECENT_FILES_MENU_SIZE = 15;
+	
+	/**
+	 * Milliseconds a check of the recent files is good for when the menu is opened.
+	 */
+	public static final long RECENT_FILES_CHECK_AGE = 30 * 1000;
 	
 	public static final String APP_ICON = "/resources/Cobber-icon.png";
 	
+	/**
+	 * Milliseconds the displays that follow edits wait for more edits, about one frame. 
+	 */
+	static final int EDIT_UPDATE_DELAY = 16;
+	
+	/**
+	 * Milliseconds a change to the session waits for more changes before it is saved. 
+	 */
+	static final int SESSION_UPDATE_DELAY = 1000;
+	
 	/**
 	 * Constructor. 
 	 */
@@ -126,11 +167,14 @@ public final class CobblerWindow extends JFrame implements SearchListener {
 	private void initializeComponents() {
 		cobMenuBar = new CobblerMenuBar();
 		
+		editUpdateTimer = new Timer(EDIT_UPDATE_DELAY, e -> updateEditDisplays());
+		editUpdateTimer.setRepeats(false);
+		sessionUpdateTimer = new Timer(SESSION_UPDATE_DELAY, e -> saveSession());
+		sessionUpdateTimer.setRepeats(false);
+		
 		docNamePanel = new JPanel();
 		docNameLabel = new JLabel(" ");
 
-		textArea = new CobSyntaxTextArea(20, 60);
-		scrollpane = new RTextScrollPane(textArea);
 		statusBar = new StatusBar();
 		collapsibleSecPanel = new CollapsibleSectionPanel();
 		
@@ -139,9 +183,19 @@ public final class CobblerWindow extends JFrame implements SearchListener {
 		findToolBar = new FindToolBar(this);
 		replaceToolBar = new ReplaceToolBar(this);
 		
+		// the search dialogs and tool bars share the search settings, which are kept with the session
+		searchContext = new SearchContext();
+		searchContext.addPropertyChangeListener(e -> scheduleSessionUpdate());
+		findToolBar.setSearchContext(searchContext);
+		replaceToolBar.setSearchContext(searchContext);
+		
 		ImageIcon icon = getImageIcon();
 		
 		setIconImage(icon.getImage());
+		
+		// the window starts with a single, empty document
+		tabs = new DocumentTabs(this);
+		tabs.addDocument();
 	}
 	
 	/**
@@ -166,7 +220,26 @@ public final class CobblerWindow extends JFrame implements SearchListener {
 		
 		updateUndoRedoMenuitems();
 		updateTextAreaTheme();
-		updateRecentFilesMenu();
+		
+		// the recent files menu is only rebuilt when it is opened after it changed
+		buildRecentFilesMenu();
+		cobMenuBar.recentFilesMenu.addMenuListener(new MenuListener() {
+			@Override
+			public void menuSelected(MenuEvent e) {
+				if (recentFilesMenuStale) {
+					buildRecentFilesMenu();
+				}
+				checkRecentFiles(RECENT_FILES_CHECK_AGE);
+			}
+
+			@Override
+			public void menuDeselected(MenuEvent e) {
+			}
+
+			@Override
+			public void menuCanceled(MenuEvent e) {
+			}
+		});
 	}
 	
 	/**
@@ -216,7 +289,7 @@ public final class CobblerWindow extends JFrame implements SearchListener {
 		gbc.weightx = 0.5;
 		gbc.insets = new Insets(0, 0, 0, 0);
 		gbc.anchor = GridBagConstraints.SOUTH;
-		add(scrollpane, gbc);
+		add(tabs, gbc);
 		
 		gbc.fill = GridBagConstraints.BOTH;
 		gbc.gridx = 0;
@@ -338,18 +411,307 @@ public final class CobblerWindow extends JFrame implements SearchListener {
 		return stop;
 	}
 
+	/**
+	 * Checks every open document for unsaved changes and, if there are, asks user to
+	 * confirm abandoning them. Returns true if the user chose to keep the unsaved
+	 * changes, otherwise returns false.
+	 * 
+	 * @return boolean
+	 */
+	public static boolean checkForDirtyDocuments() {
+		DocumentTabs tabs = getWindow().getTabs();
+		
+		int count = 0;
+		for (int i = 0; i < tabs.getTabCount(); i++) {
+			if (tabs.getDocumentState(i).isDirty()) {
+				count++;
+			}
+		}
+		if (count == 0) {
+			return false;
+		}
+
+		// ask user to confirm abandoning unsaved changes
+		int result = JOptionPane.showConfirmDialog(getWindow(),
+				"There are unsaved changes in " + (count == 1 ? "1 document" : count + " documents") 
+				+ ", are you sure you want to lose these changes?", "Confirmation",
+				JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
+
+		// the user chose to stop the operation and continue with the unsaved changes
+		return result == JOptionPane.NO_OPTION;
+	}
+	
+	/**
+	 * Makes a tab ready for a document that is being opened or created. The tab 
+	 * being viewed is reused when it holds an empty, unnamed document without 
+	 * changes, otherwise a tab is added for the document. 
+	 */
+	public void openDocument() {
+		CobblerState state = CobblerState.getInstance();
+		boolean empty = !state.isDirty() && state.getName().isEmpty() && getTextArea().getDocument().getLength() == 0;
+		
+		if (!empty) {
+			tabs.addDocument();
+		}
+	}
+	
+	/**
+	 * Updates the window for the document that has just been selected. The journal 
+	 * and sidecar of each document are kept while other documents are viewed, only 
+	 * watching the file follows the selection. 
+	 */
+	void documentSelected() {
+		DocumentState state = CobblerState.getInstance().getCurrentDocument();
+		
+		// the application starts recovering the first document itself, once it knows what it holds
+		if (window == this) {
+			if (state.isRecovering()) {
+				if (CobblerState.getInstance().getFileWatcher() != null) {
+					CobblerState.getInstance().getFileWatcher().watch(getRecoveryBase(state));
+				}
+			} else {
+				restartRecovery();
+			}
+		}
+		updateUndoRedoMenuitems();
+		updateDocumentNameDisplay(state.getName());
+		updateLineStateDisplay();
+		scheduleSessionUpdate();
+	}
+	
+	/**
+	 * Reopens the documents of the last session, and restores the search settings. 
+	 * @param session Session
+	 * @param opening File - a file being opened into the selected tab, may be null
+	 */
+	public void restoreSession(Session session, File opening) {
+		searchContext.setSearchFor(session.getSearchFor());
+		searchContext.setReplaceWith(session.getReplaceWith());
+		searchContext.setMatchCase((session.getSearchOptions() & Session.MATCH_CASE) != 0);
+		searchContext.setWholeWord((session.getSearchOptions() & Session.WHOLE_WORD) != 0);
+		searchContext.setRegularExpression((session.getSearchOptions() & Session.REGULAR_EXPRESSION) != 0);
+		searchContext.setSearchForward((session.getSearchOptions() & Session.SEARCH_FORWARD) != 0);
+		searchContext.setMarkAll((session.getSearchOptions() & Session.MARK_ALL) != 0);
+		
+		tabs.restoreSession(session, opening);
+	}
+	
+	/**
+	 * Saves the session soon, once it has stopped changing for a moment. 
+	 */
+	public void scheduleSessionUpdate() {
+		if (sessionUpdateTimer != null && !sessionUpdateTimer.isRunning()) {
+			sessionUpdateTimer.start();
+		}
+	}
+	
+	/**
+	 * Hands the open documents, with where each is being viewed, and the search 
+	 * settings over to be saved in the background. 
+	 */
+	public void saveSession() {
+		SessionFile sessionFile = CobblerState.getInstance().getSessionFile();
+		if (sessionFile == null) {
+			return;
+		}
+		
+		Session session = tabs.getSession();
+		
+		// the recent files remember where the caret was left, for when they are opened from the menu
+		for (Session.Entry entry : session.getEntries()) {
+			CobblerState.getInstance().getRecentFiles().setCaret(entry.getFile().getAbsolutePath(), entry.getCaret());
+		}
+		
+		session.setSearch(searchContext.getSearchFor(), searchContext.getReplaceWith(), 
+				(searchContext.getMatchCase() ? Session.MATCH_CASE : 0)
+				| (searchContext.getWholeWord() ? Session.WHOLE_WORD : 0)
+				| (searchContext.isRegularExpression() ? Session.REGULAR_EXPRESSION : 0)
+				| (searchContext.getSearchForward() ? Session.SEARCH_FORWARD : 0)
+				| (searchContext.getMarkAll() ? Session.MARK_ALL : 0));
+		sessionFile.save(session);
+	}
+	
+	/**
+	 * Marks the occurrences of the search text in a text area, when the search 
+	 * settings ask for them to be marked. 
+	 * @param textArea CobSyntaxTextArea
+	 */
+	void markAll(CobSyntaxTextArea textArea) {
+		if (searchContext.getMarkAll() && searchContext.getSearchFor() != null && !searchContext.getSearchFor().isEmpty()) {
+			SearchEngine.markAll(textArea, searchContext);
+		}
+	}
+	
+	/**
+	 * Applies the look of the window to the text area of a document. 
+	 * @param textArea CobSyntaxTextArea
+	 */
+	void configureTextArea(CobSyntaxTextArea textArea) {
+		applyTheme(textArea);
+	}
+
+	/**
+	 * Starts journaling and autosaving edits to the document against the file it was 
+	 * loaded from or saved to, replacing the journal and sidecar of earlier edits, and 
+	 * starts watching the file for changes made by other programs. The document must 
+	 * hold the contents of the file. 
+	 */
+	public void restartRecovery() {
+		restartRecovery(CobblerState.getInstance().getCurrentDocument());
+	}
+	
+	/**
+	 * Starts journaling and autosaving edits to a document against the file it was 
+	 * loaded from or saved to, whether or not it is being viewed. The file is only 
+	 * watched while the document is viewed. 
+	 * @param document DocumentState
+	 */
+	public void restartRecovery(DocumentState document) {
+		CobblerState state = CobblerState.getInstance();
+		
+		// a file viewed a line at a time can not be edited, nor does the viewer reload it
+		if (document.getLargeFile() != null || document.getDocument() == null) {
+			return;
+		}
+		document.setRecovering(true);
+		if (state.getFileWatcher() != null && document == state.getCurrentDocument()) {
+			state.getFileWatcher().watch(getRecoveryBase(document));
+		}
+		EditJournal journal = state.getJournal(document);
+		if (journal != null) {
+			try {
+				// edits made before the journal starts are kept in its snapshot, as for an unnamed document
+				journal.start(document.isDirty() ? null : getRecoveryBase(document), document.getDocument());
+				
+			} catch (CobblerException ex) {
+				Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+			}
+		}
+		restartAutosave(document);
+	}
+	
+	/**
+	 * Starts autosaving the document to the sidecar of the file it was loaded from or 
+	 * saved to, replacing the sidecar of its earlier contents. 
+	 */
+	public void restartAutosave() {
+		restartAutosave(CobblerState.getInstance().getCurrentDocument());
+	}
+	
+	/**
+	 * Starts autosaving a document to the sidecar of the file it was loaded from or 
+	 * saved to, replacing the sidecar of its earlier contents. 
+	 * @param document DocumentState
+	 */
+	private void restartAutosave(DocumentState document) {
+		AutosaveService autosave = CobblerState.getInstance().getAutosave();
+		if (autosave != null && document.getDocument() != null) {
+			autosave.start(getRecoveryBase(document), document.getSnapshotTracker(), document.getFileFormat(), 
+					document.getRecordFormat());
+		}
+	}
+	
+	/**
+	 * Stops journaling and autosaving edits to the document being viewed, discarding
+	 * its journal and sidecar, and stops watching the file. Used before the document 
+	 * is replaced or closed. 
+	 */
+	public void stopRecovery() {
+		CobblerState state = CobblerState.getInstance();
+		if (state.getFileWatcher() != null) {
+			state.getFileWatcher().stop();
+		}
+		stopRecovery(state.getCurrentDocument());
+	}
+	
+	/**
+	 * Stops journaling and autosaving edits to a document, discarding its journal 
+	 * and sidecar. 
+	 * @param document DocumentState
+	 */
+	void stopRecovery(DocumentState document) {
+		CobblerState state = CobblerState.getInstance();
+		state.closeJournal(document);
+		if (state.getAutosave() != null && document.getDocument() != null) {
+			state.getAutosave().stop(document.getDocument());
+		}
+		document.setRecovering(false);
+	}
+	
+	/**
+	 * Returns the file a document was loaded from or saved to. A member of an 
+	 * archive is recovered like an unnamed document, from a snapshot of its text.
+	 * Whether the file is on disk was noted when it was loaded or saved, so the 
+	 * event thread does not wait on the file system on every tab switch. 
+	 * @param document DocumentState
+	 * @return File - null for an unnamed document
+	 */
+	private static File getRecoveryBase(DocumentState document) {
+		return document.isOnDisk() ? document.getFile() : null;
+	}
+	
+	/**
+	 * Schedules the undo and redo menu items and the document name to be updated for 
+	 * an edit of the document being viewed. Edits made before the update runs share 
+	 * it, so a burst of edits, as when holding backspace or replacing all, costs one 
+	 * update per frame rather than one per edit. 
+	 */
+	public void scheduleEditUpdate() {
+		if (!editUpdateTimer.isRunning()) {
+			editUpdateTimer.start();
+		}
+	}
+	
+	/**
+	 * Updates the displays that follow the edits of the document being viewed. 
+	 */
+	private void updateEditDisplays() {
+		updateUndoRedoMenuitems();
+		updateDocumentNameDisplay(CobblerState.getInstance().getName());
+		updateLineStateDisplay();
+	}
+	
+	/**
+	 * Updates the display of whether the document being viewed has hard coded line 
+	 * numbers, from the counts kept for its lines. 
+	 */
+	public void updateLineStateDisplay() {
+		LineNumberCounts counts = CobblerState.getInstance().getCurrentDocument().getLineNumberCounts();
+		LineState lineState = counts != null ? counts.getLineState() : null;
+		
+		String text = "";
+		if (lineState == LineState.NUMBERED) {
+			text = "Line numbers";
+		} else if (lineState == LineState.NOT_NUMBERED) {
+			text = "No line numbers";
+		} else if (lineState == LineState.INDETERMINATE) {
+			text = "Mixed line numbers";
+		}
+		statusBar.updateLineState(text);
+	}
+	
 	/**
 	 * Updates the enabled / disabled status of the undo and re-do menu items. 
 	 */
 	public void updateUndoRedoMenuitems() {
-		cobMenuBar.undoItem.setEnabled(textArea.canUndo());
-		cobMenuBar.redoItem.setEnabled(textArea.canRedo());
+		cobMenuBar.undoItem.setEnabled(getTextArea().canUndo());
+		cobMenuBar.redoItem.setEnabled(getTextArea().canRedo());
 	}
 	
 	/**
-	 * Updates the visual theme displayed in the text editor. 
+	 * Updates the visual theme displayed in the text editors. 
 	 */
 	public void updateTextAreaTheme() {
+		for (CobSyntaxTextArea textArea : tabs.getTextAreas()) {
+			applyTheme(textArea);
+		}
+	}
+	
+	/**
+	 * Applies the selected theme to a text editor. 
+	 * @param textArea CobSyntaxTextArea
+	 */
+	private void applyTheme(CobSyntaxTextArea textArea) {
 		// get theme location string from state - should always have a value
 		GuiTheme selectedTheme = CobblerState.getInstance().getCurrentTheme();
 
@@ -362,21 +724,50 @@ public final class CobblerWindow extends JFrame implements SearchListener {
 	}
 	
 	/**
-	 * Updates the recent files menu. 
+	 * Updates the recent files menu. The menu is rebuilt right away if it is open, 
+	 * otherwise the next time it is opened. 
 	 */
 	public void updateRecentFilesMenu() {
+		if (cobMenuBar.recentFilesMenu.isPopupMenuVisible()) {
+			buildRecentFilesMenu();
+		} else {
+			recentFilesMenuStale = true;
+		}
+	}
+	
+	/**
+	 * Builds the recent files menu from what is known about the files, without 
+	 * touching the file system. Files that were not found when they were last
+	 * checked are marked. 
+	 */
+	private void buildRecentFilesMenu() {
+		recentFilesMenuStale = false;
 		cobMenuBar.recentFilesMenu.removeAll();
-		for (String recentFile : CobblerState.getInstance().getRecentFilesList()) {
+		
+		List<RecentFiles.Entry> entries = CobblerState.getInstance().getRecentFiles().getEntries();
+		for (RecentFiles.Entry entry : entries.subList(0, Math.min(entries.size(), RECENT_FILES_MENU_SIZE))) {
 			JMenuItem item = new JMenuItem();
-			item.addActionListener(new OpenRecentAction(recentFile));
-			item.setText(recentFile);
+			item.addActionListener(new OpenRecentAction(entry.getPath()));
+			item.setText(entry.isMissing() ? entry.getPath() + " (not found)" : entry.getPath());
+			item.setToolTipText(RecentFilesDialog.describe(entry));
 			cobMenuBar.recentFilesMenu.add(item);
 		}
+		cobMenuBar.findRecentItem.setEnabled(!entries.isEmpty());
+	}
+	
+	/**
+	 * Checks on a background thread whether the recent files are still there, and 
+	 * updates the recent files menu if any of them changed. 
+	 * @param maxAge long - milliseconds a previous check is good for
+	 */
+	public void checkRecentFiles(long maxAge) {
+		CobblerState.getInstance().getRecentFiles().validate(maxAge, 
+				() -> SwingUtilities.invokeLater(this::updateRecentFilesMenu));
 	}
 	
 	@Override
 	public String getSelectedText() {
-		return textArea.getSelectedText();
+		return getTextArea().getSelectedText();
 	}
 
 	/**
@@ -389,9 +780,22 @@ public final class CobblerWindow extends JFrame implements SearchListener {
 	@Override
 	public void searchEvent(SearchEvent se) {
 
+		CobSyntaxTextArea textArea = getTextArea();
 		SearchEvent.Type type = se.getType();
 		SearchContext context = se.getSearchContext();
 		SearchResult result;
+		
+		// a file too large to be loaded is searched by its viewer, and can not be changed
+		LargeFileViewer viewer = tabs.getViewer();
+		if (viewer != null) {
+			if (type == SearchEvent.Type.FIND || type == SearchEvent.Type.MARK_ALL) {
+				viewer.find(context);
+			} else {
+				UIManager.getLookAndFeel().provideErrorFeedback(viewer);
+				statusBar.updateText("The file is only viewed, its text can not be replaced.");
+			}
+			return;
+		}
 
 		switch (type) {
 		case MARK_ALL:
@@ -428,12 +832,16 @@ public final class CobblerWindow extends JFrame implements SearchListener {
 			text = "Text not found";
 		}
 		statusBar.updateText(text);
+		scheduleSessionUpdate();
 	}
 	
 	
 	
 	public void updateDocumentNameDisplay(String name) {
-		setDocumentName(name + (CobblerState.getInstance().isDirty() ? "*" : ""));
+		CobblerState state = CobblerState.getInstance();
+		setDocumentName(name + (state.isDirty() ? "*" : ""));
+		tabs.setTitle(state.getCurrentDocument(), (name.trim().isEmpty() ? "Untitled" : name) + (state.isDirty() ? "*" : ""));
+		scheduleSessionUpdate();
 	}
 	
 	private void setDocumentName(String name) {
@@ -449,8 +857,24 @@ public final class CobblerWindow extends JFrame implements SearchListener {
 		return this.cobMenuBar;
 	}
 
+	/**
+	 * Returns the text area of the document being viewed. 
+	 * @return CobSyntaxTextArea
+	 */
 	public CobSyntaxTextArea getTextArea() {
-		return textArea;
+		return tabs.getTextArea();
+	}
+	
+	public DocumentTabs getTabs() {
+		return tabs;
+	}
+
+	/**
+	 * Returns the search settings shared by the search dialogs and tool bars. 
+	 * @return SearchContext
+	 */
+	public SearchContext getSearchContext() {
+		return searchContext;
 	}
 
 	public FindDialog getFindDialog() {
@@ -501,6 +925,11 @@ public final class CobblerWindow extends JFrame implements SearchListener {
 
 		private static final long serialVersionUID = 1L;
 		private JLabel label;
+		private JLabel lineStateLabel;
+		private JPanel progressPanel;
+		private JProgressBar progressBar;
+		private JButton cancelButton;
+		private ActionListener cancelListener;
 
 		/**
 		 * Constructor. 
@@ -509,7 +938,18 @@ public final class CobblerWindow extends JFrame implements SearchListener {
 			label = new JLabel("Ready");
 			setLayout(new BorderLayout());
 			add(label, BorderLayout.LINE_START);
-			add(new JLabel());
+			
+			lineStateLabel = new JLabel("", SwingConstants.TRAILING);
+			lineStateLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 0, 10));
+			add(lineStateLabel);
+			
+			progressBar = new JProgressBar(0, 100);
+			cancelButton = new JButton("Cancel");
+			progressPanel = new JPanel(new BorderLayout(5, 0));
+			progressPanel.add(progressBar, BorderLayout.CENTER);
+			progressPanel.add(cancelButton, BorderLayout.LINE_END);
+			progressPanel.setVisible(false);
+			add(progressPanel, BorderLayout.LINE_END);
 		}
 
 		/**
@@ -520,8 +960,53 @@ public final class CobblerWindow extends JFrame implements SearchListener {
 			this.label.setText(text);
 		}
 		
+		/**
+		 * Updates the displayed line number state of the document. 
+		 * @param text String
+		 */
+		public void updateLineState(String text) {
+			this.lineStateLabel.setText(text);
+		}
+		
 		public void resetBar() {
 			this.label.setText("Ready");
 		}
+		
+		/**
+		 * Displays a progress bar with a cancel button for a long running operation. 
+		 * @param text String 
+		 * @param cancelListener ActionListener - notified when the user cancels the operation
+		 */
+		public void showProgress(String text, ActionListener cancelListener) {
+			if (this.cancelListener != null) {
+				cancelButton.removeActionListener(this.cancelListener);
+			}
+			this.cancelListener = cancelListener;
+			cancelButton.addActionListener(cancelListener);
+			cancelButton.setEnabled(true);
+			
+			progressBar.setValue(0);
+			progressPanel.setVisible(true);
+			updateText(text);
+		}
+		
+		/**
+		 * Updates the progress bar. 
+		 * @param percent int 
+		 */
+		public void updateProgress(int percent) {
+			progressBar.setValue(percent);
+		}
+		
+		/**
+		 * Hides the progress bar and cancel button. 
+		 */
+		public void hideProgress() {
+			if (this.cancelListener != null) {
+				cancelButton.removeActionListener(this.cancelListener);
+				this.cancelListener = null;
+			}
+			progressPanel.setVisible(false);
+		}
 	}
 }
@@ -0,0 +1,508 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.gui;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Level;
+
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JTabbedPane;
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+
+import org.fife.ui.rtextarea.RTextScrollPane;
+
+import com.horvath.cobbler.application.CobblerState;
+import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.application.DocumentState;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.gui.action.LoadFileWorker;
+import com.horvath.cobbler.gui.syntax.CobSyntaxTextArea;
+import com.horvath.cobbler.io.ArchiveIndex;
+import com.horvath.cobbler.io.Session;
+
+/**
+ * The tabs of the open documents. Each tab owns the state of its document and 
+ * a text area of its own, so every document keeps its own undo history. 
+ * <p>
+ * Only the documents viewed most recently keep their text area. The others 
+ * are parked: their text is compressed outside the heap, and the text area, 
+ * with its document, token cache and undo history, is let go until the tab is
+ * viewed again. Documents with unsaved changes are never parked, nor are files
+ * too large to be loaded, which are shown in a {@link LargeFileViewer} instead. 
+ * <p>
+ * Documents restored from the last session get a tab straight away, but their 
+ * file is only read once the tab is viewed. 
+ * 
+ * @author jhorvath
+ */
+public final class DocumentTabs extends JTabbedPane {
+
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * Number of documents that keep their text area when they are not being viewed.
+	 */
+	static final int MAX_LIVE_DOCUMENTS = 4;
+	
+	private final CobblerWindow window;
+	private final ArrayList<DocumentState> states = new ArrayList<>();
+	private final ArrayList<CobSyntaxTextArea> textAreas = new ArrayList<>();
+	
+	// most recently viewed first
+	private final ArrayList<DocumentState> viewed = new ArrayList<>();
+	
+	// where the documents without a text area were viewed last, both parked ones and ones not opened yet
+	private final HashMap<DocumentState, Session.Entry> positions = new HashMap<>();
+	
+	/**
+	 * Constructor. 
+	 * @param window CobblerWindow
+	 */
+	DocumentTabs(CobblerWindow window) {
+		super(JTabbedPane.TOP, JTabbedPane.SCROLL_TAB_LAYOUT);
+		this.window = window;
+		addChangeListener(e -> documentSelected());
+	}
+	
+	/**
+	 * Adds a tab for a new, empty document and selects it. 
+	 * @return CobSyntaxTextArea - the text area of the new document
+	 */
+	public CobSyntaxTextArea addDocument() {
+		DocumentState state = new DocumentState();
+		CobSyntaxTextArea textArea = createTextArea(state);
+		
+		states.add(state);
+		textAreas.add(textArea);
+		addTab(" ", createScrollPane(textArea));
+		setSelectedIndex(getTabCount() - 1);
+		return textArea;
+	}
+	
+	/**
+	 * Removes the tab of a document. 
+	 * @param index int
+	 */
+	public void removeDocument(int index) {
+		// the edits of a removed document are not needed any more
+		window.stopRecovery(states.get(index));
+		viewed.remove(states.get(index));
+		positions.remove(states.get(index));
+		states.get(index).setLargeFile(null);
+		states.get(index).setFileFormat(null);
+		states.get(index).setDocument(null);
+		states.remove(index);
+		textAreas.remove(index);
+		removeTabAt(index);
+		
+		// the tab taking the place of the selected one is not always announced
+		final int selected = getSelectedIndex();
+		if (selected >= 0 && states.get(selected) != CobblerState.getInstance().getCurrentDocument()) {
+			documentSelected();
+		}
+		window.scheduleSessionUpdate();
+	}
+	
+	/**
+	 * Adds a tab for each document of a session whose file still exists and is not 
+	 * open already. The files are only read once their tab is viewed. When the 
+	 * selected tab holds an empty, unnamed document, the document that was being 
+	 * viewed in the session takes its place. 
+	 * 
+	 * @param session Session
+	 * @param opening File - a file being opened into the selected tab, may be null
+	 */
+	public void restoreSession(Session session, File opening) {
+		final int current = getSelectedIndex();
+		DocumentState currentState = states.get(current);
+		boolean replace = opening == null && !currentState.isDirty() && currentState.getName().isEmpty() 
+				&& currentState.getLargeFile() == null && textAreas.get(current).getDocument().getLength() == 0;
+		
+		int select = -1;
+		List<Session.Entry> entries = session.getEntries();
+		for (int i = 0; i < entries.size(); i++) {
+			File file = entries.get(i).getFile();
+			if (isOpen(file) || (opening != null && opening.getAbsoluteFile().equals(file.getAbsoluteFile())) 
+					|| !ArchiveIndex.exists(file)) {
+				continue;
+			}
+			
+			DocumentState state = new DocumentState();
+			state.setFile(file);
+			states.add(state);
+			textAreas.add(null);
+			positions.put(state, entries.get(i));
+			addTab(file.getName(), new JPanel());
+			setToolTipTextAt(getTabCount() - 1, file.getAbsolutePath());
+			
+			if (i == session.getSelected()) {
+				select = getTabCount() - 1;
+			}
+		}
+		
+		Debugger.printLog("Restored " + (getTabCount() - 1 - current) + " documents of the last session", 
+				this.getClass().getName());
+		
+		if (replace && select >= 0) {
+			setSelectedIndex(select);
+			removeDocument(states.indexOf(currentState));
+		}
+	}
+	
+	/**
+	 * Returns the open documents that have a file, with where each is being viewed. 
+	 * @return Session
+	 */
+	public Session getSession() {
+		Session session = new Session();
+		for (int i = 0; i < states.size(); i++) {
+			Session.Entry entry = getPosition(i);
+			if (entry != null) {
+				if (i == getSelectedIndex()) {
+					session.setSelected(session.getEntries().size());
+				}
+				session.addEntry(entry);
+			}
+		}
+		return session;
+	}
+	
+	/**
+	 * Returns where a document is being viewed. 
+	 * @param index int
+	 * @return Session.Entry - null for an unnamed document
+	 */
+	private Session.Entry getPosition(int index) {
+		DocumentState state = states.get(index);
+		if (state.getFile() == null || state.getName().isEmpty()) {
+			return null;
+		}
+		if (positions.containsKey(state)) {
+			return positions.get(state);
+		}
+		
+		File file = state.getFile().getAbsoluteFile();
+		if (getComponentAt(index) instanceof LargeFileViewer) {
+			LargeFileViewer viewer = (LargeFileViewer) getComponentAt(index);
+			return new Session.Entry(file, viewer.getCurrentLine(), viewer.getTopLine(), 0);
+		}
+		
+		CobSyntaxTextArea textArea = textAreas.get(index);
+		if (textArea == null) {
+			return new Session.Entry(file, 0, 0, 0);
+		}
+		
+		JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, textArea);
+		Point view = viewport != null ? viewport.getViewPosition() : new Point();
+		int topLine = 0;
+		try {
+			topLine = textArea.getLineOfOffset(Math.max(0, textArea.viewToModel(new Point(0, view.y))));
+		} catch (BadLocationException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+		}
+		return new Session.Entry(file, textArea.getCaretPosition(), topLine, view.x);
+	}
+	
+	/**
+	 * Moves the caret and the view of the selected document to where they were. 
+	 * @param entry Session.Entry
+	 */
+	private void showPosition(Session.Entry entry) {
+		LargeFileViewer viewer = getViewer();
+		if (viewer != null) {
+			if (entry.getCaret() >= 0) {
+				viewer.goToLine(entry.getCaret());
+			}
+			viewer.setTopLine(entry.getTopLine());
+			return;
+		}
+		
+		CobSyntaxTextArea textArea = getTextArea();
+		textArea.setCaretPosition(Math.max(0, Math.min(entry.getCaret(), textArea.getDocument().getLength())));
+		window.markAll(textArea);
+		
+		// the caret was scrolled into view, the view is moved once the text area has been laid out
+		SwingUtilities.invokeLater(() -> {
+			JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, textArea);
+			if (viewport == null) {
+				return;
+			}
+			try {
+				int line = Math.max(0, Math.min(entry.getTopLine(), textArea.getLineCount() - 1));
+				Rectangle bounds = textArea.modelToView(textArea.getLineStartOffset(line));
+				if (bounds != null) {
+					int x = Math.max(0, Math.min(entry.getScrollX(), textArea.getWidth() - viewport.getWidth()));
+					int y = Math.max(0, Math.min(bounds.y, textArea.getHeight() - viewport.getHeight()));
+					viewport.setViewPosition(new Point(x, y));
+				}
+			} catch (BadLocationException ex) {
+				Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+			}
+		});
+	}
+	
+	/**
+	 * Returns a boolean indicating if a file is open in one of the tabs. 
+	 * @param file File
+	 * @return boolean
+	 */
+	private boolean isOpen(File file) {
+		for (DocumentState state : states) {
+			if (state.getFile() != null && state.getFile().getAbsoluteFile().equals(file.getAbsoluteFile())) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the text area of the selected document. 
+	 * @return CobSyntaxTextArea
+	 */
+	public CobSyntaxTextArea getTextArea() {
+		final int index = getSelectedIndex();
+		return index >= 0 ? textAreas.get(index) : null;
+	}
+	
+	/**
+	 * Returns the viewer of the selected document. 
+	 * @return LargeFileViewer - null if the document is not a file too large to be loaded
+	 */
+	public LargeFileViewer getViewer() {
+		final int index = getSelectedIndex();
+		return index >= 0 && getComponentAt(index) instanceof LargeFileViewer 
+				? (LargeFileViewer) getComponentAt(index) : null;
+	}
+	
+	/**
+	 * Shows the selected document in a viewer when its file is too large to be loaded
+	 * into its text area, or in its text area otherwise. Called once a file has been 
+	 * loaded into the document. 
+	 */
+	public void updateView() {
+		final int index = getSelectedIndex();
+		if (index < 0) {
+			return;
+		}
+		
+		DocumentState state = states.get(index);
+		CobSyntaxTextArea textArea = textAreas.get(index);
+		LargeFileViewer viewer = getViewer();
+		
+		if (state.getLargeFile() != null) {
+			if (viewer == null || viewer.getLargeFile() != state.getLargeFile()) {
+				RTextScrollPane scrollPane = viewer != null ? viewer.getScrollPane() : (RTextScrollPane) getComponentAt(index);
+				
+				// the empty document is kept out of view and must not be edited
+				textArea.setEditable(false);
+				viewer = new LargeFileViewer(state.getLargeFile(), scrollPane);
+				viewer.addScrollListener(e -> window.scheduleSessionUpdate());
+				setComponentAt(index, viewer);
+			}
+		} else if (viewer != null) {
+			textArea.setEditable(true);
+			setComponentAt(index, viewer.getScrollPane());
+		}
+	}
+	
+	/**
+	 * Returns the text areas of the documents that are not parked. 
+	 * @return ArrayList<CobSyntaxTextArea>
+	 */
+	public ArrayList<CobSyntaxTextArea> getTextAreas() {
+		ArrayList<CobSyntaxTextArea> list = new ArrayList<>();
+		for (CobSyntaxTextArea textArea : textAreas) {
+			if (textArea != null) {
+				list.add(textArea);
+			}
+		}
+		return list;
+	}
+	
+	/**
+	 * Returns the state of the document in a tab. 
+	 * @param index int
+	 * @return DocumentState
+	 */
+	public DocumentState getDocumentState(int index) {
+		return states.get(index);
+	}
+	
+	/**
+	 * Sets the title of the tab of a document. 
+	 * @param state DocumentState
+	 * @param title String
+	 */
+	public void setTitle(DocumentState state, String title) {
+		final int index = states.indexOf(state);
+		if (index >= 0) {
+			setTitleAt(index, title);
+			setToolTipTextAt(index, state.getFile() != null ? state.getFile().getAbsolutePath() : null);
+		}
+	}
+	
+	/**
+	 * Makes the selected document the one being viewed, restoring it if it 
+	 * was parked, and parks the documents that have not been viewed recently. 
+	 */
+	private void documentSelected() {
+		final int index = getSelectedIndex();
+		if (index < 0) {
+			return;
+		}
+		
+		DocumentState state = states.get(index);
+		boolean unopened = textAreas.get(index) == null && !state.isParked();
+		if (state.isParked()) {
+			restore(index);
+		} else if (unopened) {
+			CobSyntaxTextArea textArea = createTextArea(state);
+			textAreas.set(index, textArea);
+			setComponentAt(index, createScrollPane(textArea));
+		}
+		
+		viewed.remove(state);
+		viewed.add(0, state);
+		CobblerState.getInstance().setCurrentDocument(state);
+		
+		// a document with unsaved changes stays live, to be parked once it has been saved
+		for (int i = viewed.size() - 1; i > MAX_LIVE_DOCUMENTS; i--) {
+			park(viewed.get(i));
+		}
+		
+		window.documentSelected();
+		
+		if (unopened) {
+			open(state);
+		}
+	}
+	
+	/**
+	 * Reads the file of a document restored from the session into its text area, 
+	 * which must be the one selected, then moves to where it was viewed. 
+	 * @param state DocumentState
+	 */
+	private void open(DocumentState state) {
+		Session.Entry entry = positions.remove(state);
+		final String path = entry.getFile().getAbsolutePath();
+		
+		CobblerState cobblerState = CobblerState.getInstance();
+		LoadFileWorker worker = new LoadFileWorker(entry.getFile(), cobblerState.getRecentFileCodePage(path), 
+				cobblerState.getRecentFileRecordFormat(path));
+		worker.setOnLoaded(() -> showPosition(entry));
+		worker.start();
+	}
+	
+	/**
+	 * Parks a document that is not being viewed. 
+	 * @param state DocumentState
+	 */
+	private void park(DocumentState state) {
+		final int index = states.indexOf(state);
+		if (index < 0 || state.isDirty() || state.isParked() || state.getLargeFile() != null) {
+			return;
+		}
+		
+		try {
+			Session.Entry position = getPosition(index);
+			
+			// a document without unsaved changes has nothing to recover, it is journaled again once restored
+			window.stopRecovery(state);
+			state.park();
+			if (position != null) {
+				positions.put(state, position);
+			}
+			textAreas.set(index, null);
+			setComponentAt(index, new JPanel());
+			viewed.remove(state);
+			Debugger.printLog("Parked " + state.getParkedText().length() + " characters in " 
+					+ state.getParkedText().getCompressedSize() + " bytes", this.getClass().getName());
+			
+		} catch (CobblerException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+		}
+	}
+	
+	/**
+	 * Restores a parked document into a new text area. 
+	 * @param index int
+	 */
+	private void restore(int index) {
+		DocumentState state = states.get(index);
+		CobSyntaxTextArea textArea = createTextArea(state);
+		
+		try {
+			state.unpark(textArea.getDocument());
+			
+		} catch (CobblerException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+			window.simpleMessagePopup("Restore Error", ex.getMessage(), JOptionPane.ERROR_MESSAGE);
+		}
+		
+		textArea.setCaretPosition(0);
+		textArea.discardAllEdits();
+		state.setDirty(false);
+		
+		textAreas.set(index, textArea);
+		setComponentAt(index, createScrollPane(textArea));
+		
+		Session.Entry position = positions.remove(state);
+		if (position != null) {
+			showPosition(position);
+		}
+	}
+	
+	/**
+	 * Creates the text area of a document. 
+	 * @param state DocumentState
+	 * @return CobSyntaxTextArea
+	 */
+	private CobSyntaxTextArea createTextArea(DocumentState state) {
+		CobSyntaxTextArea textArea = new CobSyntaxTextArea(20, 60, state);
+		window.configureTextArea(textArea);
+		textArea.addCaretListener(e -> window.scheduleSessionUpdate());
+		return textArea;
+	}
+	
+	/**
+	 * Creates the scroll pane of a text area. 
+	 * @param textArea CobSyntaxTextArea
+	 * @return RTextScrollPane
+	 */
+	private RTextScrollPane createScrollPane(CobSyntaxTextArea textArea) {
+		RTextScrollPane scrollPane = new RTextScrollPane(textArea);
+		scrollPane.getViewport().addChangeListener(e -> window.scheduleSessionUpdate());
+		return scrollPane;
+	}
+
+}
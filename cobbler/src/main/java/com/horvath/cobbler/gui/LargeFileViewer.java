@@ -0,0 +1,548 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.AdjustmentListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import javax.swing.JScrollBar;
+import javax.swing.SwingWorker;
+import javax.swing.UIManager;
+import javax.swing.text.Segment;
+
+import org.fife.ui.rsyntaxtextarea.Style;
+import org.fife.ui.rsyntaxtextarea.SyntaxScheme;
+import org.fife.ui.rsyntaxtextarea.Token;
+import org.fife.ui.rsyntaxtextarea.TokenTypes;
+import org.fife.ui.rtextarea.Gutter;
+import org.fife.ui.rtextarea.RTextScrollPane;
+import org.fife.ui.rtextarea.SearchContext;
+
+import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.gui.syntax.CobSyntaxTextArea;
+import com.horvath.cobbler.gui.syntax.CobolTokenMaker;
+import com.horvath.cobbler.io.LargeTextFile;
+
+/**
+ * Read only view of a file too large to be loaded into a document. Only the 
+ * lines on screen are read from the file, and they are highlighted by the COBOL
+ * token maker with the colors and fonts of the document's text area, so the 
+ * memory used does not grow with the size of the file. 
+ * <p>
+ * The text area and scroll pane of the document are kept out of view, so that 
+ * themes and fonts applied to them are picked up by the viewer. 
+ * 
+ * @author jhorvath
+ */
+public final class LargeFileViewer extends JPanel {
+
+	private static final long serialVersionUID = 1L;
+	
+	private static final int MARGIN = 5;
+	private static final String SEARCH_CANCELLED = "Searching the file was cancelled.";
+	
+	private final LargeTextFile largeFile;
+	private final RTextScrollPane scrollPane;
+	private final CobSyntaxTextArea textArea;
+	private final CobolTokenMaker tokenMaker = new CobolTokenMaker();
+	
+	private final LinesView view = new LinesView();
+	private final JScrollBar verticalBar = new JScrollBar(JScrollBar.VERTICAL);
+	private final JScrollBar horizontalBar = new JScrollBar(JScrollBar.HORIZONTAL);
+	
+	// the line gone to or found last, and the pattern it was found with
+	private int currentLine = -1;
+	private Pattern matchPattern;
+	
+	// the longest line painted so far, in columns
+	private int maxColumns = 0;
+	private boolean readFailed = false;
+	
+	private SwingWorker<Integer, Void> search;
+	private volatile boolean searchCancelled = false;
+	
+	/**
+	 * Constructor. 
+	 * @param largeFile LargeTextFile
+	 * @param scrollPane RTextScrollPane - holds the text area of the document
+	 */
+	public LargeFileViewer(LargeTextFile largeFile, RTextScrollPane scrollPane) {
+		super(new BorderLayout());
+		this.largeFile = largeFile;
+		this.scrollPane = scrollPane;
+		this.textArea = (CobSyntaxTextArea) scrollPane.getTextArea();
+		
+		add(view, BorderLayout.CENTER);
+		add(verticalBar, BorderLayout.LINE_END);
+		add(horizontalBar, BorderLayout.PAGE_END);
+		
+		verticalBar.addAdjustmentListener(e -> view.repaint());
+		horizontalBar.addAdjustmentListener(e -> view.repaint());
+		addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentResized(ComponentEvent e) {
+				updateScrollBars();
+			}
+		});
+		
+		view.setFocusable(true);
+		view.addMouseWheelListener(e -> scrollBy(e.getUnitsToScroll()));
+		view.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mousePressed(MouseEvent e) {
+				view.requestFocusInWindow();
+			}
+		});
+		view.addKeyListener(new KeyAdapter() {
+			@Override
+			public void keyPressed(KeyEvent e) {
+				keyNavigation(e);
+			}
+		});
+		
+		updateScrollBars();
+	}
+	
+	/**
+	 * Returns the file being viewed. 
+	 * @return LargeTextFile
+	 */
+	public LargeTextFile getLargeFile() {
+		return largeFile;
+	}
+	
+	/**
+	 * Returns the scroll pane holding the text area of the document. 
+	 * @return RTextScrollPane
+	 */
+	public RTextScrollPane getScrollPane() {
+		return scrollPane;
+	}
+	
+	/**
+	 * Returns the number of lines in the file. 
+	 * @return int
+	 */
+	public int getLineCount() {
+		return largeFile.getLineCount();
+	}
+	
+	/**
+	 * Returns the first line in view. 
+	 * @return int - zero based
+	 */
+	public int getTopLine() {
+		return verticalBar.getValue();
+	}
+	
+	/**
+	 * Scrolls a line to the top of the view. 
+	 * @param line int - zero based
+	 */
+	public void setTopLine(int line) {
+		verticalBar.setValue(line);
+	}
+	
+	/**
+	 * Returns the line gone to or found last. 
+	 * @return int - zero based, or -1 if there is none
+	 */
+	public int getCurrentLine() {
+		return currentLine;
+	}
+	
+	/**
+	 * Adds a listener told when the view is scrolled. 
+	 * @param listener AdjustmentListener
+	 */
+	public void addScrollListener(AdjustmentListener listener) {
+		verticalBar.addAdjustmentListener(listener);
+		horizontalBar.addAdjustmentListener(listener);
+	}
+	
+	/**
+	 * Scrolls a line into the middle of the view and highlights it. 
+	 * @param line int - zero based
+	 */
+	public void goToLine(int line) {
+		showLine(line, null);
+	}
+	
+	/**
+	 * Searches the file for the text of a search context, starting after the line 
+	 * found last, or at the top of the view. The file is searched on a worker thread 
+	 * with its progress in the status bar, and the line found is scrolled into view. 
+	 * The search does not wrap around. 
+	 * @param context SearchContext
+	 */
+	public void find(SearchContext context) {
+		CobblerWindow window = CobblerWindow.getWindow();
+		if (search != null && !search.isDone()) {
+			return;
+		}
+		
+		final Pattern pattern;
+		try {
+			pattern = createPattern(context);
+			
+		} catch (PatternSyntaxException ex) {
+			UIManager.getLookAndFeel().provideErrorFeedback(this);
+			window.getStatusBar().updateText(ex.getDescription());
+			return;
+		}
+		
+		final boolean forward = context.getSearchForward();
+		final int fromLine;
+		if (currentLine >= 0) {
+			fromLine = forward ? currentLine + 1 : currentLine - 1;
+		} else {
+			fromLine = forward ? verticalBar.getValue() : verticalBar.getValue() + getVisibleLines() - 1;
+		}
+		
+		searchCancelled = false;
+		window.getStatusBar().showProgress("Searching " + largeFile.getFile().getName(), e -> searchCancelled = true);
+		
+		search = new SwingWorker<Integer, Void>() {
+			
+			@Override
+			protected Integer doInBackground() throws Exception {
+				return largeFile.find(pattern, Math.min(fromLine, largeFile.getLineCount() - 1), forward, 
+						(position, size) -> {
+							if (searchCancelled) {
+								throw new CobblerException(SEARCH_CANCELLED);
+							}
+							setProgress((int) Math.min(100, position * 100 / Math.max(1, size)));
+						});
+			}
+			
+			@Override
+			protected void done() {
+				window.getStatusBar().hideProgress();
+				
+				int line;
+				try {
+					line = get();
+					
+				} catch (InterruptedException | ExecutionException ex) {
+					String message = searchCancelled ? SEARCH_CANCELLED 
+							: ex.getCause() != null ? ex.getCause().getMessage() : ex.getMessage();
+					Debugger.printLog(message, LargeFileViewer.class.getName(), searchCancelled ? Level.INFO : Level.WARNING);
+					window.getStatusBar().updateText(message);
+					return;
+				}
+				
+				if (line < 0) {
+					UIManager.getLookAndFeel().provideErrorFeedback(LargeFileViewer.this);
+					window.getStatusBar().updateText("Text not found");
+					return;
+				}
+				showLine(line, pattern);
+				window.getStatusBar().updateText("Text found on line " + (line + 1));
+			}
+		};
+		search.addPropertyChangeListener(e -> {
+			if ("progress".equals(e.getPropertyName())) {
+				window.getStatusBar().updateProgress((Integer) e.getNewValue());
+			}
+		});
+		search.execute();
+	}
+	
+	/**
+	 * Creates the pattern for the text of a search context. 
+	 * @param context SearchContext
+	 * @return Pattern
+	 * @throws PatternSyntaxException
+	 */
+	private static Pattern createPattern(SearchContext context) {
+		String regex = context.isRegularExpression() ? context.getSearchFor() : Pattern.quote(context.getSearchFor());
+		if (context.getWholeWord()) {
+			regex = "\\b(?:" + regex + ")\\b";
+		}
+		return Pattern.compile(regex, context.getMatchCase() ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+	}
+	
+	/**
+	 * Scrolls a line into the middle of the view and highlights it, along with the 
+	 * first match of a pattern in it. 
+	 * @param line int
+	 * @param pattern Pattern - may be null
+	 */
+	private void showLine(int line, Pattern pattern) {
+		currentLine = Math.max(0, Math.min(line, largeFile.getLineCount() - 1));
+		matchPattern = pattern;
+		
+		if (currentLine < verticalBar.getValue() || currentLine >= verticalBar.getValue() + getVisibleLines()) {
+			verticalBar.setValue(currentLine - getVisibleLines() / 2);
+		}
+		view.repaint();
+		view.requestFocusInWindow();
+	}
+	
+	/**
+	 * Scrolls the view by a number of lines. 
+	 * @param lines int - negative to scroll up
+	 */
+	private void scrollBy(int lines) {
+		verticalBar.setValue(verticalBar.getValue() + lines);
+	}
+	
+	/**
+	 * Scrolls the view for the navigation keys. 
+	 * @param e KeyEvent
+	 */
+	private void keyNavigation(KeyEvent e) {
+		final int page = Math.max(1, getVisibleLines() - 1);
+		final int column = getFontMetrics(textArea.getFont()).charWidth('m');
+		
+		switch (e.getKeyCode()) {
+		case KeyEvent.VK_UP:
+			scrollBy(-1);
+			break;
+		case KeyEvent.VK_DOWN:
+			scrollBy(1);
+			break;
+		case KeyEvent.VK_PAGE_UP:
+			scrollBy(-page);
+			break;
+		case KeyEvent.VK_PAGE_DOWN:
+			scrollBy(page);
+			break;
+		case KeyEvent.VK_HOME:
+			if (e.isControlDown()) {
+				verticalBar.setValue(0);
+			}
+			horizontalBar.setValue(0);
+			break;
+		case KeyEvent.VK_END:
+			if (e.isControlDown()) {
+				verticalBar.setValue(verticalBar.getMaximum());
+			}
+			break;
+		case KeyEvent.VK_LEFT:
+			horizontalBar.setValue(horizontalBar.getValue() - column);
+			break;
+		case KeyEvent.VK_RIGHT:
+			horizontalBar.setValue(horizontalBar.getValue() + column);
+			break;
+		default:
+			return;
+		}
+		e.consume();
+	}
+	
+	/**
+	 * Returns the number of whole lines that fit in the view. 
+	 * @return int
+	 */
+	private int getVisibleLines() {
+		return Math.max(1, view.getHeight() / getFontMetrics(textArea.getFont()).getHeight());
+	}
+	
+	/**
+	 * Sets the range of the scroll bars for the size of the view. 
+	 */
+	private void updateScrollBars() {
+		final int visible = getVisibleLines();
+		verticalBar.setValues(verticalBar.getValue(), visible, 0, largeFile.getLineCount());
+		verticalBar.setBlockIncrement(Math.max(1, visible - 1));
+		
+		final int column = getFontMetrics(textArea.getFont()).charWidth('m');
+		final int width = Math.max(1, view.getWidth());
+		horizontalBar.setValues(horizontalBar.getValue(), width, 0, Math.max(width, maxColumns * column + 2 * MARGIN));
+		horizontalBar.setUnitIncrement(column);
+		horizontalBar.setBlockIncrement(width);
+	}
+	
+	/**
+	 * Replaces the tabs of a line with the spaces up to the next tab stop of the text area. 
+	 * @param line String
+	 * @return String
+	 */
+	private String expandTabs(String line) {
+		if (line.indexOf('\t') < 0) {
+			return line;
+		}
+		final int tabSize = Math.max(1, textArea.getTabSize());
+		StringBuilder sb = new StringBuilder(line.length() + tabSize);
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '\t') {
+				do {
+					sb.append(' ');
+				} while (sb.length() % tabSize != 0);
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Paints the lines of the file that are in view, with a gutter of line numbers. 
+	 */
+	private final class LinesView extends JComponent {
+		
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		public Dimension getPreferredSize() {
+			return new Dimension(textArea.getPreferredScrollableViewportSize());
+		}
+
+		@Override
+		protected void paintComponent(Graphics g) {
+			Graphics2D g2 = (Graphics2D) g;
+			g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			
+			final Font font = textArea.getFont();
+			final FontMetrics metrics = g2.getFontMetrics(font);
+			final int lineHeight = metrics.getHeight();
+			final int lineCount = largeFile.getLineCount();
+			
+			Gutter gutter = scrollPane.getGutter();
+			final Font gutterFont = gutter.getLineNumberFont();
+			final FontMetrics gutterMetrics = g2.getFontMetrics(gutterFont);
+			final int gutterWidth = gutterMetrics.stringWidth(String.valueOf(lineCount)) + 2 * MARGIN;
+			
+			g2.setColor(textArea.getBackground());
+			g2.fillRect(0, 0, getWidth(), getHeight());
+			g2.setColor(gutter.getBackground());
+			g2.fillRect(0, 0, gutterWidth, getHeight());
+			
+			final int top = verticalBar.getValue();
+			final int x = gutterWidth + MARGIN - horizontalBar.getValue();
+			final int columns = maxColumns;
+			
+			for (int row = 0, line = top; row * lineHeight < getHeight() && line < lineCount; row++, line++) {
+				final int y = row * lineHeight;
+				
+				String text;
+				try {
+					text = expandTabs(largeFile.getLine(line));
+					
+				} catch (CobblerException ex) {
+					// a file that can not be read fails for every line, it is only reported once
+					if (!readFailed) {
+						readFailed = true;
+						Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+					}
+					break;
+				}
+				maxColumns = Math.max(maxColumns, text.length());
+				
+				Graphics2D lineGraphics = (Graphics2D) g2.create(gutterWidth, y, getWidth() - gutterWidth, lineHeight);
+				lineGraphics.translate(-gutterWidth, -y);
+				if (line == currentLine) {
+					paintHighlight(lineGraphics, text, x, y, lineHeight, metrics);
+				}
+				paintTokens(lineGraphics, text, x, y + metrics.getAscent());
+				lineGraphics.dispose();
+				
+				String number = String.valueOf(line + 1);
+				g2.setFont(gutterFont);
+				g2.setColor(gutter.getLineNumberColor());
+				g2.drawString(number, gutterWidth - MARGIN - gutterMetrics.stringWidth(number), y + metrics.getAscent());
+			}
+			
+			// lines longer than any seen so far widen the scrolling range
+			if (maxColumns != columns) {
+				updateScrollBars();
+			}
+		}
+		
+		/**
+		 * Highlights the current line, and the match on it of the pattern it was found with. 
+		 * @param g Graphics2D
+		 * @param text String
+		 * @param x int
+		 * @param y int
+		 * @param lineHeight int
+		 * @param metrics FontMetrics
+		 */
+		private void paintHighlight(Graphics2D g, String text, int x, int y, int lineHeight, FontMetrics metrics) {
+			Color lineColor = textArea.getCurrentLineHighlightColor();
+			if (lineColor != null) {
+				g.setColor(lineColor);
+				g.fillRect(0, y, getWidth(), lineHeight);
+			}
+			if (matchPattern != null) {
+				Matcher matcher = matchPattern.matcher(text);
+				if (matcher.find()) {
+					int start = x + metrics.stringWidth(text.substring(0, matcher.start()));
+					g.setColor(textArea.getSelectionColor());
+					g.fillRect(start, y, Math.max(1, metrics.stringWidth(matcher.group())), lineHeight);
+				}
+			}
+		}
+		
+		/**
+		 * Paints the tokens of a line in the colors and fonts of the text area's syntax scheme. 
+		 * @param g Graphics2D
+		 * @param text String
+		 * @param x int
+		 * @param baseline int
+		 */
+		private void paintTokens(Graphics2D g, String text, int x, int baseline) {
+			final SyntaxScheme scheme = textArea.getSyntaxScheme();
+			final Segment segment = new Segment(text.toCharArray(), 0, text.length());
+			
+			Token token = tokenMaker.getTokenList(segment, TokenTypes.NULL, 0);
+			for (; token != null && token.isPaintable() && x < getWidth(); token = token.getNextToken()) {
+				Style style = scheme.getStyle(token.getType());
+				Font font = style != null && style.font != null ? style.font : textArea.getFont();
+				Color color = style != null && style.foreground != null ? style.foreground : textArea.getForeground();
+				
+				String lexeme = token.getLexeme();
+				g.setFont(font);
+				g.setColor(color);
+				g.drawString(lexeme, x, baseline);
+				x += g.getFontMetrics(font).stringWidth(lexeme);
+			}
+		}
+	}
+
+}
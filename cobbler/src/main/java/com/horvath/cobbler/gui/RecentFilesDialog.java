@@ -0,0 +1,283 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.swing.BorderFactory;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.DefaultListModel;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.UIManager;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+import com.horvath.cobbler.application.CobblerState;
+import com.horvath.cobbler.application.RecentFiles;
+import com.horvath.cobbler.gui.action.OpenRecentAction;
+
+/**
+ * Dialog for finding a recent file by typing part of its name. The files are 
+ * listed from what is known about them, without touching the file system. 
+ * @author jhorvath
+ */
+public final class RecentFilesDialog extends JDialog {
+
+	private static final long serialVersionUID = 1L;
+	
+	private JTextField filterField;
+	private DefaultListModel<RecentFiles.Entry> listModel;
+	private JList<RecentFiles.Entry> fileList;
+	
+	/**
+	 * Constructor. 
+	 */
+	public RecentFilesDialog() {
+		super(CobblerWindow.getWindow(), "Find Recent File", true);
+		
+		initializeComponents();
+		configureComponents();
+		layoutComponents();
+		updateList();
+	}
+	
+	/**
+	 * Initializes components. 
+	 */
+	private void initializeComponents() {
+		filterField = new JTextField();
+		listModel = new DefaultListModel<>();
+		fileList = new JList<>(listModel);
+	}
+	
+	/**
+	 * Configures components. 
+	 */
+	private void configureComponents() {
+		final int dialogWidth = 600;
+		final int dialogHeight = 400;
+		
+		setSize(dialogWidth, dialogHeight);
+		setLocationRelativeTo(CobblerWindow.getWindow());
+		setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+		
+		filterField.setToolTipText("Type letters of the file name in order, for example pyrl for PAYROLL.cbl");
+		filterField.getDocument().addDocumentListener(new DocumentListener() {
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				updateList();
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				updateList();
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+				updateList();
+			}
+		});
+		
+		// the list is moved through while typing in the filter
+		filterField.addKeyListener(new KeyAdapter() {
+			@Override
+			public void keyPressed(KeyEvent e) {
+				int index = fileList.getSelectedIndex();
+				switch (e.getKeyCode()) {
+				case KeyEvent.VK_DOWN:
+					select(index + 1);
+					e.consume();
+					break;
+				case KeyEvent.VK_UP:
+					select(index - 1);
+					e.consume();
+					break;
+				case KeyEvent.VK_ENTER:
+					openSelected();
+					e.consume();
+					break;
+				case KeyEvent.VK_ESCAPE:
+					dispose();
+					e.consume();
+					break;
+				default:
+					break;
+				}
+			}
+		});
+		
+		fileList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		fileList.setFocusable(false);
+		fileList.setCellRenderer(new DefaultListCellRenderer() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Component getListCellRendererComponent(JList<?> list, Object value, int index, 
+					boolean isSelected, boolean cellHasFocus) {
+				RecentFiles.Entry entry = (RecentFiles.Entry) value;
+				String parent = new File(entry.getPath()).getParent();
+				JLabel label = (JLabel) super.getListCellRendererComponent(list, 
+						entry.getName() + (parent != null ? "  -  " + parent : ""), index, isSelected, cellHasFocus);
+				if (entry.isMissing() && !isSelected) {
+					label.setForeground(UIManager.getColor("Label.disabledForeground"));
+				}
+				return label;
+			}
+		});
+		fileList.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				if (e.getClickCount() == 2) {
+					openSelected();
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Performs layout operations of the GUI components within the dialog. 
+	 */
+	private void layoutComponents() {
+		JLabel status = new JLabel();
+		fileList.addListSelectionListener(e -> {
+			RecentFiles.Entry entry = fileList.getSelectedValue();
+			status.setText(entry != null ? describe(entry) : " ");
+		});
+		
+		setLayout(new BorderLayout(5, 5));
+		getRootPane().setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+		add(filterField, BorderLayout.NORTH);
+		add(new JScrollPane(fileList), BorderLayout.CENTER);
+		add(status, BorderLayout.SOUTH);
+	}
+	
+	/**
+	 * Lists the recent files that match the filter, best match first. 
+	 */
+	private void updateList() {
+		List<RecentFiles.Entry> matches = CobblerState.getInstance().getRecentFiles().filter(filterField.getText());
+		listModel.clear();
+		for (RecentFiles.Entry entry : matches) {
+			listModel.addElement(entry);
+		}
+		select(0);
+	}
+	
+	/**
+	 * Selects a file of the list. 
+	 * @param index int
+	 */
+	private void select(int index) {
+		if (listModel.isEmpty()) {
+			return;
+		}
+		index = Math.max(0, Math.min(index, listModel.size() - 1));
+		fileList.setSelectedIndex(index);
+		fileList.ensureIndexIsVisible(index);
+	}
+	
+	/**
+	 * Opens the selected file. 
+	 */
+	private void openSelected() {
+		RecentFiles.Entry entry = fileList.getSelectedValue();
+		if (entry == null) {
+			return;
+		}
+		dispose();
+		new OpenRecentAction(entry.getPath()).actionPerformed(null);
+	}
+	
+	/**
+	 * Describes what is known about a recent file, as it was when it was last checked. 
+	 * @param entry RecentFiles.Entry
+	 * @return String
+	 */
+	static String describe(RecentFiles.Entry entry) {
+		if (entry.isMissing()) {
+			return "Not found";
+		}
+		
+		List<String> parts = new ArrayList<>();
+		if (entry.getSize() >= 0) {
+			parts.add(formatSize(entry.getSize()));
+		}
+		if (entry.getLastModified() > 0) {
+			parts.add("changed " + DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT)
+					.format(new Date(entry.getLastModified())));
+		}
+		if (entry.getRecordFormat() != null) {
+			parts.add(entry.getRecordFormat().getType().name() + " " + entry.getRecordFormat().getRecordLength() 
+					+ ", " + entry.getRecordFormat().getCodePage());
+		} else if (entry.getCodePage() != null) {
+			parts.add(entry.getCodePage().toString());
+		}
+		if (entry.getLineState() != null) {
+			switch (entry.getLineState()) {
+			case NUMBERED:
+				parts.add("line numbers");
+				break;
+			case NOT_NUMBERED:
+				parts.add("no line numbers");
+				break;
+			default:
+				parts.add("mixed line numbers");
+				break;
+			}
+		}
+		return parts.isEmpty() ? entry.getPath() : String.join(", ", parts);
+	}
+	
+	/**
+	 * Formats a number of bytes for display. 
+	 * @param size long
+	 * @return String
+	 */
+	private static String formatSize(long size) {
+		if (size < 1024) {
+			return size + " bytes";
+		} else if (size < 1024 * 1024) {
+			return (size + 1023) / 1024 + " KB";
+		}
+		return String.format("%.1f MB", size / (1024.0 * 1024.0));
+	}
+
+}
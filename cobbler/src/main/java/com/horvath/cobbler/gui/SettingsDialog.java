@@ -56,6 +56,11 @@ public final class SettingsDialog extends JDialog {
 	private Integer[] addLineIncMenuOptions;
 	private JLabel addLineIncMenuLabel;
 	private JComboBox<Integer> addLineIncMenu;
+	private JCheckBox autosaveOnCheckBox;
+	private JLabel autosaveIntervalMenuLabel;
+	private JComboBox<Integer> autosaveIntervalMenu;
+	private JLabel undoMemoryLimitMenuLabel;
+	private JComboBox<Integer> undoMemoryLimitMenu;
 	private JButton saveSettingsBtn;
 	
 	/**
@@ -78,10 +83,14 @@ public final class SettingsDialog extends JDialog {
 		themeMenuLabel = new JLabel();
 		themeMenu = new JComboBox<String>(state.getCurrentTheme().names());
 		
-		maxNumRecentFilesOptions = new Integer[LoadSettingsCmd.MAX_SUPPORTED_RECENT_FILES];
 		maxNumRecentFilesMenuLabel = new JLabel();
-		for (int i = 0; i < LoadSettingsCmd.MAX_SUPPORTED_RECENT_FILES; i++) {
-			maxNumRecentFilesOptions[i] = i + 1;
+		maxNumRecentFilesOptions = LoadSettingsCmd.RECENT_FILES_OPTIONS;
+		// keep a number entered manually in the properties file
+		final int stateMaxRecent = state.getMaxNumOfRecentFiles();
+		if (!Arrays.stream(maxNumRecentFilesOptions).anyMatch(new Integer(stateMaxRecent)::equals)) {
+			maxNumRecentFilesOptions = Arrays.copyOf(maxNumRecentFilesOptions, maxNumRecentFilesOptions.length + 1);
+			maxNumRecentFilesOptions[maxNumRecentFilesOptions.length - 1] = new Integer(stateMaxRecent);
+			Arrays.sort(maxNumRecentFilesOptions);
 		}
 		maxNumRecentFilesMenu = new JComboBox<>(maxNumRecentFilesOptions);
 		
@@ -105,6 +114,21 @@ public final class SettingsDialog extends JDialog {
 		}
 		addLineIncMenu = new JComboBox<Integer>(addLineIncMenuOptions);
 		
+		autosaveOnCheckBox = new JCheckBox("Autosave On", state.isAutosaveOn());
+		autosaveIntervalMenuLabel = new JLabel();
+		autosaveIntervalMenu = new JComboBox<Integer>(LoadSettingsCmd.AUTOSAVE_INTERVAL_OPTIONS);
+		// allow an interval entered manually in the properties file
+		if (!Arrays.stream(LoadSettingsCmd.AUTOSAVE_INTERVAL_OPTIONS).anyMatch(new Integer(state.getAutosaveInterval())::equals)) {
+			autosaveIntervalMenu.addItem(state.getAutosaveInterval());
+		}
+		
+		undoMemoryLimitMenuLabel = new JLabel();
+		undoMemoryLimitMenu = new JComboBox<Integer>(LoadSettingsCmd.UNDO_MEMORY_LIMIT_OPTIONS);
+		// allow a limit entered manually in the properties file
+		if (!Arrays.stream(LoadSettingsCmd.UNDO_MEMORY_LIMIT_OPTIONS).anyMatch(new Integer(state.getUndoMemoryLimit())::equals)) {
+			undoMemoryLimitMenu.addItem(state.getUndoMemoryLimit());
+		}
+		
 		saveSettingsBtn = new JButton();
 	}
 	
@@ -115,7 +139,7 @@ public final class SettingsDialog extends JDialog {
 		CobblerState state = CobblerState.getInstance();
 		
 		final int dialogWidth = 350;
-		final int dialogHeight = 260;
+		final int dialogHeight = 355;
 		
 		/* dialog */ 
 		setTitle("Settings");
@@ -140,6 +164,14 @@ public final class SettingsDialog extends JDialog {
 		addLineIncMenuLabel.setText("Add Line Number Increment:");
 		addLineIncMenu.setSelectedItem(state.getAddLineIncrementValue());
 		
+		autosaveIntervalMenuLabel.setText("Autosave Interval (sec):");
+		autosaveIntervalMenu.setSelectedItem(state.getAutosaveInterval());
+		autosaveIntervalMenu.setEnabled(state.isAutosaveOn());
+		autosaveOnCheckBox.addItemListener(e -> autosaveIntervalMenu.setEnabled(autosaveOnCheckBox.isSelected()));
+		
+		undoMemoryLimitMenuLabel.setText("Undo Memory (MB):");
+		undoMemoryLimitMenu.setSelectedItem(state.getUndoMemoryLimit());
+		
 		saveSettingsBtn.setAction(new SaveSettingsAction(this));
 		saveSettingsBtn.setText("Save");
 	}
@@ -203,6 +235,40 @@ public final class SettingsDialog extends JDialog {
 		gbc.insets = new Insets(0, 10, 10, 10);
 		gbc.anchor = GridBagConstraints.WEST;
 		this.add(addLineIncMenu, gbc);
+
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.gridx = 0;
+		gbc.gridy = yPos;
+		gbc.insets = new Insets(0, 10, 10, 10);
+		gbc.anchor = GridBagConstraints.WEST;
+		this.add(autosaveIntervalMenuLabel, gbc);
+		
+		gbc.fill = GridBagConstraints.HORIZONTAL;
+		gbc.gridx = 1;
+		gbc.gridy = yPos++;
+		gbc.gridwidth = 1;
+		gbc.weighty = 0.0;
+		gbc.weightx = 0.5;
+		gbc.insets = new Insets(0, 10, 10, 10);
+		gbc.anchor = GridBagConstraints.WEST;
+		this.add(autosaveIntervalMenu, gbc);
+
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.gridx = 0;
+		gbc.gridy = yPos;
+		gbc.insets = new Insets(0, 10, 10, 10);
+		gbc.anchor = GridBagConstraints.WEST;
+		this.add(undoMemoryLimitMenuLabel, gbc);
+		
+		gbc.fill = GridBagConstraints.HORIZONTAL;
+		gbc.gridx = 1;
+		gbc.gridy = yPos++;
+		gbc.gridwidth = 1;
+		gbc.weighty = 0.0;
+		gbc.weightx = 0.5;
+		gbc.insets = new Insets(0, 10, 10, 10);
+		gbc.anchor = GridBagConstraints.WEST;
+		this.add(undoMemoryLimitMenu, gbc);
 		
 		gbc.fill = GridBagConstraints.HORIZONTAL;
 		gbc.gridx = 0;
@@ -234,6 +300,16 @@ public final class SettingsDialog extends JDialog {
 		gbc.anchor = GridBagConstraints.CENTER;
 		this.add(showInvisibleCharactersCheckBox, gbc);
 
+		gbc.fill = GridBagConstraints.HORIZONTAL;
+		gbc.gridx = 0;
+		gbc.gridy = yPos++;
+		gbc.gridwidth = 2;
+		gbc.weighty = 0.0;
+		gbc.weightx = 0.5;
+		gbc.insets = new Insets(0, 10, 0, 10);
+		gbc.anchor = GridBagConstraints.CENTER;
+		this.add(autosaveOnCheckBox, gbc);
+
 		gbc.fill = GridBagConstraints.HORIZONTAL;
 		gbc.gridx = 1;
 		gbc.gridy = yPos++;
@@ -268,5 +344,17 @@ public final class SettingsDialog extends JDialog {
 	public JComboBox<Integer> getAddLineIncMenu() {
 		return addLineIncMenu;
 	}
+
+	public JCheckBox getAutosaveOnCheckBox() {
+		return autosaveOnCheckBox;
+	}
+
+	public JComboBox<Integer> getAutosaveIntervalMenu() {
+		return autosaveIntervalMenu;
+	}
+
+	public JComboBox<Integer> getUndoMemoryLimitMenu() {
+		return undoMemoryLimitMenu;
+	}
 	
 }
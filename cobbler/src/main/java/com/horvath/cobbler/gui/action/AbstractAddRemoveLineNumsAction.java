@@ -27,12 +27,16 @@ package com.horvath.cobbler.gui.action;
 import java.util.logging.Level;
 
 import javax.swing.JOptionPane;
+import javax.swing.text.BadLocationException;
 
+import com.horvath.cobbler.application.CobblerState;
 import com.horvath.cobbler.application.Debugger;
 import com.horvath.cobbler.command.AbstractLineNumberCmd.LineState;
 import com.horvath.cobbler.command.CheckLineNumberStateCmd;
+import com.horvath.cobbler.command.LineNumberCounts;
 import com.horvath.cobbler.exception.CobblerException;
 import com.horvath.cobbler.gui.CobblerWindow;
+import com.horvath.cobbler.gui.syntax.CobSyntaxTextArea;
 
 /**
  * Abstract class for adding and removing hard coded line numbers.
@@ -42,14 +46,23 @@ public abstract class AbstractAddRemoveLineNumsAction extends CobblerAction {
 	private static final long serialVersionUID = 1L;
 	
 	/**
-	 * Examines and determines if the file has hard coded numbers or not. 
-	 * @param lines String[]
+	 * Examines and determines if a range of lines has hard coded numbers or not. 
+	 * The counts kept for the document being viewed answer without reading its text.
+	 * @param text CharSequence - the text of the text area
+	 * @param lines int[] - the first and the last line
 	 */
-	protected LineState examineLineState(String text) {
+	protected LineState examineLineState(CharSequence text, int[] lines) {
+		CobSyntaxTextArea textArea = CobblerWindow.getWindow().getTextArea();
+		LineNumberCounts counts = CobblerState.getInstance().getCurrentDocument().getLineNumberCounts();
+		if (counts != null && counts.getLineCount() == textArea.getLineCount()) {
+			return lines[0] == 0 && lines[1] == counts.getLineCount() - 1 
+					? counts.getLineState() : counts.getLineState(lines[0], lines[1]);
+		}
+		
 		LineState lineState = LineState.INDETERMINATE;
 		
 		try {
-			CheckLineNumberStateCmd cmd = new CheckLineNumberStateCmd(text);
+			CheckLineNumberStateCmd cmd = new CheckLineNumberStateCmd(linesText(textArea, text, lines));
 			cmd.perform();
 			
 			if (cmd.isSuccess()) {
@@ -63,5 +76,57 @@ public abstract class AbstractAddRemoveLineNumsAction extends CobblerAction {
 		}
 		return lineState;
 	}
+	
+	/**
+	 * Returns the first and last index of the lines to work on: the lines touched by 
+	 * the selection, or all of them when nothing is selected. A selection ending at the
+	 * start of a line does not include that line. 
+	 * @param textArea CobSyntaxTextArea
+	 * @return int[] - the first and the last line
+	 */
+	protected int[] selectedLines(CobSyntaxTextArea textArea) {
+		final int start = textArea.getSelectionStart();
+		final int end = textArea.getSelectionEnd();
+		
+		if (start == end) {
+			return new int[] { 0, textArea.getLineCount() - 1 };
+		}
+		
+		try {
+			int firstLine = textArea.getLineOfOffset(start);
+			int lastLine = textArea.getLineOfOffset(end);
+			if (lastLine > firstLine && textArea.getLineStartOffset(lastLine) == end) {
+				lastLine--;
+			}
+			return new int[] { firstLine, lastLine };
+			
+		} catch (BadLocationException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+			return new int[] { 0, textArea.getLineCount() - 1 };
+		}
+	}
+	
+	/**
+	 * Returns the text of a range of lines, without the terminator of the last line. 
+	 * @param textArea CobSyntaxTextArea
+	 * @param text CharSequence - the text of the text area
+	 * @param lines int[] - the first and the last line
+	 * @return CharSequence
+	 */
+	private CharSequence linesText(CobSyntaxTextArea textArea, CharSequence text, int[] lines) {
+		try {
+			final int start = textArea.getLineStartOffset(lines[0]);
+			// the document ends with an implied newline past the end of the text
+			int end = Math.min(textArea.getLineEndOffset(lines[1]), text.length());
+			if (end > start && text.charAt(end - 1) == '\n') {
+				end--;
+			}
+			return text.subSequence(start, end);
+			
+		} catch (BadLocationException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+			return text;
+		}
+	}
 
 }
@@ -45,13 +45,15 @@ public final class AddLineNumbersAction extends AbstractAddRemoveLineNumsAction
 	private static final long serialVersionUID = 1L;
 
 	private LineState lineState;
+	private int[] lines;
 	
 	@Override
 	public void actionPerformed(ActionEvent e) {
 
-		String text = CobblerWindow.getWindow().getTextArea().getText();
+		CharSequence text = CobblerState.getInstance().getText();
+		this.lines = selectedLines(CobblerWindow.getWindow().getTextArea());
 		
-		this.lineState = examineLineState(text);
+		this.lineState = examineLineState(text, lines);
 		
 		if (lineState == LineState.INDETERMINATE) { 
 			inderterminateWarningConfirmation(text);
@@ -62,19 +64,21 @@ public final class AddLineNumbersAction extends AbstractAddRemoveLineNumsAction
 
 	/**
 	 * Perform numbering operation. 
-	 * @param text String 
+	 * @param text CharSequence 
 	 */
-	private void doRenumbering(String text) {
+	private void doRenumbering(CharSequence text) {
 
 		CobblerWindow window = CobblerWindow.getWindow();
 		window.guiWait();
 		
 		try {
-			AddLineNumbersCmd cmd = new AddLineNumbersCmd(text, this.lineState, CobblerState.getInstance().getAddLineIncrementValue());
+			AddLineNumbersCmd cmd = new AddLineNumbersCmd(text, this.lineState, 
+					CobblerState.getInstance().getAddLineIncrementValue(), lines[0], lines[1]);
 			cmd.perform();
 			
 			if (cmd.isSuccess()) {
-				window.getTextArea().setText(CobblerState.getInstance().getData());
+				// only the sequence columns that change are replaced, as one edit that can be undone
+				window.getTextArea().replaceRanges(cmd.getEdits());
 			}
 
 		} catch (CobblerException ex) {
@@ -92,7 +96,7 @@ public final class AddLineNumbersAction extends AbstractAddRemoveLineNumsAction
 	 * 
 	 * @param lines String[] 
 	 */
-	private void inderterminateWarningConfirmation(String text) {
+	private void inderterminateWarningConfirmation(CharSequence text) {
 		final String eol = System.lineSeparator();
 		
 		final String message = 
@@ -74,6 +74,7 @@ public final class FindReplaceDialogAction extends CobblerAction {
 					window.getStatusBar().resetBar();
 				}
 			});
+			findDialog.setSearchContext(window.getSearchContext());
 			findDialog.setVisible(true);
 			window.setFindDialog(findDialog);
 
@@ -91,6 +92,7 @@ public final class FindReplaceDialogAction extends CobblerAction {
 					window.getStatusBar().resetBar();
 				}
 			});
+			replaceDialog.setSearchContext(window.getSearchContext());
 			replaceDialog.setVisible(true);
 			window.setReplaceDialog(replaceDialog);
 		}
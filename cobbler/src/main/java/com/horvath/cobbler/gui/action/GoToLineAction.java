@@ -34,6 +34,7 @@ import org.fife.rsta.ui.GoToDialog;
 
 import com.horvath.cobbler.application.Debugger;
 import com.horvath.cobbler.gui.CobblerWindow;
+import com.horvath.cobbler.gui.LargeFileViewer;
 
 /**
  * Action for displaying dialog for API to allow the user to go to a specific line number in the open document. 
@@ -47,12 +48,16 @@ public final class GoToLineAction extends CobblerAction {
 	public void actionPerformed(ActionEvent e) {
 		
 		CobblerWindow window = CobblerWindow.getWindow();
+		LargeFileViewer viewer = window.getTabs().getViewer();
 		
 		GoToDialog dialog = new GoToDialog(window);
-		dialog.setMaxLineNumberAllowed(window.getTextArea().getLineCount());
+		dialog.setMaxLineNumberAllowed(viewer != null ? viewer.getLineCount() : window.getTextArea().getLineCount());
 		dialog.setVisible(true);
 		int userLine = dialog.getLineNumber();
-		if (userLine > 0) {
+		if (userLine > 0 && viewer != null) {
+			viewer.goToLine(userLine - 1);
+			
+		} else if (userLine > 0) {
 			try {
 				window.getTextArea().setCaretPosition(window.getTextArea().getLineStartOffset(userLine - 1));
 			} catch (BadLocationException ex) {
@@ -0,0 +1,385 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.gui.action;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+
+import javax.swing.JMenuBar;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+import com.horvath.cobbler.application.CobblerState;
+import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.application.DocumentState;
+import com.horvath.cobbler.command.LoadAutosaveCmd;
+import com.horvath.cobbler.command.LoadFileCmd;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.gui.CobblerWindow;
+import com.horvath.cobbler.gui.syntax.CobSyntaxTextArea;
+import com.horvath.cobbler.io.ArchiveIndex;
+import com.horvath.cobbler.io.AutosaveService;
+import com.horvath.cobbler.io.EbcdicCodePage;
+import com.horvath.cobbler.io.RecordFormat;
+
+/**
+ * Loads a file into the text area on a worker thread, so that the window stays 
+ * responsive while a large file is read. Each chunk the reader decodes is appended
+ * to the document on the event thread as soon as it is ready, which puts the first
+ * screenful on display long before the rest of the file has been read. The status 
+ * bar shows the progress and lets the user cancel the load. 
+ * <p>
+ * The worker thread only reads and decodes the file. The state is backed by the
+ * loaded file on the event thread once the load is done. 
+ * 
+ * @author jhorvath
+ */
+public final class LoadFileWorker extends SwingWorker<Void, Void> {
+	
+	public static final String ERROR_LOAD_CANCELLED = "Loading the file was cancelled.";
+	
+	private final File file;
+	private final EbcdicCodePage codePage;
+	private final RecordFormat recordFormat;
+	private final Document document;
+	private final LoadFileCmd cmd;
+	private final long fileSize;
+	
+	private volatile boolean cancelRequested = false;
+	private long charsLoaded = 0;
+	private Runnable onLoaded;
+	private Boolean recoveryAnswer;
+	
+	/**
+	 * Constructor. 
+	 * @param file File 
+	 * @param codePage EbcdicCodePage - may be null to detect the charset
+	 * @param recordFormat RecordFormat - may be null to read the file as text
+	 */
+	public LoadFileWorker(File file, EbcdicCodePage codePage, RecordFormat recordFormat) {
+		this.file = file;
+		this.codePage = codePage;
+		this.recordFormat = recordFormat;
+		this.document = CobblerWindow.getWindow().getTextArea().getDocument();
+		this.fileSize = Math.max(1, ArchiveIndex.length(file));
+		
+		this.cmd = recordFormat != null 
+				? new LoadFileCmd(file, document, recordFormat) 
+				: new LoadFileCmd(file, document, codePage);
+		this.cmd.setAppender(this::append);
+		this.cmd.setUpdatesState(false);
+		this.cmd.setIndexListener(this::indexed);
+	}
+	
+	/**
+	 * Sets what to do on the event thread once the file has been loaded. 
+	 * @param onLoaded Runnable - may be null
+	 */
+	public void setOnLoaded(Runnable onLoaded) {
+		this.onLoaded = onLoaded;
+	}
+	
+	/**
+	 * Answers the question whether to recover the work in a newer autosave sidecar 
+	 * of the file, so that the load does not stop to ask. 
+	 * @param recover boolean
+	 */
+	void setRecoveryAnswer(boolean recover) {
+		this.recoveryAnswer = recover;
+	}
+	
+	/**
+	 * Clears the text area and starts loading the file. Must be called on the event thread. 
+	 */
+	public void start() {
+		Debugger.printLog("Loading " + file.getName() + " in the background", this.getClass().getName());
+		
+		CobblerWindow window = CobblerWindow.getWindow();
+		
+		// the edits of the document being replaced are not needed, nor is the load itself
+		window.stopRecovery();
+		clearDocument();
+		
+		// the partially loaded document must not be edited or saved over a file
+		window.getTextArea().setEditable(false);
+		setMenusEnabled(false);
+		
+		window.getStatusBar().showProgress("Loading " + file.getName(), e -> cancelRequested = true);
+		addPropertyChangeListener(e -> {
+			if ("progress".equals(e.getPropertyName())) {
+				window.getStatusBar().updateProgress((Integer) e.getNewValue());
+			}
+		});
+		
+		execute();
+	}
+
+	@Override
+	protected Void doInBackground() throws Exception {
+		cmd.perform();
+		return null;
+	}
+	
+	/**
+	 * Appends a decoded chunk to the document on the event thread. The reader's chunks
+	 * are small enough that inserting one does not hold up painting or input for long, 
+	 * and waiting for each insert keeps the reader from running ahead of the display.
+	 * 
+	 * @param chars char[]
+	 * @param length int 
+	 * @throws CobblerException
+	 */
+	private void append(char[] chars, int length) throws CobblerException {
+		if (cancelRequested) {
+			throw new CobblerException(ERROR_LOAD_CANCELLED);
+		}
+		
+		final String text = new String(chars, 0, length);
+		try {
+			SwingUtilities.invokeAndWait(() -> {
+				try {
+					document.insertString(document.getLength(), text, null);
+				} catch (BadLocationException ex) {
+					throw new IllegalStateException(ex);
+				}
+			});
+			
+		} catch (InvocationTargetException | InterruptedException ex) {
+			throw new CobblerException(ex.getMessage());
+		}
+		
+		charsLoaded += length;
+		setProgress((int) Math.min(100, charsLoaded * 100 / fileSize));
+	}
+	
+	/**
+	 * Updates the progress of indexing a file too large to be loaded into the document. 
+	 * @param position long - number of bytes indexed
+	 * @param size long - size of the file
+	 * @throws CobblerException
+	 */
+	private void indexed(long position, long size) throws CobblerException {
+		if (cancelRequested) {
+			throw new CobblerException(ERROR_LOAD_CANCELLED);
+		}
+		setProgress((int) Math.min(100, position * 100 / Math.max(1, size)));
+	}
+	
+	@Override
+	protected void done() {
+		CobblerWindow window = CobblerWindow.getWindow();
+		window.getStatusBar().hideProgress();
+		window.getStatusBar().resetBar();
+		window.getTextArea().setEditable(true);
+		setMenusEnabled(true);
+		
+		try {
+			get();
+			
+			// the worker only read the file, the state is backed by it here on the event thread
+			if (cmd.isSuccess()) {
+				cmd.applyToState();
+			}
+			
+			// a file too large for the document is shown in a viewer
+			window.getTabs().updateView();
+			
+		} catch (CobblerException ex) {
+			updateGuiForFailedLoad();
+			Debugger.printLog(ex.getMessage() + " " + file.getName(), this.getClass().getName(), Level.WARNING);
+			window.simpleMessagePopup("Load Error", ex.getMessage(), JOptionPane.ERROR_MESSAGE);
+			return;
+			
+		} catch (InterruptedException | ExecutionException ex) {
+			updateGuiForFailedLoad();
+			
+			if (cancelRequested) {
+				Debugger.printLog(ERROR_LOAD_CANCELLED + " " + file.getName(), this.getClass().getName());
+				window.getStatusBar().updateText(ERROR_LOAD_CANCELLED);
+				
+			} else {
+				String message = ex.getCause() != null ? ex.getCause().getMessage() : ex.getMessage();
+				Debugger.printLog(message + " " + file.getName(), this.getClass().getName(), Level.WARNING);
+				window.simpleMessagePopup("Load Error", message, JOptionPane.ERROR_MESSAGE);
+			}
+			return;
+		}
+		
+		if (!cmd.isSuccess()) {
+			updateGuiForFailedLoad();
+			window.simpleMessagePopup("Load Error",
+					LoadFileCmd.ERROR_UNKOWN_LOAD_PROBLEM + " " + cmd.getMessage(),
+					JOptionPane.WARNING_MESSAGE);
+			return;
+		}
+		
+		// the loaded file is the saved text with nothing to undo, before recovered work is applied over it
+		boolean updated = false;
+		try {
+			CobblerState.getInstance().updateRecentFiles(file.getAbsolutePath());
+			CobblerState.getInstance().setRecentFileCodePage(file.getAbsolutePath(), codePage);
+			CobblerState.getInstance().setRecentFileRecordFormat(file.getAbsolutePath(), recordFormat);
+			OpenFileAction.updateGuiForOpenedFile(file.getAbsolutePath());
+			updated = true;
+			
+		} catch (CobblerException ex) {
+			Debugger.printLog(ex.getMessage() + " " + file.getName(), this.getClass().getName(), Level.WARNING);
+			window.simpleMessagePopup("Load Error", ex.getMessage(), JOptionPane.ERROR_MESSAGE);
+		}
+		
+		// before autosaving starts again and overwrites it
+		recoverAutosave();
+		window.restartRecovery();
+		
+		if (updated && onLoaded != null) {
+			onLoaded.run();
+		}
+	}
+	
+	/**
+	 * Offers to load the unsaved work a crash left in the autosave sidecar of the file,
+	 * when the sidecar is newer than the file. The work is loaded as an edit that can
+	 * be undone, declining it deletes the sidecar. 
+	 */
+	private void recoverAutosave() {
+		CobblerState state = CobblerState.getInstance();
+		AutosaveService autosave = state.getAutosave();
+		if (autosave == null || state.getLargeFile() != null) {
+			return;
+		}
+		File sidecar = autosave.getSidecar(file);
+		if (!LoadAutosaveCmd.isNewer(sidecar, file)) {
+			return;
+		}
+		
+		CobblerWindow window = CobblerWindow.getWindow();
+		int result = recoveryAnswer != null 
+				? (recoveryAnswer ? JOptionPane.YES_OPTION : JOptionPane.NO_OPTION)
+				: JOptionPane.showConfirmDialog(window, 
+						"An autosaved copy of " + file.getName() + " is newer than the file. " 
+						+ "Do you want to recover the unsaved changes it holds?", 
+						"Recover Autosaved Changes", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
+		
+		if (result != JOptionPane.YES_OPTION) {
+			if (!sidecar.delete()) {
+				Debugger.printLog("Unable to delete " + sidecar.getName(), this.getClass().getName(), Level.WARNING);
+			}
+			return;
+		}
+		
+		try {
+			String message = recoverAutosave(window.getTextArea(), sidecar);
+			if (message != null) {
+				window.simpleMessagePopup("Recovery Error", message, JOptionPane.WARNING_MESSAGE);
+			}
+			
+			// the recovered work differs from the file, so the document shows as modified
+			window.updateDocumentNameDisplay(state.getFile().getName());
+			window.updateUndoRedoMenuitems();
+			
+		} catch (CobblerException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+			window.simpleMessagePopup("Recovery Error", ex.getMessage(), JOptionPane.ERROR_MESSAGE);
+		}
+	}
+	
+	/**
+	 * Loads the work in an autosave sidecar into the document of a text area, which
+	 * holds the file the sidecar was saved for. Only the lines that differ are 
+	 * replaced, as one edit that can be undone back to the file. 
+	 * @param textArea CobSyntaxTextArea
+	 * @param sidecar File
+	 * @return String - why the work could not be loaded, or null when it was
+	 * @throws CobblerException
+	 */
+	static String recoverAutosave(CobSyntaxTextArea textArea, File sidecar) throws CobblerException {
+		DocumentState owner = textArea.getOwner();
+		LoadAutosaveCmd cmd = new LoadAutosaveCmd(sidecar, textArea.getDocument(), 
+				owner.getFileFormat(), owner.getRecordFormat());
+		cmd.perform();
+		
+		if (!cmd.isSuccess()) {
+			return cmd.getMessage();
+		}
+		textArea.replaceRanges(cmd.getEdits());
+		return null;
+	}
+	
+	/**
+	 * Leaves an empty, unnamed document behind a failed load, so that a partially 
+	 * loaded file cannot be saved over the original. 
+	 */
+	private void updateGuiForFailedLoad() {
+		clearDocument();
+		
+		CobblerState state = CobblerState.getInstance();
+		state.setDocument(document);
+		state.setData(null);
+		state.setLargeFile(null);
+		state.setFileFormat(null);
+		state.setRecordFormat(null);
+		state.setFile(new File(""));
+		
+		CobblerWindow window = CobblerWindow.getWindow();
+		window.getTextArea().discardAllEdits();
+		window.getTabs().updateView();
+		window.updateUndoRedoMenuitems();
+		
+		// need to clear state because GUI updates impact the state dirty flag
+		state.setDirty(false);
+		window.updateDocumentNameDisplay(state.getFile().getName());
+		window.restartRecovery();
+	}
+	
+	/**
+	 * Removes everything from the text area's document. 
+	 */
+	private void clearDocument() {
+		try {
+			document.remove(0, document.getLength());
+		} catch (BadLocationException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+		}
+	}
+	
+	/**
+	 * Enables or disables the menus, along with their keyboard shortcuts, and the 
+	 * tabs, so the document being loaded stays in view. 
+	 * @param enabled boolean 
+	 */
+	private static void setMenusEnabled(boolean enabled) {
+		JMenuBar menuBar = CobblerWindow.getWindow().getCobMenuBar();
+		for (int i = 0; i < menuBar.getMenuCount(); i++) {
+			menuBar.getMenu(i).setEnabled(enabled);
+		}
+		CobblerWindow.getWindow().getTabs().setEnabled(enabled);
+	}
+
+}
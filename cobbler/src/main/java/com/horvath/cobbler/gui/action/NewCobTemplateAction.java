@@ -46,9 +46,8 @@ public final class NewCobTemplateAction extends OpenSaveAsAction {
 	@Override
 	public void actionPerformed(ActionEvent e) {
 		
-		if (CobblerWindow.checkForDirtyState()) {
-			return;
-		}
+		// the new document gets a tab of its own
+		CobblerWindow.getWindow().openDocument();
 				
 		try {
 			NewTemplateDocCmd cmd = new NewTemplateDocCmd();
@@ -59,6 +58,7 @@ public final class NewCobTemplateAction extends OpenSaveAsAction {
 				CobblerWindow.getWindow().getTextArea().setText(CobblerState.getInstance().getData());
 				CobblerWindow.getWindow().getTextArea().discardAllEdits();
 				CobblerWindow.getWindow().updateDocumentNameDisplay(CobblerState.getInstance().getFile().getName());
+				CobblerWindow.getWindow().restartRecovery();
 			}
 			
 		} catch (CobblerException ex) {
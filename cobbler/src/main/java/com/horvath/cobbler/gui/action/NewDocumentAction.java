@@ -45,9 +45,8 @@ public final class NewDocumentAction extends OpenSaveAsAction {
 	@Override
 	public void actionPerformed(ActionEvent e) {
 		
-		if (CobblerWindow.checkForDirtyState()) {
-			return;
-		}
+		// the new document gets a tab of its own
+		CobblerWindow.getWindow().openDocument();
 		
 		try {
 			NewEmptyDocumentCmd cmd = new NewEmptyDocumentCmd();
@@ -62,6 +61,7 @@ public final class NewDocumentAction extends OpenSaveAsAction {
 				window.getTextArea().discardAllEdits();
 				state.setDirty(false); // must be between above and below statements
 				window.updateDocumentNameDisplay(" ");
+				window.restartRecovery();
 			}
 			
 		} catch (CobblerException ex) {
@@ -0,0 +1,164 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.gui.action;
+
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import java.awt.event.ActionEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+
+import com.horvath.cobbler.application.CobblerState;
+import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.command.NormalizeLinesCmd;
+import com.horvath.cobbler.command.NormalizeLinesCmd.IdentificationArea;
+import com.horvath.cobbler.command.NormalizeLinesCmd.SequenceArea;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.gui.CobblerWindow;
+
+/**
+ * Action for normalizing the fixed format columns of the lines of the document 
+ * in one pass, with the stages the user picks. 
+ * @author jhorvath
+ */
+public final class NormalizeLinesAction extends CobblerAction {
+
+	private static final long serialVersionUID = 1L;
+	
+	private final JCheckBox tabsBox = new JCheckBox("Expand tabs to spaces", true);
+	private final JComboBox<SequenceArea> sequenceBox = new JComboBox<>(SequenceArea.values());
+	private final JComboBox<IdentificationArea> identificationBox = new JComboBox<>(IdentificationArea.values());
+	private final JCheckBox truncateBox = new JCheckBox("Truncate past column " + NormalizeLinesCmd.LINE_COLUMNS, true);
+	private final JCheckBox trimBox = new JCheckBox("Trim trailing blanks", true);
+	
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		CobblerWindow window = CobblerWindow.getWindow();
+		if (window.getTabs().getViewer() != null) {
+			window.getStatusBar().updateText("The file is only viewed, its text can not be replaced.");
+			return;
+		}
+		
+		int result = JOptionPane.showConfirmDialog(window, createPanel(), "Normalize Lines", 
+				JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+		if (result != JOptionPane.OK_OPTION) {
+			return;
+		}
+		
+		window.guiWait();
+		String message = null;
+		
+		try {
+			NormalizeLinesCmd cmd = new NormalizeLinesCmd(CobblerState.getInstance().getText(), createStages(), true);
+			cmd.perform();
+			
+			if (cmd.isSuccess()) {
+				// only the columns that change are replaced, as one edit that can be undone
+				window.getTextArea().replaceRanges(cmd.getEdits());
+				message = cmd.getSkipCount() > 0 ? cmd.getMessage() : null;
+			}
+			
+		} catch (CobblerException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+			window.guiResume();
+			window.simpleMessagePopup("Normalize Error", ex.getMessage(), JOptionPane.ERROR_MESSAGE);
+		}
+		
+		window.guiResume();
+		
+		if (message != null) {
+			window.simpleMessagePopup("Some lines not processed", message);
+		}
+	}
+	
+	/**
+	 * Returns the stages picked, in the order they must run: tabs are expanded 
+	 * before the columns are counted, and blanks are trimmed last. 
+	 * @return List of NormalizeLinesCmd.Stage
+	 */
+	private List<NormalizeLinesCmd.Stage> createStages() {
+		final int increment = CobblerState.getInstance().getAddLineIncrementValue();
+		
+		List<NormalizeLinesCmd.Stage> stages = new ArrayList<>();
+		if (tabsBox.isSelected()) {
+			stages.add(NormalizeLinesCmd.expandTabs(CobblerWindow.getWindow().getTextArea().getTabSize()));
+		}
+		stages.add(NormalizeLinesCmd.sequenceArea((SequenceArea) sequenceBox.getSelectedItem(), increment));
+		stages.add(NormalizeLinesCmd.identificationArea((IdentificationArea) identificationBox.getSelectedItem(), increment));
+		if (truncateBox.isSelected()) {
+			stages.add(NormalizeLinesCmd.truncate(NormalizeLinesCmd.LINE_COLUMNS));
+		}
+		if (trimBox.isSelected()) {
+			stages.add(NormalizeLinesCmd.trimTrailing());
+		}
+		return stages;
+	}
+	
+	/**
+	 * Creates the panel the stages are picked in. The choices are kept for the next time. 
+	 * @return JPanel
+	 */
+	private JPanel createPanel() {
+		JPanel panel = new JPanel(new GridBagLayout());
+		GridBagConstraints gbc = new GridBagConstraints();
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.insets = new Insets(2, 2, 2, 2);
+		
+		gbc.gridx = 0;
+		gbc.gridy = 0;
+		gbc.gridwidth = 2;
+		panel.add(tabsBox, gbc);
+		
+		gbc.gridy++;
+		gbc.gridwidth = 1;
+		panel.add(new JLabel("Columns 1-6:"), gbc);
+		gbc.gridx = 1;
+		panel.add(sequenceBox, gbc);
+		
+		gbc.gridx = 0;
+		gbc.gridy++;
+		panel.add(new JLabel("Columns 73-80:"), gbc);
+		gbc.gridx = 1;
+		panel.add(identificationBox, gbc);
+		
+		gbc.gridx = 0;
+		gbc.gridy++;
+		gbc.gridwidth = 2;
+		panel.add(truncateBox, gbc);
+		
+		gbc.gridy++;
+		panel.add(trimBox, gbc);
+		return panel;
+	}
+
+}
@@ -26,16 +26,22 @@ package com.horvath.cobbler.gui.action;
 
 import java.awt.event.ActionEvent;
 import java.io.File;
+import java.util.List;
 import java.util.logging.Level;
 
+import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
+import javax.swing.JSpinner;
+
 import com.horvath.cobbler.application.CobblerState;
 import com.horvath.cobbler.application.Debugger;
-import com.horvath.cobbler.command.LoadFileCmd;
 import com.horvath.cobbler.command.SaveSettingsCmd;
 import com.horvath.cobbler.exception.CobblerException;
 import com.horvath.cobbler.gui.CobblerWindow;
+import com.horvath.cobbler.io.ArchiveIndex;
+import com.horvath.cobbler.io.EbcdicCodePage;
+import com.horvath.cobbler.io.RecordFormat;
 
 /**
  * GUI level operations for loading a file. 
@@ -49,16 +55,19 @@ public final class OpenFileAction extends OpenSaveAsAction {
 	public void actionPerformed(ActionEvent e) {
 		Debugger.printLog("Open a new file", this.getClass().getName());
 		
-		if (CobblerWindow.checkForDirtyState()) {
-			return;
-		}
-		
 		// create the "open as" dialog
 		JFileChooser chooser = new JFileChooser(getLastFolder());
 		chooser.setDialogTitle("Select a COBOL file");
 		
-		// automatically filter out non-Cobol files
+		// automatically filter out non-Cobol files, members can also be opened from archives
+		chooser.addChoosableFileFilter(getArchiveExtensionFilter());
 		chooser.setFileFilter(getFileNameExtensionFilter());
+		
+		// let the user pick an EBCDIC code page and record format for files pulled from the mainframe
+		JComboBox<Object> encodingMenu = createEncodingMenu(null);
+		JComboBox<Object> recordFormatMenu = createRecordFormatMenu();
+		JSpinner recordLengthField = createRecordLengthField();
+		chooser.setAccessory(createEncodingAccessory(encodingMenu, recordFormatMenu, recordLengthField));
 
 		// display the dialog for user to select a file
 		int returnValue = chooser.showOpenDialog(CobblerWindow.getWindow());
@@ -70,24 +79,55 @@ public final class OpenFileAction extends OpenSaveAsAction {
 			// update the folder location for future Open/Save As dialogs
 			setLastFolder(selectedFile.getParentFile().getAbsolutePath());
 			
-			try {
-				// perform core logic of loading the file into state 
-				LoadFileCmd cmd = new LoadFileCmd(selectedFile);
-				cmd.perform();
-				
-				if (cmd.isSuccess()) {
-					updateGuiForOpenedFile(selectedFile.getAbsolutePath());
-					
-				} else {
-					CobblerWindow.getWindow().simpleMessagePopup("Load Error",
-							LoadFileCmd.ERROR_UNKOWN_LOAD_PROBLEM + " " + cmd.getMessage(),
-							JOptionPane.WARNING_MESSAGE);
+			// a member is read straight out of an archive, without extracting it
+			if (ArchiveIndex.isArchive(selectedFile)) {
+				selectedFile = chooseArchiveMember(selectedFile);
+				if (selectedFile == null) {
+					return;
+				}
+			}
+			
+			// load the file into state on a worker, the GUI is updated once it has been read 
+			EbcdicCodePage codePage = getSelectedCodePage(encodingMenu);
+			RecordFormat recordFormat = getSelectedRecordFormat(recordFormatMenu, recordLengthField, codePage);
+			CobblerWindow.getWindow().openDocument();
+			new LoadFileWorker(selectedFile, codePage, recordFormat).start();
+		}
+	}
+	
+	/**
+	 * Lets the user pick a member of an archive. The first COBOL source member
+	 * is selected to begin with. 
+	 * @param archive File
+	 * @return File - the path leading through the archive to the member, null if none was picked
+	 */
+	private File chooseArchiveMember(File archive) {
+		CobblerWindow window = CobblerWindow.getWindow();
+		
+		try {
+			List<String> names = ArchiveIndex.get(archive).getMemberNames();
+			if (names.isEmpty()) {
+				window.simpleMessagePopup("Open Archive Member", archive.getName() + " has no files.", 
+						JOptionPane.WARNING_MESSAGE);
+				return null;
+			}
+			
+			String selected = names.get(0);
+			for (String name : names) {
+				if (getFileNameExtensionFilter().accept(new File(name))) {
+					selected = name;
+					break;
 				}
-				
-			} catch (CobblerException ex) {
-				Debugger.printLog(ex.getMessage() + " " + selectedFile.getName(), this.getClass().getName(), Level.WARNING);
-				CobblerWindow.getWindow().simpleMessagePopup("Load Error", ex.getMessage(), JOptionPane.ERROR_MESSAGE);
 			}
+			
+			Object choice = JOptionPane.showInputDialog(window, "Select a file in " + archive.getName(), 
+					"Open Archive Member", JOptionPane.PLAIN_MESSAGE, null, names.toArray(), selected);
+			return choice != null ? new File(archive, (String) choice) : null;
+			
+		} catch (CobblerException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+			window.simpleMessagePopup("Load Error", ex.getMessage(), JOptionPane.ERROR_MESSAGE);
+			return null;
 		}
 	}
 	
@@ -100,8 +140,7 @@ public final class OpenFileAction extends OpenSaveAsAction {
 		CobblerWindow window = CobblerWindow.getWindow();
 		CobblerState state = CobblerState.getInstance();
 		
-		// update the text area GUI
-		window.getTextArea().setText(state.getData());
+		// update the text area GUI, the file contents were loaded straight into its document
 		window.getTextArea().setCaretPosition(0);
 		window.getTextArea().discardAllEdits();
 		
@@ -26,16 +26,16 @@ package com.horvath.cobbler.gui.action;
 
 import java.awt.event.ActionEvent;
 import java.io.File;
-import java.util.logging.Level;
 
 import javax.swing.JOptionPane;
 
 import com.horvath.cobbler.application.CobblerState;
 import com.horvath.cobbler.application.Debugger;
-import com.horvath.cobbler.command.LoadFileCmd;
-import com.horvath.cobbler.command.SaveSettingsCmd;
-import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.application.RecentFiles;
 import com.horvath.cobbler.gui.CobblerWindow;
+import com.horvath.cobbler.gui.LargeFileViewer;
+import com.horvath.cobbler.gui.syntax.CobSyntaxTextArea;
+import com.horvath.cobbler.io.ArchiveIndex;
 
 /**
  * Action for opening a recent file. 
@@ -58,59 +58,41 @@ public class OpenRecentAction extends CobblerAction {
 	public void actionPerformed(ActionEvent e) {
 		Debugger.printLog("Open a recent file", this.getClass().getName());
 		
-		if (CobblerWindow.checkForDirtyState()) {
-			return;
-		}
-		
 		File file = new File(filepath);
+		CobblerState state = CobblerState.getInstance();
+		CobblerWindow window = CobblerWindow.getWindow();
 		
-		if (!file.exists()) {
-			CobblerWindow.getWindow().simpleMessagePopup("File Not Found", 
+		if (!ArchiveIndex.exists(file)) {
+			// a file that is gone is dropped from the recent files
+			state.getRecentFiles().remove(filepath);
+			window.updateRecentFilesMenu();
+			window.simpleMessagePopup("File Not Found", 
 					"The selected file was not found at the location it was " 
-			+ System.lineSeparator() + "opened from. The file was probably moved or renamed.", 
+			+ System.lineSeparator() + "opened from. The file was probably moved or renamed, "
+			+ System.lineSeparator() + "and was removed from the recent files.", 
 			JOptionPane.WARNING_MESSAGE);
 			return;
 		}
 		
-		try {
-			// perform core logic of loading the file into state 
-			LoadFileCmd cmd = new LoadFileCmd(file);
-			cmd.perform();
-			
-			if (cmd.isSuccess()) {
-				CobblerWindow window = CobblerWindow.getWindow();
-				CobblerState state = CobblerState.getInstance();
-				
-				// update the text area GUI
-				window.getTextArea().setText(state.getData());
-				window.getTextArea().setCaretPosition(0);
-				window.getTextArea().discardAllEdits();
-				
-				// recent files updates
-				state.updateRecentFiles(file.getAbsolutePath());
-				window.updateRecentFilesMenu();
-				
-				// update the settings file to reorder the recently opened files
-				SaveSettingsCmd saveSettingsCmd = new SaveSettingsCmd();
-				saveSettingsCmd.perform();
-				
-				// need to clear state because GUI updates impact the state dirty flag
-				state.setDirty(false);
-				
-				// display document name to user in GUI, needs to be after clearing dirty state
-				window.updateDocumentNameDisplay(state.getFile().getName());
-
-				
-			} else {
-				CobblerWindow.getWindow().simpleMessagePopup("Load Error",
-						LoadFileCmd.ERROR_UNKOWN_LOAD_PROBLEM + " " + cmd.getMessage(),
-						JOptionPane.WARNING_MESSAGE);
-			}
-			
-		} catch (CobblerException ex) {
-			Debugger.printLog(ex.getMessage() + " " + file.getName(), this.getClass().getName(), Level.WARNING);
-			CobblerWindow.getWindow().simpleMessagePopup("Load Error", ex.getMessage(), JOptionPane.ERROR_MESSAGE);
+		// load the file into state on a worker, in the code page and record format it was last used with
+		RecentFiles.Entry entry = state.getRecentFiles().get(filepath);
+		window.openDocument();
+		LoadFileWorker worker = new LoadFileWorker(file, state.getRecentFileCodePage(filepath), 
+				state.getRecentFileRecordFormat(filepath));
+		
+		// and the caret is put back where it was left
+		if (entry != null && entry.getCaret() > 0) {
+			worker.setOnLoaded(() -> {
+				LargeFileViewer viewer = window.getTabs().getViewer();
+				if (viewer != null) {
+					viewer.goToLine(entry.getCaret());
+				} else {
+					CobSyntaxTextArea textArea = window.getTextArea();
+					textArea.setCaretPosition(Math.min(entry.getCaret(), textArea.getDocument().getLength()));
+				}
+			});
 		}
+		worker.start();
 	}
 
 }
@@ -24,9 +24,23 @@
 
 package com.horvath.cobbler.gui.action;
 
+import java.awt.BorderLayout;
+
+import javax.swing.BorderFactory;
+import javax.swing.BoxLayout;
+import javax.swing.JComboBox;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.filechooser.FileSystemView;
 
+import com.horvath.cobbler.io.ArchiveIndex;
+import com.horvath.cobbler.io.EbcdicCodePage;
+import com.horvath.cobbler.io.RecordFormat;
+
 /**
  * Shared functionality for Open As and Save As dialogs. 
  * @author jhorvath
@@ -42,6 +56,9 @@ public abstract class OpenSaveAsAction extends CobblerAction {
 	 * Establishes the most recent folder location for Open / Save As dialogs. 
 	 * Initially set to the root level of the user's OS user folder.
 	 */
+	private static final String TEXT_ENCODING = "Text";
+	private static final String LINE_RECORDS = "Lines";
+	
 	private static String lastFolder = FileSystemView.getFileSystemView().getHomeDirectory().getAbsolutePath();
 
 	protected static String getLastFolder() {
@@ -55,5 +72,125 @@ public abstract class OpenSaveAsAction extends CobblerAction {
 	protected static FileNameExtensionFilter getFileNameExtensionFilter() {
 		return new FileNameExtensionFilter("COBOL Source Files", cobolExtensions);
 	}
+	
+	protected static FileNameExtensionFilter getArchiveExtensionFilter() {
+		return new FileNameExtensionFilter("Source Archives", ArchiveIndex.EXTENSIONS);
+	}
+	
+	/**
+	 * Creates the encoding menu for Open / Save As dialogs. The first option is
+	 * plain text, followed by the EBCDIC code pages.
+	 * 
+	 * @param selected EbcdicCodePage - may be null to select plain text
+	 * @return JComboBox
+	 */
+	protected static JComboBox<Object> createEncodingMenu(EbcdicCodePage selected) {
+		JComboBox<Object> menu = new JComboBox<>();
+		menu.addItem(TEXT_ENCODING);
+		for (EbcdicCodePage codePage : EbcdicCodePage.values()) {
+			menu.addItem(codePage);
+		}
+		menu.setSelectedItem(selected != null ? selected : TEXT_ENCODING);
+		return menu;
+	}
+	
+	/**
+	 * Creates the record format menu for the Open dialog. The first option is
+	 * text with line terminators, followed by the record formats.
+	 * @return JComboBox
+	 */
+	protected static JComboBox<Object> createRecordFormatMenu() {
+		JComboBox<Object> menu = new JComboBox<>();
+		menu.addItem(LINE_RECORDS);
+		for (RecordFormat.Type type : RecordFormat.Type.values()) {
+			menu.addItem(type);
+		}
+		return menu;
+	}
+	
+	/**
+	 * Creates the record length (LRECL) field for the Open dialog. 
+	 * @return JSpinner
+	 */
+	protected static JSpinner createRecordLengthField() {
+		return new JSpinner(new SpinnerNumberModel(RecordFormat.DEFAULT_RECORD_LENGTH, 1, 
+				RecordFormat.MAX_RECORD_LENGTH, 1));
+	}
+	
+	/**
+	 * Wraps the encoding menu in a panel to be used as a file chooser accessory. 
+	 * @param menu JComboBox
+	 * @return JPanel
+	 */
+	protected static JPanel createEncodingAccessory(JComboBox<Object> menu) {
+		return createAccessory(new JLabel("Encoding:"), menu);
+	}
+	
+	/**
+	 * Wraps the encoding and record format fields in a panel to be used as a file
+	 * chooser accessory. 
+	 * @param encodingMenu JComboBox
+	 * @param recordFormatMenu JComboBox
+	 * @param recordLengthField JSpinner
+	 * @return JPanel
+	 */
+	protected static JPanel createEncodingAccessory(JComboBox<Object> encodingMenu, 
+			JComboBox<Object> recordFormatMenu, JSpinner recordLengthField) {
+		return createAccessory(new JLabel("Encoding:"), encodingMenu, new JLabel("Records:"), recordFormatMenu, 
+				new JLabel("Record length:"), recordLengthField);
+	}
+	
+	/**
+	 * Stacks the components in a panel at the top of the accessory area. 
+	 * @param components JComponent...
+	 * @return JPanel
+	 */
+	private static JPanel createAccessory(JComponent... components) {
+		JPanel panel = new JPanel();
+		panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
+		panel.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 0));
+		for (JComponent component : components) {
+			component.setAlignmentX(JComponent.LEFT_ALIGNMENT);
+			panel.add(component);
+		}
+		
+		JPanel accessory = new JPanel(new BorderLayout());
+		accessory.add(panel, BorderLayout.NORTH);
+		return accessory;
+	}
+	
+	/**
+	 * Returns the record format selected in the Open dialog. Records are EBCDIC,
+	 * so IBM-037 is used when plain text is selected as the encoding.
+	 * 
+	 * @param recordFormatMenu JComboBox
+	 * @param recordLengthField JSpinner
+	 * @param codePage EbcdicCodePage
+	 * @return RecordFormat - null when lines are selected
+	 */
+	protected static RecordFormat getSelectedRecordFormat(JComboBox<Object> recordFormatMenu, 
+			JSpinner recordLengthField, EbcdicCodePage codePage) {
+		Object selected = recordFormatMenu.getSelectedItem();
+		if (!(selected instanceof RecordFormat.Type)) {
+			return null;
+		}
+		
+		RecordFormat.Type type = (RecordFormat.Type) selected;
+		int recordLength = (Integer) recordLengthField.getValue();
+		if (type == RecordFormat.Type.VB) {
+			recordLength = Math.max(recordLength, RecordFormat.RDW_LENGTH + 1);
+		}
+		return new RecordFormat(type, recordLength, codePage != null ? codePage : EbcdicCodePage.IBM037);
+	}
+	
+	/**
+	 * Returns the code page selected in the encoding menu. 
+	 * @param menu JComboBox
+	 * @return EbcdicCodePage - null when plain text is selected
+	 */
+	protected static EbcdicCodePage getSelectedCodePage(JComboBox<Object> menu) {
+		Object selected = menu.getSelectedItem();
+		return selected instanceof EbcdicCodePage ? (EbcdicCodePage) selected : null;
+	}
 
 }
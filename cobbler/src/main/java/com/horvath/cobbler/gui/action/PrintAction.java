@@ -44,10 +44,10 @@ public class PrintAction extends CobblerAction {
 	@Override
 	public void actionPerformed(ActionEvent e) {
 		// get the current contents of the document from state
-		final String code = CobblerState.getInstance().getData();
+		final CharSequence code = CobblerState.getInstance().getText();
 		
 		// if there is nothing to print
-		if (code.trim().isEmpty()) {
+		if (isBlank(code)) {
 			CobblerWindow.getWindow().simpleMessagePopup("Printing Stopped", 
 					"The current document is empty. " + System.lineSeparator() + "Printing operation stopped.");
 			return;
@@ -70,5 +70,20 @@ public class PrintAction extends CobblerAction {
 			}
 		}
 	}
+	
+	/**
+	 * Returns a boolean indicating if the text has nothing but white space, 
+	 * without copying it. 
+	 * @param text CharSequence
+	 * @return boolean
+	 */
+	private static boolean isBlank(CharSequence text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
 
 }
@@ -0,0 +1,225 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.gui.action;
+import java.io.File;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+
+import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.Document;
+
+import com.horvath.cobbler.application.CobblerState;
+import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.application.DocumentState;
+import com.horvath.cobbler.command.ReloadFileCmd;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.gui.CobblerWindow;
+import com.horvath.cobbler.gui.syntax.CobSyntaxTextArea;
+import com.horvath.cobbler.io.FileWatcher;
+
+/**
+ * Reloads the file of the text area after it was changed outside of the application. 
+ * The file is read and compared with the document on a worker thread, then only the 
+ * lines that differ are replaced on the event thread, as a single undoable edit. 
+ * Should the document be edited, the file change again or another tab be selected 
+ * while the file is being compared, the comparison is out of date and the reload 
+ * starts over. The document, its state and its text area are taken when the reload
+ * starts, so the changes go to the document of the file even once it is not viewed.
+ * 
+ * @author jhorvath
+ */
+public final class ReloadFileWorker extends SwingWorker<Void, Void> implements DocumentListener, ChangeListener {
+	
+	// the reload in progress, only used on the event thread
+	private static ReloadFileWorker current;
+	
+	private final File file;
+	private final DocumentState owner;
+	private final CobSyntaxTextArea textArea;
+	private final Document document;
+	private final ReloadFileCmd cmd;
+	
+	// only used on the event thread
+	private boolean outOfDate = false;
+	
+	/**
+	 * Constructor for the document being viewed. Must be called on the event thread. 
+	 * @param file File - the file the document was loaded from
+	 */
+	public ReloadFileWorker(File file) {
+		this(file, CobblerState.getInstance().getCurrentDocument(), CobblerWindow.getWindow().getTextArea());
+	}
+	
+	/**
+	 * Constructor. Must be called on the event thread. 
+	 * @param file File - the file the document was loaded from
+	 * @param owner DocumentState - the state of the document holding the file
+	 * @param textArea CobSyntaxTextArea - the text area of the document
+	 */
+	private ReloadFileWorker(File file, DocumentState owner, CobSyntaxTextArea textArea) {
+		this.file = file;
+		this.owner = owner;
+		this.textArea = textArea;
+		this.document = textArea.getDocument();
+		this.cmd = new ReloadFileCmd(file, document, owner);
+	}
+	
+	/**
+	 * Reloads the file being watched if it has changed, asking the user first when 
+	 * the document has unsaved changes. Must be called on the event thread. 
+	 */
+	public static void fileChanged() {
+		CobblerState state = CobblerState.getInstance();
+		FileWatcher watcher = state.getFileWatcher();
+		if (watcher == null || !watcher.hasChanged()) {
+			return;
+		}
+		watcher.acknowledge();
+		
+		if (current != null) {
+			// compare again once the reload in progress is done
+			current.outOfDate = true;
+			return;
+		}
+		
+		reload(new ReloadFileWorker(watcher.getFile()));
+	}
+	
+	/**
+	 * Starts a reload, asking the user first when the document has unsaved changes. 
+	 * @param worker ReloadFileWorker
+	 */
+	private static void reload(ReloadFileWorker worker) {
+		final File file = worker.file;
+		if (worker.owner.isDirty()) {
+			int result = JOptionPane.showConfirmDialog(CobblerWindow.getWindow(),
+					file.getName() + " was changed by another program. Reload it and lose your unsaved changes?", 
+					"Confirmation", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
+			
+			// the user chose to keep the unsaved changes
+			if (result != JOptionPane.YES_OPTION) {
+				return;
+			}
+		}
+		
+		worker.start();
+	}
+	
+	/**
+	 * Starts reading and comparing the file. Must be called on the event thread. 
+	 */
+	public void start() {
+		Debugger.printLog("Reloading " + file.getName() + " in the background", this.getClass().getName());
+		
+		current = this;
+		document.addDocumentListener(this);
+		CobblerWindow.getWindow().getTabs().addChangeListener(this);
+		CobblerWindow.getWindow().getStatusBar().updateText("Reloading " + file.getName());
+		execute();
+	}
+
+	@Override
+	protected Void doInBackground() throws Exception {
+		cmd.perform();
+		return null;
+	}
+	
+	@Override
+	protected void done() {
+		current = null;
+		document.removeDocumentListener(this);
+		CobblerWindow.getWindow().getTabs().removeChangeListener(this);
+		
+		CobblerWindow window = CobblerWindow.getWindow();
+		window.getStatusBar().resetBar();
+		
+		try {
+			get();
+			
+		} catch (InterruptedException | ExecutionException ex) {
+			String message = ex.getCause() != null ? ex.getCause().getMessage() : ex.getMessage();
+			Debugger.printLog(message + " " + file.getName(), this.getClass().getName(), Level.WARNING);
+			window.simpleMessagePopup("Reload Error", message, JOptionPane.ERROR_MESSAGE);
+			return;
+		}
+		
+		if (!cmd.isSuccess()) {
+			Debugger.printLog(cmd.getMessage() + " " + file.getName(), this.getClass().getName(), Level.WARNING);
+			return;
+		}
+		
+		if (outOfDate) {
+			reload(new ReloadFileWorker(file, owner, textArea));
+			return;
+		}
+		
+		textArea.beginAtomicEdit();
+		try {
+			cmd.applyChanges();
+			
+		} catch (CobblerException ex) {
+			Debugger.printLog(ex.getMessage() + " " + file.getName(), this.getClass().getName(), Level.WARNING);
+			window.simpleMessagePopup("Reload Error", ex.getMessage(), JOptionPane.ERROR_MESSAGE);
+			return;
+			
+		} finally {
+			textArea.endAtomicEdit();
+		}
+		
+		// the reloaded file is the base of the edits from now on
+		window.restartRecovery(owner);
+		if (owner == CobblerState.getInstance().getCurrentDocument()) {
+			window.updateUndoRedoMenuitems();
+			window.updateDocumentNameDisplay(owner.getFile().getName());
+		} else {
+			window.getTabs().setTitle(owner, owner.getName());
+		}
+		window.getStatusBar().updateText("Reloaded " + file.getName() + " (" + cmd.getChangeCount() + " changes)");
+	}
+
+	@Override
+	public void insertUpdate(DocumentEvent e) {
+		outOfDate = true;
+	}
+
+	@Override
+	public void removeUpdate(DocumentEvent e) {
+		outOfDate = true;
+	}
+
+	@Override
+	public void changedUpdate(DocumentEvent e) { }
+	
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		outOfDate = true;
+	}
+
+}
@@ -44,13 +44,15 @@ public final class RemoveLineNumsAction extends AbstractAddRemoveLineNumsAction
 
 	private static final long serialVersionUID = 1L;
 	private LineState lineState;
+	private int[] lines;
 	
 	@Override
 	public void actionPerformed(ActionEvent e) {
 		
-		String text = CobblerWindow.getWindow().getTextArea().getText();
+		CharSequence text = CobblerState.getInstance().getText();
+		this.lines = selectedLines(CobblerWindow.getWindow().getTextArea());
 		
-		this.lineState = examineLineState(text);
+		this.lineState = examineLineState(text, lines);
 		
 		if (lineState == LineState.INDETERMINATE) { 
 			inderterminateWarningConfirmation(text);
@@ -66,19 +68,20 @@ public final class RemoveLineNumsAction extends AbstractAddRemoveLineNumsAction
 
 	/**
 	 * Perform removal of line numbers. 
-	 * @param text String 
+	 * @param text CharSequence 
 	 */
-	private void removeLineNumbering(String text) {
+	private void removeLineNumbering(CharSequence text) {
 		CobblerWindow window = CobblerWindow.getWindow();
 		window.guiWait();
 		String message = null;
 		
 		try {
-			RemoveLineNumbersCmd cmd = new RemoveLineNumbersCmd(text);
+			RemoveLineNumbersCmd cmd = new RemoveLineNumbersCmd(text, lines[0], lines[1]);
 			cmd.perform();
 			
 			if (cmd.isSuccess()) {
-				window.getTextArea().setText(CobblerState.getInstance().getData());
+				// only the sequence columns that change are replaced, as one edit that can be undone
+				window.getTextArea().replaceRanges(cmd.getEdits());
 				message = cmd.getMessage();
 			}
 			
@@ -101,7 +104,7 @@ public final class RemoveLineNumsAction extends AbstractAddRemoveLineNumsAction
 	 * 
 	 * @param lines String[] 
 	 */
-	private void inderterminateWarningConfirmation(String text) {
+	private void inderterminateWarningConfirmation(CharSequence text) {
 		final String eol = System.lineSeparator();
 		
 		final String message = 
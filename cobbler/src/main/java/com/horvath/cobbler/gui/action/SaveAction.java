@@ -26,8 +26,11 @@ package com.horvath.cobbler.gui.action;
 
 import java.awt.event.ActionEvent;
 import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.logging.Level;
 
+import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 
@@ -37,6 +40,9 @@ import com.horvath.cobbler.command.SaveFileCmd;
 import com.horvath.cobbler.command.SaveSettingsCmd;
 import com.horvath.cobbler.exception.CobblerException;
 import com.horvath.cobbler.gui.CobblerWindow;
+import com.horvath.cobbler.io.ArchiveIndex;
+import com.horvath.cobbler.io.EbcdicCodePage;
+import com.horvath.cobbler.io.TextFileFormat;
 
 /**
  *  GUI level operations for Saving a file. 
@@ -55,6 +61,7 @@ public final class SaveAction extends OpenSaveAsAction {
 	}
 	
 	private SaveType type;
+	private Charset saveAsCharset;
 	
 	/**
 	 * Constructor. 
@@ -67,12 +74,28 @@ public final class SaveAction extends OpenSaveAsAction {
 	@Override
 	public void actionPerformed(ActionEvent e) {
 		
+		if (CobblerState.getInstance().getLargeFile() != null) {
+			CobblerWindow.getWindow().simpleMessagePopup("Save Error", SaveFileCmd.ERROR_LARGE_FILE_READ_ONLY, 
+					JOptionPane.WARNING_MESSAGE);
+			return;
+		}
+		
 		File file = CobblerState.getInstance().getFile();		
 		
 		// if the user selected the "Save" menu option and the file exists
-		if (this.type == SaveType.SAVE && file.exists()) { 
+		if (this.type == SaveType.SAVE && ArchiveIndex.exists(file)) { 
+			File archive = ArchiveIndex.findArchive(file);
+			if (archive != null) {
+				// saving a member writes the whole archive anew
+				int result = JOptionPane.showConfirmDialog(CobblerWindow.getWindow(),
+						"Saving " + file.getName() + " rewrites the archive " + archive.getName() + ". Continue?", 
+						"Confirmation", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
+				if (result != JOptionPane.YES_OPTION) {
+					return;
+				}
+			}
 			// run the save command without Save As dialog
-			runCommand(file);
+			runCommand(file, null);
 			
 		} else {
 			File userFile = saveAsDialog(file);
@@ -94,7 +117,7 @@ public final class SaveAction extends OpenSaveAsAction {
 					}
 				}
 				// run save command 
-				runCommand(userFile);
+				runCommand(userFile, saveAsCharset);
 			}
 		}
 	}
@@ -115,6 +138,11 @@ public final class SaveAction extends OpenSaveAsAction {
 
 		// automatically filter out non-Cobol files
 		chooser.setFileFilter(getFileNameExtensionFilter());
+		
+		// the encoding defaults to the one the document was opened in
+		EbcdicCodePage currentCodePage = getCurrentCodePage();
+		JComboBox<Object> encodingMenu = createEncodingMenu(currentCodePage);
+		chooser.setAccessory(createEncodingAccessory(encodingMenu));
 
 		int option = chooser.showSaveDialog(CobblerWindow.getWindow());
 
@@ -127,6 +155,14 @@ public final class SaveAction extends OpenSaveAsAction {
 			} else {
 				resultFile = chooser.getSelectedFile();
 			}
+			
+			// keep the charset of text documents, EBCDIC documents saved as text become UTF-8
+			EbcdicCodePage codePage = getSelectedCodePage(encodingMenu);
+			if (codePage != null) {
+				saveAsCharset = codePage.getCharset();
+			} else {
+				saveAsCharset = currentCodePage != null ? StandardCharsets.UTF_8 : null;
+			}
 
 		} else {
 			// user canceled
@@ -140,10 +176,11 @@ public final class SaveAction extends OpenSaveAsAction {
 	 * Runs the save command. 
 	 * 
 	 * @param file File 
+	 * @param charset Charset - may be null to keep the charset of the document
 	 */
-	private void runCommand(File file) {
+	private void runCommand(File file, Charset charset) {
 
-		SaveFileCmd cmd = new SaveFileCmd(file);
+		SaveFileCmd cmd = new SaveFileCmd(file, charset);
 		try {
 			cmd.perform();
 			
@@ -154,6 +191,8 @@ public final class SaveAction extends OpenSaveAsAction {
 				
 				// recent files updates
 				state.updateRecentFiles(file.getAbsolutePath());
+				state.setRecentFileCodePage(file.getAbsolutePath(), getCurrentCodePage());
+				state.setRecentFileRecordFormat(file.getAbsolutePath(), state.getRecordFormat());
 				window.updateRecentFilesMenu();
 				
 				// update the settings file to store the newly saved file location
@@ -161,6 +200,9 @@ public final class SaveAction extends OpenSaveAsAction {
 				saveSettingsCmd.perform();
 				
 				state.setDirty(false);
+				
+				// edits are journaled and autosaved against the saved file from now on
+				window.restartRecovery();
 			}
 
 		} catch (CobblerException ex) {
@@ -168,5 +210,18 @@ public final class SaveAction extends OpenSaveAsAction {
 			CobblerWindow.getWindow().simpleMessagePopup("Save Error", ex.getMessage(), JOptionPane.ERROR_MESSAGE);
 		}
 	}
+	
+	/**
+	 * Returns the EBCDIC code page of the current document. 
+	 * @return EbcdicCodePage - null if the document is not EBCDIC text
+	 */
+	private EbcdicCodePage getCurrentCodePage() {
+		CobblerState state = CobblerState.getInstance();
+		if (state.getRecordFormat() != null) {
+			return state.getRecordFormat().getCodePage();
+		}
+		TextFileFormat format = state.getFileFormat();
+		return format != null ? EbcdicCodePage.fromCharset(format.getCharset()) : null;
+	}
 
 }
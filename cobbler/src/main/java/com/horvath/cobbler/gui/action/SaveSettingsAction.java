@@ -35,6 +35,7 @@ import com.horvath.cobbler.command.SaveSettingsCmd;
 import com.horvath.cobbler.exception.CobblerException;
 import com.horvath.cobbler.gui.CobblerWindow;
 import com.horvath.cobbler.gui.SettingsDialog;
+import com.horvath.cobbler.gui.syntax.CobSyntaxTextArea;
 import com.horvath.cobbler.gui.syntax.GuiTheme;
 
 /**
@@ -75,24 +76,25 @@ public final class SaveSettingsAction extends CobblerAction {
 		final boolean clearRecent = dialog.getClearRecentCheckBox().isSelected();
 		final boolean spellCheckEnabled = dialog.getSpellcheckOnCheckBox().isSelected();
 		final boolean showInvisibleCharacters = dialog.getShowEndOfLinesCheckBox().isSelected();
+		final boolean autosaveOn = dialog.getAutosaveOnCheckBox().isSelected();
+		final Integer autosaveInterval = (Integer) dialog.getAutosaveIntervalMenu().getSelectedItem();
+		final Integer undoMemoryLimit = (Integer) dialog.getUndoMemoryLimitMenu().getSelectedItem();
 		
 		// update state
 		CobblerState state = CobblerState.getInstance();
 		state.setCurrentTheme(selectedTheme);
 		if (clearRecent) {
-			state.getRecentFilesList().clear();
+			state.getRecentFiles().clear();
 		}
-		state.setMaxNumOfRecentFiles(maxRecentFiles.intValue());
+		// if we currently have more recent files than settings change allow for, the oldest are dropped
+		final boolean truncatedFileList = state.setMaxNumOfRecentFiles(maxRecentFiles.intValue());
 		state.setAddLineIncrementValue(addLineNumIncrement.intValue());
-		// if we currently have more recent files than settings change allow for
-		boolean truncatedFileList = false;
-		while (state.getRecentFilesList().size() > state.getMaxNumOfRecentFiles()) {
-			state.getRecentFilesList().remove(state.getRecentFilesList().size() - 1);
-			truncatedFileList = true;
-		}
 		
 		state.setSpellcheckOn(spellCheckEnabled);
 		state.setShowInvisibleCharacters(showInvisibleCharacters);
+		state.setAutosaveOn(autosaveOn);
+		state.setAutosaveInterval(autosaveInterval.intValue());
+		state.setUndoMemoryLimit(undoMemoryLimit.intValue());
 		
 		try {
 			// run command to update properties file 
@@ -109,10 +111,18 @@ public final class SaveSettingsAction extends CobblerAction {
 					window.updateRecentFilesMenu();
 				}
 				
-				// update the spell checker
-				window.getTextArea().enableDisableSpellchecker();
-				// update end of line character display 
-				window.getTextArea().updateShowInvisibleCharacters();
+				for (CobSyntaxTextArea textArea : window.getTabs().getTextAreas()) {
+					// update the spell checker
+					textArea.enableDisableSpellchecker();
+					// update end of line character display 
+					textArea.updateShowInvisibleCharacters();
+					// update how much of the edit history is kept
+					textArea.updateUndoMemoryLimit();
+				}
+				// update how often the document is autosaved
+				if (state.getAutosave() != null) {
+					state.getAutosave().setEnabled(autosaveOn, autosaveInterval.intValue());
+				}
 			}
 			
 		} catch (CobblerException ex) {
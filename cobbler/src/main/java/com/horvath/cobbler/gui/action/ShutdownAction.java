@@ -27,8 +27,12 @@ package com.horvath.cobbler.gui.action;
 import java.awt.event.ActionEvent;
 import java.util.logging.Level;
 
+import com.horvath.cobbler.application.CobblerState;
 import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.command.SaveSettingsCmd;
+import com.horvath.cobbler.exception.CobblerException;
 import com.horvath.cobbler.gui.CobblerWindow;
+import com.horvath.cobbler.gui.DocumentTabs;
 
 /**
  * Action for shutting down application. 
@@ -47,11 +51,38 @@ public class ShutdownAction extends CobblerAction {
 	 */
 	public void shutdownApplication() {
 		
-		if (CobblerWindow.checkForDirtyState()) {
+		if (CobblerWindow.checkForDirtyDocuments()) {
 			return;
 		}
 		
 		Debugger.printLog("Shutting down application", this.getClass().getName(), Level.INFO);
+		
+		// the open documents are reopened where they were left on the next start
+		CobblerState state = CobblerState.getInstance();
+		if (state.getSessionFile() != null) {
+			CobblerWindow.getWindow().saveSession();
+			state.getSessionFile().close();
+		}
+		
+		// keep where the carets of the recent files were left
+		state.getRecentFiles().close();
+		try {
+			new SaveSettingsCmd().perform();
+		} catch (CobblerException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+		}
+		
+		// a clean shutdown leaves no edits to recover
+		DocumentTabs tabs = CobblerWindow.getWindow().getTabs();
+		for (int i = 0; i < tabs.getTabCount(); i++) {
+			state.closeJournal(tabs.getDocumentState(i));
+		}
+		if (state.getAutosave() != null) {
+			state.getAutosave().close();
+		}
+		if (state.getFileWatcher() != null) {
+			state.getFileWatcher().close();
+		}
 		System.exit(0);
 	}
 
@@ -24,31 +24,46 @@
 
 package com.horvath.cobbler.gui.syntax;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
+import java.util.zip.ZipFile;
 
 import javax.swing.JMenuItem;
 import javax.swing.JPopupMenu;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.text.Element;
+import javax.swing.text.View;
 
+import org.fife.com.swabunga.spell.engine.SpellDictionary;
+import org.fife.com.swabunga.spell.engine.SpellDictionaryHashMap;
 import org.fife.ui.autocomplete.AutoCompletion;
 import org.fife.ui.autocomplete.BasicCompletion;
 import org.fife.ui.autocomplete.CompletionProvider;
 import org.fife.ui.autocomplete.DefaultCompletionProvider;
 import org.fife.ui.rsyntaxtextarea.AbstractTokenMakerFactory;
 import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
+import org.fife.ui.rsyntaxtextarea.RSyntaxTextAreaUI;
 import org.fife.ui.rsyntaxtextarea.TokenMakerFactory;
 import org.fife.ui.rsyntaxtextarea.spell.SpellingParser;
+import org.fife.ui.rtextarea.RTextAreaUI;
+import org.fife.ui.rtextarea.RUndoManager;
 
 import com.horvath.cobbler.application.CobblerState;
 import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.application.DocumentState;
 import com.horvath.cobbler.command.AbstractSettingsCmd;
 import com.horvath.cobbler.command.ReadResourceTextFileCmd;
 import com.horvath.cobbler.exception.CobblerException;
 import com.horvath.cobbler.gui.CobblerWindow;
+import com.horvath.cobbler.io.AutosaveService;
+import com.horvath.cobbler.io.EditJournal;
+import com.horvath.cobbler.io.LineDiff;
 
 /**
  * RSyntaxTextArea text area for use with COBOL. 
@@ -57,13 +72,38 @@ import com.horvath.cobbler.gui.CobblerWindow;
 public final class CobSyntaxTextArea extends RSyntaxTextArea {
 
 	private static final long serialVersionUID = 1L;
-	private SpellingParser parser = null;
+	
+	// US English and programming words, as the spell checker's own English parser loads them
+	private static final String[] DICTIONARY_ENTRIES = {"eng_com", "color", "labeled", "center", "ize", "yze", "programming"};
+	
+	// the dictionary and completion words are loaded once and shared by every open document, 
+	// while the parser and provider, which keep track of the text they last worked on, are not
+	private static SpellDictionary dictionary = null;
+	private static boolean dictionaryLoaded = false;
+	private static List<String> completionWords = null;
+	
+	private final DocumentState owner;
+	private final SpellingParser parser;
+	
+	// created by the text area while it is constructed, and again when its edits are discarded
+	private CobUndoManager undoManager;
 	
 	/**
-	 * Constructor. 
+	 * Constructor. The text area edits the document being viewed. 
 	 */
 	public CobSyntaxTextArea(int rows, int cols) {
+		this(rows, cols, CobblerState.getInstance().getCurrentDocument());
+	}
+	
+	/**
+	 * Constructor. 
+	 * @param rows int
+	 * @param cols int
+	 * @param owner DocumentState - the state backed by the document of the text area
+	 */
+	public CobSyntaxTextArea(int rows, int cols, DocumentState owner) {
 		super(rows, cols);
+		this.owner = owner;
 		
 		AbstractTokenMakerFactory atmf = (AbstractTokenMakerFactory)TokenMakerFactory.getDefaultInstance();
 		final String style = "text/COBOL";
@@ -74,24 +114,72 @@ public final class CobSyntaxTextArea extends RSyntaxTextArea {
 		updateShowInvisibleCharacters();
 		
 		// typing auto-complete 
-		CompletionProvider provider = createCompletionProvider();
-		AutoCompletion ac = new AutoCompletion(provider);
+		AutoCompletion ac = new AutoCompletion(createCompletionProvider());
 		ac.install(this);
 		
-		try {
-			AbstractSettingsCmd.setupSettingsFolderAndFile();
-			File zip = new File(AbstractSettingsCmd.APP_DICTIONARY);
-			if (zip.exists()) {
-				parser = SpellingParser.createEnglishSpellingParser(zip, true);
-				enableDisableSpellchecker();
-			}
-		} catch (IOException | CobblerException ex) {
-			Debugger.printLog("There was a problem setting spell checker: " 
-					+ ex.getMessage(), CobSyntaxTextArea.class.getName(), Level.WARNING);
+		loadDictionary();
+		parser = dictionary != null ? new SpellingParser(dictionary) : null;
+		if (parser != null) {
+			enableDisableSpellchecker();
 		}
 
 		// initializing listeners must come after setting code style
 		initListeners();
+
+		// the editor document is what gets saved, so the state is backed by it. Listeners 
+		// added later are told of an edit first, so the state is current when the ones above run
+		owner.setDocument(getDocument());
+	}
+	
+	@Override
+	protected RTextAreaUI createRTextAreaUI() {
+		return new RSyntaxTextAreaUI(this) {
+			@Override
+			public View create(Element elem) {
+				// the wrapped view is left as it is, only the unwrapped one puts off measuring lines
+				return getLineWrap() ? super.create(elem) : new CobSyntaxView(elem);
+			}
+		};
+	}
+	
+	@Override
+	protected RUndoManager createUndoManager() {
+		undoManager = new CobUndoManager(this, CobblerState.getInstance().getUndoMemoryLimit() * 1024L * 1024L);
+		return undoManager;
+	}
+	
+	/**
+	 * Replaces the text with the given text as a single edit that can be undone, 
+	 * changing only the lines that differ. 
+	 * @param text String
+	 * @throws CobblerException
+	 */
+	public void replaceText(String text) throws CobblerException {
+		undoManager.replaceText(getDocument(), text);
+	}
+	
+	/**
+	 * Replaces ranges of the text as a single edit that can be undone, leaving the 
+	 * rest of the text, the caret and the selection where they are. 
+	 * @param ranges List of LineDiff.Hunk - in order of their offsets
+	 * @throws CobblerException
+	 */
+	public void replaceRanges(List<LineDiff.Hunk> ranges) throws CobblerException {
+		final int mark = LineDiff.mapOffset(ranges, getCaret().getMark());
+		final int dot = LineDiff.mapOffset(ranges, getCaret().getDot());
+		
+		undoManager.replaceRanges(getDocument(), ranges);
+		
+		// a replacement at the caret would otherwise drag it along
+		setCaretPosition(Math.min(mark, getDocument().getLength()));
+		moveCaretPosition(Math.min(dot, getDocument().getLength()));
+	}
+	
+	/**
+	 * Updates how much memory the undo history may take up from the state value. 
+	 */
+	public void updateUndoMemoryLimit() {
+		undoManager.setMemoryLimit(CobblerState.getInstance().getUndoMemoryLimit() * 1024L * 1024L);
 	}
 	
 	@Override
@@ -109,20 +197,67 @@ public final class CobSyntaxTextArea extends RSyntaxTextArea {
 		return menu;
     }
 	
+	/**
+	 * Loads the spell checker dictionary, the first time a text area is made. 
+	 */
+	private static void loadDictionary() {
+		if (dictionaryLoaded) {
+			return;
+		}
+		dictionaryLoaded = true;
+		
+		try {
+			AbstractSettingsCmd.setupSettingsFolderAndFile();
+			File file = new File(AbstractSettingsCmd.APP_DICTIONARY);
+			if (!file.exists()) {
+				return;
+			}
+			
+			SpellDictionaryHashMap words = new SpellDictionaryHashMap();
+			try (ZipFile zip = new ZipFile(file)) {
+				for (String entry : DICTIONARY_ENTRIES) {
+					try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+							zip.getInputStream(zip.getEntry(entry + ".dic"))))) {
+						words.addDictionary(reader);
+					}
+				}
+			}
+			dictionary = words;
+			
+		} catch (IOException | CobblerException ex) {
+			Debugger.printLog("There was a problem setting spell checker: " 
+					+ ex.getMessage(), CobSyntaxTextArea.class.getName(), Level.WARNING);
+		}
+	}
+	
 	/**
 	 * Listeners for changes within the text area. 
-	 * Sets the state dirty and updates state data to reflect text area contents.
+	 * The state tells if the document is dirty and reads its data from the document 
+	 * when it is needed. Edits are journaled and autosaved for the document of the 
+	 * text area whether or not it is being viewed. 
 	 */
 	private void initListeners() {
 		getDocument().addDocumentListener(new DocumentListener() {
 
 			@Override
 			public void removeUpdate(DocumentEvent e) {
+				EditJournal journal = owner.getJournal();
+				if (journal != null) {
+					journal.recordRemove(e);
+				}
+				documentChanged();
 				doUpdates();
 			}
 
 			@Override
-			public void insertUpdate(DocumentEvent e) { }
+			public void insertUpdate(DocumentEvent e) {
+				EditJournal journal = owner.getJournal();
+				if (journal != null) {
+					journal.recordInsert(e);
+				}
+				documentChanged();
+				doUpdates();
+			}
 
 			@Override
 			public void changedUpdate(DocumentEvent arg0) {
@@ -130,44 +265,64 @@ public final class CobSyntaxTextArea extends RSyntaxTextArea {
 			}
 
 			/**
-			 * Updates the state and window for text area changes.
+			 * Lets the autosave service know the document was edited. 
+			 */
+			public void documentChanged() {
+				AutosaveService autosave = CobblerState.getInstance().getAutosave();
+				if (autosave != null) {
+					autosave.documentChanged(getDocument());
+				}
+			}
+
+			/**
+			 * Schedules the window to be updated for text area changes.
 			 */
 			public void doUpdates() {
-				CobblerState state = CobblerState.getInstance();
-				state.setDirty(true);
-				String text = getText();
-				state.setData(text);
-				CobblerWindow.getWindow().updateUndoRedoMenuitems();
-				CobblerWindow.getWindow().updateDocumentNameDisplay(state.getFile().getName());
+				if (isViewed()) {
+					CobblerWindow.getWindow().scheduleEditUpdate();
+				}
 			}
 		});
 	}
 
 	/**
-	 * Creates the auto-complete provider. 
+	 * Returns a boolean indicating if the document of the text area is the one being viewed. 
+	 * @return boolean
+	 */
+	private boolean isViewed() {
+		return CobblerState.getInstance().getCurrentDocument() == owner;
+	}
+	
+	/**
+	 * Returns the state backed by the document of the text area. 
+	 * @return DocumentState
+	 */
+	public DocumentState getOwner() {
+		return owner;
+	}
+	
+	/**
+	 * Creates the auto-complete provider of the text area from the shared completion words. 
 	 * @return CompletionProvider
 	 */
-	private CompletionProvider createCompletionProvider() {
-		DefaultCompletionProvider provider = new DefaultCompletionProvider();
-		
-		// read Cobol reserved words from resource file and populate provider
-		ArrayList<String> list = SyntaxUtils.readResouceFile(ReadResourceTextFileCmd.RESERVED_WORDS);
-		populateProvider(provider, list);
-		list.clear();
-		
-		// read Cobol functions from resource file and populate provider
-		list = SyntaxUtils.readResouceFile(ReadResourceTextFileCmd.INTRINSIC_FUNCTIONS);
-		populateProvider(provider, list);
+	private static CompletionProvider createCompletionProvider() {
+		if (completionWords == null) {
+			// read Cobol reserved words and functions from resource files
+			completionWords = new ArrayList<>(SyntaxUtils.readResouceFile(ReadResourceTextFileCmd.RESERVED_WORDS));
+			completionWords.addAll(SyntaxUtils.readResouceFile(ReadResourceTextFileCmd.INTRINSIC_FUNCTIONS));
+		}
 		
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		populateProvider(provider, completionWords);
 		return provider;
 	}
 	
 	/**
 	 * Populates the auto-complete provider with data from the strings in the given list. 
 	 * @param provider DefaultCompletionProvider
-	 * @param list ArrayList<String>
+	 * @param list List<String>
 	 */
-	private void populateProvider(DefaultCompletionProvider provider, ArrayList<String> list) {
+	private static void populateProvider(DefaultCompletionProvider provider, List<String> list) {
 		for (String s : list) {			
 			provider.addCompletion(new BasicCompletion(provider, s.toLowerCase()));
 			provider.addCompletion(new BasicCompletion(provider, s.toUpperCase()));
@@ -0,0 +1,107 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.gui.syntax;
+
+import java.awt.Shape;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.ViewFactory;
+
+import org.fife.ui.rsyntaxtextarea.SyntaxView;
+
+/**
+ * View of a text area that can put off measuring its lines while a batch of 
+ * edits is made. 
+ * <p>
+ * The view keeps track of its longest line, and an edit that shortens it makes 
+ * the view measure every line again to find the new one. Replacing the sequence
+ * numbers of every line one range at a time would then measure the whole text 
+ * for each line. While a batch is open the edits within a line only mark the
+ * view as changed, and the lines are measured once when the batch ends. Edits
+ * that add or remove lines are still handled as they happen. 
+ * 
+ * @author jhorvath
+ */
+final class CobSyntaxView extends SyntaxView {
+	
+	private int batchDepth;
+	private boolean changed;
+	
+	/**
+	 * Constructor. 
+	 * @param element Element - the root element of the document
+	 */
+	CobSyntaxView(Element element) {
+		super(element);
+	}
+	
+	/**
+	 * Starts a batch of edits, within which lines are not measured. 
+	 */
+	void beginBatch() {
+		batchDepth++;
+	}
+	
+	/**
+	 * Ends a batch of edits. Once the outermost one ends, the lines are measured 
+	 * and the text area repainted if any of the edits were put off. 
+	 */
+	void endBatch() {
+		if (batchDepth == 0 || --batchDepth > 0 || !changed) {
+			return;
+		}
+		changed = false;
+		
+		// an edit that removes every line, the longest included, is what makes the view measure them all
+		Document document = getDocument();
+		Element root = getElement();
+		if (!(document instanceof AbstractDocument) || getContainer() == null) {
+			return;
+		}
+		Element[] lines = new Element[root.getElementCount()];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = root.getElement(i);
+		}
+		
+		AbstractDocument.DefaultDocumentEvent event = ((AbstractDocument) document).new DefaultDocumentEvent(
+				0, 0, DocumentEvent.EventType.REMOVE);
+		event.addEdit(new AbstractDocument.ElementEdit(root, 0, lines, new Element[0]));
+		event.end();
+		super.updateDamage(event, null, null);
+	}
+	
+	@Override
+	protected void updateDamage(DocumentEvent e, Shape a, ViewFactory f) {
+		if (batchDepth > 0 && e.getChange(getElement()) == null) {
+			changed = true;
+			return;
+		}
+		super.updateDamage(e, a, f);
+	}
+
+}
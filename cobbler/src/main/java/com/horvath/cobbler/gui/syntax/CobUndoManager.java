@@ -0,0 +1,433 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.gui.syntax;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.UndoableEditEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.View;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoableEdit;
+
+import org.fife.ui.rtextarea.RTextArea;
+import org.fife.ui.rtextarea.RUndoManager;
+
+import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.CompressedText;
+import com.horvath.cobbler.io.DocumentText;
+import com.horvath.cobbler.io.LineDiff;
+
+/**
+ * Undo manager that keeps the edit history of a text area within a memory budget. 
+ * <p>
+ * The size of each undoable edit is estimated from the text it holds, and once 
+ * the history grows past the budget the oldest edits are discarded. The edit 
+ * being added to is always kept, however large it is. 
+ * <p>
+ * Replacing the whole text, as the line number operations do, would keep a copy 
+ * of the old text and of the new one. {@link #replaceText(Document, String)} 
+ * instead applies only the lines that differ, and keeps them as a single edit 
+ * with the old and new lines compressed. {@link #replaceRanges(Document, List)}
+ * applies replacements that were worked out elsewhere, such as the columns of 
+ * the line numbers, in the same way. 
+ * 
+ * @author jhorvath
+ */
+public final class CobUndoManager extends RUndoManager {
+
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * Estimated number of bytes taken up by an edit besides its text. 
+	 */
+	static final int EDIT_OVERHEAD = 128;
+	
+	private final RTextArea textArea;
+	private long memoryLimit;
+	
+	// estimated size of each edit in the history, and of the edits made since the last was added 
+	private final Map<UndoableEdit, Long> sizes = new IdentityHashMap<>();
+	private UndoableEdit lastAdded;
+	private long pendingSize;
+	private int atomicDepth;
+	
+	// set while a text replacement changes the document itself
+	private boolean ignoreEdits;
+	
+	/**
+	 * Constructor. 
+	 * @param textArea RTextArea
+	 * @param memoryLimit long - number of bytes the history is kept within
+	 */
+	public CobUndoManager(RTextArea textArea, long memoryLimit) {
+		super(textArea);
+		this.textArea = textArea;
+		this.memoryLimit = memoryLimit;
+	}
+	
+	@Override
+	public void undoableEditHappened(UndoableEditEvent e) {
+		if (ignoreEdits) {
+			return;
+		}
+		
+		pendingSize += estimateSize(e.getEdit());
+		super.undoableEditHappened(e);
+		
+		// outside of an atomic edit the edit went into the last one added
+		if (atomicDepth == 0 && lastAdded != null) {
+			final long size = pendingSize;
+			sizes.computeIfPresent(lastAdded, (edit, total) -> total + size);
+			pendingSize = 0;
+			trimForMemoryLimit();
+		}
+	}
+	
+	@Override
+	public synchronized boolean addEdit(UndoableEdit anEdit) {
+		final boolean added = super.addEdit(anEdit);
+		if (added && edits.contains(anEdit)) {
+			sizes.put(anEdit, pendingSize);
+			pendingSize = 0;
+			lastAdded = anEdit;
+			trimForMemoryLimit();
+		}
+		return added;
+	}
+	
+	@Override
+	public void beginInternalAtomicEdit() {
+		atomicDepth++;
+		super.beginInternalAtomicEdit();
+	}
+	
+	@Override
+	public void endInternalAtomicEdit() {
+		if (atomicDepth > 0) {
+			atomicDepth--;
+		}
+		super.endInternalAtomicEdit();
+	}
+	
+	@Override
+	protected void trimEdits(int from, int to) {
+		for (int i = from; i <= to && i < edits.size(); i++) {
+			sizes.remove(edits.get(i));
+		}
+		super.trimEdits(from, to);
+	}
+	
+	/**
+	 * Discards the oldest edits until the history fits in the memory limit, 
+	 * keeping at least the last one. 
+	 */
+	private void trimForMemoryLimit() {
+		long total = getMemoryUsage();
+		while (total > memoryLimit && edits.size() > 1) {
+			total -= sizes.getOrDefault(edits.get(0), 0L);
+			trimEdits(0, 0);
+		}
+	}
+	
+	/**
+	 * Returns the estimated number of bytes taken up by the history. 
+	 * @return long
+	 */
+	public long getMemoryUsage() {
+		long total = pendingSize;
+		for (UndoableEdit edit : edits) {
+			total += sizes.getOrDefault(edit, 0L);
+		}
+		return total;
+	}
+	
+	/**
+	 * Returns the estimated number of bytes an edit made to the document takes up. 
+	 * The document keeps the removed or inserted text of each edit to undo it. 
+	 * @param edit UndoableEdit
+	 * @return long
+	 */
+	private static long estimateSize(UndoableEdit edit) {
+		if (edit instanceof ReplaceEdit) {
+			return ((ReplaceEdit) edit).getSize();
+		}
+		if (edit instanceof DocumentEvent) {
+			return EDIT_OVERHEAD + 2L * ((DocumentEvent) edit).getLength();
+		}
+		return EDIT_OVERHEAD;
+	}
+	
+	/**
+	 * Returns the number of edits in the history. 
+	 * @return int
+	 */
+	public int getEditCount() {
+		return edits.size();
+	}
+
+	public long getMemoryLimit() {
+		return memoryLimit;
+	}
+
+	/**
+	 * Sets the number of bytes the history is kept within, discarding the oldest 
+	 * edits if it no longer fits. 
+	 * @param memoryLimit long
+	 */
+	public void setMemoryLimit(long memoryLimit) {
+		this.memoryLimit = memoryLimit;
+		trimForMemoryLimit();
+	}
+	
+	/**
+	 * Replaces the text of the document with the given text as a single undoable 
+	 * edit, changing only the lines that differ. 
+	 * @param document Document - the document of the text area
+	 * @param text String - the new text
+	 * @throws CobblerException
+	 */
+	public void replaceText(Document document, String text) throws CobblerException {
+		final String oldText;
+		try {
+			oldText = document.getText(0, document.getLength());
+		} catch (BadLocationException ex) {
+			throw new CobblerException("Unable to read the document.", ex);
+		}
+		
+		apply(new ReplaceEdit(document, oldText, LineDiff.diff(oldText, text)));
+	}
+	
+	/**
+	 * Replaces ranges of the text of the document as a single undoable edit. 
+	 * Only the ranges change, so the rest of the text, and the caret and marks 
+	 * in it, are left as they are. 
+	 * @param document Document - the document of the text area
+	 * @param ranges List of LineDiff.Hunk - the replacements, in order of their offsets, not overlapping
+	 * @throws CobblerException
+	 */
+	public void replaceRanges(Document document, List<LineDiff.Hunk> ranges) throws CobblerException {
+		apply(new ReplaceEdit(document, new DocumentText(document), ranges));
+	}
+	
+	/**
+	 * Makes a replacement and adds it to the history. 
+	 * @param edit ReplaceEdit
+	 * @throws CobblerException
+	 */
+	private void apply(ReplaceEdit edit) throws CobblerException {
+		if (edit.isEmpty()) {
+			return;
+		}
+		
+		// an atomic edit ends the one being typed, so the replacement is undone on its own
+		beginInternalAtomicEdit();
+		try {
+			edit.apply(true);
+			undoableEditHappened(new UndoableEditEvent(edit.document, edit));
+		} finally {
+			endInternalAtomicEdit();
+		}
+	}
+	
+	/**
+	 * Returns the view of the text area when it can put off measuring its lines. 
+	 * @return CobSyntaxView - or null
+	 */
+	private CobSyntaxView getSyntaxView() {
+		View root = textArea.getUI().getRootView(textArea);
+		View view = root.getViewCount() > 0 ? root.getView(0) : null;
+		return view instanceof CobSyntaxView ? (CobSyntaxView) view : null;
+	}
+	
+	/**
+	 * Lines of a document replaced in one edit. The old and new lines are kept 
+	 * compressed, along with where each range of them starts in the old and new text. 
+	 */
+	private final class ReplaceEdit extends AbstractUndoableEdit {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final Document document;
+		private final int[] oldOffsets;
+		private final int[] oldLengths;
+		private final int[] newOffsets;
+		private final int[] newLengths;
+		private final CompressedText oldLines;
+		private final CompressedText newLines;
+		
+		/**
+		 * Constructor. 
+		 * @param document Document
+		 * @param oldText CharSequence - the text of the document before the edit
+		 * @param hunks List of LineDiff.Hunk - the changes, in order
+		 */
+		ReplaceEdit(Document document, CharSequence oldText, List<LineDiff.Hunk> hunks) {
+			this.document = document;
+			final int count = hunks.size();
+			this.oldOffsets = new int[count];
+			this.oldLengths = new int[count];
+			this.newOffsets = new int[count];
+			this.newLengths = new int[count];
+			
+			StringBuilder removed = new StringBuilder();
+			StringBuilder inserted = new StringBuilder();
+			int shift = 0;
+			for (int i = 0; i < count; i++) {
+				LineDiff.Hunk hunk = hunks.get(i);
+				oldOffsets[i] = hunk.getOffset();
+				oldLengths[i] = hunk.getLength();
+				newOffsets[i] = hunk.getOffset() + shift;
+				newLengths[i] = hunk.getText().length();
+				shift += newLengths[i] - oldLengths[i];
+				
+				removed.append(oldText, hunk.getOffset(), hunk.getOffset() + hunk.getLength());
+				inserted.append(hunk.getText());
+			}
+			
+			this.oldLines = CompressedText.compress(removed);
+			this.newLines = CompressedText.compress(inserted);
+		}
+		
+		/**
+		 * Returns a boolean indicating if the edit changes nothing. 
+		 * @return boolean
+		 */
+		boolean isEmpty() {
+			return oldOffsets.length == 0;
+		}
+		
+		/**
+		 * Returns the estimated number of bytes the edit takes up. 
+		 * @return long
+		 */
+		long getSize() {
+			return EDIT_OVERHEAD + 16L * oldOffsets.length 
+					+ oldLines.getCompressedSize() + newLines.getCompressedSize();
+		}
+		
+		@Override
+		public void undo() throws CannotUndoException {
+			super.undo();
+			try {
+				apply(false);
+			} catch (CobblerException ex) {
+				Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+				throw new CannotUndoException();
+			}
+		}
+		
+		@Override
+		public void redo() throws CannotRedoException {
+			super.redo();
+			try {
+				apply(true);
+			} catch (CobblerException ex) {
+				Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+				throw new CannotRedoException();
+			}
+		}
+		
+		/**
+		 * Changes the document from the old lines to the new ones, or back. The document 
+		 * changes are not recorded again, the edit itself is what gets undone. 
+		 * @param forward boolean - true to make the edit, false to undo it
+		 * @throws CobblerException
+		 */
+		void apply(boolean forward) throws CobblerException {
+			final String text = (forward ? newLines : oldLines).getText();
+			final int[] offsets = forward ? oldOffsets : newOffsets;
+			final int[] lengths = forward ? oldLengths : newLengths;
+			final int[] textLengths = forward ? newLengths : oldLengths;
+			
+			// where the text of each range starts in the decompressed text
+			int end = text.length();
+			
+			// the lines are measured once for all of the ranges, rather than once for each
+			CobSyntaxView view = getSyntaxView();
+			if (view != null) {
+				view.beginBatch();
+			}
+			
+			ignoreEdits = true;
+			try {
+				// from the last to the first, so that the offsets of the earlier ones stay valid
+				for (int i = offsets.length - 1; i >= 0; i--) {
+					final int start = end - textLengths[i];
+					replace(offsets[i], lengths[i], text.substring(start, end));
+					end = start;
+				}
+			} catch (BadLocationException ex) {
+				throw new CobblerException("Unable to replace the text of the document.", ex);
+			} finally {
+				ignoreEdits = false;
+				if (view != null) {
+					view.endBatch();
+				}
+			}
+		}
+		
+		/**
+		 * Replaces a range of the document, leaving the text around it as it was. The
+		 * new text goes in after the old text where it can, as text inserted at the 
+		 * start of a line makes the document rebuild the lines around it. 
+		 * @param offset int - where the range is in the document
+		 * @param length int - its length in the document
+		 * @param replacement String
+		 * @throws BadLocationException
+		 */
+		private void replace(int offset, int length, String replacement) throws BadLocationException {
+			final boolean insertAfter = length > 0 && !replacement.isEmpty() 
+					&& !document.getText(offset + length - 1, 1).equals("\n");
+			
+			if (insertAfter) {
+				document.insertString(offset + length, replacement, null);
+				document.remove(offset, length);
+				return;
+			}
+			
+			if (length > 0) {
+				document.remove(offset, length);
+			}
+			if (!replacement.isEmpty()) {
+				document.insertString(offset, replacement, null);
+			}
+		}
+		
+		@Override
+		public String getPresentationName() {
+			return "Replace";
+		}
+	}
+	
+}
@@ -34,6 +34,11 @@ import org.fife.ui.rsyntaxtextarea.TokenMap;
 import com.horvath.cobbler.command.ReadResourceTextFileCmd;
 
 public class CobolTokenMaker extends AbstractTokenMaker {
+	
+	// the words are looked up for every token of every line tokenized. The map hashes
+	// a word by the sum of its first and last characters, so it has a bucket for each sum
+	private static final int WORDS_MAP_SIZE = 256;
+	
 	protected Segment s;
 
 	protected int start; // Just for states.
@@ -309,7 +314,7 @@ public class CobolTokenMaker extends AbstractTokenMaker {
 	@Override
 	public TokenMap getWordsToHighlight() {
 
-		TokenMap tokenMap = new TokenMap();
+		TokenMap tokenMap = new TokenMap(WORDS_MAP_SIZE);
 		
 		// get data from input files and process tokens
 		tokenMap = processOperators(SyntaxUtils.readResouceFile(ReadResourceTextFileCmd.OPERATORS), tokenMap);
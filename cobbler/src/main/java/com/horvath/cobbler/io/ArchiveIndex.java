@@ -0,0 +1,691 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.io;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.exception.CobblerException;
+
+/**
+ * The index of the members of a zip, jar or tar archive, so that a single member
+ * can be read without extracting the archive. 
+ * <p>
+ * A member is addressed by a path that leads through the archive as if it were a
+ * folder, for example <code>snapshot.zip/src/PAYROLL.cbl</code>. Zip and jar archives
+ * are opened as an NIO zip file system, which reads the central directory once and 
+ * inflates a member as it is read. A tar archive has no central directory, so its 
+ * headers are scanned once and a member is memory mapped where it is stored. The 
+ * index of an archive is kept until the archive changes on disk. 
+ * 
+ * @author jhorvath
+ */
+public final class ArchiveIndex {
+	
+	/**
+	 * Extensions of the archives members can be opened from. 
+	 */
+	public static final String[] EXTENSIONS = { "zip", "jar", "tar" };
+	
+	/**
+	 * Size of a tar header and of the blocks its data is padded to. 
+	 */
+	private static final int TAR_BLOCK = 512;
+	
+	private static final Map<String, ArchiveIndex> cache = new HashMap<>();
+	
+	private final File archive;
+	private final long archiveSize;
+	private final long archiveLastModified;
+	private final boolean tar;
+	private final Map<String, Member> members = new LinkedHashMap<>();
+	private FileSystem zip;
+	
+	/**
+	 * Where a member is and how big it is. 
+	 */
+	private static final class Member {
+		
+		// offsets in a tar archive, unused for zip archives
+		long header;
+		long data;
+		boolean sizeInExtendedHeader;
+		
+		long size;
+	}
+	
+	/**
+	 * Constructor. 
+	 * @param archive File
+	 */
+	private ArchiveIndex(File archive) {
+		this.archive = archive;
+		this.archiveSize = archive.length();
+		this.archiveLastModified = archive.lastModified();
+		this.tar = archive.getName().toLowerCase().endsWith(".tar");
+	}
+	
+	/**
+	 * Returns the index of an archive, reading it unless the archive has not changed
+	 * since it was last read. 
+	 * @param archive File
+	 * @return ArchiveIndex
+	 * @throws CobblerException
+	 */
+	public static synchronized ArchiveIndex get(File archive) throws CobblerException {
+		File absolute = archive.getAbsoluteFile();
+		ArchiveIndex index = cache.get(absolute.getPath());
+		if (index != null && index.archiveSize == absolute.length() 
+				&& index.archiveLastModified == absolute.lastModified()) {
+			return index;
+		}
+		if (index != null) {
+			index.close();
+		}
+		
+		index = new ArchiveIndex(absolute);
+		try {
+			if (index.tar) {
+				index.readTarHeaders();
+			} else {
+				index.readZipDirectory();
+			}
+			
+		} catch (IOException ex) {
+			index.close();
+			throw new CobblerException("Problem reading archive " + archive.getName() + ". " + ex.getMessage(), ex);
+		}
+		
+		Debugger.printLog("Indexed " + index.members.size() + " members of " + archive.getName(), 
+				ArchiveIndex.class.getName());
+		cache.put(absolute.getPath(), index);
+		return index;
+	}
+	
+	/**
+	 * Returns a boolean indicating if a file is an archive members can be opened from. 
+	 * @param file File
+	 * @return boolean
+	 */
+	public static boolean isArchive(File file) {
+		String name = file.getName().toLowerCase();
+		for (String extension : EXTENSIONS) {
+			if (name.endsWith("." + extension)) {
+				return file.isFile();
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the archive a path leads through to one of its members. 
+	 * @param path File
+	 * @return File - null if the path does not lead into an archive
+	 */
+	public static File findArchive(File path) {
+		if (path == null || path.exists()) {
+			return null;
+		}
+		File parent = path.getAbsoluteFile().getParentFile();
+		while (parent != null && !parent.exists()) {
+			parent = parent.getParentFile();
+		}
+		return parent != null && isArchive(parent) ? parent : null;
+	}
+	
+	/**
+	 * Returns the name of the member a path leads to within an archive. 
+	 * @param archive File
+	 * @param path File
+	 * @return String
+	 */
+	public static String getMemberName(File archive, File path) {
+		Path relative = archive.getAbsoluteFile().toPath().relativize(path.getAbsoluteFile().toPath());
+		StringBuilder name = new StringBuilder();
+		for (Path part : relative) {
+			if (name.length() > 0) {
+				name.append('/');
+			}
+			name.append(part.toString());
+		}
+		return name.toString();
+	}
+	
+	/**
+	 * Returns a boolean indicating if a path leads to a member of an archive. 
+	 * @param path File
+	 * @return boolean
+	 */
+	public static boolean isMember(File path) {
+		File archive = findArchive(path);
+		if (archive == null) {
+			return false;
+		}
+		try {
+			return get(archive).members.containsKey(getMemberName(archive, path));
+			
+		} catch (CobblerException ex) {
+			Debugger.printLog(ex.getMessage(), ArchiveIndex.class.getName(), Level.WARNING);
+			return false;
+		}
+	}
+	
+	/**
+	 * Returns a boolean indicating if a file exists, or the archive member a path leads to. 
+	 * @param path File
+	 * @return boolean
+	 */
+	public static boolean exists(File path) {
+		return path.exists() || isMember(path);
+	}
+	
+	/**
+	 * Returns the size of a file, or of the archive member a path leads to. 
+	 * @param path File
+	 * @return long - 0 if there is no such file or member
+	 */
+	public static long length(File path) {
+		File archive = findArchive(path);
+		if (archive == null) {
+			return path.length();
+		}
+		try {
+			Member member = get(archive).members.get(getMemberName(archive, path));
+			return member != null ? member.size : 0;
+			
+		} catch (CobblerException ex) {
+			Debugger.printLog(ex.getMessage(), ArchiveIndex.class.getName(), Level.WARNING);
+			return 0;
+		}
+	}
+	
+	/**
+	 * Returns the names of the files in the archive, in the order they are stored. 
+	 * @return List of String
+	 */
+	public List<String> getMemberNames() {
+		return new ArrayList<>(members.keySet());
+	}
+	
+	/**
+	 * Returns the archive. 
+	 * @return File
+	 */
+	public File getArchive() {
+		return archive;
+	}
+	
+	/**
+	 * Opens a member for reading. 
+	 * @param name String
+	 * @return ByteSource
+	 * @throws IOException
+	 */
+	ByteSource openMember(String name) throws IOException {
+		Member member = members.get(name);
+		if (member == null) {
+			throw new FileNotFoundException(name + " is not a member of " + archive.getName());
+		}
+		if (tar) {
+			return new ByteSource.Mapped(FileChannel.open(archive.toPath(), StandardOpenOption.READ), 
+					member.data, member.size);
+		}
+		return new ByteSource.Streamed(Files.newInputStream(zip.getPath(name)), member.size);
+	}
+	
+	/**
+	 * Replaces the contents of a member, or adds it, by rewriting the archive. The
+	 * index is read again the next time it is needed. 
+	 * @param name String
+	 * @param content Path - a file holding the new contents of the member
+	 * @throws IOException
+	 * @throws CobblerException
+	 */
+	void replaceMember(String name, Path content) throws IOException, CobblerException {
+		synchronized (ArchiveIndex.class) {
+			cache.remove(archive.getPath());
+		}
+		
+		try {
+			if (tar) {
+				rewriteTar(name, content);
+			} else {
+				// the zip file system writes the archive anew when it is closed
+				Path path = zip.getPath(name);
+				if (path.getParent() != null) {
+					Files.createDirectories(path.getParent());
+				}
+				Files.copy(content, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			close();
+		}
+		Debugger.printLog("Replaced " + name + " in " + archive.getName(), this.getClass().getName());
+	}
+	
+	/**
+	 * Closes the zip file system of the archive. 
+	 */
+	private void close() {
+		if (zip != null) {
+			try {
+				zip.close();
+			} catch (IOException ex) {
+				Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+			}
+			zip = null;
+		}
+	}
+	
+	/**
+	 * Indexes the files of a zip archive from its central directory. 
+	 * @throws IOException
+	 */
+	private void readZipDirectory() throws IOException {
+		zip = FileSystems.newFileSystem(archive.toPath(), (ClassLoader) null);
+		for (Path root : zip.getRootDirectories()) {
+			Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+					if (attributes.isRegularFile()) {
+						Member member = new Member();
+						member.size = attributes.size();
+						members.put(getMemberName(root, file), member);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Returns the name of a file in a zip file system, without the leading slash. 
+	 * @param root Path
+	 * @param file Path
+	 * @return String
+	 */
+	private static String getMemberName(Path root, Path file) {
+		return root.relativize(file).toString();
+	}
+	
+	/**
+	 * Indexes the files of a tar archive by skipping from header to header. Long 
+	 * names are taken from GNU and POSIX extended headers. 
+	 * @throws IOException
+	 */
+	private void readTarHeaders() throws IOException {
+		try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+			final long size = channel.size();
+			ByteBuffer header = ByteBuffer.allocate(TAR_BLOCK);
+			
+			long position = 0;
+			String longName = null;
+			long longSize = -1;
+			
+			while (position + TAR_BLOCK <= size) {
+				readFully(channel, header, position);
+				if (isEmptyBlock(header)) {
+					break;
+				}
+				long dataSize = parseOctal(header, 124, 12);
+				byte type = header.get(156);
+				long data = position + TAR_BLOCK;
+				long next = data + padded(dataSize);
+				
+				if (type == 'L') {
+					// GNU long name of the next entry
+					longName = trimNul(readString(channel, data, dataSize));
+					
+				} else if (type == 'x') {
+					// POSIX extended header records of the next entry, "length key=value\n"
+					for (String record : readString(channel, data, dataSize).split("\n")) {
+						int space = record.indexOf(' ');
+						int equals = record.indexOf('=');
+						if (space < 0 || equals < space) {
+							continue;
+						}
+						String key = record.substring(space + 1, equals);
+						if ("path".equals(key)) {
+							longName = record.substring(equals + 1);
+						} else if ("size".equals(key)) {
+							longSize = Long.parseLong(record.substring(equals + 1).trim());
+						}
+					}
+					
+				} else if (type != 'g') {
+					if (longSize >= 0) {
+						dataSize = longSize;
+						next = data + padded(dataSize);
+					}
+					if (type == '0' || type == 0 || type == '7') {
+						Member member = new Member();
+						member.header = position;
+						member.data = data;
+						member.size = dataSize;
+						member.sizeInExtendedHeader = longSize >= 0;
+						members.put(longName != null ? longName : headerName(header), member);
+					}
+					longName = null;
+					longSize = -1;
+				}
+				
+				position = next;
+			}
+		}
+	}
+	
+	/**
+	 * Writes the tar archive anew with the contents of a member replaced, or with 
+	 * the member added at the end. Every other entry is copied as it is stored. 
+	 * @param name String
+	 * @param content Path
+	 * @throws IOException
+	 * @throws CobblerException
+	 */
+	private void rewriteTar(String name, Path content) throws IOException, CobblerException {
+		Member member = members.get(name);
+		if (member != null && member.sizeInExtendedHeader) {
+			throw new CobblerException("The size of " + name + " is kept in an extended header, it can not be replaced.");
+		}
+		final long contentSize = Files.size(content);
+		
+		TextFileWriter.writeAtomically(archive, channel -> {
+			try (FileChannel source = FileChannel.open(archive.toPath(), StandardOpenOption.READ);
+					FileChannel replacement = FileChannel.open(content, StandardOpenOption.READ)) {
+				
+				ByteBuffer header = ByteBuffer.allocate(TAR_BLOCK);
+				long resume;
+				
+				if (member != null) {
+					// everything before the header of the member, including its extended headers
+					transfer(source, 0, member.header, channel);
+					readFully(source, header, member.header);
+					resume = member.data + padded(member.size);
+					
+				} else {
+					if (name.length() > 100) {
+						throw new CobblerException("The name " + name + " is too long to add to a tar archive.");
+					}
+					long end = endOfEntries();
+					transfer(source, 0, end, channel);
+					newHeader(header, name);
+					resume = end;
+				}
+				
+				writeOctal(header, 124, 12, contentSize);
+				writeOctal(header, 136, 12, System.currentTimeMillis() / 1000);
+				writeChecksum(header);
+				header.rewind();
+				while (header.hasRemaining()) {
+					channel.write(header);
+				}
+				
+				transfer(replacement, 0, contentSize, channel);
+				ByteBuffer padding = ByteBuffer.allocate((int) (padded(contentSize) - contentSize));
+				while (padding.hasRemaining()) {
+					channel.write(padding);
+				}
+				
+				// the entries after the member and the end of archive blocks
+				transfer(source, resume, source.size() - resume, channel);
+				if (member == null) {
+					ByteBuffer end = ByteBuffer.allocate(2 * TAR_BLOCK);
+					while (end.hasRemaining()) {
+						channel.write(end);
+					}
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Returns where the entries of the tar archive end. 
+	 * @return long
+	 */
+	private long endOfEntries() {
+		long end = 0;
+		for (Member member : members.values()) {
+			end = Math.max(end, member.data + padded(member.size));
+		}
+		return end;
+	}
+	
+	/**
+	 * Fills a header for a new ustar entry. 
+	 * @param header ByteBuffer
+	 * @param name String
+	 */
+	private static void newHeader(ByteBuffer header, String name) {
+		header.clear();
+		header.put(new byte[TAR_BLOCK]);
+		header.position(0);
+		header.put(name.getBytes(StandardCharsets.UTF_8));
+		writeOctal(header, 100, 8, 0644);
+		writeOctal(header, 108, 8, 0);
+		writeOctal(header, 116, 8, 0);
+		header.put(156, (byte) '0');
+		header.position(257);
+		header.put("ustar\00000".getBytes(StandardCharsets.US_ASCII));
+	}
+	
+	/**
+	 * Copies a range of one channel to the end of another. 
+	 * @param source FileChannel
+	 * @param position long
+	 * @param count long
+	 * @param target FileChannel
+	 * @throws IOException
+	 */
+	private static void transfer(FileChannel source, long position, long count, FileChannel target) throws IOException {
+		long done = 0;
+		while (done < count) {
+			long transferred = source.transferTo(position + done, count - done, target);
+			if (transferred <= 0) {
+				throw new IOException("The archive ended early.");
+			}
+			done += transferred;
+		}
+	}
+	
+	/**
+	 * Fills the buffer from the channel at the given position. 
+	 * @param channel FileChannel
+	 * @param buffer ByteBuffer
+	 * @param position long
+	 * @throws IOException
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		buffer.clear();
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("The archive ended early.");
+			}
+		}
+		buffer.flip();
+	}
+	
+	/**
+	 * Reads the data of an extended header as text. 
+	 * @param channel FileChannel
+	 * @param position long
+	 * @param size long
+	 * @return String
+	 * @throws IOException
+	 */
+	private static String readString(FileChannel channel, long position, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) size);
+		readFully(channel, buffer, position);
+		return new String(buffer.array(), StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Returns the name of the entry of a ustar or old style tar header. 
+	 * @param header ByteBuffer
+	 * @return String
+	 */
+	private static String headerName(ByteBuffer header) {
+		String name = field(header, 0, 100);
+		String prefix = "ustar".equals(field(header, 257, 5)) ? field(header, 345, 155) : "";
+		return prefix.isEmpty() ? name : prefix + "/" + name;
+	}
+	
+	/**
+	 * Returns a NUL terminated text field of a header. 
+	 * @param header ByteBuffer
+	 * @param offset int
+	 * @param length int
+	 * @return String
+	 */
+	private static String field(ByteBuffer header, int offset, int length) {
+		int end = offset;
+		while (end < offset + length && header.get(end) != 0) {
+			end++;
+		}
+		return new String(header.array(), offset, end - offset, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Removes the NUL characters a GNU long name ends with. 
+	 * @param text String
+	 * @return String
+	 */
+	private static String trimNul(String text) {
+		int end = text.length();
+		while (end > 0 && text.charAt(end - 1) == 0) {
+			end--;
+		}
+		return text.substring(0, end);
+	}
+	
+	/**
+	 * Parses an octal number field of a header. 
+	 * @param header ByteBuffer
+	 * @param offset int
+	 * @param length int
+	 * @return long
+	 */
+	private static long parseOctal(ByteBuffer header, int offset, int length) {
+		final int end = offset + length;
+		
+		// GNU tar writes numbers too big for the field in base 256, flagged by the high bit
+		if ((header.get(offset) & 0x80) != 0) {
+			long value = header.get(offset) & 0x7F;
+			for (int i = offset + 1; i < end; i++) {
+				value = (value << 8) | (header.get(i) & 0xFF);
+			}
+			return value;
+		}
+		
+		int i = offset;
+		while (i < end && header.get(i) == ' ') {
+			i++;
+		}
+		long value = 0;
+		for (; i < end && header.get(i) >= '0' && header.get(i) <= '7'; i++) {
+			value = value * 8 + (header.get(i) - '0');
+		}
+		return value;
+	}
+	
+	/**
+	 * Writes an octal number field of a header, ending with a NUL. 
+	 * @param header ByteBuffer
+	 * @param offset int
+	 * @param length int
+	 * @param value long
+	 */
+	private static void writeOctal(ByteBuffer header, int offset, int length, long value) {
+		String octal = Long.toOctalString(value);
+		if (octal.length() > length - 1) {
+			throw new IllegalArgumentException(value + " does not fit in a tar header field.");
+		}
+		for (int i = 0; i < length - 1; i++) {
+			int digit = i - (length - 1 - octal.length());
+			header.put(offset + i, (byte) (digit >= 0 ? octal.charAt(digit) : '0'));
+		}
+		header.put(offset + length - 1, (byte) 0);
+	}
+	
+	/**
+	 * Computes the checksum of a header and writes it into its field. 
+	 * @param header ByteBuffer
+	 */
+	private static void writeChecksum(ByteBuffer header) {
+		for (int i = 148; i < 156; i++) {
+			header.put(i, (byte) ' ');
+		}
+		long sum = 0;
+		for (int i = 0; i < TAR_BLOCK; i++) {
+			sum += header.get(i) & 0xFF;
+		}
+		writeOctal(header, 148, 7, sum);
+		header.put(155, (byte) ' ');
+	}
+	
+	/**
+	 * Returns a boolean indicating if a header block holds only zeros, as the end 
+	 * of an archive does. 
+	 * @param header ByteBuffer
+	 * @return boolean
+	 */
+	private static boolean isEmptyBlock(ByteBuffer header) {
+		for (int i = 0; i < TAR_BLOCK; i++) {
+			if (header.get(i) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the size of data padded to whole blocks. 
+	 * @param size long
+	 * @return long
+	 */
+	private static long padded(long size) {
+		return (size + TAR_BLOCK - 1) / TAR_BLOCK * TAR_BLOCK;
+	}
+
+}
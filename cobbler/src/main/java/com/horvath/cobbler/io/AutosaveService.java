@@ -0,0 +1,344 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.IdentityHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import javax.swing.text.Document;
+
+import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.exception.CobblerException;
+
+/**
+ * Saves a copy of each open document to a sidecar file in the autosave folder of
+ * the settings, so that unsaved work survives a crash without leaving files in the
+ * folders the documents were loaded from. 
+ * <p>
+ * Edits only note the time they were made. Once a document has been left alone
+ * for a quiet period, and at most once per interval, a background thread takes a 
+ * snapshot of the document under its read lock and writes it through the streaming
+ * writers in the format of the file. Each snapshot shares the text the edits since
+ * the last one have not touched, so only the edited part of the document is copied. 
+ * The event thread never waits on the snapshot or the disk, and a burst of edits
+ * results in a single write. 
+ * <p>
+ * A document keeps its sidecar while other documents are viewed, the sidecar is 
+ * only deleted once the document is saved, replaced or closed. A sidecar left by
+ * a crash is offered when its file is opened again. 
+ * 
+ * @author jhorvath
+ */
+public final class AutosaveService {
+	
+	/**
+	 * Added to the name of a file to get the name of its sidecar file. 
+	 */
+	public static final String SIDECAR_SUFFIX = ".autosave";
+	
+	/**
+	 * Name of the sidecar of the first unnamed document, later ones add a number to it.
+	 */
+	static final String UNTITLED_SIDECAR = "Untitled.cob" + SIDECAR_SUFFIX;
+	
+	/**
+	 * Milliseconds without edits before the document is saved.
+	 */
+	static final long QUIET_PERIOD = 2000;
+	
+	private final File folder;
+	private final File untitledSidecar;
+	private final ScheduledExecutorService writer;
+	
+	// guarded by this
+	private boolean enabled = false;
+	private long interval = 0;
+	private final IdentityHashMap<Document, Target> targets = new IdentityHashMap<>();
+	private int writeCount = 0;
+
+	/**
+	 * Constructor. The service saves nothing until it is started and enabled. 
+	 * @param folder File - the folder the sidecars are saved in, created when needed
+	 */
+	public AutosaveService(File folder) {
+		this.folder = folder;
+		this.untitledSidecar = new File(folder, UNTITLED_SIDECAR);
+		this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Cobbler autosave");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * Returns the sidecar file a file is autosaved to. The name of the file is kept
+	 * for the user to recognize, followed by a hash of its path to tell apart files 
+	 * of the same name. 
+	 * @param file File
+	 * @return File
+	 */
+	public File getSidecar(File file) {
+		File absolute = file.getAbsoluteFile();
+		return new File(folder, absolute.getName() + "." + Integer.toHexString(absolute.getPath().hashCode()) 
+				+ SIDECAR_SUFFIX);
+	}
+	
+	/**
+	 * Turns autosaving on or off. 
+	 * @param enabled boolean
+	 * @param intervalSeconds int - the least time between two saves
+	 */
+	public synchronized void setEnabled(boolean enabled, int intervalSeconds) {
+		this.enabled = enabled;
+		this.interval = TimeUnit.SECONDS.toMillis(intervalSeconds);
+		
+		for (Target target : targets.values()) {
+			if (target.scheduled != null) {
+				target.scheduled.cancel(false);
+				target.scheduled = null;
+			}
+			if (enabled && target.pending) {
+				schedule(target);
+			}
+		}
+	}
+	
+	/**
+	 * Starts autosaving a document, replacing the sidecar of its earlier contents. 
+	 * The snapshots are taken by the tracker the state of the document already keeps, 
+	 * so the edits are not followed twice. 
+	 * @param file File - the file the document was loaded from or saved to, may be null
+	 * @param snapshots SnapshotTracker - the tracker of the document
+	 * @param format TextFileFormat - the format of the file, may be null for the default format
+	 * @param recordFormat RecordFormat - the record format of the file, null for a text file
+	 */
+	public synchronized void start(File file, SnapshotTracker snapshots, TextFileFormat format, RecordFormat recordFormat) {
+		final Document document = snapshots.getDocument();
+		stop(document);
+		File sidecar = file != null ? getSidecar(file) : nextUntitledSidecar();
+		targets.put(document, new Target(snapshots, sidecar, format, recordFormat));
+	}
+	
+	/**
+	 * Stops autosaving a document and deletes its sidecar, once any save in progress 
+	 * has finished. 
+	 * @param document Document
+	 */
+	public synchronized void stop(Document document) {
+		Target target = targets.remove(document);
+		if (target == null) {
+			return;
+		}
+		if (target.scheduled != null) {
+			target.scheduled.cancel(false);
+			target.scheduled = null;
+		}
+		target.pending = false;
+		
+		final File stale = target.sidecar;
+		writer.execute(() -> {
+			try {
+				Files.deleteIfExists(stale.toPath());
+			} catch (IOException ex) {
+				Debugger.printLog(ex.getMessage(), AutosaveService.class.getName(), Level.WARNING);
+			}
+		});
+	}
+	
+	/**
+	 * Stops autosaving, deletes the sidecars and waits for the background thread 
+	 * to finish. Called when the application shuts down cleanly. 
+	 */
+	public void close() {
+		synchronized (this) {
+			if (writer.isShutdown()) {
+				return;
+			}
+			for (Document document : targets.keySet().toArray(new Document[0])) {
+				stop(document);
+			}
+			writer.shutdown();
+		}
+		
+		try {
+			writer.awaitTermination(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Notes that a document was edited. Called on the event thread for every edit,
+	 * so it only records the time and makes sure a save is scheduled. 
+	 * @param document Document
+	 */
+	public synchronized void documentChanged(Document document) {
+		Target target = targets.get(document);
+		if (!enabled || target == null) {
+			return;
+		}
+		target.lastEdit = System.currentTimeMillis();
+		target.pending = true;
+		
+		if (target.scheduled == null) {
+			schedule(target);
+		}
+	}
+	
+	/**
+	 * Returns the number of times a document has been saved to a sidecar. 
+	 * @return int
+	 */
+	public synchronized int getWriteCount() {
+		return writeCount;
+	}
+	
+	/**
+	 * Returns the first sidecar for an unnamed document that no other document uses. 
+	 * @return File
+	 */
+	private File nextUntitledSidecar() {
+		final String name = untitledSidecar.getName();
+		final int dot = name.indexOf('.') >= 0 ? name.indexOf('.') : name.length();
+		
+		File sidecar = untitledSidecar;
+		for (int number = 2; isUsed(sidecar); number++) {
+			sidecar = new File(untitledSidecar.getParentFile(), 
+					name.substring(0, dot) + "-" + number + name.substring(dot));
+		}
+		return sidecar;
+	}
+	
+	/**
+	 * Returns a boolean indicating if a document is autosaved to the sidecar. 
+	 * @param sidecar File
+	 * @return boolean
+	 */
+	private boolean isUsed(File sidecar) {
+		for (Target target : targets.values()) {
+			if (target.sidecar.equals(sidecar)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Schedules a save of a document for the end of the quiet period, or the end of 
+	 * the interval since its last save if that is later. 
+	 * @param target Target
+	 */
+	private void schedule(Target target) {
+		final long now = System.currentTimeMillis();
+		final long delay = Math.max(target.lastEdit + QUIET_PERIOD - now, target.lastWrite + interval - now);
+		target.scheduled = writer.schedule(() -> autosave(target), Math.max(0, delay), TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Saves a snapshot of a document to its sidecar. Runs on the background thread. 
+	 * @param target Target
+	 */
+	private void autosave(Target target) {
+		synchronized (this) {
+			target.scheduled = null;
+			if (!enabled || !target.pending || targets.get(target.document) != target) {
+				return;
+			}
+			
+			// edits since the save was scheduled extend the quiet period
+			final long now = System.currentTimeMillis();
+			if (now - target.lastEdit < QUIET_PERIOD || now - target.lastWrite < interval) {
+				schedule(target);
+				return;
+			}
+			
+			target.pending = false;
+			target.lastWrite = now;
+		}
+		
+		try {
+			if (!folder.isDirectory() && !folder.mkdirs()) {
+				throw new CobblerException("Unable to create the autosave folder " + folder.getPath());
+			}
+			DocumentSnapshot snapshot = target.snapshots.snapshot();
+			
+			if (target.recordFormat != null) {
+				new RecordFileWriter(snapshot, target.sidecar, target.recordFormat).write();
+			} else {
+				new TextFileWriter(snapshot, target.sidecar, target.format).write();
+			}
+			
+			synchronized (this) {
+				writeCount++;
+			}
+			Debugger.printLog("Autosaved " + snapshot.length() + " characters to " + target.sidecar.getName(), 
+					this.getClass().getName());
+			
+		} catch (CobblerException ex) {
+			Debugger.printLog("Unable to autosave. " + ex.getMessage(), this.getClass().getName(), Level.WARNING);
+		}
+	}
+	
+	/**
+	 * A document being autosaved, with the sidecar it is saved to. 
+	 */
+	private static final class Target {
+		
+		final Document document;
+		final SnapshotTracker snapshots;
+		final File sidecar;
+		final TextFileFormat format;
+		final RecordFormat recordFormat;
+		
+		// guarded by the service
+		boolean pending = false;
+		long lastEdit = 0;
+		long lastWrite = 0;
+		ScheduledFuture<?> scheduled;
+		
+		/**
+		 * Constructor. 
+		 * @param snapshots SnapshotTracker - the tracker of the document, owned by its state
+		 * @param sidecar File
+		 * @param format TextFileFormat
+		 * @param recordFormat RecordFormat
+		 */
+		Target(SnapshotTracker snapshots, File sidecar, TextFileFormat format, RecordFormat recordFormat) {
+			this.document = snapshots.getDocument();
+			this.snapshots = snapshots;
+			this.sidecar = sidecar;
+			this.format = format;
+			this.recordFormat = recordFormat;
+		}
+	}
+
+}
@@ -0,0 +1,212 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+import com.horvath.cobbler.exception.CobblerException;
+
+/**
+ * The bytes of a file or of a member of an archive, handed to the readers one 
+ * window at a time. A file, or a member stored in a tar archive, is memory mapped.
+ * A compressed member is inflated as it is read, without being extracted. 
+ * <p>
+ * Windows are requested at increasing positions. A window may start before the
+ * end of the previous one, so that bytes of a character or record split across 
+ * two windows are seen again with the next window.
+ * 
+ * @author jhorvath
+ */
+abstract class ByteSource implements Closeable {
+	
+	/**
+	 * Size in bytes of the window of a file that is mapped into memory at a time.
+	 */
+	static final int MAP_WINDOW_SIZE = 16 * 1024 * 1024;
+	
+	/**
+	 * Size in bytes of the window of a compressed member that is kept in memory.
+	 */
+	static final int STREAM_WINDOW_SIZE = 1024 * 1024;
+	
+	/**
+	 * Opens a file, or the archive member the path of the file leads to. 
+	 * @param file File
+	 * @return ByteSource
+	 * @throws IOException
+	 * @throws CobblerException
+	 */
+	static ByteSource open(File file) throws IOException, CobblerException {
+		if (file.isFile()) {
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			return new Mapped(channel, 0, channel.size());
+		}
+		
+		File archive = ArchiveIndex.findArchive(file);
+		if (archive == null) {
+			throw new FileNotFoundException(file.getPath());
+		}
+		return ArchiveIndex.get(archive).openMember(ArchiveIndex.getMemberName(archive, file));
+	}
+	
+	/**
+	 * Returns the number of bytes in the source. 
+	 * @return long
+	 */
+	abstract long size();
+	
+	/**
+	 * Returns the largest window the source hands out. 
+	 * @return int
+	 */
+	abstract int getWindowSize();
+	
+	/**
+	 * Returns a buffer holding the bytes of the source from the given position, 
+	 * with its position at 0 and its limit at the given length. 
+	 * @param position long
+	 * @param length int - no more than the window size or the bytes left
+	 * @return ByteBuffer
+	 * @throws IOException
+	 */
+	abstract ByteBuffer window(long position, int length) throws IOException;
+	
+	/**
+	 * A region of a file that is memory mapped. 
+	 */
+	static final class Mapped extends ByteSource {
+		
+		private final FileChannel channel;
+		private final long start;
+		private final long size;
+		
+		/**
+		 * Constructor. 
+		 * @param channel FileChannel - closed with the source
+		 * @param start long - where the region starts in the file
+		 * @param size long - size of the region
+		 */
+		Mapped(FileChannel channel, long start, long size) {
+			this.channel = channel;
+			this.start = start;
+			this.size = size;
+		}
+
+		@Override
+		long size() {
+			return size;
+		}
+		
+		@Override
+		int getWindowSize() {
+			return MAP_WINDOW_SIZE;
+		}
+
+		@Override
+		ByteBuffer window(long position, int length) throws IOException {
+			return channel.map(MapMode.READ_ONLY, start + position, length);
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+	
+	/**
+	 * A stream read into a buffer that is refilled as the windows move along. 
+	 */
+	static final class Streamed extends ByteSource {
+		
+		private final ReadableByteChannel channel;
+		private final long size;
+		private final ByteBuffer buffer;
+		
+		// position in the source of the first byte in the buffer
+		private long bufferStart = 0;
+		
+		/**
+		 * Constructor. 
+		 * @param stream InputStream - closed with the source
+		 * @param size long - number of bytes in the stream
+		 */
+		Streamed(InputStream stream, long size) {
+			this.channel = Channels.newChannel(stream);
+			this.size = size;
+			this.buffer = ByteBuffer.allocate((int) Math.min(STREAM_WINDOW_SIZE, Math.max(size, 1)));
+			this.buffer.flip();
+		}
+
+		@Override
+		long size() {
+			return size;
+		}
+		
+		@Override
+		int getWindowSize() {
+			return buffer.capacity();
+		}
+
+		@Override
+		ByteBuffer window(long position, int length) throws IOException {
+			if (position < bufferStart || position > bufferStart + buffer.limit()) {
+				throw new IOException("A stream can not be read out of order.");
+			}
+			
+			// keep the bytes from the position on, then fill up the rest of the buffer
+			buffer.position((int) (position - bufferStart));
+			buffer.compact();
+			bufferStart = position;
+			
+			while (buffer.position() < length) {
+				if (channel.read(buffer) < 0) {
+					throw new EOFException("The stream ended " + (length - buffer.position()) + " bytes early.");
+				}
+			}
+			buffer.flip();
+			
+			ByteBuffer window = buffer.duplicate();
+			window.limit(length);
+			return window;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+}
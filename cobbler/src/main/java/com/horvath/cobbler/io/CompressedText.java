@@ -0,0 +1,364 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.io;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+import com.horvath.cobbler.exception.CobblerException;
+
+/**
+ * Text compressed into memory outside the Java heap, for a document that is 
+ * put away while it is not being viewed or for text kept to undo an edit. 
+ * <p>
+ * The text is encoded as UTF-8 and deflated a buffer at a time, so neither 
+ * compressing nor restoring it makes a copy of the whole document. COBOL 
+ * sources compress to a small fraction of the two bytes per character the 
+ * document holds them in.
+ * 
+ * @author jhorvath
+ */
+public final class CompressedText {
+	
+	/**
+	 * Size of the buffers text is encoded, deflated and inflated in. 
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private final ByteBuffer bytes;
+	private final int length;
+	
+	/**
+	 * Constructor. 
+	 * @param bytes ByteBuffer - the deflated text, ready to be read
+	 * @param length int - number of characters in the text
+	 */
+	private CompressedText(ByteBuffer bytes, int length) {
+		this.bytes = bytes;
+		this.length = length;
+	}
+	
+	/**
+	 * Compresses the text of a document, reading it under its read lock. 
+	 * @param document Document
+	 * @return CompressedText
+	 * @throws CobblerException
+	 */
+	public static CompressedText compress(Document document) throws CobblerException {
+		final CompressedText[] result = new CompressedText[1];
+		final BadLocationException[] failure = new BadLocationException[1];
+		
+		document.render(() -> {
+			try {
+				result[0] = compress(document, document.getLength());
+			} catch (BadLocationException ex) {
+				failure[0] = ex;
+			}
+		});
+		
+		if (failure[0] != null) {
+			throw new CobblerException("Unable to compress the document.", failure[0]);
+		}
+		return result[0];
+	}
+	
+	/**
+	 * Compresses the text of a document. 
+	 * @param document Document
+	 * @param length int
+	 * @return CompressedText
+	 * @throws BadLocationException
+	 */
+	private static CompressedText compress(Document document, int length) throws BadLocationException {
+		CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+		ByteBuffer encoded = ByteBuffer.allocate(BUFFER_SIZE * 3);
+		byte[] deflated = new byte[BUFFER_SIZE];
+		ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		
+		Segment segment = new Segment();
+		segment.setPartialReturn(true);
+		
+		try {
+			int offset = 0;
+			while (offset < length) {
+				document.getText(offset, Math.min(length - offset, chars.remaining()), segment);
+				chars.put(segment.array, segment.offset, segment.count);
+				offset += segment.count;
+				
+				// a surrogate pair split by the end of the buffer waits for the next one
+				chars.flip();
+				encoder.encode(chars, encoded, offset == length);
+				chars.compact();
+				out = deflate(deflater, encoded, deflated, out);
+			}
+			
+			chars.flip();
+			encoder.encode(chars, encoded, true);
+			encoder.flush(encoded);
+			out = deflate(deflater, encoded, deflated, out);
+			
+			deflater.finish();
+			while (!deflater.finished()) {
+				out = put(out, deflated, deflater.deflate(deflated));
+			}
+		} finally {
+			deflater.end();
+		}
+		
+		out.flip();
+		return new CompressedText(out, length);
+	}
+	
+	/**
+	 * Compresses a text held in memory, into a buffer no larger than it needs to be. 
+	 * @param text CharSequence
+	 * @return CompressedText
+	 */
+	public static CompressedText compress(CharSequence text) {
+		CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		CharBuffer chars = CharBuffer.wrap(text);
+		ByteBuffer encoded = ByteBuffer.allocate(Math.min(BUFFER_SIZE, text.length() + 16) * 3);
+		byte[] deflated = new byte[BUFFER_SIZE];
+		ByteBuffer out = ByteBuffer.allocateDirect(Math.min(BUFFER_SIZE, text.length() / 4 + 64));
+		
+		try {
+			CoderResult result;
+			do {
+				result = encoder.encode(chars, encoded, true);
+				out = deflate(deflater, encoded, deflated, out);
+			} while (result.isOverflow());
+			
+			encoder.flush(encoded);
+			out = deflate(deflater, encoded, deflated, out);
+			
+			deflater.finish();
+			while (!deflater.finished()) {
+				out = put(out, deflated, deflater.deflate(deflated));
+			}
+		} finally {
+			deflater.end();
+		}
+		
+		// a buffer that grew is cut down to the compressed text, as many small ones may be kept
+		out.flip();
+		if (out.capacity() > out.limit() + out.limit() / 4) {
+			ByteBuffer exact = ByteBuffer.allocateDirect(out.limit());
+			exact.put(out);
+			exact.flip();
+			out = exact;
+		}
+		return new CompressedText(out, text.length());
+	}
+	
+	/**
+	 * Deflates the encoded bytes into the output buffer, growing it as needed. 
+	 * @param deflater Deflater
+	 * @param encoded ByteBuffer - emptied
+	 * @param deflated byte[]
+	 * @param out ByteBuffer
+	 * @return ByteBuffer - the output buffer, which may have been replaced by a larger one
+	 */
+	private static ByteBuffer deflate(Deflater deflater, ByteBuffer encoded, byte[] deflated, ByteBuffer out) {
+		deflater.setInput(encoded.array(), 0, encoded.position());
+		while (!deflater.needsInput()) {
+			out = put(out, deflated, deflater.deflate(deflated));
+		}
+		encoded.clear();
+		return out;
+	}
+	
+	/**
+	 * Adds bytes to a direct buffer, moving it into one twice the size when it is full. 
+	 * @param out ByteBuffer
+	 * @param bytes byte[]
+	 * @param count int
+	 * @return ByteBuffer
+	 */
+	private static ByteBuffer put(ByteBuffer out, byte[] bytes, int count) {
+		if (out.remaining() < count) {
+			ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(out.capacity() * 2, out.position() + count));
+			out.flip();
+			larger.put(out);
+			out = larger;
+		}
+		out.put(bytes, 0, count);
+		return out;
+	}
+	
+	/**
+	 * Appends the text to a document. 
+	 * @param document Document
+	 * @throws CobblerException
+	 */
+	public void restore(Document document) throws CobblerException {
+		try {
+			inflate((chars, count) -> document.insertString(document.getLength(), new String(chars, 0, count), null));
+		} catch (BadLocationException ex) {
+			throw new CobblerException("Unable to restore the compressed document.", ex);
+		}
+	}
+	
+	/**
+	 * Returns the text. 
+	 * @return String
+	 * @throws CobblerException
+	 */
+	public String getText() throws CobblerException {
+		final StringBuilder builder = new StringBuilder(length);
+		try {
+			inflate((chars, count) -> builder.append(chars, 0, count));
+		} catch (BadLocationException ex) {
+			throw new CobblerException("Unable to restore the compressed text.", ex);
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * Receives the decoded text a buffer at a time. 
+	 */
+	private interface TextSink {
+		
+		/**
+		 * Takes the characters at the start of the array. 
+		 * @param chars char[]
+		 * @param count int
+		 * @throws BadLocationException
+		 */
+		void append(char[] chars, int count) throws BadLocationException;
+	}
+	
+	/**
+	 * Inflates and decodes the text, passing it on a buffer at a time. 
+	 * @param sink TextSink
+	 * @throws CobblerException
+	 * @throws BadLocationException
+	 */
+	private void inflate(TextSink sink) throws CobblerException, BadLocationException {
+		CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+		Inflater inflater = new Inflater();
+		ByteBuffer source = bytes.duplicate();
+		byte[] input = new byte[BUFFER_SIZE];
+		ByteBuffer inflated = ByteBuffer.allocate(BUFFER_SIZE);
+		CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+		
+		try {
+			while (!inflater.finished()) {
+				if (inflater.needsInput()) {
+					if (!source.hasRemaining()) {
+						throw new CobblerException("The compressed text is incomplete.");
+					}
+					final int count = Math.min(input.length, source.remaining());
+					source.get(input, 0, count);
+					inflater.setInput(input, 0, count);
+				}
+				
+				final int count = inflater.inflate(inflated.array(), inflated.position(), inflated.remaining());
+				inflated.position(inflated.position() + count);
+				
+				inflated.flip();
+				decode(decoder, inflated, chars, sink, false);
+				inflated.compact();
+			}
+			
+			inflated.flip();
+			decode(decoder, inflated, chars, sink, true);
+			decoder.flush(chars);
+			append(sink, chars);
+			
+		} catch (DataFormatException ex) {
+			throw new CobblerException("Unable to inflate the compressed text.", ex);
+			
+		} finally {
+			inflater.end();
+		}
+	}
+	
+	/**
+	 * Decodes the inflated bytes, leaving an incomplete character in the buffer 
+	 * until the rest of it has been inflated. 
+	 * @param decoder CharsetDecoder
+	 * @param inflated ByteBuffer
+	 * @param chars CharBuffer
+	 * @param sink TextSink
+	 * @param endOfInput boolean
+	 * @throws CobblerException
+	 * @throws BadLocationException
+	 */
+	private static void decode(CharsetDecoder decoder, ByteBuffer inflated, CharBuffer chars, TextSink sink, 
+			boolean endOfInput) throws CobblerException, BadLocationException {
+		CoderResult result;
+		do {
+			result = decoder.decode(inflated, chars, endOfInput);
+			if (result.isError()) {
+				throw new CobblerException("The compressed text cannot be decoded.");
+			}
+			append(sink, chars);
+		} while (result.isOverflow());
+	}
+	
+	/**
+	 * Passes the decoded characters on and empties the buffer. 
+	 * @param sink TextSink
+	 * @param chars CharBuffer
+	 * @throws BadLocationException
+	 */
+	private static void append(TextSink sink, CharBuffer chars) throws BadLocationException {
+		if (chars.position() > 0) {
+			sink.append(chars.array(), chars.position());
+			chars.clear();
+		}
+	}
+	
+	/**
+	 * Returns the number of characters in the text. 
+	 * @return int
+	 */
+	public int length() {
+		return length;
+	}
+	
+	/**
+	 * Returns the number of bytes the compressed text takes up. 
+	 * @return int
+	 */
+	public int getCompressedSize() {
+		return bytes.limit();
+	}
+
+}
@@ -0,0 +1,222 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.io;
+
+import java.util.Arrays;
+
+import javax.swing.text.Segment;
+
+/**
+ * An immutable copy of the text of a document at one version, which can be read 
+ * on any thread while the document keeps being edited. 
+ * <p>
+ * The text is held in chunks that are never changed once made. A snapshot taken
+ * after an edit shares every chunk outside the edited range with the snapshot 
+ * before it, so taking a snapshot costs the edited chunks and the chunk index, 
+ * not a copy of the document. See {@link SnapshotTracker}. 
+ * 
+ * @author jhorvath
+ */
+public final class DocumentSnapshot implements CharSequence {
+	
+	/**
+	 * Number of characters a chunk is made with.
+	 */
+	static final int CHUNK_SIZE = 16 * 1024;
+	
+	private static final char[][] NO_CHUNKS = new char[0][];
+	
+	private final long version;
+	private final char[][] chunks;
+	
+	// offset of the first character of each chunk, with the length at the end
+	private final int[] starts;
+	
+	/**
+	 * Constructor. 
+	 * @param version long
+	 * @param chunks char[][] - which are not copied, and must never be changed
+	 * @param count int - number of chunks in use
+	 */
+	DocumentSnapshot(long version, char[][] chunks, int count) {
+		this.version = version;
+		this.chunks = chunks.length == count ? chunks : Arrays.copyOf(chunks, count);
+		this.starts = new int[count + 1];
+		for (int i = 0; i < count; i++) {
+			starts[i + 1] = starts[i] + chunks[i].length;
+		}
+	}
+	
+	/**
+	 * Returns a snapshot of a text that is not kept in a document. 
+	 * @param text CharSequence
+	 * @param version long
+	 * @return DocumentSnapshot
+	 */
+	public static DocumentSnapshot of(CharSequence text, long version) {
+		final int length = text.length();
+		if (length == 0) {
+			return new DocumentSnapshot(version, NO_CHUNKS, 0);
+		}
+		
+		char[][] chunks = new char[(length + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+		for (int i = 0; i < chunks.length; i++) {
+			final int start = i * CHUNK_SIZE;
+			final int end = Math.min(length, start + CHUNK_SIZE);
+			chunks[i] = new char[end - start];
+			for (int j = start; j < end; j++) {
+				chunks[i][j - start] = text.charAt(j);
+			}
+		}
+		return new DocumentSnapshot(version, chunks, chunks.length);
+	}
+	
+	/**
+	 * Returns the version of the document the snapshot was taken at. 
+	 * @return long
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	@Override
+	public int length() {
+		return starts[chunks.length];
+	}
+
+	@Override
+	public char charAt(int index) {
+		final int chunk = chunkAt(index);
+		return chunks[chunk][index - starts[chunk]];
+	}
+	
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length() || start > end) {
+			throw new IndexOutOfBoundsException("Range " + start + " to " + end + ", length " + length());
+		}
+		
+		char[] chars = new char[end - start];
+		int offset = start;
+		while (offset < end) {
+			final int chunk = chunkAt(offset);
+			final int from = offset - starts[chunk];
+			final int count = Math.min(end - offset, chunks[chunk].length - from);
+			System.arraycopy(chunks[chunk], from, chars, offset - start, count);
+			offset += count;
+		}
+		return new String(chars);
+	}
+	
+	/**
+	 * Points the segment at the text from an offset, in the way of 
+	 * {@link javax.swing.text.Document#getText(int, int, Segment)}. With a partial 
+	 * return the segment ends at the end of a chunk, and nothing is copied. 
+	 * @param offset int
+	 * @param length int
+	 * @param segment Segment
+	 */
+	public void getText(int offset, int length, Segment segment) {
+		if (length == 0) {
+			segment.array = new char[0];
+			segment.offset = 0;
+			segment.count = 0;
+			return;
+		}
+		
+		final int chunk = chunkAt(offset);
+		final int from = offset - starts[chunk];
+		if (segment.isPartialReturn() || from + length <= chunks[chunk].length) {
+			segment.array = chunks[chunk];
+			segment.offset = from;
+			segment.count = Math.min(length, chunks[chunk].length - from);
+			return;
+		}
+		
+		final String text = subSequence(offset, offset + length).toString();
+		segment.array = text.toCharArray();
+		segment.offset = 0;
+		segment.count = length;
+	}
+	
+	/**
+	 * Returns a copy of the whole text. 
+	 * @return String
+	 */
+	@Override
+	public String toString() {
+		return subSequence(0, length()).toString();
+	}
+	
+	/**
+	 * Returns the number of chunks the text is held in. 
+	 * @return int
+	 */
+	int getChunkCount() {
+		return chunks.length;
+	}
+	
+	/**
+	 * Returns a chunk, which must not be changed. 
+	 * @param index int
+	 * @return char[]
+	 */
+	char[] getChunk(int index) {
+		return chunks[index];
+	}
+	
+	/**
+	 * Returns the offset of the first character of a chunk. 
+	 * @param index int
+	 * @return int
+	 */
+	int getChunkStart(int index) {
+		return starts[index];
+	}
+	
+	/**
+	 * Returns the index of the chunk holding the character at an offset. 
+	 * @param offset int
+	 * @return int
+	 */
+	private int chunkAt(int offset) {
+		if (offset < 0 || offset >= length()) {
+			throw new IndexOutOfBoundsException("Index " + offset + ", length " + length());
+		}
+		
+		int low = 0;
+		int high = chunks.length - 1;
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (starts[mid] <= offset) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+}
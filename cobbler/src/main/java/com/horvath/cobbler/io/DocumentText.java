@@ -0,0 +1,117 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.io;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+/**
+ * A live view of the text of a document, which reads the characters where the 
+ * document keeps them instead of copying the text into a String. 
+ * <p>
+ * The characters are fetched a contiguous run at a time with a partial return
+ * {@link Segment}, which for the gap buffer behind the text area means at most 
+ * two fetches for a scan of the whole document. The view must be read on the 
+ * event thread, or inside {@link Document#render(Runnable)}, so that the document
+ * does not change while it is read. 
+ * 
+ * @author jhorvath
+ */
+public final class DocumentText implements CharSequence {
+	
+	private final Document document;
+	private final Segment segment = new Segment();
+	
+	// position in the document of the first character of the segment
+	private int segmentStart = 0;
+	
+	/**
+	 * Constructor. 
+	 * @param document Document
+	 */
+	public DocumentText(Document document) {
+		this.document = document;
+		this.segment.setPartialReturn(true);
+	}
+
+	@Override
+	public int length() {
+		return document.getLength();
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < segmentStart || index >= segmentStart + segment.count) {
+			fetch(index);
+		}
+		return segment.array[segment.offset + index - segmentStart];
+	}
+	
+	/**
+	 * Fetches the run of characters the document keeps together from an index on. 
+	 * @param index int
+	 */
+	private void fetch(int index) {
+		if (index < 0 || index >= document.getLength()) {
+			throw new IndexOutOfBoundsException("Index " + index + ", length " + document.getLength());
+		}
+		try {
+			document.getText(index, document.getLength() - index, segment);
+			segmentStart = index;
+			
+		} catch (BadLocationException ex) {
+			throw new IndexOutOfBoundsException(ex.getMessage());
+		}
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		try {
+			return document.getText(start, end - start);
+			
+		} catch (BadLocationException ex) {
+			throw new IndexOutOfBoundsException(ex.getMessage());
+		}
+	}
+	
+	/**
+	 * Returns a copy of the whole text. 
+	 * @return String
+	 */
+	@Override
+	public String toString() {
+		return subSequence(0, length()).toString();
+	}
+	
+	/**
+	 * Returns the document the view reads. 
+	 * @return Document
+	 */
+	public Document getDocument() {
+		return document;
+	}
+
+}
@@ -0,0 +1,214 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.io;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * Table driven charset for an EBCDIC code page. Each byte decodes through a
+ * 256 entry table and each character encodes through a 64K entry table, a
+ * whole buffer at a time. The tables are taken from the JDK charset of the
+ * code page, except that both NL (0x15) and LF (0x25) decode to '\n', and
+ * '\n' encodes to NL, the line terminator of mainframe text.
+ * <p>
+ * The records of a dataset are not split into lines by these bytes, so the charset
+ * records are read and written in keeps them as data: NL decodes to U+0085 as in
+ * the code page, and LF decodes to the symbol for newline, U+2424, which the code 
+ * page has no byte for, so that neither ends a line of the document. 
+ * @author jhorvath
+ */
+final class EbcdicCharset extends Charset {
+	
+	private static final byte NL = 0x15;
+	private static final byte LF = 0x25;
+	
+	/**
+	 * The character LF decodes to in a record.
+	 */
+	static final char RECORD_LF = '\u2424';
+	
+	/**
+	 * Size of the array bytes of a buffer without a backing array are copied through.
+	 */
+	private static final int SCRATCH_SIZE = 8 * 1024;
+	
+	private final char[] decodeTable = new char[256];
+	private final short[] encodeTable = new short[Character.MAX_VALUE + 1];
+
+	/**
+	 * Constructor. 
+	 * @param codePage EbcdicCodePage
+	 * @param tableSource Charset - JDK charset the tables are built from
+	 * @param records boolean - true to keep NL and LF as data of a record
+	 */
+	EbcdicCharset(EbcdicCodePage codePage, Charset tableSource, boolean records) {
+		super("x-Cobbler-" + codePage.name() + (records ? "-records" : ""), null);
+		
+		CharsetDecoder decoder = tableSource.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ByteBuffer all = ByteBuffer.allocate(256);
+		for (int b = 0; b < 256; b++) {
+			all.put((byte) b);
+		}
+		all.flip();
+		CharBuffer decoded = CharBuffer.allocate(256);
+		decoder.decode(all, decoded, true);
+		decoder.flush(decoded);
+		System.arraycopy(decoded.array(), 0, decodeTable, 0, 256);
+		
+		decodeTable[NL & 0xFF] = records ? '\u0085' : '\n';
+		decodeTable[LF & 0xFF] = records ? RECORD_LF : '\n';
+		
+		Arrays.fill(encodeTable, (short) -1);
+		for (int b = 255; b >= 0; b--) {
+			if (decodeTable[b] != '\uFFFD') {
+				encodeTable[decodeTable[b]] = (short) b;
+			}
+		}
+		encodeTable['\n'] = NL;
+		encodeTable['\u0085'] = NL;
+	}
+
+	@Override
+	public boolean contains(Charset cs) {
+		return cs == this;
+	}
+
+	@Override
+	public CharsetDecoder newDecoder() {
+		return new Decoder(this);
+	}
+
+	@Override
+	public CharsetEncoder newEncoder() {
+		return new Encoder(this);
+	}
+	
+	/**
+	 * Decodes whole buffers through the decode table. 
+	 */
+	private final class Decoder extends CharsetDecoder {
+		
+		private final byte[] scratch = new byte[SCRATCH_SIZE];
+
+		private Decoder(Charset charset) {
+			super(charset, 1f, 1f);
+		}
+
+		@Override
+		protected CoderResult decodeLoop(ByteBuffer in, CharBuffer out) {
+			while (in.hasRemaining()) {
+				if (!out.hasRemaining()) {
+					return CoderResult.OVERFLOW;
+				}
+				
+				byte[] src;
+				int sp;
+				int n = Math.min(in.remaining(), out.remaining());
+				
+				if (in.hasArray()) {
+					src = in.array();
+					sp = in.arrayOffset() + in.position();
+					in.position(in.position() + n);
+				} else {
+					// mapped and direct buffers are copied out in bulk first
+					n = Math.min(n, SCRATCH_SIZE);
+					in.get(scratch, 0, n);
+					src = scratch;
+					sp = 0;
+				}
+				
+				if (out.hasArray()) {
+					char[] dst = out.array();
+					int dp = out.arrayOffset() + out.position();
+					for (int i = 0; i < n; i++) {
+						dst[dp + i] = decodeTable[src[sp + i] & 0xFF];
+					}
+					out.position(out.position() + n);
+				} else {
+					for (int i = 0; i < n; i++) {
+						out.put(decodeTable[src[sp + i] & 0xFF]);
+					}
+				}
+			}
+			return CoderResult.UNDERFLOW;
+		}
+	}
+	
+	/**
+	 * Encodes whole buffers through the encode table. 
+	 */
+	private final class Encoder extends CharsetEncoder {
+		
+		private final byte[] scratch = new byte[SCRATCH_SIZE];
+
+		private Encoder(Charset charset) {
+			// the EBCDIC question mark
+			super(charset, 1f, 1f, new byte[] { 0x6F });
+		}
+
+		@Override
+		protected CoderResult encodeLoop(CharBuffer in, ByteBuffer out) {
+			while (in.hasRemaining()) {
+				if (!out.hasRemaining()) {
+					return CoderResult.OVERFLOW;
+				}
+				
+				int n = Math.min(Math.min(in.remaining(), out.remaining()), SCRATCH_SIZE);
+				byte[] dst = out.hasArray() ? out.array() : scratch;
+				int dp = out.hasArray() ? out.arrayOffset() + out.position() : 0;
+				
+				int encoded = 0;
+				while (encoded < n) {
+					short b = encodeTable[in.get(in.position() + encoded)];
+					if (b < 0) {
+						break;
+					}
+					dst[dp + encoded++] = (byte) b;
+				}
+				
+				in.position(in.position() + encoded);
+				if (out.hasArray()) {
+					out.position(out.position() + encoded);
+				} else {
+					out.put(scratch, 0, encoded);
+				}
+				
+				if (encoded < n) {
+					return CoderResult.unmappableForLength(1);
+				}
+			}
+			return CoderResult.UNDERFLOW;
+		}
+	}
+
+}
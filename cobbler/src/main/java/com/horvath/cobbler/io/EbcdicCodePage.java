@@ -0,0 +1,110 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.io;
+
+import java.nio.charset.Charset;
+
+/**
+ * EBCDIC code pages files can be opened and saved in. 
+ * @author jhorvath
+ */
+public enum EbcdicCodePage {
+	
+	IBM037("IBM-037", "IBM037"),
+	IBM1140("IBM-1140", "IBM01140");
+	
+	private final String displayName;
+	private final String tableSourceName;
+	private Charset charset;
+	private Charset recordCharset;
+	
+	/**
+	 * Constructor. 
+	 * @param displayName String
+	 * @param tableSourceName String - name of the JDK charset the tables are built from
+	 */
+	private EbcdicCodePage(String displayName, String tableSourceName) {
+		this.displayName = displayName;
+		this.tableSourceName = tableSourceName;
+	}
+	
+	/**
+	 * Returns the table driven charset of the code page, building its tables
+	 * the first time it is used.
+	 * @return Charset
+	 */
+	public synchronized Charset getCharset() {
+		if (charset == null) {
+			charset = new EbcdicCharset(this, Charset.forName(tableSourceName), false);
+		}
+		return charset;
+	}
+	
+	/**
+	 * Returns the charset the records of a dataset are decoded and encoded in, in
+	 * which NL and LF are data rather than line terminators. 
+	 * @return Charset
+	 */
+	public synchronized Charset getRecordCharset() {
+		if (recordCharset == null) {
+			recordCharset = new EbcdicCharset(this, Charset.forName(tableSourceName), true);
+		}
+		return recordCharset;
+	}
+	
+	/**
+	 * Returns the code page of the given charset, or null if it is not an EBCDIC
+	 * code page charset.
+	 * @param charset Charset
+	 * @return EbcdicCodePage
+	 */
+	public static EbcdicCodePage fromCharset(Charset charset) {
+		for (EbcdicCodePage codePage : values()) {
+			if (codePage.charset != null && codePage.charset == charset) {
+				return codePage;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns the code page with the given name, or null if there is none.
+	 * @param text String
+	 * @return EbcdicCodePage
+	 */
+	public static EbcdicCodePage fromString(String text) {
+		for (EbcdicCodePage codePage : values()) {
+			if (codePage.name().equalsIgnoreCase(text)) {
+				return codePage;
+			}
+		}
+		return null;
+	}
+	
+	@Override
+	public String toString() {
+		return displayName;
+	}
+
+}
@@ -0,0 +1,591 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.io;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.exception.CobblerException;
+
+/**
+ * An append-only journal of the edits made to the document since it was last
+ * loaded or saved, from which the edits can be replayed after a crash. 
+ * <p>
+ * Edits are recorded as compact insert and remove deltas in memory, which is all
+ * the event thread ever does, and a background thread appends them to the journal
+ * file on a timer. When the journal grows past twice the size of the document it 
+ * is rewritten as a single snapshot of the document, so that its size and the 
+ * cost of replaying it stay proportional to the document.
+ * <p>
+ * The journal starts with a header naming the file the edits apply to, with its
+ * size and modification time so a changed file is not replayed over. Records are
+ * a type byte followed by their fields, text is stored as UTF-16 so that any 
+ * edit is kept exactly. A record cut short by a crash is ignored on replay.
+ * <p>
+ * Each open document has a journal of its own, numbered after the first, and all
+ * of them are written by a single background thread. 
+ * 
+ * @author jhorvath
+ */
+public final class EditJournal {
+	
+	/**
+	 * Milliseconds between writes of the recorded edits to the journal file.
+	 */
+	public static final long FLUSH_INTERVAL = 1000;
+	
+	/**
+	 * Size in bytes the journal must reach before it is compacted into a snapshot.
+	 */
+	static final long MIN_COMPACT_SIZE = 1024 * 1024;
+	
+	private static final int MAGIC = 0x43424A31;
+	private static final byte INSERT = 'I';
+	private static final byte REMOVE = 'R';
+	private static final byte SNAPSHOT = 'S';
+	
+	/**
+	 * Size in bytes of the buffer a snapshot is encoded in before it is written.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	/**
+	 * Writes the journals of all documents. 
+	 */
+	private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Cobbler edit journal");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private final File file;
+	private final ScheduledFuture<?> flushing;
+	
+	// guarded by this, written on the event thread and taken by the writer thread
+	private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+	private final DataOutputStream pendingOut = new DataOutputStream(pending);
+	private byte[] header;
+	private String snapshot;
+	private boolean active = false;
+	private boolean rewriteRequested = false;
+	private boolean deleteRequested = false;
+	private boolean closed = false;
+	private long journalSize = 0;
+	
+	// only used by the writer thread
+	private FileChannel channel;
+
+	/**
+	 * Constructor. The journal records nothing until it is started. 
+	 * @param file File - the journal file
+	 */
+	public EditJournal(File file) {
+		this.file = file;
+		this.flushing = WRITER.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Returns the file of the journal with the given number. The first journal is 
+	 * the base file itself, later ones add their number to its name. 
+	 * @param base File - the file of the first journal
+	 * @param number int
+	 * @return File
+	 */
+	public static File getFile(File base, int number) {
+		return number == 0 ? base : new File(base.getPath() + "." + number);
+	}
+	
+	/**
+	 * Returns the journal files that exist for the given base file, in order. 
+	 * @param base File - the file of the first journal
+	 * @return List<File>
+	 */
+	public static List<File> list(File base) {
+		ArrayList<File> files = new ArrayList<>();
+		if (base.isFile()) {
+			files.add(base);
+		}
+		
+		File[] siblings = base.getAbsoluteFile().getParentFile().listFiles();
+		if (siblings != null) {
+			final String prefix = base.getName() + ".";
+			ArrayList<Integer> numbers = new ArrayList<>();
+			for (File sibling : siblings) {
+				String name = sibling.getName();
+				if (name.startsWith(prefix) && name.length() > prefix.length() 
+						&& name.substring(prefix.length()).chars().allMatch(Character::isDigit)) {
+					try {
+						numbers.add(Integer.valueOf(name.substring(prefix.length())));
+					} catch (NumberFormatException ex) {
+						Debugger.printLog(ex.getMessage(), EditJournal.class.getName(), Level.WARNING);
+					}
+				}
+			}
+			numbers.sort(null);
+			for (Integer number : numbers) {
+				files.add(getFile(base, number.intValue()));
+			}
+		}
+		return files;
+	}
+	
+	/**
+	 * Returns the journal file. 
+	 * @return File
+	 */
+	public File getFile() {
+		return file;
+	}
+	
+	/**
+	 * Starts a new journal for edits to the document, replacing any earlier journal. 
+	 * The document must hold the contents of the base file, an unnamed document is
+	 * journaled from a snapshot of its contents. 
+	 * 
+	 * @param base File - the file the document was loaded from or saved to, may be null
+	 * @param document Document
+	 * @throws CobblerException
+	 */
+	public synchronized void start(File base, Document document) throws CobblerException {
+		boolean named = base != null && base.isFile();
+		
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(MAGIC);
+			out.writeUTF(named ? base.getAbsolutePath() : "");
+			out.writeLong(named ? base.length() : 0);
+			out.writeLong(named ? base.lastModified() : 0);
+			
+			this.header = bytes.toByteArray();
+			this.snapshot = !named && document.getLength() > 0 ? document.getText(0, document.getLength()) : null;
+			
+		} catch (IOException | BadLocationException ex) {
+			throw new CobblerException("Unable to start the edit journal.", ex);
+		}
+		
+		this.pending.reset();
+		this.journalSize = this.header.length + (this.snapshot != null ? 2L * this.snapshot.length() : 0);
+		this.rewriteRequested = true;
+		this.active = true;
+	}
+	
+	/**
+	 * Stops recording edits and deletes the journal. 
+	 */
+	public synchronized void stop() {
+		this.active = false;
+		this.pending.reset();
+		this.snapshot = null;
+		this.rewriteRequested = false;
+		this.deleteRequested = true;
+	}
+	
+	/**
+	 * Stops recording edits, deletes the journal and waits for it to be deleted. 
+	 * Called when the document is closed or the application shuts down cleanly. 
+	 */
+	public void close() {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			stop();
+		}
+		flushing.cancel(false);
+		
+		try {
+			WRITER.submit(this::flush).get(FLUSH_INTERVAL * 2, TimeUnit.MILLISECONDS);
+			
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException | TimeoutException ex) {
+			Debugger.printLog("Unable to delete the edit journal. " + ex.getMessage(), 
+					this.getClass().getName(), Level.WARNING);
+		}
+	}
+	
+	/**
+	 * Writes the recorded edits to the journal file now, and waits until they are written. 
+	 * @throws CobblerException
+	 */
+	public void sync() throws CobblerException {
+		try {
+			WRITER.submit(this::flush).get();
+			
+		} catch (InterruptedException | ExecutionException ex) {
+			throw new CobblerException("Unable to write the edit journal.", ex);
+		}
+	}
+	
+	/**
+	 * Records the insert described by a document event. 
+	 * @param e DocumentEvent
+	 */
+	public synchronized void recordInsert(DocumentEvent e) {
+		if (!active) {
+			return;
+		}
+		
+		try {
+			String text = e.getDocument().getText(e.getOffset(), e.getLength());
+			pendingOut.writeByte(INSERT);
+			pendingOut.writeInt(e.getOffset());
+			pendingOut.writeInt(text.length());
+			pendingOut.writeChars(text);
+			journalSize += 9 + 2L * text.length();
+			
+		} catch (IOException | BadLocationException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+		}
+		compactIfLarge(e.getDocument());
+	}
+	
+	/**
+	 * Records the removal described by a document event. 
+	 * @param e DocumentEvent
+	 */
+	public synchronized void recordRemove(DocumentEvent e) {
+		if (!active) {
+			return;
+		}
+		
+		try {
+			pendingOut.writeByte(REMOVE);
+			pendingOut.writeInt(e.getOffset());
+			pendingOut.writeInt(e.getLength());
+			journalSize += 9;
+			
+		} catch (IOException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+		}
+		compactIfLarge(e.getDocument());
+	}
+	
+	/**
+	 * Replaces the journaled edits with a snapshot of the document once the journal 
+	 * has grown past twice the size of the snapshot. 
+	 * @param document Document
+	 */
+	private void compactIfLarge(Document document) {
+		final long snapshotSize = 2L * document.getLength();
+		if (journalSize < MIN_COMPACT_SIZE || journalSize < 2 * snapshotSize) {
+			return;
+		}
+		
+		try {
+			this.snapshot = document.getText(0, document.getLength());
+			this.pending.reset();
+			this.journalSize = this.header.length + snapshotSize;
+			this.rewriteRequested = true;
+			
+		} catch (BadLocationException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+		}
+	}
+	
+	/**
+	 * Writes the recorded edits to the journal file. Runs on the writer thread. 
+	 */
+	private void flush() {
+		byte[] edits;
+		byte[] rewriteHeader = null;
+		String rewriteSnapshot = null;
+		boolean delete;
+		
+		synchronized (this) {
+			edits = pending.toByteArray();
+			pending.reset();
+			delete = deleteRequested;
+			if (rewriteRequested) {
+				rewriteHeader = header;
+				rewriteSnapshot = snapshot;
+			}
+			deleteRequested = false;
+			rewriteRequested = false;
+			snapshot = null;
+		}
+		
+		try {
+			if (delete) {
+				closeChannel();
+				Files.deleteIfExists(file.toPath());
+			}
+			
+			if (rewriteHeader != null) {
+				closeChannel();
+				final byte[] headerBytes = rewriteHeader;
+				final String snapshotText = rewriteSnapshot;
+				TextFileWriter.writeAtomically(file, out -> {
+					writeFully(out, ByteBuffer.wrap(headerBytes));
+					if (snapshotText != null) {
+						writeSnapshot(out, snapshotText);
+					}
+					writeFully(out, ByteBuffer.wrap(edits));
+				});
+				
+			} else if (edits.length > 0 && file.exists()) {
+				if (channel == null) {
+					channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+				}
+				writeFully(channel, ByteBuffer.wrap(edits));
+				channel.force(false);
+			}
+			
+		} catch (IOException | CobblerException ex) {
+			Debugger.printLog("Unable to write the edit journal. " + ex.getMessage(), 
+					this.getClass().getName(), Level.WARNING);
+		}
+	}
+	
+	/**
+	 * Writes a snapshot record of the document text. 
+	 * @param out FileChannel
+	 * @param text String
+	 * @throws IOException
+	 */
+	private static void writeSnapshot(FileChannel out, String text) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		buffer.put(SNAPSHOT);
+		buffer.putInt(text.length());
+		
+		int position = 0;
+		while (position < text.length()) {
+			int end = Math.min(text.length(), position + buffer.remaining() / 2);
+			buffer.asCharBuffer().put(text, position, end);
+			buffer.position(buffer.position() + 2 * (end - position));
+			position = end;
+			
+			buffer.flip();
+			writeFully(out, buffer);
+			buffer.clear();
+		}
+		buffer.flip();
+		writeFully(out, buffer);
+	}
+	
+	/**
+	 * Writes all of the buffer to the channel. 
+	 * @param out FileChannel
+	 * @param buffer ByteBuffer
+	 * @throws IOException
+	 */
+	private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+	}
+	
+	/**
+	 * Closes the channel edits are appended through. 
+	 * @throws IOException
+	 */
+	private void closeChannel() throws IOException {
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+	
+	/**
+	 * Reads a journal left behind by a session that did not shut down cleanly. 
+	 * @param file File - the journal file
+	 * @return Recovery - null if there is no journal
+	 * @throws CobblerException
+	 */
+	public static Recovery read(File file) throws CobblerException {
+		if (!file.isFile()) {
+			return null;
+		}
+		
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC) {
+				throw new CobblerException("The edit journal is not valid.");
+			}
+			Recovery recovery = new Recovery(in.readUTF(), in.readLong(), in.readLong());
+			
+			// a record cut short by a crash ends the journal
+			try {
+				while (true) {
+					byte type = in.readByte();
+					if (type == INSERT) {
+						int offset = in.readInt();
+						recovery.edits.add(new Edit(type, offset, 0, readText(in)));
+					} else if (type == REMOVE) {
+						recovery.edits.add(new Edit(type, in.readInt(), in.readInt(), null));
+					} else if (type == SNAPSHOT) {
+						recovery.edits.add(new Edit(type, 0, 0, readText(in)));
+					} else {
+						break;
+					}
+				}
+			} catch (EOFException ex) {
+				Debugger.printLog("End of edit journal", EditJournal.class.getName());
+			}
+			return recovery;
+			
+		} catch (IOException ex) {
+			throw new CobblerException("Unable to read the edit journal.", ex);
+		}
+	}
+	
+	/**
+	 * Reads a length prefixed UTF-16 string. 
+	 * @param in DataInputStream
+	 * @return String
+	 * @throws IOException
+	 */
+	private static String readText(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[2 * in.readInt()];
+		in.readFully(bytes);
+		return ByteBuffer.wrap(bytes).asCharBuffer().toString();
+	}
+	
+	/**
+	 * An edit read from a journal. 
+	 */
+	private static final class Edit {
+		
+		final byte type;
+		final int offset;
+		final int length;
+		final String text;
+		
+		/**
+		 * Constructor. 
+		 * @param type byte
+		 * @param offset int
+		 * @param length int
+		 * @param text String
+		 */
+		Edit(byte type, int offset, int length, String text) {
+			this.type = type;
+			this.offset = offset;
+			this.length = length;
+			this.text = text;
+		}
+	}
+	
+	/**
+	 * The edits read from a journal, and the file they apply to. 
+	 */
+	public static final class Recovery {
+		
+		private final String basePath;
+		private final long baseSize;
+		private final long baseModified;
+		private final ArrayList<Edit> edits = new ArrayList<>();
+		
+		/**
+		 * Constructor. 
+		 * @param basePath String
+		 * @param baseSize long
+		 * @param baseModified long
+		 */
+		private Recovery(String basePath, long baseSize, long baseModified) {
+			this.basePath = basePath;
+			this.baseSize = baseSize;
+			this.baseModified = baseModified;
+		}
+		
+		/**
+		 * Returns the file the edits apply to. 
+		 * @return File - null for an unnamed document
+		 */
+		public File getBase() {
+			return basePath.isEmpty() ? null : new File(basePath);
+		}
+		
+		/**
+		 * Returns a boolean indicating if no edits were recorded. 
+		 * @return boolean
+		 */
+		public boolean isEmpty() {
+			return edits.isEmpty();
+		}
+		
+		/**
+		 * Returns a boolean indicating if the edits can be replayed over the base file,
+		 * either because it has not changed since they were recorded or because they
+		 * start from a snapshot. 
+		 * @return boolean
+		 */
+		public boolean isBaseUnchanged() {
+			File base = getBase();
+			if (base == null || (!edits.isEmpty() && edits.get(0).type == SNAPSHOT)) {
+				return true;
+			}
+			return base.isFile() && base.length() == baseSize && base.lastModified() == baseModified;
+		}
+		
+		/**
+		 * Replays the edits on a document holding the contents of the base file. 
+		 * @param document Document
+		 * @throws CobblerException
+		 */
+		public void apply(Document document) throws CobblerException {
+			try {
+				for (Edit edit : edits) {
+					if (edit.type == INSERT) {
+						document.insertString(edit.offset, edit.text, null);
+					} else if (edit.type == REMOVE) {
+						document.remove(edit.offset, edit.length);
+					} else {
+						document.remove(0, document.getLength());
+						document.insertString(0, edit.text, null);
+					}
+				}
+				
+			} catch (BadLocationException ex) {
+				throw new CobblerException("The edit journal does not match the document.", ex);
+			}
+		}
+	}
+
+}
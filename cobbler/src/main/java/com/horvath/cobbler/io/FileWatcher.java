@@ -0,0 +1,234 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import com.horvath.cobbler.application.Debugger;
+
+/**
+ * Watches the file the document was loaded from for changes made outside of the
+ * application. 
+ * <p>
+ * The directory of the file is registered with a {@link WatchService}, whose events
+ * are taken by a background thread. A change is reported once the file has been left
+ * alone for a settle period, so that a program writing the file in several steps 
+ * causes a single reload of the finished file. The size and modification time of 
+ * the file tell a real change from the application's own saves, which are 
+ * acknowledged by watching the file again.
+ * 
+ * @author jhorvath
+ */
+public final class FileWatcher {
+	
+	/**
+	 * Milliseconds without further events before a change is reported. 
+	 */
+	static final long SETTLE_PERIOD = 300;
+	
+	private final Runnable listener;
+	private final ScheduledExecutorService notifier;
+	private WatchService service;
+	private Thread thread;
+	
+	// guarded by this
+	private File file;
+	private WatchKey key;
+	private long knownSize;
+	private long knownModified;
+	private ScheduledFuture<?> scheduled;
+	
+	/**
+	 * Constructor. The watcher reports nothing until it is given a file to watch. 
+	 * @param listener Runnable - told about changes to the file, on a background thread
+	 */
+	public FileWatcher(Runnable listener) {
+		this.listener = listener;
+		this.notifier = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Cobbler file change notifier");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * Starts watching a file, replacing the file watched before. The file as it
+	 * is now is taken as unchanged. 
+	 * @param file File - may be null to stop watching
+	 */
+	public synchronized void watch(File file) {
+		stop();
+		if (file == null || !file.isFile()) {
+			return;
+		}
+		
+		this.file = file.getAbsoluteFile();
+		acknowledge();
+		
+		try {
+			if (service == null) {
+				service = FileSystems.getDefault().newWatchService();
+				thread = new Thread(this::run, "Cobbler file watcher");
+				thread.setDaemon(true);
+				thread.start();
+			}
+			Path directory = this.file.getParentFile().toPath();
+			key = directory.register(service, 
+					StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			
+		} catch (IOException | ClosedWatchServiceException ex) {
+			Debugger.printLog("Could not watch " + file.getName() + ": " + ex.getMessage(), 
+					this.getClass().getName(), Level.WARNING);
+		}
+	}
+	
+	/**
+	 * Stops watching the file. 
+	 */
+	public synchronized void stop() {
+		if (scheduled != null) {
+			scheduled.cancel(false);
+			scheduled = null;
+		}
+		if (key != null) {
+			key.cancel();
+			key = null;
+		}
+		file = null;
+	}
+	
+	/**
+	 * Stops watching for good and ends the background threads. 
+	 */
+	public synchronized void close() {
+		stop();
+		notifier.shutdownNow();
+		if (service != null) {
+			try {
+				service.close();
+			} catch (IOException ex) {
+				Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+			}
+		}
+	}
+	
+	/**
+	 * Returns a boolean indicating if the file differs from the last time it was
+	 * watched or acknowledged. A deleted file has nothing to be reloaded from, so 
+	 * it does not count as changed.
+	 * @return boolean
+	 */
+	public synchronized boolean hasChanged() {
+		return file != null && file.isFile() 
+				&& (file.length() != knownSize || file.lastModified() != knownModified);
+	}
+	
+	/**
+	 * Takes the file as it is now as unchanged. 
+	 */
+	public synchronized void acknowledge() {
+		if (file != null) {
+			knownSize = file.length();
+			knownModified = file.lastModified();
+		}
+	}
+	
+	/**
+	 * Returns the file being watched. 
+	 * @return File - null if no file is watched
+	 */
+	public synchronized File getFile() {
+		return file;
+	}
+	
+	/**
+	 * Takes the events of the watched directories until the watcher is closed. 
+	 */
+	private void run() {
+		try {
+			while (true) {
+				WatchKey taken = service.take();
+				boolean changed = false;
+				for (WatchEvent<?> event : taken.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW 
+							|| (event.context() instanceof Path && isWatched(taken, (Path) event.context()))) {
+						changed = true;
+					}
+				}
+				taken.reset();
+				
+				if (changed) {
+					settle();
+				}
+			}
+			
+		} catch (InterruptedException | ClosedWatchServiceException ex) {
+			Debugger.printLog("File watcher stopped", this.getClass().getName());
+		}
+	}
+	
+	/**
+	 * Returns a boolean indicating if an event is about the watched file. 
+	 * @param taken WatchKey - the key the event was taken from
+	 * @param name Path - the name of the file the event is about
+	 * @return boolean 
+	 */
+	private synchronized boolean isWatched(WatchKey taken, Path name) {
+		return taken == key && file != null && file.getName().equals(name.toString());
+	}
+	
+	/**
+	 * Reports the change once the file has been left alone for the settle period. 
+	 */
+	private synchronized void settle() {
+		if (scheduled != null) {
+			scheduled.cancel(false);
+		}
+		if (file == null || notifier.isShutdown()) {
+			return;
+		}
+		final File changed = file;
+		scheduled = notifier.schedule(() -> {
+			if (hasChanged()) {
+				Debugger.printLog("The file " + changed.getName() + " was changed", this.getClass().getName());
+				listener.run();
+			}
+		}, SETTLE_PERIOD, TimeUnit.MILLISECONDS);
+	}
+
+}
@@ -0,0 +1,489 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import com.horvath.cobbler.exception.CobblerException;
+
+/**
+ * A file too large to be loaded into a document, read a line at a time straight 
+ * from the memory mapped file. 
+ * <p>
+ * Opening the file scans it once for line terminators and keeps only where every 
+ * {@link #INDEX_INTERVAL}th line starts, so the index of a file of some gigabytes 
+ * fits in a few hundred kilobytes. A line is found by starting at the nearest 
+ * indexed line and skipping the lines in between. Reading lines in order, as 
+ * when a screenful is painted or the file is searched, carries on from the line 
+ * read before instead. 
+ * <p>
+ * Only charsets whose line feed is a single byte that can not be part of another 
+ * character can be read this way, which are the single byte charsets, EBCDIC 
+ * included, and UTF-8. 
+ * 
+ * @author jhorvath
+ */
+public final class LargeTextFile implements Closeable {
+	
+	/**
+	 * Number of lines between two lines whose start is kept in the index. 
+	 */
+	static final int INDEX_INTERVAL = 1024;
+	
+	/**
+	 * Number of bytes of a line that are decoded, the rest of a longer line is not shown. 
+	 */
+	public static final int MAX_LINE_LENGTH = 64 * 1024;
+	
+	public static final String ERROR_TOO_MANY_LINES = "The file has too many lines to be viewed.";
+	
+	/**
+	 * Told how far the file has been read while it is indexed or searched. 
+	 */
+	public interface ProgressListener {
+		
+		/**
+		 * Called after each window of the file has been read. Throwing stops the read. 
+		 * @param position long - number of bytes read so far
+		 * @param size long - size of the file in bytes
+		 * @throws CobblerException
+		 */
+		void progress(long position, long size) throws CobblerException;
+	}
+	
+	private final File file;
+	private final Charset charset;
+	private final ByteSource source;
+	private final boolean[] lineEnds;
+	private final int carriageReturn;
+	private final long textStart;
+	
+	private long[] index = new long[16];
+	private int lineCount;
+	
+	// reads the lines asked for by the viewer, a search reads with a cursor of its own
+	private final Cursor cursor;
+	
+	/**
+	 * Constructor. 
+	 * @param file File
+	 * @param charset Charset
+	 * @param source ByteSource - closed with the file
+	 * @param lineEnds boolean[] - the bytes that end a line
+	 * @param carriageReturn int - the byte of a carriage return, or -1
+	 * @param textStart long - where the text starts, after any byte order mark
+	 */
+	private LargeTextFile(File file, Charset charset, ByteSource source, boolean[] lineEnds, 
+			int carriageReturn, long textStart) {
+		
+		this.file = file;
+		this.charset = charset;
+		this.source = source;
+		this.lineEnds = lineEnds;
+		this.carriageReturn = carriageReturn;
+		this.textStart = textStart;
+		this.cursor = new Cursor();
+	}
+	
+	/**
+	 * Opens and indexes a file. Unless a charset is given, the charset is taken from 
+	 * a byte order mark when the file has one and is UTF-8 otherwise. 
+	 * 
+	 * @param file File
+	 * @param charset Charset - charset of the file, or null to detect it
+	 * @param listener ProgressListener - may be null
+	 * @return LargeTextFile - null if the file's charset can not be read a line at a time
+	 * @throws CobblerException
+	 */
+	public static LargeTextFile open(File file, Charset charset, ProgressListener listener) throws CobblerException {
+		ByteSource source = null;
+		try {
+			// only a file on disk can be mapped, an archive member is read as a stream
+			if (!file.isFile()) {
+				return null;
+			}
+			source = ByteSource.open(file);
+			
+			long textStart = 0;
+			if (charset == null) {
+				ByteBuffer head = source.window(0, (int) Math.min(source.size(), 3));
+				
+				if (head.remaining() >= 3 && (head.get(0) & 0xFF) == 0xEF && (head.get(1) & 0xFF) == 0xBB 
+						&& (head.get(2) & 0xFF) == 0xBF) {
+					textStart = 3;
+				} else if (head.remaining() >= 2 && ((head.get(0) & 0xFF) == 0xFE || (head.get(0) & 0xFF) == 0xFF)) {
+					// UTF-16 line feeds are two bytes
+					source.close();
+					return null;
+				}
+				charset = StandardCharsets.UTF_8;
+			}
+			
+			boolean[] lineEnds = lineEnds(charset);
+			if (lineEnds == null) {
+				source.close();
+				return null;
+			}
+			
+			LargeTextFile large = new LargeTextFile(file, charset, source, lineEnds, carriageReturn(charset), textStart);
+			large.buildIndex(listener);
+			return large;
+			
+		} catch (IOException | CobblerException ex) {
+			if (source != null) {
+				try {
+					source.close();
+				} catch (IOException e) {
+					ex.addSuppressed(e);
+				}
+			}
+			if (ex instanceof CobblerException) {
+				throw (CobblerException) ex;
+			}
+			throw new CobblerException("Problem reading file " + file.getName() + ". " + ex.getMessage(), ex);
+		}
+	}
+	
+	/**
+	 * Returns which bytes end a line in the charset, or null if a line feed is not a 
+	 * byte of its own. 
+	 * @param charset Charset
+	 * @return boolean[] - indexed by the unsigned byte
+	 */
+	private static boolean[] lineEnds(Charset charset) {
+		boolean[] lineEnds = new boolean[256];
+		
+		// no byte of a multibyte UTF-8 character is below 0x80
+		if (charset.equals(StandardCharsets.UTF_8)) {
+			lineEnds['\n'] = true;
+			return lineEnds;
+		}
+		if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1.0f) {
+			return null;
+		}
+		
+		// EBCDIC has two line terminators that both decode to a line feed
+		boolean found = false;
+		for (int b = 0; b < 256; b++) {
+			if ("\n".equals(new String(new byte[] { (byte) b }, charset))) {
+				lineEnds[b] = true;
+				found = true;
+			}
+		}
+		return found ? lineEnds : null;
+	}
+	
+	/**
+	 * Returns the byte of a carriage return in a single byte charset. 
+	 * @param charset Charset
+	 * @return int - or -1 if it has none
+	 */
+	private static int carriageReturn(Charset charset) {
+		byte[] bytes = "\r".getBytes(charset);
+		return bytes.length == 1 && "\r".equals(new String(bytes, charset)) ? bytes[0] & 0xFF : -1;
+	}
+	
+	/**
+	 * Scans the file for line terminators, keeping the start of every 
+	 * {@link #INDEX_INTERVAL}th line. 
+	 * @param listener ProgressListener - may be null
+	 * @throws IOException
+	 * @throws CobblerException
+	 */
+	private void buildIndex(ProgressListener listener) throws IOException, CobblerException {
+		final long size = source.size();
+		
+		long lines = 1;
+		int indexed = 1;
+		index[0] = textStart;
+		
+		long position = textStart;
+		while (position < size) {
+			int length = (int) Math.min(size - position, source.getWindowSize());
+			ByteBuffer window = source.window(position, length);
+			
+			for (int i = 0; i < length; i++) {
+				if (lineEnds[window.get(i) & 0xFF]) {
+					if (lines % INDEX_INTERVAL == 0) {
+						if (indexed == index.length) {
+							index = Arrays.copyOf(index, indexed * 2);
+						}
+						index[indexed++] = position + i + 1;
+					}
+					lines++;
+					
+					if (lines >= Integer.MAX_VALUE) {
+						throw new CobblerException(ERROR_TOO_MANY_LINES);
+					}
+				}
+			}
+			position += length;
+			
+			if (listener != null) {
+				listener.progress(position, size);
+			}
+		}
+		
+		this.lineCount = (int) lines;
+		this.index = Arrays.copyOf(index, indexed);
+	}
+	
+	/**
+	 * Returns the file. 
+	 * @return File
+	 */
+	public File getFile() {
+		return file;
+	}
+	
+	/**
+	 * Returns the charset the file is decoded with. 
+	 * @return Charset
+	 */
+	public Charset getCharset() {
+		return charset;
+	}
+	
+	/**
+	 * Returns the number of lines in the file. As in a document, text that ends 
+	 * with a line terminator is followed by an empty last line. 
+	 * @return int
+	 */
+	public int getLineCount() {
+		return lineCount;
+	}
+	
+	/**
+	 * Returns the size of the file in bytes. 
+	 * @return long
+	 */
+	public long getSize() {
+		return source.size();
+	}
+	
+	/**
+	 * Returns the text of a line, without its line terminator. A line longer than 
+	 * {@link #MAX_LINE_LENGTH} bytes is cut short. 
+	 * @param line int - zero based
+	 * @return String
+	 * @throws CobblerException
+	 */
+	public String getLine(int line) throws CobblerException {
+		synchronized (cursor) {
+			return cursor.read(line);
+		}
+	}
+	
+	/**
+	 * Searches the lines for a match of a pattern, starting from a line and going 
+	 * towards the end or the start of the file. The search does not wrap around. 
+	 * 
+	 * @param pattern Pattern
+	 * @param fromLine int - the first line searched
+	 * @param forward boolean
+	 * @param listener ProgressListener - may be null, told how many bytes have been searched
+	 * @return int - the first line with a match, or -1 if there is none
+	 * @throws CobblerException
+	 */
+	public int find(Pattern pattern, int fromLine, boolean forward, ProgressListener listener) throws CobblerException {
+		if (fromLine < 0 || fromLine >= lineCount) {
+			return -1;
+		}
+		
+		Cursor search = new Cursor();
+		if (forward) {
+			for (int line = fromLine; line < lineCount; line++) {
+				if (pattern.matcher(search.read(line)).find()) {
+					return line;
+				}
+				if (listener != null && (line + 1) % INDEX_INTERVAL == 0) {
+					listener.progress(search.lineStart - textStart, source.size() - textStart);
+				}
+			}
+			return -1;
+		}
+		
+		// lines can only be read in order, so each block is searched from its first line
+		for (int block = fromLine / INDEX_INTERVAL; block >= 0; block--) {
+			int found = -1;
+			int last = Math.min(fromLine, block * INDEX_INTERVAL + INDEX_INTERVAL - 1);
+			
+			for (int line = block * INDEX_INTERVAL; line <= last; line++) {
+				if (pattern.matcher(search.read(line)).find()) {
+					found = line;
+				}
+			}
+			if (found >= 0) {
+				return found;
+			}
+			if (listener != null) {
+				listener.progress(source.size() - index[block], source.size() - textStart);
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public void close() throws IOException {
+		source.close();
+	}
+	
+	/**
+	 * Reads lines through a mapped region of the file, remembering where the line 
+	 * after the one read last starts. 
+	 */
+	private final class Cursor {
+		
+		private final CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		
+		private ByteBuffer region;
+		private long regionStart = 0;
+		
+		// the line read last and where it starts
+		private int line = -1;
+		private long lineStart = 0;
+		
+		/**
+		 * Returns the text of a line. 
+		 * @param line int
+		 * @return String
+		 * @throws CobblerException
+		 */
+		String read(int line) throws CobblerException {
+			if (line < 0 || line >= lineCount) {
+				throw new CobblerException("Line " + (line + 1) + " is not in the file.");
+			}
+			
+			try {
+				// carry on from the line read before when it is nearer than the indexed line
+				int indexed = line / INDEX_INTERVAL;
+				if (line < this.line || this.line < indexed * INDEX_INTERVAL) {
+					this.line = indexed * INDEX_INTERVAL;
+					this.lineStart = index[indexed];
+				}
+				while (this.line < line) {
+					this.lineStart = lineEnd(this.lineStart) + 1;
+					this.line++;
+				}
+				
+				long end = lineEnd(lineStart);
+				if (end > lineStart && carriageReturn >= 0 && byteAt(end - 1) == carriageReturn) {
+					end--;
+				}
+				
+				int length = (int) Math.min(end - lineStart, MAX_LINE_LENGTH);
+				if (length == 0) {
+					return "";
+				}
+				return decoder.decode(bytes(lineStart, length)).toString();
+				
+			} catch (IOException ex) {
+				throw new CobblerException("Problem reading file " + file.getName() + ". " + ex.getMessage(), ex);
+			}
+		}
+		
+		/**
+		 * Returns where the line terminator of the line starting at a position is, 
+		 * or the size of the file for the last line. 
+		 * @param position long
+		 * @return long
+		 * @throws IOException
+		 */
+		private long lineEnd(long position) throws IOException {
+			final long size = source.size();
+			while (position < size) {
+				map(position);
+				int limit = region.limit();
+				for (int i = (int) (position - regionStart); i < limit; i++) {
+					if (lineEnds[region.get(i) & 0xFF]) {
+						return regionStart + i;
+					}
+				}
+				position = regionStart + limit;
+			}
+			return size;
+		}
+		
+		/**
+		 * Returns the byte at a position. 
+		 * @param position long
+		 * @return int - unsigned
+		 * @throws IOException
+		 */
+		private int byteAt(long position) throws IOException {
+			map(position);
+			return region.get((int) (position - regionStart)) & 0xFF;
+		}
+		
+		/**
+		 * Returns a buffer of the bytes from a position. 
+		 * @param position long
+		 * @param length int - no more than {@link #MAX_LINE_LENGTH}
+		 * @return ByteBuffer
+		 * @throws IOException
+		 */
+		private ByteBuffer bytes(long position, int length) throws IOException {
+			if (region == null || position < regionStart || position + length > regionStart + region.limit()) {
+				mapFrom(position);
+			}
+			ByteBuffer bytes = region.duplicate();
+			bytes.position((int) (position - regionStart));
+			bytes.limit(bytes.position() + length);
+			return bytes;
+		}
+		
+		/**
+		 * Maps the region of the file holding a position, unless it is mapped already. 
+		 * @param position long
+		 * @throws IOException
+		 */
+		private void map(long position) throws IOException {
+			if (region == null || position < regionStart || position >= regionStart + region.limit()) {
+				mapFrom(position);
+			}
+		}
+		
+		/**
+		 * Maps a region of the file starting at a position. 
+		 * @param position long
+		 * @throws IOException
+		 */
+		private void mapFrom(long position) throws IOException {
+			region = source.window(position, (int) Math.min(source.size() - position, source.getWindowSize()));
+			regionStart = position;
+		}
+	}
+
+}
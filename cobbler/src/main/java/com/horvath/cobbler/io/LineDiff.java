@@ -0,0 +1,344 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes the line level differences between two versions of a text, as the 
+ * smallest set of replacements that turns the old text into the new one. 
+ * <p>
+ * Lines the texts start and end with in common are skipped first, which leaves
+ * little to compare when a file was changed in a few places. The remaining lines
+ * are compared with Myers' O(ND) algorithm on line hashes. When the texts differ in 
+ * more than {@link #MAX_EDIT_DISTANCE} lines, the differing middle of the text is 
+ * replaced as a whole rather than spending time and memory on the exact edits.
+ * 
+ * @author jhorvath
+ */
+public final class LineDiff {
+	
+	/**
+	 * Number of line insertions and deletions beyond which the exact edits are not looked for. 
+	 */
+	static final int MAX_EDIT_DISTANCE = 2000;
+	
+	/**
+	 * A range of the old text and the text that replaces it. 
+	 */
+	public static final class Hunk {
+		
+		private final int offset;
+		private final int length;
+		private final String text;
+		
+		/**
+		 * Constructor. 
+		 * @param offset int - offset of the range in the old text
+		 * @param length int - length of the range in the old text
+		 * @param text String - the replacement
+		 */
+		public Hunk(int offset, int length, String text) {
+			this.offset = offset;
+			this.length = length;
+			this.text = text;
+		}
+
+		public int getOffset() {
+			return offset;
+		}
+
+		public int getLength() {
+			return length;
+		}
+
+		public String getText() {
+			return text;
+		}
+		
+		@Override
+		public String toString() {
+			return "Hunk [offset=" + offset + ", length=" + length + ", text=" + text.length() + " chars]";
+		}
+	}
+	
+	/**
+	 * The lines of a text, as the offsets they start at and their hashes. 
+	 */
+	private static final class Lines {
+		
+		final String text;
+		final int[] starts;
+		final int[] hashes;
+		final int count;
+		
+		/**
+		 * Constructor. Each line includes its '\n', the text after the last '\n' is
+		 * a line when it is not empty.
+		 * @param text String
+		 */
+		Lines(String text) {
+			this.text = text;
+			
+			int lines = 0;
+			for (int i = 0; i < text.length(); i++) {
+				if (text.charAt(i) == '\n') {
+					lines++;
+				}
+			}
+			if (!text.isEmpty() && text.charAt(text.length() - 1) != '\n') {
+				lines++;
+			}
+			
+			this.count = lines;
+			this.starts = new int[lines + 1];
+			this.hashes = new int[lines];
+			
+			int line = 0;
+			int hash = 0;
+			for (int i = 0; i < text.length(); i++) {
+				char c = text.charAt(i);
+				hash = 31 * hash + c;
+				if (c == '\n') {
+					hashes[line] = hash;
+					starts[++line] = i + 1;
+					hash = 0;
+				}
+			}
+			if (line < lines) {
+				hashes[line] = hash;
+			}
+			starts[lines] = text.length();
+		}
+		
+		/**
+		 * Returns the length of a line. 
+		 * @param line int
+		 * @return int
+		 */
+		int length(int line) {
+			return starts[line + 1] - starts[line];
+		}
+		
+		/**
+		 * Returns a boolean indicating if a line equals a line of other text. 
+		 * @param line int
+		 * @param other Lines
+		 * @param otherLine int
+		 * @return boolean
+		 */
+		boolean equals(int line, Lines other, int otherLine) {
+			return hashes[line] == other.hashes[otherLine] 
+					&& length(line) == other.length(otherLine)
+					&& text.regionMatches(starts[line], other.text, other.starts[otherLine], length(line));
+		}
+	}
+	
+	/**
+	 * Computes the replacements that turn the old text into the new text, in order
+	 * of their offsets. Applying them from the last to the first keeps the offsets valid. 
+	 * @param oldText String
+	 * @param newText String
+	 * @return List of Hunk
+	 */
+	public static List<Hunk> diff(String oldText, String newText) {
+		Lines a = new Lines(oldText);
+		Lines b = new Lines(newText);
+		
+		// skip the lines both texts start and end with
+		int prefix = 0;
+		while (prefix < a.count && prefix < b.count && a.equals(prefix, b, prefix)) {
+			prefix++;
+		}
+		int suffix = 0;
+		while (suffix < a.count - prefix && suffix < b.count - prefix 
+				&& a.equals(a.count - 1 - suffix, b, b.count - 1 - suffix)) {
+			suffix++;
+		}
+		
+		List<Hunk> hunks = new ArrayList<>();
+		final int n = a.count - prefix - suffix;
+		final int m = b.count - prefix - suffix;
+		if (n == 0 && m == 0) {
+			return hunks;
+		}
+		
+		int[] matches = match(a, b, prefix, n, m);
+		if (matches == null) {
+			addHunk(hunks, a, b, prefix, prefix + n, prefix, prefix + m);
+			return hunks;
+		}
+		
+		// the lines between two matched lines are replaced
+		int x = 0;
+		int y = 0;
+		for (int i = 0; i < matches.length; i += 2) {
+			addHunk(hunks, a, b, prefix + x, prefix + matches[i], prefix + y, prefix + matches[i + 1]);
+			x = matches[i] + 1;
+			y = matches[i + 1] + 1;
+		}
+		addHunk(hunks, a, b, prefix + x, prefix + n, prefix + y, prefix + m);
+		return hunks;
+	}
+	
+	/**
+	 * Maps an offset in the old text to the matching offset in the text after the 
+	 * replacements. An offset inside a replaced range moves to the start of its replacement. 
+	 * @param hunks List of Hunk - in order of their offsets
+	 * @param offset int
+	 * @return int
+	 */
+	public static int mapOffset(List<Hunk> hunks, int offset) {
+		int shift = 0;
+		for (Hunk hunk : hunks) {
+			if (hunk.getOffset() + hunk.getLength() <= offset) {
+				shift += hunk.getText().length() - hunk.getLength();
+			} else if (hunk.getOffset() < offset) {
+				return hunk.getOffset() + shift;
+			} else {
+				break;
+			}
+		}
+		return offset + shift;
+	}
+	
+	/**
+	 * Adds a hunk replacing a range of old lines with a range of new lines, unless both are empty. 
+	 * @param hunks List of Hunk
+	 * @param a Lines - old lines
+	 * @param b Lines - new lines
+	 * @param aStart int
+	 * @param aEnd int
+	 * @param bStart int
+	 * @param bEnd int
+	 */
+	private static void addHunk(List<Hunk> hunks, Lines a, Lines b, int aStart, int aEnd, int bStart, int bEnd) {
+		if (aStart == aEnd && bStart == bEnd) {
+			return;
+		}
+		hunks.add(new Hunk(a.starts[aStart], a.starts[aEnd] - a.starts[aStart], 
+				b.text.substring(b.starts[bStart], b.starts[bEnd])));
+	}
+	
+	/**
+	 * Finds the longest sequence of matching lines in the middle of the texts with 
+	 * Myers' algorithm. 
+	 * @param a Lines - old lines
+	 * @param b Lines - new lines
+	 * @param offset int - the first line of the middle
+	 * @param n int - number of old lines in the middle
+	 * @param m int - number of new lines in the middle
+	 * @return int[] - pairs of matching old and new lines relative to the offset, in 
+	 * order, or null when the texts differ in too many lines
+	 */
+	private static int[] match(Lines a, Lines b, int offset, int n, int m) {
+		final int max = Math.min(n + m, MAX_EDIT_DISTANCE);
+		
+		// furthest x reached on each diagonal k = x - y, kept for each d to trace back the path
+		List<int[]> trace = new ArrayList<>();
+		int[] v = new int[] { 0, 0, 0 };
+		int distance = -1;
+		
+		for (int d = 0; d <= max && distance < 0; d++) {
+			int[] next = new int[2 * d + 3];
+			for (int k = -d; k <= d; k += 2) {
+				int x;
+				if (k == -d || (k != d && get(v, k - 1) < get(v, k + 1))) {
+					x = get(v, k + 1);
+				} else {
+					x = get(v, k - 1) + 1;
+				}
+				int y = x - k;
+				while (x < n && y < m && a.equals(offset + x, b, offset + y)) {
+					x++;
+					y++;
+				}
+				next[k + d + 1] = x;
+				
+				if (x >= n && y >= m) {
+					distance = d;
+					break;
+				}
+			}
+			trace.add(next);
+			v = next;
+		}
+		
+		if (distance < 0) {
+			return null;
+		}
+		
+		// walk back from the end, collecting the matched lines of each diagonal
+		int[] pairs = new int[2 * Math.min(n, m)];
+		int count = 0;
+		int x = n;
+		int y = m;
+		for (int d = distance; d >= 0; d--) {
+			int k = x - y;
+			int prevX;
+			int prevY;
+			if (d == 0) {
+				prevX = 0;
+				prevY = 0;
+			} else {
+				int[] prev = trace.get(d - 1);
+				int prevK = (k == -d || (k != d && get(prev, k - 1) < get(prev, k + 1))) ? k + 1 : k - 1;
+				prevX = get(prev, prevK);
+				prevY = prevX - prevK;
+			}
+			
+			// the snake after the edit that reached this diagonal
+			int startX = d == 0 ? 0 : (prevX - prevY < k ? prevX + 1 : prevX);
+			while (x > startX) {
+				x--;
+				y--;
+				pairs[count++] = y;
+				pairs[count++] = x;
+			}
+			x = prevX;
+			y = prevY;
+		}
+		
+		// the pairs were collected from the end, as new line before old line
+		int[] matches = new int[count];
+		for (int i = 0; i < count; i++) {
+			matches[i] = pairs[count - 1 - i];
+		}
+		return matches;
+	}
+	
+	/**
+	 * Returns the furthest x reached on a diagonal in a trace row. 
+	 * @param row int[] - the row of step d, holding diagonals -d - 1 to d + 1
+	 * @param k int - the diagonal
+	 * @return int
+	 */
+	private static int get(int[] row, int k) {
+		int d = (row.length - 3) / 2;
+		return row[k + d + 1];
+	}
+
+}
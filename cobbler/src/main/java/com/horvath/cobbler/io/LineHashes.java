@@ -0,0 +1,380 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentEvent.ElementChange;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.Segment;
+
+import com.horvath.cobbler.application.Debugger;
+
+/**
+ * Keeps a hash of each line of a document, updated from its edits, and a 
+ * fingerprint of the whole text made from them. 
+ * <p>
+ * An edit only hashes the lines it touched. The line hashes are kept in blocks, 
+ * and each block holds the polynomial hash of its lines, so the fingerprint is 
+ * folded from the blocks rather than from the text. Two texts with the same 
+ * fingerprint can be taken to be the same text, which tells whether a document 
+ * is back to the text it was saved with. 
+ * 
+ * @author jhorvath
+ */
+public final class LineHashes implements DocumentListener {
+	
+	/**
+	 * Number of lines a block is filled with. Blocks are split once they hold twice as many. 
+	 */
+	static final int BLOCK_SIZE = 256;
+	
+	private static final long BASE = 0x9E3779B97F4A7C15L;
+	private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+	private static final long FNV_PRIME = 0x100000001B3L;
+	
+	/**
+	 * A run of consecutive lines with their combined hash. 
+	 */
+	private static final class Block {
+		
+		long[] hashes;
+		int count;
+		long hash;
+		long power;
+		boolean changed;
+		
+		/**
+		 * Constructor. 
+		 * @param hashes long[] - the line hashes, which the block takes ownership of
+		 * @param count int
+		 */
+		Block(long[] hashes, int count) {
+			this.hashes = hashes;
+			this.count = count;
+			rehash();
+		}
+		
+		/**
+		 * Recomputes the combined hash of the lines and the power of the base it spans. 
+		 */
+		void rehash() {
+			long h = 0;
+			long p = 1;
+			for (int i = 0; i < count; i++) {
+				h = h * BASE + hashes[i];
+				p *= BASE;
+			}
+			hash = h;
+			power = p;
+			changed = false;
+		}
+	}
+	
+	private final Document document;
+	private final List<Block> blocks = new ArrayList<>();
+	private final Segment segment = new Segment();
+	private int lineCount;
+	
+	// folded from the blocks when it is asked for after an edit
+	private long fingerprint;
+	private boolean stale = true;
+	
+	/**
+	 * Constructor. Hashes the lines of the document and starts following its edits. 
+	 * Must be called on the event thread. 
+	 * @param document Document
+	 */
+	public LineHashes(Document document) {
+		this.document = document;
+		this.segment.setPartialReturn(true);
+		
+		document.render(() -> {
+			Element root = document.getDefaultRootElement();
+			long[] hashes = new long[root.getElementCount()];
+			for (int i = 0; i < hashes.length; i++) {
+				hashes[i] = hashLine(root.getElement(i));
+			}
+			insert(0, hashes);
+			
+			// added under the read lock, so no edit falls between hashing and listening
+			document.addDocumentListener(this);
+		});
+	}
+	
+	/**
+	 * Stops following the edits of the document. 
+	 */
+	public void dispose() {
+		document.removeDocumentListener(this);
+	}
+	
+	@Override
+	public void insertUpdate(DocumentEvent e) {
+		update(e);
+	}
+
+	@Override
+	public void removeUpdate(DocumentEvent e) {
+		update(e);
+	}
+
+	@Override
+	public void changedUpdate(DocumentEvent e) {
+		// attribute changes leave the text as it was
+	}
+	
+	/**
+	 * Rehashes the lines an edit replaced or changed. 
+	 * @param e DocumentEvent
+	 */
+	private void update(DocumentEvent e) {
+		Element root = document.getDefaultRootElement();
+		ElementChange change = e.getChange(root);
+		
+		final int index;
+		final int removed;
+		final Element[] added;
+		if (change != null) {
+			index = change.getIndex();
+			removed = change.getChildrenRemoved().length;
+			added = change.getChildrenAdded();
+		} else {
+			// the edit stayed within one line
+			index = root.getElementIndex(e.getOffset());
+			removed = 1;
+			added = new Element[] { root.getElement(index) };
+		}
+		
+		stale = true;
+		
+		// most edits stay within a line, such as typing or replacing its sequence number
+		if (change == null) {
+			set(index, hashLine(added[0]));
+			return;
+		}
+		
+		long[] hashes = new long[added.length];
+		for (int i = 0; i < added.length; i++) {
+			hashes[i] = hashLine(added[i]);
+		}
+		
+		delete(index, removed);
+		insert(index, hashes);
+	}
+	
+	/**
+	 * Replaces the hash of a line. The hash of its block is recomputed when the 
+	 * fingerprint is next asked for, so that a run of edits to the lines of a block 
+	 * rehashes it once. 
+	 * @param index int - the line
+	 * @param hash long
+	 */
+	private void set(int index, long hash) {
+		int block = 0;
+		int local = index;
+		while (block < blocks.size() - 1 && local >= blocks.get(block).count) {
+			local -= blocks.get(block).count;
+			block++;
+		}
+		
+		Block b = blocks.get(block);
+		b.hashes[local] = hash;
+		b.changed = true;
+	}
+	
+	/**
+	 * Returns the hash of the text of a line, including its line feed. The line 
+	 * feed a document always ends with is not part of its text and is left out. 
+	 * @param line Element
+	 * @return long
+	 */
+	private long hashLine(Element line) {
+		final int end = Math.min(line.getEndOffset(), document.getLength());
+		long hash = FNV_OFFSET;
+		
+		try {
+			int offset = line.getStartOffset();
+			while (offset < end) {
+				document.getText(offset, end - offset, segment);
+				for (int i = segment.offset; i < segment.offset + segment.count; i++) {
+					hash = (hash ^ segment.array[i]) * FNV_PRIME;
+				}
+				offset += segment.count;
+			}
+		} catch (BadLocationException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+		}
+		return mix(hash);
+	}
+	
+	/**
+	 * Removes line hashes. 
+	 * @param index int - the first line
+	 * @param count int - number of lines
+	 */
+	private void delete(int index, int count) {
+		int block = 0;
+		int local = index;
+		while (block < blocks.size() && local >= blocks.get(block).count) {
+			local -= blocks.get(block).count;
+			block++;
+		}
+		
+		while (count > 0 && block < blocks.size()) {
+			Block b = blocks.get(block);
+			final int n = Math.min(count, b.count - local);
+			System.arraycopy(b.hashes, local + n, b.hashes, local, b.count - local - n);
+			b.count -= n;
+			count -= n;
+			lineCount -= n;
+			
+			if (b.count == 0) {
+				blocks.remove(block);
+			} else {
+				b.rehash();
+				block++;
+			}
+			local = 0;
+		}
+	}
+	
+	/**
+	 * Inserts line hashes. 
+	 * @param index int - the line the first one becomes
+	 * @param hashes long[]
+	 */
+	private void insert(int index, long[] hashes) {
+		if (hashes.length == 0) {
+			return;
+		}
+		
+		// the block the lines go into, the last one when they are added at the end
+		int block = 0;
+		int local = index;
+		while (block < blocks.size() - 1 && local > blocks.get(block).count) {
+			local -= blocks.get(block).count;
+			block++;
+		}
+		if (blocks.isEmpty()) {
+			blocks.add(new Block(new long[BLOCK_SIZE], 0));
+		}
+		
+		Block b = blocks.get(block);
+		final int count = b.count + hashes.length;
+		long[] merged = count <= b.hashes.length ? b.hashes : new long[count];
+		System.arraycopy(b.hashes, local, merged, local + hashes.length, b.count - local);
+		if (merged != b.hashes) {
+			System.arraycopy(b.hashes, 0, merged, 0, local);
+		}
+		System.arraycopy(hashes, 0, merged, local, hashes.length);
+		lineCount += hashes.length;
+		
+		if (count <= 2 * BLOCK_SIZE) {
+			b.hashes = merged;
+			b.count = count;
+			b.rehash();
+			return;
+		}
+		
+		// a block that grew too large is cut into full blocks
+		blocks.remove(block);
+		for (int start = 0; start < count; start += BLOCK_SIZE) {
+			final int n = Math.min(BLOCK_SIZE, count - start);
+			long[] part = new long[BLOCK_SIZE];
+			System.arraycopy(merged, start, part, 0, n);
+			blocks.add(block++, new Block(part, n));
+		}
+	}
+	
+	/**
+	 * Returns the fingerprint of the text of the document. Must be called on the 
+	 * event thread. 
+	 * @return long
+	 */
+	public long getFingerprint() {
+		if (stale) {
+			long h = 0;
+			for (Block b : blocks) {
+				if (b.changed) {
+					b.rehash();
+				}
+				h = h * b.power + b.hash;
+			}
+			fingerprint = mix(h ^ lineCount);
+			stale = false;
+		}
+		return fingerprint;
+	}
+	
+	/**
+	 * Returns the number of lines of the document. 
+	 * @return int
+	 */
+	public int getLineCount() {
+		return lineCount;
+	}
+	
+	/**
+	 * Returns the fingerprint of a text, the same one a document holding the text has. 
+	 * @param text CharSequence
+	 * @return long
+	 */
+	public static long fingerprint(CharSequence text) {
+		long h = 0;
+		int lines = 0;
+		long line = FNV_OFFSET;
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+			line = (line ^ c) * FNV_PRIME;
+			if (c == '\n') {
+				h = h * BASE + mix(line);
+				lines++;
+				line = FNV_OFFSET;
+			}
+		}
+		// the text after the last line feed is a line, even when it is empty
+		h = h * BASE + mix(line);
+		lines++;
+		return mix(h ^ lines);
+	}
+	
+	/**
+	 * Spreads the bits of a hash. 
+	 * @param z long
+	 * @return long
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+}
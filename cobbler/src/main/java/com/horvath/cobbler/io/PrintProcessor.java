@@ -30,6 +30,7 @@ import java.awt.Graphics2D;
 import java.awt.print.PageFormat;
 import java.awt.print.Printable;
 import java.awt.print.PrinterException;
+import java.util.Arrays;
 
 /**
  * Class for low level operations for printing page. 
@@ -37,15 +38,32 @@ import java.awt.print.PrinterException;
  */
 public class PrintProcessor implements Printable {
 	
-	private String[] data; // array of lines to print
+	private CharSequence data; // text to print
+	private int[] lineStarts; // offsets of the lines to print
+	private int[] lineEnds;
+	private int lineCount;
 	int[] pageBreaks; // array of page break line positions
 	
 	/**
-	 * Constructor. 
-	 * @param data String 
+	 * Constructor. The lines are indexed by their offsets, 
+	 * and only copied out of the text as they are drawn. 
+	 * @param data CharSequence 
 	 */
-	public PrintProcessor(String data) {
-		this.data = data.split("\\R");
+	public PrintProcessor(CharSequence data) {
+		this.data = data;
+		this.lineStarts = new int[64];
+		this.lineEnds = new int[64];
+		
+		TextLines lines = new TextLines(data);
+		while (lines.next()) {
+			if (lineCount == lineStarts.length) {
+				lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+				lineEnds = Arrays.copyOf(lineEnds, lineCount * 2);
+			}
+			lineStarts[lineCount] = lines.getStart();
+			lineEnds[lineCount] = lines.getEnd();
+			lineCount++;
+		}
 	}
 
 	/**
@@ -67,7 +85,7 @@ public class PrintProcessor implements Printable {
 
 		if (pageBreaks == null) {
 			int linesPerPage = (int) (pageFormat.getImageableHeight() / lineHeight) - 7;
-			int numBreaks = (data.length - 1) / linesPerPage;
+			int numBreaks = (lineCount - 1) / linesPerPage;
 			pageBreaks = new int[numBreaks];
 			for (int b = 0; b < numBreaks; b++) {
 				pageBreaks[b] = (b + 1) * linesPerPage;
@@ -91,10 +109,10 @@ public class PrintProcessor implements Printable {
 		 */
 		int y = margin;
 		int start = (pageIndex == 0) ? 0 : pageBreaks[pageIndex - 1];
-		int end = (pageIndex == pageBreaks.length) ? data.length : pageBreaks[pageIndex];
+		int end = (pageIndex == pageBreaks.length) ? lineCount : pageBreaks[pageIndex];
 		for (int line = start; line < end; line++) {
 			y += lineHeight;
-			graphics.drawString(data[line], margin, y);
+			graphics.drawString(data.subSequence(lineStarts[line], lineEnds[line]).toString(), margin, y);
 		}
 
 		/* tell the caller that this page is part of the printed document */
@@ -0,0 +1,230 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.TextFileReader.ChunkHandler;
+
+/**
+ * Performs reading of a record format dataset. The file is memory mapped, or
+ * streamed from the archive it is a member of, and each record is decoded straight
+ * from its slice of the buffer into a line of text. Trailing blanks of FB records are not part of the line.
+ * NL and LF bytes within a record are data, and decode to characters that do not end the line.
+ * @author jhorvath
+ */
+public final class RecordFileReader {
+	
+	/**
+	 * Number of characters decoded before they are handed off to the receiver.
+	 * Always holds at least one whole record.
+	 */
+	private static final int CHUNK_SIZE = 256 * 1024;
+	
+	/**
+	 * The EBCDIC blank FB records are padded with.
+	 */
+	static final byte BLANK = 0x40;
+	
+	private File file;
+	private RecordFormat format;
+	private long recordCount;
+	
+	/**
+	 * Constructor. 
+	 * @param file File
+	 * @param format RecordFormat
+	 */
+	public RecordFileReader(File file, RecordFormat format) {
+		this.file = file;
+		this.format = format;
+	}
+	
+	/**
+	 * Reads the records of the file as a String, each line followed by a line separator. 
+	 * @return String
+	 * @throws CobblerException
+	 */
+	public String read() throws CobblerException {
+		final String separator = System.lineSeparator();
+		StringBuilder sb = new StringBuilder((int) Math.min(file.length(), Integer.MAX_VALUE - 8));
+		
+		read((chars, length) -> {
+			int start = 0;
+			for (int i = 0; i < length; i++) {
+				if (chars[i] == '\n') {
+					sb.append(chars, start, i - start).append(separator);
+					start = i + 1;
+				}
+			}
+			sb.append(chars, start, length - start);
+		});
+		return sb.toString();
+	}
+	
+	/**
+	 * Reads the records of the file and appends them to the end of the given
+	 * document, one line per record.
+	 * @param document Document
+	 * @throws CobblerException
+	 */
+	public void read(Document document) throws CobblerException {
+		read((chars, length) -> {
+			try {
+				document.insertString(document.getLength(), new String(chars, 0, length), null);
+			} catch (BadLocationException ex) {
+				throw new CobblerException("Problem reading file " + this.file.getName() + "." + ex.getMessage(), ex);
+			}
+		});
+	}
+	
+	/**
+	 * Reads the records of the file and passes them to the given handler in
+	 * chunks, each record ending with '\n'.
+	 * @param handler ChunkHandler
+	 * @throws CobblerException
+	 */
+	public void read(ChunkHandler handler) throws CobblerException {
+		CharsetDecoder decoder = format.getCodePage().getRecordCharset().newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+		
+		CharBuffer decoded = CharBuffer.allocate(CHUNK_SIZE);
+		recordCount = 0;
+		
+		try (ByteSource source = ByteSource.open(this.file)) {
+			
+			final long size = source.size();
+			long position = 0;
+			
+			while (position < size) {
+				final long remaining = size - position;
+				final boolean lastWindow = remaining <= source.getWindowSize();
+				ByteBuffer window = source.window(position, (int) Math.min(remaining, source.getWindowSize()));
+				
+				final int limit = window.limit();
+				int offset = 0;
+				
+				while (offset < limit) {
+					int start;
+					int end;
+					int next;
+					
+					if (format.getType() == RecordFormat.Type.FB) {
+						if (offset + format.getRecordLength() > limit && !lastWindow) {
+							// the record continues in the next window
+							break;
+						}
+						start = offset;
+						next = Math.min(offset + format.getRecordLength(), limit);
+						end = next;
+						while (end > start && window.get(end - 1) == BLANK) {
+							end--;
+						}
+						
+					} else {
+						if (offset + RecordFormat.RDW_LENGTH > limit) {
+							if (!lastWindow) {
+								break;
+							}
+							throw new CobblerException("The last record of file " + this.file.getName() 
+									+ " has no complete record descriptor word.");
+						}
+						int length = window.getShort(offset) & 0xFFFF;
+						if (length < RecordFormat.RDW_LENGTH || window.getShort(offset + 2) != 0) {
+							throw new CobblerException("Invalid record descriptor word at byte " + (position + offset) 
+									+ " of file " + this.file.getName() + ".");
+						}
+						if (offset + length > limit) {
+							if (!lastWindow) {
+								break;
+							}
+							throw new CobblerException("The last record of file " + this.file.getName() 
+									+ " is shorter than its record descriptor word.");
+						}
+						start = offset + RecordFormat.RDW_LENGTH;
+						end = offset + length;
+						next = end;
+					}
+					
+					if (decoded.remaining() <= end - start) {
+						handOff(decoded, handler);
+					}
+					
+					// decode the slice of the mapped buffer holding the record
+					window.limit(end);
+					window.position(start);
+					CoderResult result = decoder.decode(window, decoded, false);
+					if (result.isError()) {
+						result.throwException();
+					}
+					window.limit(limit);
+					
+					decoded.put('\n');
+					recordCount++;
+					offset = next;
+				}
+				
+				position += offset;
+			}
+			
+			handOff(decoded, handler);
+			
+		} catch (IOException ex) {
+			throw new CobblerException("Problem reading file " + this.file.getName() + "." + ex.getMessage(), ex);
+		}
+	}
+	
+	/**
+	 * Passes the decoded records to the handler and clears the buffer. 
+	 * @param decoded CharBuffer
+	 * @param handler ChunkHandler
+	 * @throws CobblerException
+	 */
+	private void handOff(CharBuffer decoded, ChunkHandler handler) throws CobblerException {
+		if (decoded.position() > 0) {
+			handler.handle(decoded.array(), decoded.position());
+		}
+		decoded.clear();
+	}
+
+	/**
+	 * Returns the number of records read. 
+	 * @return long
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+}
@@ -0,0 +1,217 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+import com.horvath.cobbler.exception.CobblerException;
+
+/**
+ * Performs writing of text to a record format dataset, one record per line.
+ * FB records are padded with blanks to the record length, VB records are
+ * given a record descriptor word. The file is replaced atomically like a
+ * text file.
+ * @author jhorvath
+ */
+public final class RecordFileWriter {
+	
+	/**
+	 * Size in bytes of the buffer records are collected in before they are written.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private File file;
+	private DocumentSnapshot text;
+	private Document document;
+	private RecordFormat format;
+	
+	private CharsetEncoder encoder;
+	private CharBuffer line;
+	private ByteBuffer record;
+	private ByteBuffer buffer;
+	private int lineNumber;
+	
+	/**
+	 * Constructor. 
+	 * @param document Document
+	 * @param file File
+	 * @param format RecordFormat
+	 */
+	public RecordFileWriter(Document document, File file, RecordFormat format) {
+		this.document = document;
+		this.file = file;
+		this.format = format;
+	}
+	
+	/**
+	 * Constructor. 
+	 * @param data String
+	 * @param file File
+	 * @param format RecordFormat
+	 */
+	public RecordFileWriter(String data, File file, RecordFormat format) {
+		this(DocumentSnapshot.of(data, 0), file, format);
+	}
+	
+	/**
+	 * Constructor. 
+	 * @param text DocumentSnapshot
+	 * @param file File
+	 * @param format RecordFormat
+	 */
+	public RecordFileWriter(DocumentSnapshot text, File file, RecordFormat format) {
+		this.text = text;
+		this.file = file;
+		this.format = format;
+	}
+	
+	/**
+	 * Writes each line of the text as a record. 
+	 * @throws CobblerException when a line does not fit in a record or cannot
+	 * be encoded in the code page; the file is then left untouched
+	 */
+	public void write() throws CobblerException {
+		TextFileWriter.writeAtomically(this.file, channel -> {
+			encoder = format.getCodePage().getRecordCharset().newEncoder()
+					.onMalformedInput(CodingErrorAction.REPORT)
+					.onUnmappableCharacter(CodingErrorAction.REPORT);
+			line = CharBuffer.allocate(format.getMaxLineLength());
+			record = ByteBuffer.allocate(format.getRecordLength());
+			buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, format.getRecordLength()));
+			lineNumber = 1;
+			
+			Segment segment = new Segment();
+			segment.setPartialReturn(true);
+			
+			final int length = this.document != null ? this.document.getLength() : this.text.length();
+			int offset = 0;
+			while (offset < length) {
+				if (this.document != null) {
+					this.document.getText(offset, length - offset, segment);
+				} else {
+					this.text.getText(offset, length - offset, segment);
+				}
+				writeLines(channel, segment);
+				offset += segment.count;
+			}
+			
+			// text after the last line terminator is a record as well
+			if (line.position() > 0) {
+				writeRecord(channel);
+			}
+			drain(channel);
+		});
+	}
+	
+	/**
+	 * Collects the characters of the segment into lines and writes each
+	 * completed line as a record.
+	 * @param channel FileChannel
+	 * @param segment Segment
+	 * @throws IOException
+	 * @throws CobblerException
+	 */
+	private void writeLines(FileChannel channel, Segment segment) throws IOException, CobblerException {
+		final int end = segment.offset + segment.count;
+		
+		for (int i = segment.offset; i < end; i++) {
+			char c = segment.array[i];
+			
+			// CR is dropped, text read as a String holds platform line separators
+			if (c == '\n') {
+				writeRecord(channel);
+			} else if (c != '\r') {
+				if (!line.hasRemaining()) {
+					throw new CobblerException("Line " + lineNumber + " is longer than the " 
+							+ format.getMaxLineLength() + " characters a record can hold.");
+				}
+				line.put(c);
+			}
+		}
+	}
+	
+	/**
+	 * Encodes the collected line into a record and adds it to the buffer. 
+	 * @param channel FileChannel
+	 * @throws IOException
+	 * @throws CobblerException
+	 */
+	private void writeRecord(FileChannel channel) throws IOException, CobblerException {
+		line.flip();
+		record.clear();
+		if (format.getType() == RecordFormat.Type.VB) {
+			record.position(RecordFormat.RDW_LENGTH);
+		}
+		
+		encoder.reset();
+		CoderResult result = encoder.encode(line, record, true);
+		if (result.isError()) {
+			throw new CobblerException("Line " + lineNumber + " has characters that cannot be saved in " 
+					+ format.getCodePage() + ".");
+		}
+		
+		if (format.getType() == RecordFormat.Type.FB) {
+			Arrays.fill(record.array(), record.position(), record.limit(), RecordFileReader.BLANK);
+			record.position(record.limit());
+		} else {
+			record.putShort(0, (short) record.position());
+			record.putShort(2, (short) 0);
+		}
+		record.flip();
+		
+		if (buffer.remaining() < record.remaining()) {
+			drain(channel);
+		}
+		buffer.put(record);
+		
+		line.clear();
+		lineNumber++;
+	}
+	
+	/**
+	 * Writes the contents of the buffer to the channel and clears the buffer. 
+	 * @param channel FileChannel
+	 * @throws IOException
+	 */
+	private void drain(FileChannel channel) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+}
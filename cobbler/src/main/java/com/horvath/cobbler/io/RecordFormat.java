@@ -0,0 +1,141 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.io;
+
+/**
+ * Record format of a dataset downloaded from the mainframe in binary mode.
+ * Such files have no line terminators: FB records all have the record length,
+ * VB records start with a record descriptor word (RDW) holding their length.
+ * Records are EBCDIC text in a code page and are shown as editor lines.
+ * @author jhorvath
+ */
+public final class RecordFormat {
+	
+	/**
+	 * Largest record length a dataset can have. 
+	 */
+	public static final int MAX_RECORD_LENGTH = 32760;
+	
+	/**
+	 * Length of the record descriptor word in front of each VB record. 
+	 */
+	public static final int RDW_LENGTH = 4;
+	
+	/**
+	 * Record length used when none is given, a card image. 
+	 */
+	public static final int DEFAULT_RECORD_LENGTH = 80;
+
+	/**
+	 * Supported record formats. 
+	 */
+	public enum Type {
+		FB,
+		VB
+	}
+	
+	private final Type type;
+	private final int recordLength;
+	private final EbcdicCodePage codePage;
+	
+	/**
+	 * Constructor. 
+	 * @param type Type
+	 * @param recordLength int - LRECL, which includes the RDW for VB records
+	 * @param codePage EbcdicCodePage - code page of the record text
+	 */
+	public RecordFormat(Type type, int recordLength, EbcdicCodePage codePage) {
+		if (type == null || codePage == null) {
+			throw new IllegalArgumentException("The record type and code page must not be null.");
+		}
+		final int minimum = type == Type.VB ? RDW_LENGTH + 1 : 1;
+		if (recordLength < minimum || recordLength > MAX_RECORD_LENGTH) {
+			throw new IllegalArgumentException("The record length must be between " + minimum + " and " 
+					+ MAX_RECORD_LENGTH + ".");
+		}
+		this.type = type;
+		this.recordLength = recordLength;
+		this.codePage = codePage;
+	}
+	
+	/**
+	 * Returns the longest line, in characters, a record can hold. 
+	 * @return int
+	 */
+	public int getMaxLineLength() {
+		return type == Type.VB ? recordLength - RDW_LENGTH : recordLength;
+	}
+	
+	/**
+	 * Returns the same record format in another code page. 
+	 * @param codePage EbcdicCodePage
+	 * @return RecordFormat
+	 */
+	public RecordFormat withCodePage(EbcdicCodePage codePage) {
+		return new RecordFormat(type, recordLength, codePage);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public int getRecordLength() {
+		return recordLength;
+	}
+
+	public EbcdicCodePage getCodePage() {
+		return codePage;
+	}
+	
+	/**
+	 * Parses a record format from the text returned by toString().
+	 * @param text String
+	 * @return RecordFormat - null if the text is not a valid record format
+	 */
+	public static RecordFormat fromString(String text) {
+		if (text == null) {
+			return null;
+		}
+		String[] parts = text.trim().split(",");
+		if (parts.length != 3) {
+			return null;
+		}
+		
+		try {
+			Type type = Type.valueOf(parts[0]);
+			EbcdicCodePage codePage = EbcdicCodePage.fromString(parts[2]);
+			return codePage != null ? new RecordFormat(type, Integer.parseInt(parts[1]), codePage) : null;
+			
+		} catch (IllegalArgumentException ex) {
+			// includes NumberFormatException
+			return null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return type.name() + "," + recordLength + "," + codePage.name();
+	}
+
+}
@@ -0,0 +1,214 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.io;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The documents that were open when the application was last used, with where 
+ * each was being viewed, and the settings of the last search. 
+ * <p>
+ * A session is written as a few bytes per document: a header, the search text 
+ * and options, then the path, caret and scroll position of each document. 
+ * Unnamed documents are not part of a session, their text is recovered from 
+ * the edit journal instead. 
+ * 
+ * @author jhorvath
+ */
+public final class Session {
+	
+	private static final int MAGIC = 0x43425331;
+	private static final int VERSION = 1;
+	
+	public static final int MATCH_CASE = 1;
+	public static final int WHOLE_WORD = 2;
+	public static final int REGULAR_EXPRESSION = 4;
+	public static final int SEARCH_FORWARD = 8;
+	public static final int MARK_ALL = 16;
+	
+	/**
+	 * Longest search or replace text kept, a longer one is left out of the session. 
+	 */
+	static final int MAX_SEARCH_LENGTH = 4096;
+	
+	private final ArrayList<Entry> entries = new ArrayList<>();
+	private int selected = -1;
+	private String searchFor = "";
+	private String replaceWith = "";
+	private int searchOptions = SEARCH_FORWARD;
+	
+	/**
+	 * Where a document of the session was being viewed. 
+	 */
+	public static final class Entry {
+		
+		private final File file;
+		private final int caret;
+		private final int topLine;
+		private final int scrollX;
+		
+		/**
+		 * Constructor. 
+		 * @param file File
+		 * @param caret int - offset of the caret, or the line gone to in a file viewed a line at a time
+		 * @param topLine int - the first line in view
+		 * @param scrollX int - how far the view is scrolled to the right, in pixels
+		 */
+		public Entry(File file, int caret, int topLine, int scrollX) {
+			this.file = file;
+			this.caret = caret;
+			this.topLine = topLine;
+			this.scrollX = scrollX;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public int getCaret() {
+			return caret;
+		}
+
+		public int getTopLine() {
+			return topLine;
+		}
+
+		public int getScrollX() {
+			return scrollX;
+		}
+	}
+	
+	/**
+	 * Adds a document to the session. 
+	 * @param entry Entry
+	 */
+	public void addEntry(Entry entry) {
+		entries.add(entry);
+	}
+	
+	/**
+	 * Returns the documents of the session in the order of their tabs. 
+	 * @return List<Entry>
+	 */
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+	
+	/**
+	 * Returns the document that was being viewed. 
+	 * @return int - index of the entry, or -1 if no document of the session was being viewed
+	 */
+	public int getSelected() {
+		return selected;
+	}
+
+	public void setSelected(int selected) {
+		this.selected = selected;
+	}
+	
+	public String getSearchFor() {
+		return searchFor;
+	}
+	
+	public String getReplaceWith() {
+		return replaceWith;
+	}
+	
+	/**
+	 * Returns the options of the last search. 
+	 * @return int - the options that were on, such as {@link #MATCH_CASE}
+	 */
+	public int getSearchOptions() {
+		return searchOptions;
+	}
+	
+	/**
+	 * Sets the text and options of the last search. 
+	 * @param searchFor String
+	 * @param replaceWith String
+	 * @param searchOptions int - the options that were on, such as {@link #MATCH_CASE}
+	 */
+	public void setSearch(String searchFor, String replaceWith, int searchOptions) {
+		this.searchFor = searchFor != null && searchFor.length() <= MAX_SEARCH_LENGTH ? searchFor : "";
+		this.replaceWith = replaceWith != null && replaceWith.length() <= MAX_SEARCH_LENGTH ? replaceWith : "";
+		this.searchOptions = searchOptions;
+	}
+	
+	/**
+	 * Writes the session. 
+	 * @param out DataOutputStream
+	 * @throws IOException
+	 */
+	void write(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeUTF(searchFor);
+		out.writeUTF(replaceWith);
+		out.writeByte(searchOptions);
+		out.writeInt(selected);
+		
+		out.writeInt(entries.size());
+		for (Entry entry : entries) {
+			out.writeUTF(entry.getFile().getAbsolutePath());
+			out.writeInt(entry.getCaret());
+			out.writeInt(entry.getTopLine());
+			out.writeInt(entry.getScrollX());
+		}
+	}
+	
+	/**
+	 * Reads a session. 
+	 * @param in DataInputStream
+	 * @return Session - null if the data is not a session this version can read
+	 * @throws IOException
+	 */
+	static Session read(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+			return null;
+		}
+		
+		Session session = new Session();
+		session.searchFor = in.readUTF();
+		session.replaceWith = in.readUTF();
+		session.searchOptions = in.readByte();
+		session.selected = in.readInt();
+		
+		final int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			session.entries.add(new Entry(new File(in.readUTF()), in.readInt(), in.readInt(), in.readInt()));
+		}
+		
+		if (session.selected >= count) {
+			session.selected = -1;
+		}
+		return session;
+	}
+
+}
@@ -0,0 +1,243 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.io;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import com.horvath.cobbler.application.Debugger;
+import com.horvath.cobbler.exception.CobblerException;
+
+/**
+ * The file the session is kept in between runs of the application. 
+ * <p>
+ * The session is read on a background thread while the window is being built, 
+ * and written on the same thread whenever it changes. Changes only hand over 
+ * the latest session, so a burst of them results in a single write. The file is
+ * written next to the session file and moved over it, so a crash while writing 
+ * leaves the previous session behind rather than half of the new one. A session
+ * that is the same as the one written last is not written again. 
+ * 
+ * @author jhorvath
+ */
+public final class SessionFile {
+	
+	/**
+	 * Milliseconds a change waits for more changes before the session is written.
+	 */
+	static final long WRITE_DELAY = 500;
+	
+	private final File file;
+	private final ScheduledExecutorService writer;
+	
+	// guarded by this
+	private Session pending;
+	private boolean scheduled = false;
+	private int writeCount = 0;
+	
+	// only used by the background thread
+	private byte[] written;
+	
+	/**
+	 * Constructor. 
+	 * @param file File - the session file
+	 */
+	public SessionFile(File file) {
+		this.file = file;
+		this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Cobbler session");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * Starts reading the session file on the background thread. 
+	 * @return Future<Session> - the session, or null if there is none that can be read
+	 */
+	public Future<Session> readInBackground() {
+		return writer.submit(() -> {
+			try {
+				return read(file);
+				
+			} catch (CobblerException ex) {
+				Debugger.printLog(ex.getMessage(), SessionFile.class.getName(), Level.WARNING);
+				return null;
+			}
+		});
+	}
+	
+	/**
+	 * Reads a session file. 
+	 * @param file File
+	 * @return Session - null if there is no session file, or it was written by another version
+	 * @throws CobblerException
+	 */
+	public static Session read(File file) throws CobblerException {
+		if (!file.isFile()) {
+			return null;
+		}
+		
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			return Session.read(in);
+			
+		} catch (EOFException ex) {
+			throw new CobblerException("The session file is cut short.", ex);
+		} catch (IOException ex) {
+			throw new CobblerException("Unable to read the session file. " + ex.getMessage(), ex);
+		}
+	}
+	
+	/**
+	 * Writes a session file, replacing it in one step. 
+	 * @param session Session
+	 * @param file File
+	 * @throws CobblerException
+	 */
+	public static void write(Session session, File file) throws CobblerException {
+		write(encode(session), file);
+	}
+	
+	/**
+	 * Returns the bytes a session is written as. 
+	 * @param session Session
+	 * @return byte[]
+	 * @throws CobblerException
+	 */
+	private static byte[] encode(Session session) throws CobblerException {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			session.write(new DataOutputStream(bytes));
+			return bytes.toByteArray();
+			
+		} catch (IOException ex) {
+			throw new CobblerException("Unable to write the session file. " + ex.getMessage(), ex);
+		}
+	}
+	
+	/**
+	 * Writes the bytes of a session to a file, replacing it in one step. 
+	 * @param bytes byte[]
+	 * @param file File
+	 * @throws CobblerException
+	 */
+	private static void write(byte[] bytes, File file) throws CobblerException {
+		File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+		
+		try {
+			Files.write(temp.toPath(), bytes);
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			
+		} catch (IOException ex) {
+			temp.delete();
+			throw new CobblerException("Unable to write the session file. " + ex.getMessage(), ex);
+		}
+	}
+	
+	/**
+	 * Hands over the session as it is now, to be written on the background thread
+	 * once it stops changing. Called on the event thread. 
+	 * @param session Session - not changed afterwards
+	 */
+	public synchronized void save(Session session) {
+		pending = session;
+		if (!scheduled && !writer.isShutdown()) {
+			scheduled = true;
+			writer.schedule(this::flush, WRITE_DELAY, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	/**
+	 * Returns the number of times the session has been written. 
+	 * @return int
+	 */
+	public synchronized int getWriteCount() {
+		return writeCount;
+	}
+	
+	/**
+	 * Writes the session handed over last, unless it has been written already or
+	 * is the same as the one written before. Runs on the background thread. 
+	 */
+	private void flush() {
+		final Session session;
+		synchronized (this) {
+			session = pending;
+			pending = null;
+			scheduled = false;
+		}
+		if (session == null) {
+			return;
+		}
+		
+		try {
+			byte[] bytes = encode(session);
+			if (Arrays.equals(bytes, written)) {
+				return;
+			}
+			write(bytes, file);
+			written = bytes;
+			
+			synchronized (this) {
+				writeCount++;
+			}
+			
+		} catch (CobblerException ex) {
+			Debugger.printLog(ex.getMessage(), this.getClass().getName(), Level.WARNING);
+		}
+	}
+	
+	/**
+	 * Writes any session that is waiting and stops the background thread. Called 
+	 * when the application shuts down. 
+	 */
+	public void close() {
+		if (writer.isShutdown()) {
+			return;
+		}
+		writer.execute(this::flush);
+		writer.shutdown();
+		
+		try {
+			writer.awaitTermination(WRITE_DELAY * 4, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,240 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.io;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+import com.horvath.cobbler.exception.CobblerException;
+
+/**
+ * Counts the edits to a document and takes {@link DocumentSnapshot}s of it. 
+ * <p>
+ * Edits only move the bounds of the range that differs from the last snapshot. 
+ * The next snapshot shares the chunks of the last snapshot before and after that
+ * range, and copies only the range itself out of the document. Snapshots may be
+ * taken on any thread; the document is read under its read lock. 
+ * 
+ * @author jhorvath
+ */
+public final class SnapshotTracker implements DocumentListener {
+	
+	private final Document document;
+	private volatile long version;
+	
+	// changed only under the write lock of the document, read under its read lock
+	private int changeStart = Integer.MAX_VALUE;
+	private int unchangedEnd = Integer.MAX_VALUE;
+	
+	// guarded by this
+	private DocumentSnapshot last;
+	
+	/**
+	 * Constructor. Starts counting the edits to the document. 
+	 * @param document Document
+	 * @param version long - the version of the document as it is now
+	 */
+	public SnapshotTracker(Document document, long version) {
+		this.document = document;
+		this.version = version;
+		document.addDocumentListener(this);
+	}
+	
+	/**
+	 * Stops counting the edits to the document. 
+	 */
+	public void dispose() {
+		document.removeDocumentListener(this);
+	}
+	
+	/**
+	 * Returns the version of the document, which goes up by one with every edit. 
+	 * @return long
+	 */
+	public long getVersion() {
+		return version;
+	}
+	
+	/**
+	 * Returns the document being tracked. 
+	 * @return Document
+	 */
+	public Document getDocument() {
+		return document;
+	}
+
+	@Override
+	public void insertUpdate(DocumentEvent e) {
+		changed(e.getOffset(), e.getOffset() + e.getLength());
+	}
+
+	@Override
+	public void removeUpdate(DocumentEvent e) {
+		changed(e.getOffset(), e.getOffset());
+	}
+
+	@Override
+	public void changedUpdate(DocumentEvent e) { }
+	
+	/**
+	 * Widens the range that differs from the last snapshot to take in an edit. 
+	 * @param start int - offset of the edit
+	 * @param end int - offset after the text the edit left
+	 */
+	private void changed(int start, int end) {
+		changeStart = Math.min(changeStart, start);
+		unchangedEnd = Math.min(unchangedEnd, document.getLength() - end);
+		version++;
+	}
+	
+	/**
+	 * Returns a snapshot of the document at its current version. 
+	 * @return DocumentSnapshot
+	 * @throws CobblerException
+	 */
+	public synchronized DocumentSnapshot snapshot() throws CobblerException {
+		final BadLocationException[] failure = new BadLocationException[1];
+		
+		document.render(() -> {
+			if (last != null && last.getVersion() == version) {
+				return;
+			}
+			try {
+				last = last == null ? copy() : update();
+				changeStart = Integer.MAX_VALUE;
+				unchangedEnd = Integer.MAX_VALUE;
+			} catch (BadLocationException ex) {
+				failure[0] = ex;
+			}
+		});
+		
+		if (failure[0] != null) {
+			throw new CobblerException("Unable to take a snapshot of the document.", failure[0]);
+		}
+		return last;
+	}
+	
+	/**
+	 * Copies the whole document into a snapshot. 
+	 * @return DocumentSnapshot
+	 * @throws BadLocationException
+	 */
+	private DocumentSnapshot copy() throws BadLocationException {
+		final int length = document.getLength();
+		char[][] chunks = new char[chunkCount(length)][];
+		read(0, length, chunks, 0);
+		return new DocumentSnapshot(version, chunks, chunks.length);
+	}
+	
+	/**
+	 * Makes a snapshot from the last one, copying only the chunks the edits since 
+	 * then have touched. 
+	 * @return DocumentSnapshot
+	 * @throws BadLocationException
+	 */
+	private DocumentSnapshot update() throws BadLocationException {
+		final int length = document.getLength();
+		final int lastLength = last.length();
+		final int lastCount = last.getChunkCount();
+		
+		final int prefix = Math.min(changeStart, Math.min(lastLength, length));
+		final int suffix = Math.min(unchangedEnd, Math.min(lastLength, length) - prefix);
+		
+		// the chunks wholly before or after the edited range are kept
+		int head = 0;
+		while (head < lastCount && last.getChunkStart(head + 1) <= prefix) {
+			head++;
+		}
+		int tail = lastCount;
+		while (tail > head && last.getChunkStart(tail - 1) >= lastLength - suffix) {
+			tail--;
+		}
+		
+		int from = last.getChunkStart(head);
+		int to = length - (lastLength - last.getChunkStart(tail));
+		
+		// a short range is merged with a neighbour, so chunks do not keep shrinking
+		if (to - from < DocumentSnapshot.CHUNK_SIZE / 2) {
+			if (tail < lastCount) {
+				to += last.getChunk(tail).length;
+				tail++;
+			} else if (head > 0) {
+				head--;
+				from -= last.getChunk(head).length;
+			}
+		}
+		
+		char[][] chunks = new char[head + chunkCount(to - from) + lastCount - tail][];
+		for (int i = 0; i < head; i++) {
+			chunks[i] = last.getChunk(i);
+		}
+		final int read = read(from, to, chunks, head);
+		for (int i = tail; i < lastCount; i++) {
+			chunks[read + i - tail] = last.getChunk(i);
+		}
+		return new DocumentSnapshot(version, chunks, chunks.length);
+	}
+	
+	/**
+	 * Copies a range of the document into new chunks. 
+	 * @param start int
+	 * @param end int
+	 * @param chunks char[][]
+	 * @param index int - where the first new chunk goes
+	 * @return int - the index after the last new chunk
+	 * @throws BadLocationException
+	 */
+	private int read(int start, int end, char[][] chunks, int index) throws BadLocationException {
+		Segment segment = new Segment();
+		segment.setPartialReturn(true);
+		
+		int offset = start;
+		while (offset < end) {
+			char[] chunk = new char[Math.min(DocumentSnapshot.CHUNK_SIZE, end - offset)];
+			int filled = 0;
+			while (filled < chunk.length) {
+				document.getText(offset + filled, chunk.length - filled, segment);
+				System.arraycopy(segment.array, segment.offset, chunk, filled, segment.count);
+				filled += segment.count;
+			}
+			chunks[index++] = chunk;
+			offset += chunk.length;
+		}
+		return index;
+	}
+	
+	/**
+	 * Returns the number of chunks a range of a length is copied into. 
+	 * @param length int
+	 * @return int
+	 */
+	private static int chunkCount(int length) {
+		return (length + DocumentSnapshot.CHUNK_SIZE - 1) / DocumentSnapshot.CHUNK_SIZE;
+	}
+
+}
@@ -0,0 +1,458 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.Document;
+
+/**
+ * Describes how a text file is stored on disk: its charset, byte order mark
+ * and line terminator, plus a sparse table of checkpoints that map document
+ * character offsets to file byte offsets. While attached to a document it
+ * tracks how much of the start and end of the document is still identical to
+ * the file, so a save can copy those bytes instead of encoding them again.
+ * <p>
+ * Lines of a file with mixed line endings keep their own terminator. The format
+ * holds the document offsets of the '\n' characters read from a terminator other
+ * than the dominant one and moves them along with edits, so lines in the edited
+ * part of the document are saved with the terminator they were read with. Lines
+ * added by edits end with the dominant terminator. 
+ * @author jhorvath
+ */
+public final class TextFileFormat implements DocumentListener {
+	
+	/**
+	 * The line terminators a file can use, indexed by the kind stored for a line.
+	 */
+	static final String[] LINE_SEPARATORS = { "\n", "\r", "\r\n" };
+	
+	private final File source;
+	private final Charset charset;
+	private final boolean byteOrderMark;
+	private final String lineSeparator;
+	
+	private long[] checkpointChars = new long[16];
+	private long[] checkpointBytes = new long[16];
+	private int checkpointCount;
+	
+	// lines whose terminator is not the line separator, sorted by offset; the
+	// offsets from shiftedFrom on are still to be moved by shift, so a run of edits 
+	// in one place only moves the offsets between one edit and the next
+	private int[] terminatorOffsets = new int[0];
+	private byte[] terminatorKinds = new byte[0];
+	private int terminatorCount;
+	private int shiftedFrom;
+	private int shift;
+	
+	private long sourceSize;
+	private long sourceLastModified;
+	private int length;
+	
+	private int unchangedPrefix;
+	private int unchangedSuffix;
+	private Document document;
+	
+	/**
+	 * Constructor. 
+	 * @param source File - the file the format describes
+	 * @param charset Charset
+	 * @param byteOrderMark boolean - true if the file starts with a byte order mark
+	 * @param lineSeparator String - the line terminator of most lines, and of lines added by edits
+	 */
+	public TextFileFormat(File source, Charset charset, boolean byteOrderMark, String lineSeparator) {
+		this.source = source;
+		this.charset = charset;
+		this.byteOrderMark = byteOrderMark;
+		this.lineSeparator = lineSeparator;
+	}
+	
+	/**
+	 * Returns the format used for documents that were not read from a file.
+	 * @return TextFileFormat
+	 */
+	public static TextFileFormat defaultFormat() {
+		return defaultFormat(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Returns the format used for documents saved in the given charset that were
+	 * not read from a file in it.
+	 * @param charset Charset
+	 * @return TextFileFormat
+	 */
+	public static TextFileFormat defaultFormat(Charset charset) {
+		return new TextFileFormat(null, charset, false, defaultLineSeparator(charset));
+	}
+	
+	/**
+	 * Returns the line terminator for text in the given charset that has none yet.
+	 * EBCDIC text ends its lines with NL, which '\n' encodes to, other text with
+	 * the platform line separator.
+	 * @param charset Charset
+	 * @return String
+	 */
+	static String defaultLineSeparator(Charset charset) {
+		return EbcdicCodePage.fromCharset(charset) != null ? "\n" : System.lineSeparator();
+	}
+	
+	/**
+	 * Records that the given document character offset starts at the given byte
+	 * offset in the file. Checkpoints must be added in increasing order.
+	 * @param chars long
+	 * @param bytes long
+	 */
+	void addCheckpoint(long chars, long bytes) {
+		if (checkpointCount > 0 && checkpointChars[checkpointCount - 1] >= chars) {
+			return;
+		}
+		if (checkpointCount == checkpointChars.length) {
+			checkpointChars = Arrays.copyOf(checkpointChars, checkpointCount * 2);
+			checkpointBytes = Arrays.copyOf(checkpointBytes, checkpointCount * 2);
+		}
+		checkpointChars[checkpointCount] = chars;
+		checkpointBytes[checkpointCount] = bytes;
+		checkpointCount++;
+	}
+	
+	/**
+	 * Records that the '\n' at the given document offset stands for the given line
+	 * terminator in the file. Terminators must be added in increasing order of
+	 * offset, those equal to the line separator of the format are not kept. 
+	 * @param offset int
+	 * @param kind int - index of the terminator in {@link #LINE_SEPARATORS}
+	 */
+	void addLineTerminator(int offset, int kind) {
+		if (LINE_SEPARATORS[kind].equals(lineSeparator)) {
+			return;
+		}
+		if (terminatorCount == terminatorOffsets.length) {
+			terminatorOffsets = Arrays.copyOf(terminatorOffsets, Math.max(16, terminatorCount * 2));
+			terminatorKinds = Arrays.copyOf(terminatorKinds, terminatorOffsets.length);
+		}
+		terminatorOffsets[terminatorCount] = terminatorCount >= shiftedFrom ? offset - shift : offset;
+		terminatorKinds[terminatorCount] = (byte) kind;
+		terminatorCount++;
+	}
+	
+	/**
+	 * Takes over the line terminators of another format that describes the same
+	 * document text. 
+	 * @param other TextFileFormat
+	 */
+	void copyLineTerminators(TextFileFormat other) {
+		terminatorCount = 0;
+		shiftedFrom = 0;
+		shift = 0;
+		for (int i = 0; i < other.terminatorCount; i++) {
+			addLineTerminator(other.getTerminatorOffset(i), other.terminatorKinds[i]);
+		}
+	}
+	
+	/**
+	 * Returns the index of the first line terminator at or after the document
+	 * offset, or the number of terminators if there is none.
+	 * @param offset int
+	 * @return int
+	 */
+	int terminatorAtOrAfter(int offset) {
+		int low = 0;
+		int high = terminatorCount;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (getTerminatorOffset(middle) < offset) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+	
+	/**
+	 * Moves the line terminators from the given index on by a number of characters. 
+	 * Only the offsets between the index and the first offset still to be moved are
+	 * written, the others take the move as part of the pending shift. 
+	 * @param from int
+	 * @param delta int
+	 */
+	private void shiftTerminators(int from, int delta) {
+		if (from >= shiftedFrom) {
+			for (int i = shiftedFrom; i < from && i < terminatorCount; i++) {
+				terminatorOffsets[i] += shift;
+			}
+		} else {
+			// these join the offsets still to be moved, which the old shift must not move
+			for (int i = from; i < shiftedFrom && i < terminatorCount; i++) {
+				terminatorOffsets[i] -= shift;
+			}
+		}
+		shiftedFrom = from;
+		shift += delta;
+	}
+	
+	int getTerminatorOffset(int index) {
+		return index >= shiftedFrom ? terminatorOffsets[index] + shift : terminatorOffsets[index];
+	}
+	
+	String getTerminator(int index) {
+		return LINE_SEPARATORS[terminatorKinds[index]];
+	}
+	
+	int getTerminatorCount() {
+		return terminatorCount;
+	}
+	
+	/**
+	 * Completes the format once the whole file has been read or written. 
+	 * @param length int - the length of the document in characters
+	 */
+	void complete(int length) {
+		this.length = length;
+		this.unchangedPrefix = length;
+		this.unchangedSuffix = length;
+		this.sourceSize = source.length();
+		this.sourceLastModified = source.lastModified();
+	}
+	
+	/**
+	 * Starts tracking edits to the document. The document must hold exactly the
+	 * text the format was completed with.
+	 * @param document Document
+	 */
+	public void attach(Document document) {
+		detach();
+		this.document = document;
+		document.addDocumentListener(this);
+	}
+	
+	/**
+	 * Stops tracking edits to the document. 
+	 */
+	public void detach() {
+		if (this.document != null) {
+			this.document.removeDocumentListener(this);
+			this.document = null;
+		}
+	}
+	
+	/**
+	 * Returns true if the file on disk is still the one this format was made from,
+	 * so its bytes can be copied into a new save.
+	 * @return boolean
+	 */
+	boolean isSourceUnchanged() {
+		return source != null && source.isFile() 
+				&& source.length() == sourceSize && source.lastModified() == sourceLastModified;
+	}
+	
+	/**
+	 * Returns true if the document has not been edited since it was read or written.
+	 * @return boolean
+	 */
+	boolean isDocumentUnchanged() {
+		return unchangedPrefix == length && unchangedSuffix == length;
+	}
+	
+	/**
+	 * Returns the index of the last checkpoint at or before the character offset. 
+	 * @param chars long
+	 * @return int
+	 */
+	int checkpointAtOrBefore(long chars) {
+		int index = Arrays.binarySearch(checkpointChars, 0, checkpointCount, chars);
+		return index >= 0 ? index : -index - 2;
+	}
+	
+	/**
+	 * Returns the index of the first checkpoint at or after the character offset,
+	 * or -1 if there is none.
+	 * @param chars long
+	 * @return int
+	 */
+	int checkpointAtOrAfter(long chars) {
+		int index = Arrays.binarySearch(checkpointChars, 0, checkpointCount, chars);
+		index = index >= 0 ? index : -index - 1;
+		return index < checkpointCount ? index : -1;
+	}
+	
+	/**
+	 * Returns the byte offset in the source file of the given document character
+	 * offset, by decoding the source from the nearest checkpoint before it. An
+	 * offset after a '\n' read from a CRLF pair is after the line feed.
+	 * @param chars long
+	 * @return long
+	 * @throws IOException
+	 */
+	long findByteOffset(long chars) throws IOException {
+		final int index = checkpointAtOrBefore(chars);
+		if (checkpointChars[index] == chars) {
+			return checkpointBytes[index];
+		}
+		
+		final long start = checkpointBytes[index];
+		final long end = index + 1 < checkpointCount ? checkpointBytes[index + 1] : sourceSize;
+		
+		CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+		
+		try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer bytes = channel.map(MapMode.READ_ONLY, start, end - start);
+			CharBuffer decoded = CharBuffer.allocate(2);
+			
+			long position = checkpointChars[index];
+			boolean carriageReturn = false;
+			
+			while (bytes.hasRemaining()) {
+				final int before = bytes.position();
+				
+				// decode a single character, or both halves of a surrogate pair
+				decoded.clear().limit(1);
+				CoderResult result = decoder.decode(bytes, decoded, true);
+				if (decoded.position() == 0 && result.isOverflow()) {
+					decoded.limit(2);
+					result = decoder.decode(bytes, decoded, true);
+				}
+				if (result.isError()) {
+					result.throwException();
+				}
+				
+				boolean lineFeedOfPair = carriageReturn && decoded.get(0) == '\n';
+				if (position == chars && !lineFeedOfPair) {
+					return start + before;
+				}
+				if (!lineFeedOfPair) {
+					position += decoded.position();
+				}
+				carriageReturn = decoded.get(0) == '\r';
+			}
+			return end;
+		}
+	}
+	
+	long getCheckpointChars(int index) {
+		return checkpointChars[index];
+	}
+	
+	long getCheckpointBytes(int index) {
+		return checkpointBytes[index];
+	}
+	
+	int getCheckpointCount() {
+		return checkpointCount;
+	}
+	
+	@Override
+	public void insertUpdate(DocumentEvent e) {
+		final int offset = e.getOffset();
+		unchangedPrefix = Math.min(unchangedPrefix, offset);
+		unchangedSuffix = Math.min(unchangedSuffix, e.getDocument().getLength() - offset - e.getLength());
+		
+		// lines after the insert move with it
+		shiftTerminators(terminatorAtOrAfter(offset), e.getLength());
+	}
+
+	@Override
+	public void removeUpdate(DocumentEvent e) {
+		final int offset = e.getOffset();
+		unchangedPrefix = Math.min(unchangedPrefix, offset);
+		unchangedSuffix = Math.min(unchangedSuffix, e.getDocument().getLength() - offset);
+		
+		// the terminators of removed lines go with them, lines after the removal move back
+		final int first = terminatorAtOrAfter(offset);
+		final int last = terminatorAtOrAfter(offset + e.getLength());
+		if (last > first) {
+			System.arraycopy(terminatorOffsets, last, terminatorOffsets, first, terminatorCount - last);
+			System.arraycopy(terminatorKinds, last, terminatorKinds, first, terminatorCount - last);
+			terminatorCount -= last - first;
+			
+			// the offsets still to be moved stay together behind the removed ones
+			if (shiftedFrom >= last) {
+				shiftedFrom -= last - first;
+			} else if (shiftedFrom > first) {
+				shiftedFrom = first;
+			}
+		}
+		shiftTerminators(first, -e.getLength());
+	}
+
+	@Override
+	public void changedUpdate(DocumentEvent e) { }
+
+	public File getSource() {
+		return source;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	public boolean hasByteOrderMark() {
+		return byteOrderMark;
+	}
+
+	public String getLineSeparator() {
+		return lineSeparator;
+	}
+
+	public long getSourceSize() {
+		return sourceSize;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public int getUnchangedPrefix() {
+		return unchangedPrefix;
+	}
+
+	public int getUnchangedSuffix() {
+		return unchangedSuffix;
+	}
+
+	@Override
+	public String toString() {
+		return "TextFileFormat [source=" + source + ", charset=" + charset + ", byteOrderMark=" + byteOrderMark
+				+ ", lineSeparator=" + lineSeparator.replace("\r", "\\r").replace("\n", "\\n") 
+				+ ", checkpoints=" + checkpointCount + ", otherTerminators=" + terminatorCount 
+				+ ", length=" + length + "]";
+	}
+
+}
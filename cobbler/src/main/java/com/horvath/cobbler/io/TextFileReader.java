@@ -24,25 +24,90 @@
 package com.horvath.cobbler.io;
 
 import java.io.File;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.stream.Stream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 
 import com.horvath.cobbler.exception.CobblerException;
 
 /**
  * Performs of reading text data from a given file.
+ * The file is memory mapped, or streamed from the archive it is a member of, and
+ * decoded in fixed size chunks, so reading does not create a String per line or 
+ * a full intermediate copy of the file.
  * @author jhorvath
  */
 public final class TextFileReader {
+	
+	/**
+	 * Number of characters decoded before they are handed off to the receiver.
+	 */
+	private static final int CHUNK_SIZE = 256 * 1024;
+	
+	/**
+	 * Kinds of line terminator, indexes into {@link TextFileFormat#LINE_SEPARATORS}.
+	 */
+	private static final int LINE_FEED = 0;
+	private static final int CARRIAGE_RETURN = 1;
+	private static final int CARRIAGE_RETURN_LINE_FEED = 2;
+	
 	private File file;
+	private Charset charset;
+	private TextFileFormat format;
+	
+	private long charCount;
+	private long lineFeeds;
+	private long carriageReturns;
+	private long carriageReturnLineFeeds;
+	
+	// document offsets of the '\n' read from each kind of line terminator
+	private final int[][] terminatorOffsets = new int[TextFileFormat.LINE_SEPARATORS.length][];
+	private final int[] terminatorCounts = new int[TextFileFormat.LINE_SEPARATORS.length];
+
+	/**
+	 * Receives decoded text from the reader, one chunk at a time. Line
+	 * terminators in the chunk have already been converted to '\n'.
+	 */
+	public interface ChunkHandler {
+		
+		/**
+		 * Handles a chunk of decoded characters. The array is reused by the reader
+		 * once the method returns, so the characters must be copied if kept.
+		 * 
+		 * @param chars char[]
+		 * @param length int - number of valid characters at the start of the array
+		 * @throws CobblerException
+		 */
+		void handle(char[] chars, int length) throws CobblerException;
+	}
 
 	/**
 	 * Constructor 
 	 * @param file File 
 	 */
 	public TextFileReader(File file) {
+		this(file, null);
+	}
+	
+	/**
+	 * Constructor 
+	 * @param file File 
+	 * @param charset Charset - charset of the file, or null to detect it
+	 */
+	public TextFileReader(File file, Charset charset) {
 		this.file = file;
+		this.charset = charset;
 	}
 
 	/**
@@ -51,14 +116,268 @@ public final class TextFileReader {
 	 * @throws CobblerException
 	 */
 	public String read() throws CobblerException {
-
-		StringBuilder sb = new StringBuilder();
-
-		try (Stream<String> stream = Files.lines(Paths.get(this.file.getAbsolutePath()))) {
-			stream.forEach(s -> sb.append(s).append(System.getProperty("line.separator")));
-		} catch (Exception ex) {
-			throw new CobblerException("Problem reading file " + this.file.getName() + "." + ex.getMessage(), ex);
+		final String separator = System.lineSeparator();
+		
+		// size the builder up front so it never needs to grow for single byte text
+		StringBuilder sb = new StringBuilder((int) Math.min(file.length(), Integer.MAX_VALUE - 8));
+		
+		read((chars, length) -> {
+			int start = 0;
+			for (int i = 0; i < length; i++) {
+				if (chars[i] == '\n') {
+					sb.append(chars, start, i - start).append(separator);
+					start = i + 1;
+				}
+			}
+			sb.append(chars, start, length - start);
+		});
+		
+		// every line, including the last one, ends with a line separator
+		if (sb.length() > 0 && !sb.substring(Math.max(0, sb.length() - separator.length())).equals(separator)) {
+			sb.append(separator);
 		}
 		return sb.toString();
 	}
+	
+	/**
+	 * Reads the file and appends its text to the end of the given document. 
+	 * @param document Document
+	 * @throws CobblerException
+	 */
+	public void read(Document document) throws CobblerException {
+		read((chars, length) -> {
+			try {
+				document.insertString(document.getLength(), new String(chars, 0, length), null);
+			} catch (BadLocationException ex) {
+				throw new CobblerException("Problem reading file " + this.file.getName() + "." + ex.getMessage(), ex);
+			}
+		});
+	}
+	
+	/**
+	 * Reads the file and passes the decoded text to the given handler in chunks. 
+	 * Unless a charset was given, the charset is taken from a byte order mark
+	 * when the file has one and is UTF-8 otherwise.
+	 * @param handler ChunkHandler
+	 * @throws CobblerException
+	 */
+	public void read(ChunkHandler handler) throws CobblerException {
+		
+		CharBuffer decoded = CharBuffer.allocate(CHUNK_SIZE);
+		boolean pendingCarriageReturn = false;
+		
+		charCount = 0;
+		lineFeeds = 0;
+		carriageReturns = 0;
+		carriageReturnLineFeeds = 0;
+		for (int kind = 0; kind < terminatorOffsets.length; kind++) {
+			terminatorOffsets[kind] = new int[16];
+			terminatorCounts[kind] = 0;
+		}
+		
+		try (ByteSource source = ByteSource.open(this.file)) {
+			
+			final long size = source.size();
+			
+			// sniff the byte order mark, the decoder would otherwise return it as text
+			Charset charset = this.charset != null ? this.charset : StandardCharsets.UTF_8;
+			int byteOrderMark = 0;
+			
+			if (this.charset == null) {
+				ByteBuffer head = source.window(0, (int) Math.min(size, 3));
+				
+				if (head.remaining() >= 3 && (head.get(0) & 0xFF) == 0xEF && (head.get(1) & 0xFF) == 0xBB 
+						&& (head.get(2) & 0xFF) == 0xBF) {
+					byteOrderMark = 3;
+				} else if (head.remaining() >= 2 && (head.get(0) & 0xFF) == 0xFE && (head.get(1) & 0xFF) == 0xFF) {
+					charset = StandardCharsets.UTF_16BE;
+					byteOrderMark = 2;
+				} else if (head.remaining() >= 2 && (head.get(0) & 0xFF) == 0xFF && (head.get(1) & 0xFF) == 0xFE) {
+					charset = StandardCharsets.UTF_16LE;
+					byteOrderMark = 2;
+				}
+			}
+			
+			CharsetDecoder decoder = charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPORT)
+					.onUnmappableCharacter(CodingErrorAction.REPORT);
+			
+			// the first checkpoint is the start of the text, after the byte order mark
+			List<Long> checkpoints = new ArrayList<>();
+			checkpoints.add(0L);
+			checkpoints.add((long) byteOrderMark);
+			
+			long position = byteOrderMark;
+			boolean endOfInput = false;
+			
+			while (!endOfInput) {
+				long remaining = size - position;
+				endOfInput = remaining <= source.getWindowSize();
+				ByteBuffer window = source.window(position, (int) Math.min(remaining, source.getWindowSize()));
+				
+				CoderResult result;
+				do {
+					result = decoder.decode(window, decoded, endOfInput);
+					if (result.isError()) {
+						result.throwException();
+					}
+					pendingCarriageReturn = handOff(decoded, handler, pendingCarriageReturn);
+					
+					// a line feed after a trailing carriage return has no character of its own
+					if (!pendingCarriageReturn) {
+						checkpoints.add(charCount);
+						checkpoints.add(position + window.position());
+					}
+				} while (result.isOverflow());
+				
+				// bytes of a character split across windows are mapped again with the next window
+				position += window.position();
+			}
+			
+			decoder.flush(decoded);
+			handOff(decoded, handler, pendingCarriageReturn);
+			
+			this.format = new TextFileFormat(file, charset, byteOrderMark > 0, dominantLineSeparator(charset));
+			for (int i = 0; i < checkpoints.size(); i += 2) {
+				this.format.addCheckpoint(checkpoints.get(i), checkpoints.get(i + 1));
+			}
+			this.format.addCheckpoint(charCount, size);
+			addLineTerminators(this.format);
+			this.format.complete((int) Math.min(charCount, Integer.MAX_VALUE));
+			
+		} catch (IOException ex) {
+			throw new CobblerException("Problem reading file " + this.file.getName() + "." + ex.getMessage(), ex);
+		}
+	}
+	
+	/**
+	 * Converts the line terminators in the decoded buffer to '\n' in place, passes
+	 * the result to the handler and clears the buffer. Returns true if the last
+	 * character handled was a carriage return, so a line feed starting the next
+	 * chunk can be dropped.
+	 * 
+	 * @param decoded CharBuffer
+	 * @param handler ChunkHandler
+	 * @param pendingCarriageReturn boolean
+	 * @return boolean
+	 * @throws CobblerException
+	 */
+	private boolean handOff(CharBuffer decoded, ChunkHandler handler, boolean pendingCarriageReturn) 
+			throws CobblerException {
+		
+		char[] chars = decoded.array();
+		final int end = decoded.position();
+		int i = 0;
+		
+		// text up to the first carriage return stays where it is, only line feeds are counted
+		if (!pendingCarriageReturn) {
+			for (; i < end && chars[i] != '\r'; i++) {
+				if (chars[i] == '\n') {
+					addTerminator(LINE_FEED, charCount + i);
+					lineFeeds++;
+				}
+			}
+		}
+		int length = i;
+		
+		for (; i < end; i++) {
+			char c = chars[i];
+			
+			if (c == '\r') {
+				addTerminator(CARRIAGE_RETURN, charCount + length);
+				chars[length++] = '\n';
+				carriageReturns++;
+				pendingCarriageReturn = true;
+				
+			} else {
+				if (c != '\n') {
+					chars[length++] = c;
+				} else if (pendingCarriageReturn) {
+					// the carriage return just added, possibly in the previous chunk, starts a pair
+					final int offset = terminatorOffsets[CARRIAGE_RETURN][--terminatorCounts[CARRIAGE_RETURN]];
+					addTerminator(CARRIAGE_RETURN_LINE_FEED, offset);
+					carriageReturns--;
+					carriageReturnLineFeeds++;
+				} else {
+					addTerminator(LINE_FEED, charCount + length);
+					chars[length++] = c;
+					lineFeeds++;
+				}
+				pendingCarriageReturn = false;
+			}
+		}
+		
+		charCount += length;
+		if (length > 0) {
+			handler.handle(chars, length);
+		}
+		decoded.clear();
+		
+		return pendingCarriageReturn;
+	}
+	
+	/**
+	 * Records the document offset of a '\n' read from the given kind of line terminator. 
+	 * @param kind int - index of the terminator in {@link TextFileFormat#LINE_SEPARATORS}
+	 * @param offset long
+	 */
+	private void addTerminator(int kind, long offset) {
+		if (terminatorCounts[kind] == terminatorOffsets[kind].length) {
+			terminatorOffsets[kind] = Arrays.copyOf(terminatorOffsets[kind], terminatorCounts[kind] * 2);
+		}
+		terminatorOffsets[kind][terminatorCounts[kind]++] = (int) Math.min(offset, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Hands the terminators of lines that do not end with the dominant line separator
+	 * to the format, in the order of the lines, and lets go of the recorded offsets. 
+	 * @param format TextFileFormat
+	 */
+	private void addLineTerminators(TextFileFormat format) {
+		final int kinds = terminatorOffsets.length;
+		int[] next = new int[kinds];
+		
+		while (true) {
+			int kind = -1;
+			for (int k = 0; k < kinds; k++) {
+				if (next[k] < terminatorCounts[k] 
+						&& (kind < 0 || terminatorOffsets[k][next[k]] < terminatorOffsets[kind][next[kind]])) {
+					kind = k;
+				}
+			}
+			if (kind < 0) {
+				break;
+			}
+			format.addLineTerminator(terminatorOffsets[kind][next[kind]++], kind);
+		}
+		
+		for (int k = 0; k < kinds; k++) {
+			terminatorOffsets[k] = null;
+			terminatorCounts[k] = 0;
+		}
+	}
+	
+	/**
+	 * Returns the line terminator used most often in the file, or the default
+	 * terminator of the charset if the file has no line terminators.
+	 * @param charset Charset
+	 * @return String
+	 */
+	private String dominantLineSeparator(Charset charset) {
+		if (lineFeeds == 0 && carriageReturns == 0 && carriageReturnLineFeeds == 0) {
+			return TextFileFormat.defaultLineSeparator(charset);
+		}
+		if (carriageReturnLineFeeds >= lineFeeds && carriageReturnLineFeeds >= carriageReturns) {
+			return "\r\n";
+		}
+		return lineFeeds >= carriageReturns ? "\n" : "\r";
+	}
+
+	/**
+	 * Returns the format of the file, available once it has been read.
+	 * @return TextFileFormat
+	 */
+	public TextFileFormat getFormat() {
+		return format;
+	}
 }
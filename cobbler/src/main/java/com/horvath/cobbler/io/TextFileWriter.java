@@ -23,22 +23,61 @@
 
 package com.horvath.cobbler.io;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
 
 import com.horvath.cobbler.exception.CobblerException;
 
 /**
- * Performs of writing given string data to a given file.
+ * Performs of writing given string data or document contents to a given file.
+ * Data is written to a temporary file in the same folder, forced to disk and
+ * then renamed over the target, so the target is never left half written.
+ * Documents are written in the charset, byte order mark and line terminators
+ * of the file they were read from, and the parts of the document that were
+ * not edited are copied from that file byte for byte. Lines in the edited part
+ * end with the terminator they were read with, so mixed line endings are kept.
  * @author jhorvath
  */
 public final class TextFileWriter {
 	
+	/**
+	 * Size in bytes of the buffer encoded text is collected in before it is written.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	/**
+	 * Size in characters of the buffer document text is collected in before it is encoded.
+	 */
+	private static final int CHAR_BUFFER_SIZE = 64 * 1024;
+	
+	/**
+	 * Length in characters of the longest line terminator.
+	 */
+	private static final int MAX_SEPARATOR_LENGTH = 2;
+	
 	private File file;
 	private String data;
+	private Document document;
+	private DocumentSnapshot text;
+	private TextFileFormat format;
+	private TextFileFormat writtenFormat;
 
 	/**
 	 * Constructor.
@@ -49,17 +88,457 @@ public final class TextFileWriter {
 		this.data = data;
 		this.file = file;
 	}
+	
+	/**
+	 * Constructor. The document contents are streamed to the file segment by
+	 * segment, without making a String copy of the document.
+	 * @param document Document
+	 * @param file File 
+	 */
+	public TextFileWriter(Document document, File file) {
+		this(document, file, null);
+	}
+	
+	/**
+	 * Constructor. The document is written in the given format, copying the
+	 * unedited start and end of the document from the format's source file
+	 * when that file has not changed on disk since it was read.
+	 * @param document Document
+	 * @param file File 
+	 * @param format TextFileFormat - may be null for the default format
+	 */
+	public TextFileWriter(Document document, File file, TextFileFormat format) {
+		this.document = document;
+		this.file = file;
+		this.format = format != null ? format : TextFileFormat.defaultFormat();
+	}
+
+	/**
+	 * Constructor. A snapshot of a document's text is written in the charset, byte
+	 * order mark and line terminator of the format, encoding all of the text. 
+	 * @param text DocumentSnapshot
+	 * @param file File 
+	 * @param format TextFileFormat - may be null for the default format
+	 */
+	public TextFileWriter(DocumentSnapshot text, File file, TextFileFormat format) {
+		this.text = text;
+		this.file = file;
+		this.format = format != null 
+				? new TextFileFormat(null, format.getCharset(), format.hasByteOrderMark(), format.getLineSeparator())
+				: TextFileFormat.defaultFormat();
+	}
+
+	/**
+	 * Writes the content of a file to the channel of its temporary file. 
+	 */
+	interface ContentWriter {
+		
+		/**
+		 * Writes the content. 
+		 * @param channel FileChannel
+		 * @throws IOException
+		 * @throws BadLocationException
+		 * @throws CobblerException
+		 */
+		void write(FileChannel channel) throws IOException, BadLocationException, CobblerException;
+	}
 
 	/**
-	 * Performs operations of writing the String data to a file. 
+	 * Performs operations of writing the data to a file. 
 	 * @throws CobblerException
 	 */
 	public void write() throws CobblerException {
-		try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(this.file.getAbsolutePath()))) {
-			writer.write(this.data);
+		writeAtomically(this.file, channel -> {
+			Charset charset = this.data == null ? this.format.getCharset() : StandardCharsets.UTF_8;
+			CharsetEncoder encoder = charset.newEncoder()
+					.onMalformedInput(CodingErrorAction.REPORT)
+					.onUnmappableCharacter(CodingErrorAction.REPORT);
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
 			
-		} catch (IOException ex) {
+			if (this.data == null) {
+				writeDocument(channel, encoder, buffer);
+			} else {
+				encode(channel, encoder, buffer, CharBuffer.wrap(this.data));
+				encode(channel, encoder, buffer, CharBuffer.allocate(0), true);
+				flush(channel, encoder, buffer);
+			}
+		});
+		
+		if (this.writtenFormat != null) {
+			this.writtenFormat.complete(getLength());
+		}
+	}
+	
+	/**
+	 * Writes a file through a temporary file in the same folder, which is forced
+	 * to disk and then renamed over the file. A member of an archive is written to
+	 * a temporary file next to the archive, which then replaces the member. 
+	 * @param file File
+	 * @param content ContentWriter
+	 * @throws CobblerException
+	 */
+	static void writeAtomically(File file, ContentWriter content) throws CobblerException {
+		File archive = ArchiveIndex.findArchive(file);
+		if (archive != null) {
+			writeMember(archive, file, content);
+			return;
+		}
+		
+		Path target = file.getAbsoluteFile().toPath();
+		Path temp = null;
+		
+		try {
+			temp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+			
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+				content.write(channel);
+				
+				// the data must be on disk before the rename makes it visible
+				channel.force(true);
+			}
+			
+			copyPermissions(target, temp);
+			replace(temp, target);
+			
+		} catch (IOException | BadLocationException ex) {
+			deleteTempFile(temp);
+			throw new CobblerException("Unable to write data to file.", ex);
+			
+		} catch (CobblerException ex) {
+			deleteTempFile(temp);
+			throw ex;
+		}
+	}
+	
+	/**
+	 * Writes a member of an archive, rewriting the archive. 
+	 * @param archive File
+	 * @param file File - the path leading through the archive to the member
+	 * @param content ContentWriter
+	 * @throws CobblerException
+	 */
+	private static void writeMember(File archive, File file, ContentWriter content) throws CobblerException {
+		Path temp = null;
+		
+		try {
+			temp = Files.createTempFile(archive.getAbsoluteFile().toPath().getParent(), "." + file.getName(), ".tmp");
+			
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+				content.write(channel);
+			}
+			ArchiveIndex.get(archive).replaceMember(ArchiveIndex.getMemberName(archive, file), temp);
+			
+		} catch (IOException | BadLocationException ex) {
 			throw new CobblerException("Unable to write data to file.", ex);
+			
+		} finally {
+			deleteTempFile(temp);
+		}
+	}
+	
+	/**
+	 * Writes the document to the channel. When the document was read from a file
+	 * that is unchanged on disk, the bytes of the unedited start and end of the
+	 * document are copied from that file and only the edited range is encoded.
+	 * @param channel FileChannel
+	 * @param encoder CharsetEncoder
+	 * @param buffer ByteBuffer
+	 * @throws BadLocationException
+	 * @throws IOException
+	 */
+	private void writeDocument(FileChannel channel, CharsetEncoder encoder, ByteBuffer buffer) 
+			throws BadLocationException, IOException {
+		
+		final int length = getLength();
+		this.writtenFormat = new TextFileFormat(this.file, this.format.getCharset(), 
+				this.format.hasByteOrderMark(), this.format.getLineSeparator());
+		this.writtenFormat.copyLineTerminators(this.format);
+		
+		if (this.format.isSourceUnchanged()) {
+			
+			if (this.format.isDocumentUnchanged() && length == this.format.getLength()) {
+				copySource(channel, 0, this.format.getSourceSize(), 0, this.format.getCheckpointCount(), 0);
+				return;
+			}
+			
+			// the edited range, widened so it does not split a surrogate pair
+			int prefix = this.format.getUnchangedPrefix();
+			int suffix = this.format.getLength() - this.format.getUnchangedSuffix();
+			final int shift = length - this.format.getLength();
+			
+			if (prefix > 0 && Character.isHighSurrogate(this.document.getText(prefix - 1, 1).charAt(0))) {
+				prefix--;
+			}
+			if (suffix < this.format.getLength() 
+					&& Character.isLowSurrogate(this.document.getText(suffix + shift, 1).charAt(0))) {
+				suffix++;
+			}
+			
+			copySource(channel, 0, this.format.findByteOffset(prefix), 
+					0, this.format.checkpointAtOrBefore(prefix) + 1, 0);
+			encodeDocument(channel, encoder, buffer, prefix, suffix + shift);
+			copySource(channel, this.format.findByteOffset(suffix), this.format.getSourceSize(), 
+					this.format.checkpointAtOrAfter(suffix), this.format.getCheckpointCount(), shift);
+			return;
+		}
+		
+		if (this.format.hasByteOrderMark()) {
+			encode(channel, encoder, buffer, CharBuffer.wrap("\uFEFF"));
+		}
+		encodeDocument(channel, encoder, buffer, 0, length);
+	}
+	
+	/**
+	 * Copies a byte range of the source file to the end of the channel and records
+	 * the checkpoints inside the range at their new positions.
+	 * @param channel FileChannel
+	 * @param start long - first byte to copy
+	 * @param end long - byte after the last byte to copy
+	 * @param from int - index of the first checkpoint in the range
+	 * @param to int - index after the last checkpoint in the range
+	 * @param charShift long - change in document length before the range
+	 * @throws IOException
+	 */
+	private void copySource(FileChannel channel, long start, long end, int from, int to, long charShift) 
+			throws IOException {
+		final long byteShift = channel.position() - start;
+		
+		try (FileChannel source = FileChannel.open(this.format.getSource().toPath(), StandardOpenOption.READ)) {
+			long position = start;
+			while (position < end) {
+				position += source.transferTo(position, end - position, channel);
+			}
+		}
+		
+		for (int i = from; i < to; i++) {
+			this.writtenFormat.addCheckpoint(this.format.getCheckpointChars(i) + charShift, 
+					this.format.getCheckpointBytes(i) + byteShift);
+		}
+	}
+	
+	/**
+	 * Encodes a range of the document to the channel one segment at a time,
+	 * converting each '\n' to the line terminator its line was read with, or to
+	 * the line separator of the format for a line added by an edit. 
+	 * @param channel FileChannel
+	 * @param encoder CharsetEncoder
+	 * @param buffer ByteBuffer
+	 * @param start int
+	 * @param end int
+	 * @throws BadLocationException
+	 * @throws IOException
+	 */
+	private void encodeDocument(FileChannel channel, CharsetEncoder encoder, ByteBuffer buffer, int start, int end) 
+			throws BadLocationException, IOException {
+		
+		final String separator = this.format.getLineSeparator();
+		Segment segment = new Segment();
+		segment.setPartialReturn(true);
+		
+		// the character buffer is compacted after each encode, so a surrogate pair
+		// split across two segments is still encoded as one character
+		CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+		int offset = start;
+		int terminator = this.format.terminatorAtOrAfter(start);
+		final int terminators = this.format.getTerminatorCount();
+		
+		this.writtenFormat.addCheckpoint(start, channel.position() + buffer.position());
+		
+		while (offset < end) {
+			getText(offset, end - offset, segment);
+			
+			for (int i = segment.offset; i < segment.offset + segment.count; i++) {
+				final int position = offset + i - segment.offset;
+				if (chars.remaining() < MAX_SEPARATOR_LENGTH) {
+					encodeChars(channel, encoder, buffer, chars, position);
+				}
+				
+				char c = segment.array[i];
+				if (c == '\n' && terminator < terminators && this.format.getTerminatorOffset(terminator) == position) {
+					chars.put(this.format.getTerminator(terminator++));
+				} else if (c == '\n') {
+					chars.put(separator);
+				} else {
+					chars.put(c);
+				}
+			}
+			offset += segment.count;
+		}
+		chars.flip();
+		encode(channel, encoder, buffer, chars, true);
+		flush(channel, encoder, buffer);
+		this.writtenFormat.addCheckpoint(end, channel.position());
+	}
+	
+	/**
+	 * Returns the length of the document or snapshot being written. 
+	 * @return int
+	 */
+	private int getLength() {
+		return this.document != null ? this.document.getLength() : this.text.length();
+	}
+	
+	/**
+	 * Points the segment at a range of the document or snapshot being written. 
+	 * @param offset int
+	 * @param length int
+	 * @param segment Segment
+	 * @throws BadLocationException
+	 */
+	private void getText(int offset, int length, Segment segment) throws BadLocationException {
+		if (this.document != null) {
+			this.document.getText(offset, length, segment);
+			return;
+		}
+		this.text.getText(offset, length, segment);
+	}
+	
+	/**
+	 * Encodes the collected characters and compacts the character buffer. When
+	 * every character was encoded, the document offset reached is recorded as a
+	 * checkpoint.
+	 * @param channel FileChannel
+	 * @param encoder CharsetEncoder
+	 * @param buffer ByteBuffer
+	 * @param chars CharBuffer
+	 * @param offset int - document offset after the last collected character
+	 * @throws IOException
+	 */
+	private void encodeChars(FileChannel channel, CharsetEncoder encoder, ByteBuffer buffer, CharBuffer chars, 
+			int offset) throws IOException {
+		chars.flip();
+		encode(channel, encoder, buffer, chars);
+		if (!chars.hasRemaining()) {
+			this.writtenFormat.addCheckpoint(offset, channel.position() + buffer.position());
+		}
+		chars.compact();
+	}
+	
+	/**
+	 * Encodes the characters into the buffer, writing the buffer to the channel
+	 * each time it fills up. 
+	 * @param channel FileChannel
+	 * @param encoder CharsetEncoder
+	 * @param buffer ByteBuffer
+	 * @param chars CharBuffer
+	 * @throws IOException
+	 */
+	private void encode(FileChannel channel, CharsetEncoder encoder, ByteBuffer buffer, CharBuffer chars) 
+			throws IOException {
+		encode(channel, encoder, buffer, chars, false);
+	}
+	
+	/**
+	 * Encodes the characters into the buffer, writing the buffer to the channel
+	 * each time it fills up. 
+	 * @param channel FileChannel
+	 * @param encoder CharsetEncoder
+	 * @param buffer ByteBuffer
+	 * @param chars CharBuffer
+	 * @param endOfInput boolean
+	 * @throws IOException
+	 */
+	private void encode(FileChannel channel, CharsetEncoder encoder, ByteBuffer buffer, CharBuffer chars, 
+			boolean endOfInput) throws IOException {
+		
+		CoderResult result;
+		do {
+			result = encoder.encode(chars, buffer, endOfInput);
+			if (result.isError()) {
+				result.throwException();
+			}
+			if (result.isOverflow()) {
+				drain(channel, buffer);
+			}
+		} while (result.isOverflow());
+	}
+	
+	/**
+	 * Flushes the encoder and writes whatever remains in the buffer. 
+	 * @param channel FileChannel
+	 * @param encoder CharsetEncoder
+	 * @param buffer ByteBuffer
+	 * @throws IOException
+	 */
+	private void flush(FileChannel channel, CharsetEncoder encoder, ByteBuffer buffer) throws IOException {
+		while (encoder.flush(buffer).isOverflow()) {
+			drain(channel, buffer);
+		}
+		drain(channel, buffer);
+	}
+	
+	/**
+	 * Writes the contents of the buffer to the channel and clears the buffer. 
+	 * @param channel FileChannel
+	 * @param buffer ByteBuffer
+	 * @throws IOException
+	 */
+	private void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+	
+	/**
+	 * Gives the temporary file the permissions of the file it replaces, where the
+	 * file system supports it.
+	 * @param target Path
+	 * @param temp Path
+	 */
+	private static void copyPermissions(Path target, Path temp) {
+		if (Files.exists(target)) {
+			try {
+				Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+			} catch (UnsupportedOperationException | IOException ex) {
+				// not a POSIX file system, the default permissions are used
+			}
+		}
+	}
+	
+	/**
+	 * Renames the temporary file over the target file, atomically if the file
+	 * system supports it.
+	 * @param temp Path
+	 * @param target Path
+	 * @throws IOException
+	 */
+	private static void replace(Path temp, Path target) throws IOException {
+		try {
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException ex) {
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+		
+		// make the rename itself durable, not supported on all platforms
+		try (FileChannel folder = FileChannel.open(target.getParent(), StandardOpenOption.READ)) {
+			folder.force(true);
+		} catch (IOException ex) {
+			// the rename is still in place, only its durability is up to the OS
+		}
+	}
+	
+	/**
+	 * Returns the format of the written file, available after a document was
+	 * written. Its source is the written file.
+	 * @return TextFileFormat
+	 */
+	public TextFileFormat getWrittenFormat() {
+		return writtenFormat;
+	}
+	
+	/**
+	 * Removes the temporary file left behind by a failed write. 
+	 * @param temp Path
+	 */
+	private static void deleteTempFile(Path temp) {
+		if (temp != null) {
+			try {
+				Files.deleteIfExists(temp);
+			} catch (IOException ex) {
+				// nothing more can be done, the target file was not touched
+			}
 		}
 	}
 
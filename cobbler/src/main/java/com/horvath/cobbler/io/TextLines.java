@@ -0,0 +1,147 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.io;
+
+/**
+ * Steps through the lines of a text by their offsets, without copying the text. 
+ * Lines end at "\r\n", "\n" or "\r". As with {@link String#split(String)}, empty
+ * lines at the end of the text are not stepped through, and an empty text has 
+ * a single empty line. 
+ * 
+ * @author jhorvath
+ */
+public final class TextLines {
+	
+	private final CharSequence text;
+	private final int end;
+	private final int stop;
+	
+	private int lineStart = -1;
+	private int lineEnd = -1;
+	private int next;
+	
+	/**
+	 * Constructor. 
+	 * @param text CharSequence
+	 */
+	public TextLines(CharSequence text) {
+		this(text, 0, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Constructor for stepping through the lines that start in a part of a text,
+	 * which are the same lines as those of the whole text. 
+	 * @param text CharSequence
+	 * @param from int - offset of the start of a line
+	 * @param to int - offset of the start of the line after the part, or at or past 
+	 *        the length of the text for the lines up to the end
+	 */
+	public TextLines(CharSequence text, int from, int to) {
+		this.text = text;
+		this.next = from;
+		this.stop = to < text.length() ? to : Integer.MAX_VALUE;
+		
+		// the text after the last character that is not a line terminator has no lines
+		int last = text.length();
+		while (last > 0 && isTerminator(text.charAt(last - 1))) {
+			last--;
+		}
+		this.end = last;
+	}
+	
+	/**
+	 * Moves to the next line. 
+	 * @return boolean - false if there are no more lines
+	 */
+	public boolean next() {
+		if (next > end || next >= stop || (end == 0 && text.length() > 0)) {
+			return false;
+		}
+		
+		lineStart = next;
+		int i = next;
+		while (i < end && !isTerminator(text.charAt(i))) {
+			i++;
+		}
+		lineEnd = i;
+		
+		if (i + 1 < text.length() && text.charAt(i) == '\r' && text.charAt(i + 1) == '\n') {
+			next = i + 2;
+		} else {
+			next = i + 1;
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the offset of the first character of the current line. 
+	 * @return int
+	 */
+	public int getStart() {
+		return lineStart;
+	}
+	
+	/**
+	 * Returns the offset after the last character of the current line, not counting its terminator. 
+	 * @return int
+	 */
+	public int getEnd() {
+		return lineEnd;
+	}
+	
+	/**
+	 * Returns the number of characters in the current line. 
+	 * @return int
+	 */
+	public int getLength() {
+		return lineEnd - lineStart;
+	}
+	
+	/**
+	 * Returns a copy of the current line. 
+	 * @return String
+	 */
+	public String getLine() {
+		return text.subSequence(lineStart, lineEnd).toString();
+	}
+	
+	/**
+	 * Returns the text the lines are in. 
+	 * @return CharSequence
+	 */
+	public CharSequence getText() {
+		return text;
+	}
+	
+	/**
+	 * Returns a boolean indicating if a character ends a line. 
+	 * @param c char
+	 * @return boolean
+	 */
+	private static boolean isTerminator(char c) {
+		return c == '\n' || c == '\r';
+	}
+
+}
@@ -26,17 +26,31 @@ package com.horvath.cobbler;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import com.horvath.cobbler.application.CobblerApplicationTest;
+import com.horvath.cobbler.application.DocumentStateTest;
+import com.horvath.cobbler.application.RecentFilesTest;
 import com.horvath.cobbler.command.AddLineNumbersCmdTest;
 import com.horvath.cobbler.command.CheckLineNumberStateCmdTest;
+import com.horvath.cobbler.command.LineNumberCountsTest;
+import com.horvath.cobbler.command.LineTransformTest;
+import com.horvath.cobbler.command.LoadAutosaveCmdTest;
 import com.horvath.cobbler.command.LoadFileCmdTest;
 import com.horvath.cobbler.command.LoadSettingsCmdTest;
 import com.horvath.cobbler.command.NewEmptyDocumentCmdTest;
 import com.horvath.cobbler.command.NewTemplateDocCmdTest;
+import com.horvath.cobbler.command.NormalizeLinesCmdTest;
 import com.horvath.cobbler.command.ReadResourceTextFileCmdTest;
+import com.horvath.cobbler.command.ReloadFileCmdTest;
 import com.horvath.cobbler.command.RemoveLineNumbersCmdTest;
+import com.horvath.cobbler.command.ReplayJournalCmdTest;
 import com.horvath.cobbler.command.SaveFileCmdTest;
 import com.horvath.cobbler.command.SaveSettingsCmdTest;
 import com.horvath.cobbler.gui.CobGuiTests;
+import com.horvath.cobbler.gui.action.LoadFileWorkerTest;
+import com.horvath.cobbler.gui.syntax.CobSyntaxTextAreaTest;
+import com.horvath.cobbler.gui.syntax.CobUndoManagerTest;
+import com.horvath.cobbler.io.SessionFileTest;
+import com.horvath.cobbler.io.TextFileFormatTest;
 
 @RunWith(Suite.class)
 
@@ -51,6 +65,20 @@ import com.horvath.cobbler.gui.CobGuiTests;
 	CheckLineNumberStateCmdTest.class,
 	AddLineNumbersCmdTest.class,
 	RemoveLineNumbersCmdTest.class,
+	LineTransformTest.class,
+	LineNumberCountsTest.class,
+	NormalizeLinesCmdTest.class,
+	ReplayJournalCmdTest.class,
+	LoadAutosaveCmdTest.class,
+	ReloadFileCmdTest.class,
+	DocumentStateTest.class,
+	CobUndoManagerTest.class,
+	CobSyntaxTextAreaTest.class,
+	SessionFileTest.class,
+	TextFileFormatTest.class,
+	RecentFilesTest.class,
+	CobblerApplicationTest.class,
+	LoadFileWorkerTest.class,
 	CobGuiTests.class
 })
 
@@ -0,0 +1,81 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.application;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.horvath.cobbler.command.LoadFileCmdTest;
+import com.horvath.cobbler.command.NormalizeLinesCmd;
+import com.horvath.cobbler.exception.CobblerException;
+
+/**
+ * Tests normalizing files without showing the window.
+ * @author jhorvath
+ */
+public class CobblerApplicationTest {
+	
+	public static final String COBBLERAPPLICATIONTEST_DIRECTORY = LoadFileCmdTest.RESOURCES_DIRECTORY 
+			+ File.separator + "LoadFileCmdTest";
+	
+	@Test
+	public void normalizeFile_mixedLineEndings_terminatorsKept() {
+		File file = new File(COBBLERAPPLICATIONTEST_DIRECTORY + File.separator + "Normalize_ACTUAL.cob");
+		
+		try {
+			// mostly CRLF, with bare LF and CR lines, every line numbered wrong and some with trailing spaces
+			StringBuilder original = new StringBuilder();
+			StringBuilder expected = new StringBuilder();
+			for (int i = 0; i < 500; i++) {
+				final String terminator = i % 7 == 0 ? "\n" : i % 11 == 0 ? "\r" : "\r\n";
+				final String statement = "     DISPLAY 'LINE " + i + "'.";
+				original.append(String.format("%06d", i * 3)).append(statement)
+						.append(i % 3 == 0 ? "   " : "").append(terminator);
+				expected.append(String.format("%06d", (i + 1) * 10)).append(statement).append(terminator);
+			}
+			Files.write(file.toPath(), original.toString().getBytes(StandardCharsets.UTF_8));
+			
+			NormalizeLinesCmd cmd = CobblerApplication.normalizeFile(file, 
+					NormalizeLinesCmd.parseStages("sequence=renumber,trim", 10));
+			
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertEquals(0, cmd.getSkipCount());
+			Assert.assertEquals(expected.toString(), new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+			
+		} catch (CobblerException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			file.delete();
+		}
+	}
+
+}
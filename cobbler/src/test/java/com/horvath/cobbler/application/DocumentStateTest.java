@@ -0,0 +1,304 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.application;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Random;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.undo.UndoManager;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
+import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.LineHashes;
+import com.horvath.cobbler.io.SnapshotTracker;
+
+/**
+ * Tests parking and restoring the documents of tabs that are not being viewed.
+ * @author jhorvath
+ */
+public class DocumentStateTest {
+	
+	private static final String[] VERBS = {"MOVE", "ADD", "COMPUTE", "DISPLAY", "PERFORM", "IF", "SUBTRACT"};
+	
+	@Test
+	public void park_unicodeAcrossBuffers_restoredExactly() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			sb.append("000100     DISPLAY 'Caf\u00e9 \uD83D\uDE00 \u00fc' ").append(i).append(".\n");
+		}
+		final String text = sb.toString();
+		
+		DocumentState state = new DocumentState();
+		RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+		
+		try {
+			document.insertString(0, text, null);
+			state.setDocument(document);
+			final long version = state.getVersion();
+			
+			state.park();
+			Assert.assertTrue(state.isParked());
+			Assert.assertNull(state.getDocument());
+			Assert.assertEquals(text.length(), state.getParkedText().length());
+			
+			RSyntaxDocument restored = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+			state.unpark(restored);
+			
+			Assert.assertFalse(state.isParked());
+			Assert.assertSame(restored, state.getDocument());
+			Assert.assertEquals(text, restored.getText(0, restored.getLength()));
+			Assert.assertTrue(state.getVersion() > version);
+			
+		} catch (CobblerException | BadLocationException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void park_unsavedChanges_notParked() {
+		DocumentState state = new DocumentState();
+		RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+		
+		try {
+			document.insertString(0, "       PROGRAM-ID. HELLO.\n", null);
+			state.setDocument(document);
+			state.setDirty(true);
+			
+			state.park();
+			
+			Assert.assertFalse(state.isParked());
+			Assert.assertSame(document, state.getDocument());
+			
+		} catch (CobblerException | BadLocationException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void park_fiftyCopybooks_smallFractionOfDocumentMemory() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		Random random = new Random(14);
+		ArrayList<DocumentState> states = new ArrayList<>();
+		
+		try {
+			long chars = 0;
+			for (int i = 0; i < 50; i++) {
+				RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+				document.insertString(0, createCopybook(random, 4000), null);
+				chars += document.getLength();
+				
+				DocumentState state = new DocumentState();
+				state.setDocument(document);
+				states.add(state);
+			}
+			
+			System.gc();
+			final long liveHeap = memory.getHeapMemoryUsage().getUsed();
+			
+			long compressed = 0;
+			for (DocumentState state : states) {
+				state.park();
+				compressed += state.getParkedText().getCompressedSize();
+			}
+			
+			System.gc();
+			final long parkedHeap = memory.getHeapMemoryUsage().getUsed();
+			
+			// the documents held two bytes a character, at least half of that is given back
+			Assert.assertTrue("freed " + (liveHeap - parkedHeap) + " bytes", liveHeap - parkedHeap > chars);
+			Assert.assertTrue("parked in " + compressed + " bytes", compressed < chars * 2 / 5);
+			for (DocumentState state : states) {
+				Assert.assertTrue(state.isParked());
+			}
+			
+		} catch (CobblerException | BadLocationException ex) {
+			Assert.fail();
+		}
+	}
+	
+	/**
+	 * Creates the text of a copybook with numbered lines of varied statements. 
+	 * @param random Random
+	 * @param lines int
+	 * @return String
+	 */
+	private static String createCopybook(Random random, int lines) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 1; i <= lines; i++) {
+			sb.append(String.format("%06d", i * 10)).append("     ");
+			sb.append(VERBS[random.nextInt(VERBS.length)]).append(" WS-FIELD-").append(random.nextInt(500));
+			sb.append(" TO WS-TOTAL-").append(random.nextInt(50)).append(".\n");
+		}
+		return sb.toString();
+	}
+	
+	@Test
+	public void setDocument_sameDocumentAgain_snapshotTrackerKept() {
+		DocumentState state = new DocumentState();
+		RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+		
+		try {
+			state.setDocument(document);
+			SnapshotTracker tracker = state.getSnapshotTracker();
+			
+			// a load backs the state with the document it was read into, which the autosave may already follow
+			document.insertString(0, "       PROGRAM-ID. HELLO.\n", null);
+			state.setDocument(document);
+			Assert.assertSame(tracker, state.getSnapshotTracker());
+			
+			document.insertString(0, "      * RECOVERED\n", null);
+			Assert.assertEquals(document.getText(0, document.getLength()), tracker.snapshot().toString());
+			
+			// another document gets a tracker of its own
+			state.setDocument(new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE));
+			Assert.assertNotSame(tracker, state.getSnapshotTracker());
+			
+		} catch (BadLocationException | CobblerException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void dirty_editUndoneOrTypedBack_notDirty() {
+		DocumentState state = new DocumentState();
+		RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+		UndoManager undo = new UndoManager();
+		
+		try {
+			document.insertString(0, "       PROGRAM-ID. HELLO.\n       PROCEDURE DIVISION.\n", null);
+			state.setDocument(document);
+			state.setDirty(false);
+			document.addUndoableEditListener(undo);
+			
+			document.insertString(26, "           DISPLAY 'HI'.\n", null);
+			Assert.assertTrue(state.isDirty());
+			
+			undo.undo();
+			Assert.assertFalse(state.isDirty());
+			
+			// deleting a character and typing it back
+			document.remove(10, 1);
+			Assert.assertTrue(state.isDirty());
+			document.insertString(10, "G", null);
+			Assert.assertFalse(state.isDirty());
+			
+			// a document marked changed stays changed until it is saved
+			state.setDirty(true);
+			Assert.assertTrue(state.isDirty());
+			state.setDirty(false);
+			Assert.assertFalse(state.isDirty());
+			
+		} catch (BadLocationException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void dirty_paragraphsBetweenBlankLinesSwapped_dirty() {
+		DocumentState state = new DocumentState();
+		RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+		
+		final String first = "       PARA-A.\n           DISPLAY 'A'.\n\n";
+		final String second = "       PARA-B.\n           DISPLAY 'B'.\n\n";
+		
+		try {
+			document.insertString(0, first + second, null);
+			state.setDocument(document);
+			state.setDirty(false);
+			
+			// the same lines, and the same pairs of neighbouring lines, in another order
+			document.remove(0, first.length());
+			document.insertString(second.length(), first, null);
+			Assert.assertEquals(second + first, document.getText(0, document.getLength()));
+			Assert.assertTrue(state.isDirty());
+			
+			document.remove(0, second.length());
+			document.insertString(first.length(), second, null);
+			Assert.assertFalse(state.isDirty());
+			
+		} catch (BadLocationException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void lineHashes_randomEdits_fingerprintOfText() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 3000; i++) {
+			sb.append(String.format("%06d", i * 10)).append("     ").append(VERBS[i % VERBS.length]).append(" WS-A.\n");
+		}
+		
+		RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+		Random random = new Random(16);
+		
+		try {
+			document.insertString(0, sb.toString(), null);
+			LineHashes hashes = new LineHashes(document);
+			
+			for (int i = 0; i < 2000; i++) {
+				final int offset = random.nextInt(document.getLength() + 1);
+				switch (random.nextInt(4)) {
+				case 0:
+					document.remove(offset, Math.min(random.nextInt(400), document.getLength() - offset));
+					break;
+				case 1:
+					document.insertString(offset, "\n", null);
+					break;
+				case 2:
+					// pasting a block of lines, enough to split the blocks of hashes
+					document.insertString(offset, sb.substring(0, random.nextInt(40000)), null);
+					break;
+				default:
+					document.insertString(offset, VERBS[random.nextInt(VERBS.length)], null);
+				}
+				
+				if (i % 50 == 0) {
+					final String text = document.getText(0, document.getLength());
+					Assert.assertEquals(LineHashes.fingerprint(text), hashes.getFingerprint());
+					Assert.assertEquals(document.getDefaultRootElement().getElementCount(), hashes.getLineCount());
+				}
+			}
+			
+			final String text = document.getText(0, document.getLength());
+			Assert.assertEquals(LineHashes.fingerprint(text), hashes.getFingerprint());
+			Assert.assertNotEquals(LineHashes.fingerprint(text + " "), hashes.getFingerprint());
+			
+			hashes.dispose();
+			document.insertString(0, "X", null);
+			Assert.assertEquals(LineHashes.fingerprint(text), hashes.getFingerprint());
+			
+		} catch (BadLocationException ex) {
+			Assert.fail();
+		}
+	}
+
+}
@@ -0,0 +1,128 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.application;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.horvath.cobbler.command.AbstractLineNumberCmd.LineState;
+import com.horvath.cobbler.command.LoadFileCmdTest;
+import com.horvath.cobbler.io.EbcdicCodePage;
+
+/**
+ * Tests the files opened most recently.
+ * @author jhorvath
+ */
+public class RecentFilesTest {
+	
+	public static final String RECENTFILESTEST_DIRECTORY = LoadFileCmdTest.RESOURCES_DIRECTORY 
+			+ File.separator + "LoadFileCmdTest";
+	
+	@Test
+	public void touch_overMaximum_leastRecentDroppedWithItsCodePage() {
+		RecentFiles recentFiles = new RecentFiles(3);
+		
+		recentFiles.touch("/src/A.cob");
+		recentFiles.setCodePage("/src/A.cob", EbcdicCodePage.IBM1140);
+		recentFiles.touch("/src/B.cob");
+		recentFiles.touch("/src/C.cob");
+		
+		// opening a file again brings it to the front, with what is known about it
+		recentFiles.touch("/src/A.cob");
+		Assert.assertEquals(Arrays.asList("/src/A.cob", "/src/C.cob", "/src/B.cob"), recentFiles.getPaths());
+		Assert.assertEquals(EbcdicCodePage.IBM1140, recentFiles.get("/src/A.cob").getCodePage());
+		
+		recentFiles.touch("/src/D.cob");
+		Assert.assertEquals(Arrays.asList("/src/D.cob", "/src/A.cob", "/src/C.cob"), recentFiles.getPaths());
+		Assert.assertNull(recentFiles.get("/src/B.cob"));
+		
+		// lowering the maximum drops the oldest
+		Assert.assertTrue(recentFiles.setMax(1));
+		Assert.assertEquals(Arrays.asList("/src/D.cob"), recentFiles.getPaths());
+		Assert.assertFalse(recentFiles.setMax(5));
+	}
+	
+	@Test
+	public void filter_lettersInOrder_fileNameMatchesFirst() {
+		RecentFiles recentFiles = new RecentFiles(10);
+		recentFiles.touch("/payroll/batch/REPORT.cbl");
+		recentFiles.touch("/src/PAYROLL.cbl");
+		recentFiles.touch("/src/INVOICE.cbl");
+		recentFiles.touch("/src/PAYMENTS.cob");
+		
+		List<RecentFiles.Entry> matches = recentFiles.filter("pyrl");
+		Assert.assertEquals(2, matches.size());
+		Assert.assertEquals("/src/PAYROLL.cbl", matches.get(0).getPath());
+		Assert.assertEquals("/payroll/batch/REPORT.cbl", matches.get(1).getPath());
+		
+		// files that match equally well stay in order of use
+		matches = recentFiles.filter("cbl");
+		Assert.assertEquals("/src/INVOICE.cbl", matches.get(0).getPath());
+		
+		Assert.assertTrue(recentFiles.filter("zzz").isEmpty());
+		Assert.assertEquals(4, recentFiles.filter("").size());
+	}
+	
+	@Test
+	public void validate_filesOnDisk_metadataCachedAndMissingMarked() {
+		File file = new File(RECENTFILESTEST_DIRECTORY + File.separator + "Recent_ACTUAL.cob");
+		String missing = new File(RECENTFILESTEST_DIRECTORY + File.separator + "Gone_ACTUAL.cob").getAbsolutePath();
+		RecentFiles recentFiles = new RecentFiles(10);
+		
+		try {
+			Files.write(file.toPath(), "000100 IDENTIFICATION DIVISION.\n000200 PROGRAM-ID. RECENT.\n".getBytes());
+			recentFiles.touch(missing);
+			recentFiles.touch(file.getAbsolutePath());
+			
+			CountDownLatch changed = new CountDownLatch(1);
+			recentFiles.validate(0, changed::countDown);
+			Assert.assertTrue(changed.await(10, TimeUnit.SECONDS));
+			
+			RecentFiles.Entry entry = recentFiles.get(file.getAbsolutePath());
+			Assert.assertFalse(entry.isMissing());
+			Assert.assertEquals(file.length(), entry.getSize());
+			Assert.assertEquals(file.lastModified(), entry.getLastModified());
+			Assert.assertEquals(LineState.NUMBERED, entry.getLineState());
+			Assert.assertTrue(recentFiles.get(missing).isMissing());
+			
+		} catch (IOException | InterruptedException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			recentFiles.close();
+			file.delete();
+		}
+	}
+
+}
@@ -24,11 +24,27 @@
 
 package com.horvath.cobbler.command;
 
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.text.BadLocationException;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
+import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.horvath.cobbler.application.CobblerState;
 import com.horvath.cobbler.command.AbstractLineNumberCmd.LineState;
 import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.DocumentSnapshot;
+import com.horvath.cobbler.io.DocumentText;
+import com.horvath.cobbler.io.TextLines;
 
 /**
  * Perform tests related to CheckLineNumberStateCmd class.
@@ -40,6 +56,7 @@ public final class CheckLineNumberStateCmdTest {
 	private static final String LINEFEED_RETURN = "\n";
 	private static final String CR_LF = CARRIAGE_RETURN + LINEFEED_RETURN;
 	private static final String WORD_SPACE = " ";
+	private static final int EDIT_COLUMN = 20;
 	private static final String WORD_SPACE_LINE = WORD_SPACE + WORD_SPACE + WORD_SPACE + WORD_SPACE + WORD_SPACE + WORD_SPACE;
 
 	@Test 
@@ -255,4 +272,212 @@ public final class CheckLineNumberStateCmdTest {
 		}
 	}
 	
+	@Test
+	public void splitStringOnNewlines_trailingAndOnlyNewlines_matchesStringSplit() {
+		final String[] texts = {"", "abc", "a\n\n", "\n\n", "\nb\r\n\rc\r", "a\r\n\r\nb"};
+		
+		for (String text : texts) {
+			Assert.assertArrayEquals(text.split("\\r?\\n|\\r"), AbstractLineNumberCmd.splitStringOnNewlines(text));
+		}
+	}
+	
+	@Test
+	public void perform_documentText_linestateNumbered() {
+		RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+		
+		try {
+			document.insertString(0, "000100 IDENTIFICATION DIVISION." + LINEFEED_RETURN 
+					+ "000200 PROGRAM-ID. HELLO." + LINEFEED_RETURN + LINEFEED_RETURN, null);
+			
+			CheckLineNumberStateCmd cmd = new CheckLineNumberStateCmd(new DocumentText(document));
+			cmd.perform();
+
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertEquals(LineState.NUMBERED, cmd.getLineState());
+
+		} catch (CobblerException | BadLocationException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void perform_millionLineDocument_scannedWithoutCopy() {
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long threadId = Thread.currentThread().getId();
+		final int lineCount = 1000000;
+		final String line = "000100     MOVE WS-A TO WS-B." + LINEFEED_RETURN;
+		
+		RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+		
+		try {
+			StringBuilder sb = new StringBuilder(line.length() * lineCount);
+			for (int i = 0; i < lineCount; i++) {
+				sb.append(line);
+			}
+			document.insertString(0, sb.toString(), null);
+			sb = null;
+			
+			// edits far apart move the gap across most of the document each time
+			long start = System.nanoTime();
+			for (int i = 0; i < 100; i++) {
+				final int offset = (i % 2 == 0 ? 10 : lineCount - 10) * line.length() + EDIT_COLUMN;
+				document.insertString(offset, "X", null);
+				document.remove(offset, 1);
+			}
+			final long editNanos = System.nanoTime() - start;
+			
+			// a full scan as the line number commands did it, with a copy and a split
+			start = System.nanoTime();
+			long before = threadBean.getThreadAllocatedBytes(threadId);
+			final int copiedLines = AbstractLineNumberCmd.splitStringOnNewlines(document.getText(0, document.getLength())).length;
+			final long copyBytes = threadBean.getThreadAllocatedBytes(threadId) - before;
+			final long copyNanos = System.nanoTime() - start;
+			
+			// the same scan over the document where it is kept
+			start = System.nanoTime();
+			before = threadBean.getThreadAllocatedBytes(threadId);
+			int viewLines = 0;
+			TextLines lines = new TextLines(new DocumentText(document));
+			while (lines.next()) {
+				viewLines++;
+			}
+			final long viewBytes = threadBean.getThreadAllocatedBytes(threadId) - before;
+			final long viewNanos = System.nanoTime() - start;
+			
+			CheckLineNumberStateCmd cmd = new CheckLineNumberStateCmd(new DocumentText(document));
+			cmd.perform();
+			
+			Assert.assertEquals(lineCount, copiedLines);
+			Assert.assertEquals(lineCount, viewLines);
+			Assert.assertTrue("in place scan allocated " + viewBytes + " bytes", viewBytes < copyBytes / 100);
+			
+			// generous bounds, moving the gap of a 30 MB document takes milliseconds per edit
+			Assert.assertTrue("far apart edits took " + editNanos + " ns", editNanos < TimeUnit.SECONDS.toNanos(5));
+			Assert.assertTrue("in place scan took " + viewNanos + " ns", viewNanos < copyNanos + TimeUnit.SECONDS.toNanos(1));
+			Assert.assertEquals(LineState.NUMBERED, cmd.getLineState());
+
+		} catch (CobblerException | BadLocationException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void perform_snapshotWhileTyping_staleResultDetected() {
+		CobblerState state = CobblerState.getInstance();
+		RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+		ExecutorService worker = Executors.newSingleThreadExecutor();
+		
+		try {
+			state.setDocument(document);
+			document.insertString(0, "000100 IDENTIFICATION DIVISION." + LINEFEED_RETURN, null);
+			
+			final DocumentSnapshot snapshot = state.getSnapshot();
+			final String before = snapshot.toString();
+			final CountDownLatch typed = new CountDownLatch(1);
+			
+			// the check runs on another thread while the document is edited
+			Future<CheckLineNumberStateCmd> result = worker.submit(() -> {
+				typed.await();
+				CheckLineNumberStateCmd cmd = new CheckLineNumberStateCmd(snapshot);
+				cmd.perform();
+				return cmd;
+			});
+			document.insertString(0, "       PROGRAM-ID. HELLO." + LINEFEED_RETURN, null);
+			typed.countDown();
+			
+			CheckLineNumberStateCmd cmd = result.get();
+			
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertEquals(LineState.NUMBERED, cmd.getLineState());
+			Assert.assertEquals(snapshot.getVersion(), cmd.getVersion());
+			Assert.assertFalse(state.isCurrent(cmd.getVersion()));
+			Assert.assertEquals(before, snapshot.toString());
+			Assert.assertTrue(state.isCurrent(state.getSnapshot().getVersion()));
+
+		} catch (Exception ex) {
+			Assert.fail();
+			
+		} finally {
+			worker.shutdown();
+			state.setDocument(null);
+		}
+	}
+	
+	@Test
+	public void getSnapshot_randomEdits_snapshotsMatchDocument() {
+		CobblerState state = CobblerState.getInstance();
+		RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+		Random random = new Random(13);
+		
+		try {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 5000; i++) {
+				sb.append("000100     MOVE WS-A TO WS-B.").append(LINEFEED_RETURN);
+			}
+			document.insertString(0, sb.toString(), null);
+			state.setDocument(document);
+			
+			for (int i = 0; i < 500; i++) {
+				// a few edits anywhere in the document between two snapshots
+				for (int edit = random.nextInt(4); edit >= 0; edit--) {
+					final int offset = random.nextInt(document.getLength() + 1);
+					if (random.nextBoolean()) {
+						document.insertString(offset, sb.substring(0, random.nextInt(40000)), null);
+					} else {
+						document.remove(offset, Math.min(random.nextInt(40000), document.getLength() - offset));
+					}
+				}
+				Assert.assertEquals(document.getText(0, document.getLength()), state.getSnapshot().toString());
+			}
+
+		} catch (CobblerException | BadLocationException ex) {
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+		}
+	}
+	
+	@Test
+	public void getSnapshot_typingInMillionLineDocument_editedChunkCopiedOnly() {
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long threadId = Thread.currentThread().getId();
+		final String line = "000100     MOVE WS-A TO WS-B." + LINEFEED_RETURN;
+		
+		CobblerState state = CobblerState.getInstance();
+		RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+		
+		try {
+			StringBuilder sb = new StringBuilder(line.length() * 1000000);
+			for (int i = 0; i < 1000000; i++) {
+				sb.append(line);
+			}
+			document.insertString(0, sb.toString(), null);
+			sb = null;
+			state.setDocument(document);
+			final DocumentSnapshot first = state.getSnapshot();
+			
+			// a snapshot after each keystroke
+			long before = threadBean.getThreadAllocatedBytes(threadId);
+			DocumentSnapshot last = first;
+			for (int i = 0; i < 100; i++) {
+				document.insertString(500000 * line.length() + i, "X", null);
+				last = state.getSnapshot();
+			}
+			final long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+			
+			Assert.assertEquals(first.getVersion() + 100, last.getVersion());
+			Assert.assertEquals(first.length() + 100, last.length());
+			Assert.assertEquals('X', last.charAt(500000 * line.length() + 99));
+			Assert.assertEquals(document.getText(0, document.getLength()), last.toString());
+			Assert.assertTrue("snapshots allocated " + allocated + " bytes", allocated < document.getLength() / 2);
+
+		} catch (CobblerException | BadLocationException ex) {
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+		}
+	}
+	
 }
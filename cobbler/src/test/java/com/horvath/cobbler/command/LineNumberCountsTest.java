@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.command;
+
+import java.util.Random;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
+import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.horvath.cobbler.command.AbstractLineNumberCmd.LineState;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.DocumentText;
+
+/**
+ * Tests keeping the line number state of a document from its edits.
+ * @author jhorvath
+ */
+public class LineNumberCountsTest {
+	
+	private static final String[] LINES = {
+			"000100 IDENTIFICATION DIVISION.\n",
+			"       PROGRAM-ID. COUNTS.\n",
+			"\n",
+			"000300\tMOVE A TO B.\n",
+			"  12AB DISPLAY 'X'.\n",
+			"1 2 3  MIXED.\n",
+			"ABC\n",
+			"000400 STOP RUN.\n"
+	};
+	
+	@Test
+	public void getLineState_randomEdits_sameAsCheckCommand() {
+		RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+		Random random = new Random(24);
+		
+		try {
+			document.insertString(0, LINES[0] + LINES[1], null);
+			LineNumberCounts counts = new LineNumberCounts(document);
+			
+			for (int i = 0; i < 2000; i++) {
+				final int offset = random.nextInt(document.getLength() + 1);
+				if (random.nextInt(3) == 0 && document.getLength() > 0) {
+					document.remove(offset, Math.min(random.nextInt(40), document.getLength() - offset));
+				} else if (random.nextBoolean()) {
+					document.insertString(offset, LINES[random.nextInt(LINES.length)], null);
+				} else {
+					document.insertString(offset, String.valueOf("0 A\t\n".charAt(random.nextInt(5))), null);
+				}
+				
+				CheckLineNumberStateCmd cmd = new CheckLineNumberStateCmd(new DocumentText(document));
+				cmd.perform();
+				Assert.assertEquals(cmd.getLineState(), counts.getLineState());
+				Assert.assertEquals(document.getDefaultRootElement().getElementCount(), counts.getLineCount());
+				
+				if (i % 100 == 0) {
+					assertKinds(document, counts);
+				}
+			}
+			counts.dispose();
+			
+		} catch (BadLocationException | CobblerException ex) {
+			// should not get here
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void getLineState_range_onlyThoseLines() {
+		RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+		
+		try {
+			document.insertString(0, LINES[0] + LINES[7] + LINES[1] + LINES[2] + LINES[3], null);
+			LineNumberCounts counts = new LineNumberCounts(document);
+			
+			Assert.assertEquals(LineState.INDETERMINATE, counts.getLineState());
+			Assert.assertEquals(LineState.NUMBERED, counts.getLineState(0, 1));
+			Assert.assertEquals(LineState.NOT_NUMBERED, counts.getLineState(2, 3));
+			Assert.assertNull(counts.getLineState(3, 3));
+			
+			// taking out the tab line leaves lines with and without numbers
+			document.remove(document.getDefaultRootElement().getElement(4).getStartOffset(), LINES[3].length());
+			Assert.assertEquals(LineState.INDETERMINATE, counts.getLineState());
+			document.remove(0, LINES[0].length() + LINES[7].length());
+			Assert.assertEquals(LineState.NOT_NUMBERED, counts.getLineState());
+			
+		} catch (BadLocationException ex) {
+			// should not get here
+			Assert.fail();
+		}
+	}
+	
+	/**
+	 * Checks the kind kept for each line against the line classified from the text. 
+	 * @param document RSyntaxDocument
+	 * @param counts LineNumberCounts
+	 */
+	private static void assertKinds(RSyntaxDocument document, LineNumberCounts counts) throws BadLocationException {
+		Element root = document.getDefaultRootElement();
+		String text = document.getText(0, document.getLength());
+		for (int i = 0; i < root.getElementCount(); i++) {
+			Element line = root.getElement(i);
+			final int end = Math.min(line.getEndOffset() - 1, text.length());
+			Assert.assertEquals(LineNumberCounts.classify(text, line.getStartOffset(), end), counts.getKind(i));
+		}
+	}
+
+}
@@ -0,0 +1,268 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.command;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.horvath.cobbler.command.AbstractLineNumberCmd.LineState;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.LineDiff;
+
+/**
+ * Tests rewriting a text a line at a time.
+ * @author jhorvath
+ */
+public class LineTransformTest {
+	
+	private static final String MIXED_LINES = "000100 IDENTIFICATION DIVISION.\r\n"
+			+ "       PROGRAM-ID. MIXED.\n"
+			+ "\n"
+			+ "  \t  \n"
+			+ "ABC\n"
+			+ "  12AB MOVE A TO B.\r"
+			+ "\t   * a comment moved over\n"
+			+ "   - continued   \n"
+			+ "    DISPLAY 'TRIMMED'.  \n"
+			+ "00010\n";
+	
+	@Test
+	public void appendNumber_anyNumber_sameAsFormat() {
+		LineTransform.Output out = new LineTransform.Output(0);
+		StringBuilder expected = new StringBuilder();
+		for (int number : new int[] { 0, 7, 10, 999999, 1000000, 12345678, Integer.MAX_VALUE }) {
+			out.appendNumber(number, 6);
+			expected.append(String.format("%06d", number));
+		}
+		Assert.assertEquals(expected.toString(), out.toString());
+	}
+	
+	@Test
+	public void addLineNumbers_mixedLines_sameAsLineByLineStrings() {
+		try {
+			for (LineState lineState : LineState.values()) {
+				AddLineNumbersCmd cmd = new AddLineNumbersCmd(MIXED_LINES, lineState, 10);
+				cmd.perform();
+				Assert.assertEquals(addWithStrings(MIXED_LINES, lineState == LineState.INDETERMINATE, 10), cmd.getResult());
+			}
+			
+			RemoveLineNumbersCmd cmd = new RemoveLineNumbersCmd(MIXED_LINES);
+			cmd.perform();
+			Assert.assertEquals("       IDENTIFICATION DIVISION.\n", cmd.getResult().substring(0, 32));
+			Assert.assertEquals(9, Integer.parseInt(cmd.getMessage().substring(0, 1)));
+			
+		} catch (CobblerException ex) {
+			// should not get here
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void apply_numbersPastSixDigits_widened() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 3; i++) {
+			text.append("       DISPLAY 'X'.\n");
+		}
+		
+		try {
+			AddLineNumbersCmd cmd = new AddLineNumbersCmd(text, LineState.NOT_NUMBERED, 400000);
+			cmd.perform();
+			Assert.assertEquals("400000 DISPLAY 'X'.\n800000 DISPLAY 'X'.\n1200000 DISPLAY 'X'.\n", cmd.getResult());
+			
+		} catch (CobblerException ex) {
+			// should not get here
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void edits_renumberRange_onlyChangedColumns() {
+		final String text = "000100 A.\n000200 B.\n000250 C.\n000999 D.\n000400 E.\n";
+		
+		try {
+			AddLineNumbersCmd cmd = new AddLineNumbersCmd(text, LineState.NUMBERED, 100, 2, 3);
+			cmd.perform();
+			List<LineDiff.Hunk> edits = cmd.getEdits();
+			
+			// continues from the line before the range, replacing only the digits that differ
+			Assert.assertEquals(2, edits.size());
+			Assert.assertEquals(23, edits.get(0).getOffset());
+			Assert.assertEquals(2, edits.get(0).getLength());
+			Assert.assertEquals("30", edits.get(0).getText());
+			Assert.assertEquals(33, edits.get(1).getOffset());
+			Assert.assertEquals("400", edits.get(1).getText());
+			Assert.assertEquals("000100 A.\n000200 B.\n000300 C.\n000400 D.\n000400 E.\n", apply(text, edits));
+			
+		} catch (CobblerException ex) {
+			// should not get here
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void edits_removeRange_wholeTextUnchangedOutsideRange() {
+		final String text = "000100 A.\r\n000200 B.\r\n000300 C.\r\n";
+		
+		try {
+			RemoveLineNumbersCmd cmd = new RemoveLineNumbersCmd(text, 1, 2);
+			cmd.perform();
+			
+			Assert.assertEquals(2, cmd.getEdits().size());
+			Assert.assertEquals("000100 A.\r\n       B.\r\n       C.\r\n", apply(text, cmd.getEdits()));
+			Assert.assertEquals(11 + 8, LineDiff.mapOffset(cmd.getEdits(), 11 + 8));
+			Assert.assertEquals(11, LineDiff.mapOffset(cmd.getEdits(), 11 + 3));
+			
+		} catch (CobblerException ex) {
+			// should not get here
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void apply_inChunks_sameAsSinglePass() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5; i++) {
+			sb.append(MIXED_LINES.replace("\r\n", i % 2 == 0 ? "\r\n" : "\r"));
+		}
+		
+		for (String text : new String[] { sb.toString(), sb + "\r\n\n", "", "\n\n", "ONE LINE" }) {
+			IndexedLines single = new IndexedLines();
+			final String expected = single.apply(text, 1);
+			
+			for (int chunkCount = 2; chunkCount < 12; chunkCount++) {
+				IndexedLines chunked = new IndexedLines();
+				Assert.assertEquals(expected, chunked.apply(text, chunkCount));
+				Assert.assertEquals(single.blankCount, chunked.blankCount);
+			}
+		}
+	}
+	
+	@Test
+	public void addAndRemove_largeText_sameAsLineByLineStrings() {
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < LineTransform.PARALLEL_MIN_LENGTH * 2) {
+			sb.append(MIXED_LINES);
+		}
+		final String text = sb.toString();
+		
+		try {
+			AddLineNumbersCmd add = new AddLineNumbersCmd(text, LineState.INDETERMINATE, 7);
+			add.perform();
+			Assert.assertEquals(addWithStrings(text, true, 7), add.getResult());
+			
+			RemoveLineNumbersCmd remove = new RemoveLineNumbersCmd(add.getResult());
+			remove.perform();
+			Assert.assertTrue(remove.isSuccess());
+			Assert.assertEquals("", remove.getMessage());
+			
+		} catch (CobblerException ex) {
+			// should not get here
+			Assert.fail();
+		}
+	}
+	
+	/**
+	 * Writes the index of each line in front of it and counts the blank lines. 
+	 */
+	private static final class IndexedLines extends LineTransform {
+		
+		private int index = 0;
+		private int blankCount = 0;
+		
+		@Override
+		protected LineTransform fork(int firstLine) {
+			IndexedLines chunk = new IndexedLines();
+			chunk.index = firstLine;
+			return chunk;
+		}
+		
+		@Override
+		protected void join(LineTransform chunk) {
+			blankCount += ((IndexedLines) chunk).blankCount;
+		}
+		
+		@Override
+		protected void transformLine(CharSequence text, int start, int end, Output out) {
+			out.appendNumber(index++, SEQUENCE_COLUMNS);
+			out.append(text, start, end);
+			if (isBlank(text, start, end)) {
+				blankCount++;
+			}
+		}
+	}
+	
+	/**
+	 * Applies the replacements to a text, from the last to the first. 
+	 * @param text String
+	 * @param edits List of LineDiff.Hunk
+	 * @return String
+	 */
+	private static String apply(String text, List<LineDiff.Hunk> edits) {
+		StringBuilder sb = new StringBuilder(text);
+		for (int i = edits.size() - 1; i >= 0; i--) {
+			LineDiff.Hunk hunk = edits.get(i);
+			sb.replace(hunk.getOffset(), hunk.getOffset() + hunk.getLength(), hunk.getText());
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Adds line numbers a line at a time with String operations, as a reference. 
+	 * @param text String
+	 * @param indeterminate boolean
+	 * @param increment int
+	 * @return String
+	 */
+	private static String addWithStrings(String text, boolean indeterminate, int increment) {
+		StringBuilder sb = new StringBuilder();
+		int counter = increment;
+		for (String line : AbstractLineNumberCmd.splitStringOnNewlines(text)) {
+			String formatted = String.format("%06d", counter);
+			counter += increment;
+			sb.append(formatted);
+			
+			if (line.trim().isEmpty()) {
+				// nothing after the number
+			} else if (!indeterminate) {
+				if (line.length() >= 6) {
+					sb.append(line.substring(6));
+				}
+			} else if (line.length() >= 6 && (line.substring(0, 6).matches("\\d{6}") || line.startsWith("      "))) {
+				sb.append(line.substring(6));
+			} else {
+				line = line.trim();
+				if (line.charAt(0) != '*' && line.charAt(0) != '-') {
+					sb.append(" ");
+				}
+				sb.append(line);
+			}
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+
+}
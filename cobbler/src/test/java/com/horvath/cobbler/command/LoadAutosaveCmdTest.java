@@ -0,0 +1,122 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.horvath.cobbler.application.CobblerState;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.AutosaveService;
+import com.horvath.cobbler.io.LineDiff;
+import com.horvath.cobbler.io.TextFileFormat;
+import com.horvath.cobbler.io.TextFileWriter;
+
+/**
+ * Tests operations of the LoadAutosaveCmd class.
+ * @author jhorvath
+ */
+public class LoadAutosaveCmdTest {
+	
+	@Test
+	public void perform_sidecarNewerThanFile_editsRecovered() {
+		File file = new File(SaveFileCmdTest.SAVEFILECMDTEST_DIRECTORY + File.separator + "Recover_ACTUAL.cob");
+		File folder = new File(SaveFileCmdTest.SAVEFILECMDTEST_DIRECTORY + File.separator + "Recover_ACTUAL");
+		File sidecar = new AutosaveService(folder).getSidecar(file);
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			Files.write(file.toPath(), ("       IDENTIFICATION DIVISION.\r\n       PROGRAM-ID. RECOVER.\r\n" 
+					+ "       PROCEDURE DIVISION.\r\n").getBytes(StandardCharsets.UTF_8));
+			
+			// the work autosaved before a crash, in the format of the file
+			PlainDocument edited = new PlainDocument();
+			new LoadFileCmd(file, edited).perform();
+			TextFileFormat format = state.getFileFormat();
+			edited.insertString(edited.getLength(), "           DISPLAY 'RECOVERED'.\n", null);
+			edited.remove(7, 15);
+			folder.mkdirs();
+			new TextFileWriter(edited, sidecar, format).write();
+			Assert.assertTrue(sidecar.setLastModified(file.lastModified() + 2000));
+			
+			// the file is opened again
+			PlainDocument document = new PlainDocument();
+			new LoadFileCmd(file, document).perform();
+			Assert.assertTrue(LoadAutosaveCmd.isNewer(sidecar, file));
+			
+			LoadAutosaveCmd cmd = new LoadAutosaveCmd(sidecar, document, state.getFileFormat(), null);
+			cmd.perform();
+			Assert.assertTrue(cmd.isSuccess());
+			
+			List<LineDiff.Hunk> edits = cmd.getEdits();
+			Assert.assertEquals(2, edits.size());
+			for (int i = edits.size() - 1; i >= 0; i--) {
+				document.remove(edits.get(i).getOffset(), edits.get(i).getLength());
+				document.insertString(edits.get(i).getOffset(), edits.get(i).getText(), null);
+			}
+			Assert.assertEquals(edited.getText(0, edited.getLength()), document.getText(0, document.getLength()));
+			
+		} catch (CobblerException | BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+			state.setFileFormat(null);
+			state.setDirty(false);
+			file.delete();
+			sidecar.delete();
+			folder.delete();
+		}
+	}
+	
+	@Test
+	public void perform_noSidecar_errorMessage() {
+		File sidecar = new File(SaveFileCmdTest.SAVEFILECMDTEST_DIRECTORY + File.separator + "Missing.cob.autosave");
+		
+		try {
+			LoadAutosaveCmd cmd = new LoadAutosaveCmd(sidecar, new PlainDocument(), null, null);
+			cmd.perform();
+			
+			Assert.assertFalse(cmd.isSuccess());
+			Assert.assertEquals(LoadAutosaveCmd.ERROR_NO_AUTOSAVE, cmd.getMessage());
+			Assert.assertFalse(LoadAutosaveCmd.isNewer(sidecar, sidecar));
+			
+		} catch (CobblerException ex) {
+			// should not get here
+			Assert.fail();
+		}
+	}
+
+}
@@ -23,13 +23,36 @@
 
 package com.horvath.cobbler.command;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.horvath.cobbler.application.CobblerState;
 import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.ArchiveIndex;
+import com.horvath.cobbler.io.EbcdicCodePage;
+import com.horvath.cobbler.io.LargeTextFile;
+import com.horvath.cobbler.io.RecordFileReader;
+import com.horvath.cobbler.io.RecordFormat;
+import com.horvath.cobbler.io.TextFileReader;
 
 /**
  * Tests operations of the LoadFileCmd class.
@@ -120,11 +143,751 @@ public class LoadFileCmdTest {
 			Assert.assertFalse(state.getData().isEmpty());
 			Assert.assertNotNull(state.getFile());
 			Assert.assertEquals(file.getAbsolutePath(), state.getFile().getAbsolutePath());
+			Assert.assertTrue(state.getCurrentDocument().isOnDisk());
+			Assert.assertFalse(state.isDirty());
+
+		} catch (CobblerException ex) {
+			// should not get here
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void perform_validFileIntoDocument_stateBackedByDocument() {
+		File file = new File(LOADFILECMDTEST_DIRECTORY + File.separator + "MathTest.cob");
+		
+		Assert.assertTrue(file.exists());
+		
+		try {
+			PlainDocument document = new PlainDocument();
+			document.insertString(0, "old contents", null);
+			
+			LoadFileCmd cmd = new LoadFileCmd(file, document);
+			cmd.perform();
+
+			Assert.assertTrue(cmd.isSuccess());
+			
+			CobblerState state = CobblerState.getInstance();
+			final String expected = new TextFileReader(file).read().replace(System.lineSeparator(), "\n");
+			
+			Assert.assertEquals(expected, document.getText(0, document.getLength()));
+			Assert.assertSame(document, state.getDocument());
+			Assert.assertEquals(expected, state.getData());
+			Assert.assertEquals(file.getAbsolutePath(), state.getFile().getAbsolutePath());
+			Assert.assertFalse(state.isDirty());
+
+		} catch (CobblerException | BadLocationException ex) {
+			// should not get here
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void setDocument_typingInLargeDocument_dataCopiedOnlyWhenAsked() {
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			StringBuilder program = new StringBuilder();
+			for (int i = 0; i < 50000; i++) {
+				program.append(String.format("%06d     MOVE WS-COUNTER TO WS-DISPLAY-COUNTER.%n", i));
+			}
+			PlainDocument document = new PlainDocument();
+			document.insertString(0, program.toString(), null);
+			state.setDocument(document);
+			Assert.assertEquals(program.toString(), state.getData());
+			
+			// the first edit grows the document's buffer, which is not what is measured
+			document.insertString(0, "      * TYPED\n", null);
+			
+			// type and backspace a thousand times without anyone asking for the text
+			final long version = state.getVersion();
+			final long before = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			for (int i = 0; i < 1000; i++) {
+				document.insertString(25000, "X", null);
+				document.remove(25000, 1);
+			}
+			final long allocated = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+			
+			Assert.assertEquals(version + 2000, state.getVersion());
+			Assert.assertTrue(allocated < document.getLength());
+			
+			// the text is current once asked for, and only copied once per version
+			final String data = state.getData();
+			Assert.assertEquals(document.getText(0, document.getLength()), data);
+			Assert.assertSame(data, state.getData());
+			
+		} catch (BadLocationException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+			state.setData(null);
+		}
+	}
+	
+	@Test
+	public void perform_validFileWithAppender_chunksAppendedByCaller() {
+		File file = new File(LOADFILECMDTEST_DIRECTORY + File.separator + "MathTest.cob");
+		
+		Assert.assertTrue(file.exists());
+		
+		try {
+			final PlainDocument document = new PlainDocument();
+			
+			LoadFileCmd cmd = new LoadFileCmd(file, document);
+			cmd.setAppender((chars, length) -> {
+				try {
+					document.insertString(document.getLength(), new String(chars, 0, length), null);
+				} catch (BadLocationException ex) {
+					throw new CobblerException(ex.getMessage());
+				}
+			});
+			cmd.perform();
+
+			Assert.assertTrue(cmd.isSuccess());
+			
+			CobblerState state = CobblerState.getInstance();
+			final String expected = new TextFileReader(file).read().replace(System.lineSeparator(), "\n");
+			
+			Assert.assertEquals(expected, document.getText(0, document.getLength()));
+			Assert.assertSame(document, state.getDocument());
+			Assert.assertNotNull(state.getFileFormat());
+			Assert.assertEquals(expected.length(), state.getFileFormat().getLength());
+			Assert.assertEquals(file.getAbsolutePath(), state.getFile().getAbsolutePath());
+			Assert.assertFalse(state.isDirty());
+
+		} catch (CobblerException | BadLocationException ex) {
+			// should not get here
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void perform_stateNotUpdated_stateBackedOnlyWhenApplied() {
+		File file = new File(LOADFILECMDTEST_DIRECTORY + File.separator + "MathTest.cob");
+		CobblerState state = CobblerState.getInstance();
+
+		Assert.assertTrue(file.exists());
+
+		try {
+			state.setDocument(null);
+			state.setFileFormat(null);
+			state.setFile(new File(""));
+
+			PlainDocument document = new PlainDocument();
+			LoadFileCmd cmd = new LoadFileCmd(file, document);
+			cmd.setUpdatesState(false);
+			cmd.perform();
+
+			// the file is read into the document, the state is left alone
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertTrue(document.getLength() > 0);
+			Assert.assertNull(state.getDocument());
+			Assert.assertNull(state.getFileFormat());
+			Assert.assertEquals("", state.getFile().getPath());
+
+			cmd.applyToState();
+
+			Assert.assertSame(document, state.getDocument());
+			Assert.assertNotNull(state.getFileFormat());
+			Assert.assertEquals(document.getLength(), state.getFileFormat().getLength());
+			Assert.assertEquals(file.getAbsolutePath(), state.getFile().getAbsolutePath());
 			Assert.assertFalse(state.isDirty());
 
 		} catch (CobblerException ex) {
 			// should not get here
 			Assert.fail();
+
+		} finally {
+			state.setDocument(null);
+			state.setFileFormat(null);
+		}
+	}
+
+	@Test
+	public void applyToState_notPerformed_exception() {
+		LoadFileCmd cmd = new LoadFileCmd(new File(LOADFILECMDTEST_DIRECTORY + File.separator + "MathTest.cob"));
+
+		try {
+			cmd.applyToState();
+
+			// should not get here
+			Assert.fail();
+
+		} catch (CobblerException ex) {
+			Assert.assertEquals(LoadFileCmd.ERROR_NOT_PERFORMED, ex.getMessage());
+		}
+	}
+
+	@Test
+	public void perform_appenderCancels_exceptionAndNoFileInState() {
+		File file = new File(LOADFILECMDTEST_DIRECTORY + File.separator + "MathTest.cob");
+		
+		Assert.assertTrue(file.exists());
+		
+		PlainDocument document = new PlainDocument();
+		LoadFileCmd cmd = new LoadFileCmd(file, document);
+		cmd.setAppender((chars, length) -> {
+			throw new CobblerException("cancelled");
+		});
+		
+		try {
+			cmd.perform();
+			
+			// should not get here
+			Assert.fail();
+			
+		} catch (CobblerException ex) {
+			CobblerState state = CobblerState.getInstance();
+			
+			Assert.assertFalse(cmd.isSuccess());
+			Assert.assertEquals(LoadFileCmd.ERROR_UNKOWN_LOAD_PROBLEM, ex.getMessage());
+			Assert.assertEquals("", state.getFile().getPath());
+			Assert.assertNull(state.getFileFormat());
+			Assert.assertFalse(state.isDirty());
+		}
+	}
+	
+	@Test
+	public void perform_largeFileIntoDocument_readerAllocationSmallFractionOfFileSize() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		Assert.assertTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+		
+		File file = new File(LOADFILECMDTEST_DIRECTORY + File.separator + "LargeFile_ACTUAL.cob");
+		final String line = "000000     MOVE WS-COUNTER TO WS-DISPLAY-COUNTER. DISPLAY WS-DISPLAY-COUNTER.";
+		final int lineCount = 100_000;
+		
+		try {
+			// build a file of about 8 MB
+			try (BufferedWriter writer = Files.newBufferedWriter(file.toPath())) {
+				for (int i = 0; i < lineCount; i++) {
+					writer.write(line);
+					writer.write("\r\n");
+				}
+			}
+			final long fileSize = file.length();
+			final long threadId = Thread.currentThread().getId();
+			
+			// the reader itself must not allocate per line strings or a copy of the file
+			long[] charCount = new long[1];
+			long before = threadBean.getThreadAllocatedBytes(threadId);
+			new TextFileReader(file).read((chars, length) -> charCount[0] += length);
+			long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+			
+			Assert.assertEquals((line.length() + 1) * lineCount, charCount[0]);
+			Assert.assertTrue("reader allocated " + allocated + " bytes for " + fileSize, allocated < fileSize / 2);
+			
+			// loading into a document only allocates what the document itself stores
+			PlainDocument document = new PlainDocument();
+			LoadFileCmd cmd = new LoadFileCmd(file, document);
+			cmd.perform();
+			
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertEquals((line.length() + 1) * lineCount, document.getLength());
+			Assert.assertEquals(lineCount + 1, document.getDefaultRootElement().getElementCount());
+			
+		} catch (CobblerException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			// cleanup test file
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void perform_ebcdicFileWithCodePage_decodedAndSavedInCodePage() {
+		File file = new File(LOADFILECMDTEST_DIRECTORY + File.separator + "Ebcdic_ACTUAL.cob");
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			// lines end with NL, which the JDK maps to U+0085
+			final Charset ibm1140 = Charset.forName("IBM01140");
+			final String text = "       IDENTIFICATION DIVISION.\u0085           DISPLAY '\u20AC100'.\u0085";
+			Files.write(file.toPath(), text.getBytes(ibm1140));
+			
+			PlainDocument document = new PlainDocument();
+			LoadFileCmd cmd = new LoadFileCmd(file, document, EbcdicCodePage.IBM1140);
+			cmd.perform();
+			
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertEquals(text.replace('\u0085', '\n'), document.getText(0, document.getLength()));
+			
+			document.insertString(document.getLength(), "           STOP RUN.\n", null);
+			new SaveFileCmd(file).perform();
+			
+			final byte[] expected = (text + "           STOP RUN.\u0085").getBytes(ibm1140);
+			Assert.assertTrue(Arrays.equals(expected, Files.readAllBytes(file.toPath())));
+			
+		} catch (CobblerException | BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+			state.setFileFormat(null);
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void read_largeEbcdicFile_decodedWithinBound() {
+		File file = new File(LOADFILECMDTEST_DIRECTORY + File.separator + "LargeEbcdic_ACTUAL.cob");
+		
+		try {
+			// 32 MB of 80 byte records ending in NL
+			byte[] record = String.format("%-79s\u0085", "000100     MOVE WS-COUNTER TO WS-DISPLAY-COUNTER.")
+					.getBytes(Charset.forName("IBM037"));
+			final int recordCount = 32 * 1024 * 1024 / record.length;
+			byte[] data = new byte[record.length * recordCount];
+			for (int i = 0; i < recordCount; i++) {
+				System.arraycopy(record, 0, data, i * record.length, record.length);
+			}
+			Files.write(file.toPath(), data);
+			
+			long best = Long.MAX_VALUE;
+			for (int run = 0; run < 3; run++) {
+				long[] charCount = new long[1];
+				long start = System.nanoTime();
+				new TextFileReader(file, EbcdicCodePage.IBM037.getCharset()).read((chars, length) -> charCount[0] += length);
+				best = Math.min(best, System.nanoTime() - start);
+				
+				Assert.assertEquals(data.length, charCount[0]);
+			}
+			
+			// a lookup table decodes well over 100 MB/s, the bound only catches a decoder gone slow
+			Assert.assertTrue(best < TimeUnit.SECONDS.toNanos(2));
+			
+		} catch (CobblerException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void perform_fixedRecordFile_recordsLoadedAsLinesAndSavedAsRecords() {
+		File file = new File(LOADFILECMDTEST_DIRECTORY + File.separator + "FixedRecords_ACTUAL.cob");
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			// three 80 byte records without line terminators
+			final Charset ibm037 = Charset.forName("IBM037");
+			final String records = String.format("%-80s%-80s%-80s", "       IDENTIFICATION DIVISION.", 
+					"       PROGRAM-ID. RECORDS.", "      * COMMENT");
+			Files.write(file.toPath(), records.getBytes(ibm037));
+			
+			PlainDocument document = new PlainDocument();
+			RecordFormat format = new RecordFormat(RecordFormat.Type.FB, 80, EbcdicCodePage.IBM037);
+			LoadFileCmd cmd = new LoadFileCmd(file, document, format);
+			cmd.perform();
+			
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertEquals("       IDENTIFICATION DIVISION.\n       PROGRAM-ID. RECORDS.\n      * COMMENT\n", 
+					document.getText(0, document.getLength()));
+			Assert.assertSame(format, state.getRecordFormat());
+			
+			// an unchanged document is saved byte for byte
+			new SaveFileCmd(file).perform();
+			Assert.assertTrue(Arrays.equals(records.getBytes(ibm037), Files.readAllBytes(file.toPath())));
+			
+			// a new line becomes a new padded record
+			document.insertString(document.getLength(), "       PROCEDURE DIVISION.", null);
+			new SaveFileCmd(file).perform();
+			final String expected = records + String.format("%-80s", "       PROCEDURE DIVISION.");
+			Assert.assertTrue(Arrays.equals(expected.getBytes(ibm037), Files.readAllBytes(file.toPath())));
+			
+		} catch (CobblerException | BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+			state.setRecordFormat(null);
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void perform_variableRecordFile_roundTripByteExact() {
+		File file = new File(LOADFILECMDTEST_DIRECTORY + File.separator + "VariableRecords_ACTUAL.cob");
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			final Charset ibm037 = Charset.forName("IBM037");
+			final String[] lines = { "       IDENTIFICATION DIVISION.", "", "       PROGRAM-ID. VB.   " };
+			
+			// each record starts with its length, including the 4 byte RDW
+			ByteBuffer data = ByteBuffer.allocate(256);
+			for (String line : lines) {
+				byte[] bytes = line.getBytes(ibm037);
+				data.putShort((short) (bytes.length + 4)).putShort((short) 0).put(bytes);
+			}
+			final byte[] original = Arrays.copyOf(data.array(), data.position());
+			Files.write(file.toPath(), original);
+			
+			PlainDocument document = new PlainDocument();
+			LoadFileCmd cmd = new LoadFileCmd(file, document, new RecordFormat(RecordFormat.Type.VB, 84, 
+					EbcdicCodePage.IBM037));
+			cmd.perform();
+			
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertEquals(String.join("\n", lines) + "\n", document.getText(0, document.getLength()));
+			
+			new SaveFileCmd(file).perform();
+			Assert.assertTrue(Arrays.equals(original, Files.readAllBytes(file.toPath())));
+			
+		} catch (CobblerException | BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+			state.setRecordFormat(null);
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void perform_zipMember_loadedAndSavedBackIntoArchive() {
+		File archive = new File(LOADFILECMDTEST_DIRECTORY + File.separator + "Snapshot_ACTUAL.zip");
+		File member = new File(archive, "src" + File.separator + "MATH.cbl");
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			final Charset ibm037 = Charset.forName("IBM037");
+			final String source = new String(Files.readAllBytes(
+					new File(LOADFILECMDTEST_DIRECTORY + File.separator + "MathTest.cob").toPath()), StandardCharsets.UTF_8);
+			
+			// a snapshot with many members, opening one must not depend on how many there are
+			try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive.toPath()))) {
+				for (int i = 0; i < 20000; i++) {
+					zip.putNextEntry(new ZipEntry("copy/MEMBER" + i + ".cpy"));
+					zip.write(String.format("       01  WS-FIELD-%d PIC X(10).%n", i).getBytes(StandardCharsets.UTF_8));
+				}
+				zip.putNextEntry(new ZipEntry("src/MATH.cbl"));
+				zip.write(source.getBytes(StandardCharsets.UTF_8));
+				zip.putNextEntry(new ZipEntry("data/RECORDS.dat"));
+				zip.write(String.format("%-80s%-80s", "RECORD ONE", "RECORD TWO").getBytes(ibm037));
+			}
+			
+			long start = System.nanoTime();
+			PlainDocument document = new PlainDocument();
+			LoadFileCmd cmd = new LoadFileCmd(member, document);
+			cmd.perform();
+			
+			// the member is found through the central directory, not by reading every member before it
+			Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+			
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertTrue(ArchiveIndex.isMember(member));
+			Assert.assertEquals(source.replace("\r\n", "\n"), document.getText(0, document.getLength()));
+			
+			// records are streamed out of the archive as well
+			PlainDocument records = new PlainDocument();
+			new LoadFileCmd(new File(archive, "data" + File.separator + "RECORDS.dat"), records, 
+					new RecordFormat(RecordFormat.Type.FB, 80, EbcdicCodePage.IBM037)).perform();
+			Assert.assertEquals("RECORD ONE\nRECORD TWO\n", records.getText(0, records.getLength()));
+			
+			// saving the member rewrites it in the archive, the other members are kept
+			state.setDocument(document);
+			state.setRecordFormat(null);
+			document.insertString(0, "      * EDITED IN THE ARCHIVE\n", null);
+			SaveFileCmd save = new SaveFileCmd(member);
+			save.perform();
+			Assert.assertTrue(save.isSuccess());
+			// the member is recovered like an unnamed document
+			Assert.assertFalse(state.getCurrentDocument().isOnDisk());
+			
+			try (ZipFile zip = new ZipFile(archive)) {
+				Assert.assertEquals(20002, zip.size());
+				Assert.assertEquals(document.getText(0, document.getLength()).replace("\n", System.lineSeparator()), 
+						new String(readEntry(zip, "src/MATH.cbl"), StandardCharsets.UTF_8));
+				Assert.assertEquals(String.format("       01  WS-FIELD-%d PIC X(10).%n", 7), 
+						new String(readEntry(zip, "copy/MEMBER7.cpy"), StandardCharsets.UTF_8));
+			}
+			
+		} catch (CobblerException | BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+			state.setFileFormat(null);
+			state.setRecordFormat(null);
+			archive.delete();
+		}
+	}
+	
+	@Test
+	public void perform_tarMember_addedReplacedAndLoaded() {
+		File archive = new File(LOADFILECMDTEST_DIRECTORY + File.separator + "Snapshot_ACTUAL.tar");
+		File first = new File(archive, "src" + File.separator + "FIRST.cbl");
+		File second = new File(archive, "src" + File.separator + "SECOND.cbl");
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			// an empty archive is two blocks of zeros
+			Files.write(archive.toPath(), new byte[1024]);
+			
+			PlainDocument document = new PlainDocument();
+			state.setDocument(document);
+			state.setFileFormat(null);
+			state.setRecordFormat(null);
+			
+			document.insertString(0, "       PROGRAM-ID. FIRST.\n", null);
+			new SaveFileCmd(first).perform();
+			document.remove(0, document.getLength());
+			document.insertString(0, "       PROGRAM-ID. SECOND.\n", null);
+			new SaveFileCmd(second).perform();
+			
+			// replace the first member with longer text, which moves the second one
+			PlainDocument loaded = new PlainDocument();
+			new LoadFileCmd(first, loaded).perform();
+			Assert.assertEquals("       PROGRAM-ID. FIRST.\n", loaded.getText(0, loaded.getLength()));
+			for (int i = 0; i < 40; i++) {
+				loaded.insertString(loaded.getLength(), "           DISPLAY \"LINE " + i + "\".\n", null);
+			}
+			SaveFileCmd save = new SaveFileCmd(first);
+			save.perform();
+			Assert.assertTrue(save.isSuccess());
+			final String expected = loaded.getText(0, loaded.getLength());
+			
+			PlainDocument reloaded = new PlainDocument();
+			new LoadFileCmd(first, reloaded).perform();
+			Assert.assertEquals(expected, reloaded.getText(0, reloaded.getLength()));
+			
+			PlainDocument untouched = new PlainDocument();
+			new LoadFileCmd(second, untouched).perform();
+			Assert.assertEquals("       PROGRAM-ID. SECOND.\n", untouched.getText(0, untouched.getLength()));
+			Assert.assertEquals(Arrays.asList("src/FIRST.cbl", "src/SECOND.cbl"), 
+					ArchiveIndex.get(archive).getMemberNames());
+			
+		} catch (CobblerException | BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+			state.setFileFormat(null);
+			archive.delete();
+		}
+	}
+	
+	/**
+	 * Reads all bytes of a zip entry. 
+	 * @param zip ZipFile
+	 * @param name String
+	 * @return byte[]
+	 * @throws IOException
+	 */
+	private static byte[] readEntry(ZipFile zip, String name) throws IOException {
+		ZipEntry entry = zip.getEntry(name);
+		byte[] bytes = new byte[(int) entry.getSize()];
+		try (InputStream in = zip.getInputStream(entry)) {
+			int read = 0;
+			while (read < bytes.length) {
+				read += in.read(bytes, read, bytes.length - read);
+			}
+		}
+		return bytes;
+	}
+	
+	@Test
+	public void read_millionRecordFixedFile_readerAllocationSmallFractionOfFileSize() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+		
+		File file = new File(LOADFILECMDTEST_DIRECTORY + File.separator + "MillionRecords_ACTUAL.cob");
+		
+		try {
+			final int recordCount = 1_000_000;
+			byte[] record = String.format("%06d     MOVE WS-COUNTER TO WS-DISPLAY-COUNTER.", 0)
+					.getBytes(Charset.forName("IBM037"));
+			byte[] data = new byte[80 * recordCount];
+			Arrays.fill(data, (byte) 0x40);
+			for (int i = 0; i < recordCount; i++) {
+				System.arraycopy(record, 0, data, i * 80, record.length);
+			}
+			Files.write(file.toPath(), data);
+			
+			RecordFileReader reader = new RecordFileReader(file, new RecordFormat(RecordFormat.Type.FB, 80, 
+					EbcdicCodePage.IBM037));
+			final long threadId = Thread.currentThread().getId();
+			long[] charCount = new long[1];
+			
+			long before = threadBean.getThreadAllocatedBytes(threadId);
+			reader.read((chars, length) -> charCount[0] += length);
+			long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+			
+			Assert.assertEquals(recordCount, reader.getRecordCount());
+			Assert.assertEquals((long) (record.length + 1) * recordCount, charCount[0]);
+			Assert.assertTrue("reader allocated " + allocated + " bytes", allocated < data.length / 50);
+			
+		} catch (CobblerException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void perform_fileAboveLargeFileThreshold_viewedLineAtATime() {
+		File file = new File(LOADFILECMDTEST_DIRECTORY + File.separator + "LargeView_ACTUAL.cob");
+		CobblerState state = CobblerState.getInstance();
+		final int lineCount = 5000;
+		
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(file.toPath())) {
+				for (int i = 0; i < lineCount; i++) {
+					writer.write(String.format("%06d     DISPLAY 'LINE %d'.", i, i));
+					writer.write(i % 2 == 0 ? "\r\n" : "\n");
+				}
+			}
+			
+			LoadFileCmd.setLargeFileThreshold(1024);
+			PlainDocument document = new PlainDocument();
+			LoadFileCmd cmd = new LoadFileCmd(file, document);
+			cmd.perform();
+			
+			Assert.assertTrue(cmd.isSuccess());
+			LargeTextFile largeFile = state.getLargeFile();
+			Assert.assertNotNull(largeFile);
+			Assert.assertEquals(0, document.getLength());
+			Assert.assertEquals(file, state.getFile());
+			Assert.assertFalse(state.isDirty());
+			
+			// the file ends with a line terminator, so the last line is empty
+			Assert.assertEquals(lineCount + 1, largeFile.getLineCount());
+			Assert.assertEquals("", largeFile.getLine(lineCount));
+			
+			// lines are read in any order, without their carriage returns
+			for (int i : new int[] { 0, 4999, 1023, 1024, 1025, 3, 2048, 2047 }) {
+				Assert.assertEquals(String.format("%06d     DISPLAY 'LINE %d'.", i, i), largeFile.getLine(i));
+			}
+			
+			Pattern pattern = Pattern.compile("'LINE 4321'");
+			Assert.assertEquals(4321, largeFile.find(pattern, 0, true, null));
+			Assert.assertEquals(4321, largeFile.find(pattern, lineCount, false, null));
+			Assert.assertEquals(-1, largeFile.find(pattern, 4322, true, null));
+			Assert.assertEquals(-1, largeFile.find(pattern, 4320, false, null));
+			
+			// saving would write the empty document over the file
+			SaveFileCmd saveCmd = new SaveFileCmd(file);
+			saveCmd.perform();
+			Assert.assertFalse(saveCmd.isSuccess());
+			Assert.assertEquals(SaveFileCmd.ERROR_LARGE_FILE_READ_ONLY, saveCmd.getMessage());
+			
+			// a file below the threshold is loaded into the document again
+			LoadFileCmd.setLargeFileThreshold(LoadFileCmd.LARGE_FILE_THRESHOLD);
+			cmd = new LoadFileCmd(file, document);
+			cmd.perform();
+			
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertNull(state.getLargeFile());
+			Assert.assertEquals(lineCount + 1, document.getDefaultRootElement().getElementCount());
+			
+		} catch (CobblerException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			LoadFileCmd.setLargeFileThreshold(LoadFileCmd.LARGE_FILE_THRESHOLD);
+			state.setLargeFile(null);
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void perform_largeEbcdicFile_bothLineTerminatorsEndLines() {
+		File file = new File(LOADFILECMDTEST_DIRECTORY + File.separator + "LargeEbcdic_ACTUAL.cob");
+		CobblerState state = CobblerState.getInstance();
+		Charset charset = EbcdicCodePage.IBM037.getCharset();
+		
+		try {
+			// mainframe text ends its lines with NL, text converted elsewhere may use LF
+			byte[] first = "000100 IDENTIFICATION DIVISION.".getBytes(charset);
+			byte[] second = "000200 PROGRAM-ID. HELLO.".getBytes(charset);
+			ByteBuffer buffer = ByteBuffer.allocate(first.length + second.length + 2);
+			buffer.put(first).put((byte) 0x15).put(second).put((byte) 0x25);
+			Files.write(file.toPath(), buffer.array());
+			
+			LoadFileCmd.setLargeFileThreshold(1);
+			LoadFileCmd cmd = new LoadFileCmd(file, new PlainDocument(), EbcdicCodePage.IBM037);
+			cmd.perform();
+			
+			Assert.assertTrue(cmd.isSuccess());
+			LargeTextFile largeFile = state.getLargeFile();
+			Assert.assertNotNull(largeFile);
+			Assert.assertEquals(3, largeFile.getLineCount());
+			Assert.assertEquals("000100 IDENTIFICATION DIVISION.", largeFile.getLine(0));
+			Assert.assertEquals("000200 PROGRAM-ID. HELLO.", largeFile.getLine(1));
+			
+		} catch (CobblerException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			LoadFileCmd.setLargeFileThreshold(LoadFileCmd.LARGE_FILE_THRESHOLD);
+			state.setLargeFile(null);
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void perform_largeFileViewed_indexAllocationSmallFractionOfFileSize() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+		
+		File file = new File(LOADFILECMDTEST_DIRECTORY + File.separator + "LargeIndex_ACTUAL.cob");
+		CobblerState state = CobblerState.getInstance();
+		final String line = "000000     MOVE WS-COUNTER TO WS-DISPLAY-COUNTER. DISPLAY WS-DISPLAY-COUNTER.";
+		final int lineCount = 100_000;
+		
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(file.toPath())) {
+				for (int i = 0; i < lineCount; i++) {
+					writer.write(line);
+					writer.write("\n");
+				}
+			}
+			final long fileSize = file.length();
+			final long threadId = Thread.currentThread().getId();
+			
+			LoadFileCmd.setLargeFileThreshold(1024);
+			long before = threadBean.getThreadAllocatedBytes(threadId);
+			LoadFileCmd cmd = new LoadFileCmd(file, new PlainDocument());
+			cmd.perform();
+			long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+			
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertEquals(lineCount + 1, state.getLargeFile().getLineCount());
+			Assert.assertTrue("indexing allocated " + allocated + " bytes for " + fileSize, allocated < fileSize / 50);
+			
+			// reading a screenful of lines only allocates the lines
+			before = threadBean.getThreadAllocatedBytes(threadId);
+			for (int i = 50_000; i < 50_060; i++) {
+				Assert.assertEquals(line, state.getLargeFile().getLine(i));
+			}
+			allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+			Assert.assertTrue("reading allocated " + allocated + " bytes", allocated < 200 * 1024);
+			
+		} catch (CobblerException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			LoadFileCmd.setLargeFileThreshold(LoadFileCmd.LARGE_FILE_THRESHOLD);
+			state.setLargeFile(null);
+			file.delete();
 		}
 	}
 }
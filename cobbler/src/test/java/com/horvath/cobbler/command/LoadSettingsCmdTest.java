@@ -71,6 +71,9 @@ public class LoadSettingsCmdTest {
 			prop.setProperty(AbstractSettingsCmd.FIELD_SPELL_CHECK_ON, "true");
 			prop.setProperty(AbstractSettingsCmd.FIELD_SHOW_INVISIBLES, "true");
 			prop.setProperty(AbstractSettingsCmd.FIELD_RECENT_FILES_MAX, String.valueOf(maxRecentFiles));
+			prop.setProperty(AbstractSettingsCmd.FIELD_AUTOSAVE_ON, "false");
+			prop.setProperty(AbstractSettingsCmd.FIELD_AUTOSAVE_INTERVAL, "60");
+			prop.setProperty(AbstractSettingsCmd.FIELD_UNDO_MEMORY_LIMIT, "128");
 			prop.store(output, null);
 
 		} catch (IOException ex) {
@@ -94,6 +97,9 @@ public class LoadSettingsCmdTest {
 			Assert.assertTrue(state.isSpellcheckOn());
 			Assert.assertTrue(state.isShowInvisibleCharacters());
 			Assert.assertEquals(maxRecentFiles, state.getMaxNumOfRecentFiles());
+			Assert.assertFalse(state.isAutosaveOn());
+			Assert.assertEquals(60, state.getAutosaveInterval());
+			Assert.assertEquals(128, state.getUndoMemoryLimit());
 
 			// perform cleanup
 			if (userProperties != null) {
@@ -133,6 +139,9 @@ public class LoadSettingsCmdTest {
 			Assert.assertEquals(GuiTheme.Default, state.getCurrentTheme());
 			Assert.assertTrue(state.isSpellcheckOn());
 			Assert.assertFalse(state.isShowInvisibleCharacters());
+			Assert.assertTrue(state.isAutosaveOn());
+			Assert.assertEquals(LoadSettingsCmd.DEFAULT_AUTOSAVE_INTERVAL, state.getAutosaveInterval());
+			Assert.assertEquals(LoadSettingsCmd.DEFAULT_UNDO_MEMORY_LIMIT, state.getUndoMemoryLimit());
 
 			// perform cleanup
 			if (userProperties != null) {
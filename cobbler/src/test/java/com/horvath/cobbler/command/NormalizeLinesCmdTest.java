@@ -0,0 +1,139 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.command;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.horvath.cobbler.command.NormalizeLinesCmd.IdentificationArea;
+import com.horvath.cobbler.command.NormalizeLinesCmd.SequenceArea;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.LineDiff;
+
+/**
+ * Tests normalizing the fixed format columns of lines.
+ * @author jhorvath
+ */
+public class NormalizeLinesCmdTest {
+	
+	private static final String IDENT = "PROGID01";
+	private static final String PAD = "                                                 ";
+	
+	private static final String LINES = "000100 IDENTIFICATION DIVISION.        " + PAD.substring(0, 33) + IDENT + "TOO LONG\n"
+			+ "\tDISPLAY 'A'.   \n"
+			+ "\n"
+			+ "      *\tCOMMENT\n"
+			+ "000500 STOP RUN.\n";
+	
+	@Test
+	public void perform_allStages_fixedFormatLines() {
+		try {
+			NormalizeLinesCmd cmd = new NormalizeLinesCmd(LINES, 
+					NormalizeLinesCmd.parseStages("tabs=8,sequence=renumber,ident=resequence,truncate,trim", 100));
+			cmd.perform();
+			
+			String[] lines = cmd.getResult().split("\n");
+			Assert.assertEquals(5, lines.length);
+			Assert.assertEquals(80, lines[0].length());
+			Assert.assertTrue(lines[0].startsWith("000100 IDENTIFICATION DIVISION."));
+			Assert.assertTrue(lines[0].endsWith("00000100"));
+			Assert.assertEquals("000200  DISPLAY 'A'.", lines[1].substring(0, 20));
+			Assert.assertTrue(lines[1].endsWith("00000200"));
+			Assert.assertEquals(80, lines[2].length());
+			Assert.assertEquals("000300", lines[2].substring(0, 6));
+			Assert.assertEquals("000400* COMMENT", lines[3].substring(0, 15));
+			Assert.assertEquals(0, cmd.getSkipCount());
+			
+		} catch (CobblerException ex) {
+			// should not get here
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void perform_clearAreas_linesWithTextSkipped() {
+		final String text = "000100 A.\n  AB   B.\n       C." + PAD + PAD.substring(0, 16) + "IDENT\n";
+		List<NormalizeLinesCmd.Stage> stages = Arrays.asList(
+				NormalizeLinesCmd.sequenceArea(SequenceArea.CLEAR, 10), 
+				NormalizeLinesCmd.identificationArea(IdentificationArea.CLEAR, 10), 
+				NormalizeLinesCmd.trimTrailing());
+		
+		try {
+			NormalizeLinesCmd cmd = new NormalizeLinesCmd(text, stages);
+			cmd.perform();
+			
+			Assert.assertEquals("       A.\n  AB   B.\n       C.\n", cmd.getResult());
+			Assert.assertEquals(1, cmd.getSkipCount());
+			Assert.assertTrue(cmd.getMessage().startsWith("1 "));
+			
+		} catch (CobblerException ex) {
+			// should not get here
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void perform_inPlace_sameAsResult() {
+		try {
+			List<NormalizeLinesCmd.Stage> stages = NormalizeLinesCmd.parseStages("tabs,sequence=renumber,increment=5,ident=resequence,trim", 100);
+			
+			NormalizeLinesCmd whole = new NormalizeLinesCmd(LINES, stages);
+			whole.perform();
+			NormalizeLinesCmd inPlace = new NormalizeLinesCmd(LINES, stages, true);
+			inPlace.perform();
+			
+			StringBuilder sb = new StringBuilder(LINES);
+			List<LineDiff.Hunk> edits = inPlace.getEdits();
+			for (int i = edits.size() - 1; i >= 0; i--) {
+				LineDiff.Hunk hunk = edits.get(i);
+				sb.replace(hunk.getOffset(), hunk.getOffset() + hunk.getLength(), hunk.getText());
+			}
+			Assert.assertEquals(whole.getResult(), sb.toString());
+			Assert.assertTrue(whole.getResult().startsWith("000100 "));
+			Assert.assertTrue(whole.getResult().split("\n")[1].endsWith("00000010"));
+			
+		} catch (CobblerException ex) {
+			// should not get here
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void parseStages_badSpecs_exception() {
+		for (String spec : new String[] { "sequence", "ident=renumber", "tabs=x", "shuffle", "increment" }) {
+			try {
+				NormalizeLinesCmd.parseStages(spec, 10);
+				Assert.fail();
+				
+			} catch (CobblerException ex) {
+				Assert.assertTrue(ex.getMessage().contains(spec.split("=")[0]));
+			}
+		}
+	}
+
+}
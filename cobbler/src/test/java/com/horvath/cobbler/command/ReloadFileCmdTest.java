@@ -0,0 +1,251 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.horvath.cobbler.application.CobblerState;
+import com.horvath.cobbler.application.DocumentState;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.EbcdicCodePage;
+import com.horvath.cobbler.io.FileWatcher;
+import com.horvath.cobbler.io.RecordFormat;
+import com.horvath.cobbler.io.TextFileFormat;
+
+/**
+ * Tests operations of the ReloadFileCmd class.
+ * @author jhorvath
+ */
+public class ReloadFileCmdTest {
+	
+	public static final String RELOADFILECMDTEST_DIRECTORY = LoadFileCmdTest.RESOURCES_DIRECTORY 
+			+ File.separator + "ReloadFileCmdTest";
+	
+	@Test
+	public void perform_oneLineChangedInLargeFile_oneChangeApplied() {
+		File file = new File(RELOADFILECMDTEST_DIRECTORY + File.separator + "Large_ACTUAL.cob");
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			List<String> lines = new ArrayList<>();
+			for (int i = 0; i < 100000; i++) {
+				lines.add(String.format("%06d     DISPLAY \"LINE %d\".", i, i));
+			}
+			Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+			
+			PlainDocument document = new PlainDocument();
+			new LoadFileCmd(file, document).perform();
+			
+			// another program changes one line in the middle
+			lines.set(50000, "050000     DISPLAY \"CHANGED\".");
+			Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+			
+			// the file is read and compared off the event thread, only applying the change blocks it
+			long start = System.nanoTime();
+			ReloadFileCmd cmd = new ReloadFileCmd(file, document);
+			cmd.perform();
+			long compared = System.nanoTime();
+			cmd.applyChanges();
+			long applied = System.nanoTime();
+			
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertTrue(compared - start < TimeUnit.SECONDS.toNanos(5));
+			Assert.assertTrue(applied - compared < TimeUnit.MILLISECONDS.toNanos(100));
+			Assert.assertEquals(1, cmd.getChangeCount());
+			Assert.assertEquals(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), 
+					document.getText(0, document.getLength()));
+			Assert.assertFalse(state.isDirty());
+			
+		} catch (CobblerException | BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+			state.setFileFormat(null);
+			state.setDirty(false);
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void perform_randomlyChangedFile_documentMatchesFile() {
+		File file = new File(RELOADFILECMDTEST_DIRECTORY + File.separator + "Random_ACTUAL.cob");
+		CobblerState state = CobblerState.getInstance();
+		Random random = new Random(9);
+		
+		try {
+			for (int run = 0; run < 200; run++) {
+				Files.write(file.toPath(), randomText(random).getBytes(StandardCharsets.UTF_8));
+				PlainDocument document = new PlainDocument();
+				new LoadFileCmd(file, document).perform();
+				
+				Files.write(file.toPath(), randomText(random).getBytes(StandardCharsets.UTF_8));
+				ReloadFileCmd cmd = new ReloadFileCmd(file, document);
+				cmd.perform();
+				cmd.applyChanges();
+				
+				Assert.assertEquals(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), 
+						document.getText(0, document.getLength()));
+			}
+			
+		} catch (CobblerException | BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+			state.setFileFormat(null);
+			state.setDirty(false);
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void applyChanges_otherDocumentViewed_reloadedIntoOwnDocument() {
+		File file = new File(RELOADFILECMDTEST_DIRECTORY + File.separator + "Owner_ACTUAL.cob");
+		CobblerState state = CobblerState.getInstance();
+		DocumentState owner = state.getCurrentDocument();
+		DocumentState other = new DocumentState();
+		
+		try {
+			Files.write(file.toPath(), "       DISPLAY 'BEFORE'.\r\n".getBytes(StandardCharsets.UTF_8));
+			PlainDocument document = new PlainDocument();
+			new LoadFileCmd(file, document).perform();
+			TextFileFormat loaded = owner.getFileFormat();
+			
+			// the reload is set up while its document is viewed
+			ReloadFileCmd cmd = new ReloadFileCmd(file, document, owner);
+			Files.write(file.toPath(), "       DISPLAY 'AFTER'.\n".getBytes(StandardCharsets.UTF_8));
+			
+			// then another document, in another format, is viewed while it runs
+			state.setCurrentDocument(other);
+			other.setRecordFormat(new RecordFormat(RecordFormat.Type.FB, 80, EbcdicCodePage.IBM037));
+			other.setDirty(true);
+			cmd.perform();
+			cmd.applyChanges();
+			
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertEquals("       DISPLAY 'AFTER'.\n", document.getText(0, document.getLength()));
+			Assert.assertNotSame(loaded, owner.getFileFormat());
+			Assert.assertEquals("\n", owner.getFileFormat().getLineSeparator());
+			Assert.assertFalse(owner.isDirty());
+			Assert.assertNull(other.getFileFormat());
+			Assert.assertTrue(other.isDirty());
+			
+		} catch (CobblerException | BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.setCurrentDocument(owner);
+			state.setDocument(null);
+			state.setFileFormat(null);
+			state.setDirty(false);
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void perform_fileNotFound_errorMessage() {
+		ReloadFileCmd cmd = new ReloadFileCmd(new File(RELOADFILECMDTEST_DIRECTORY + File.separator + "Missing.cob"), 
+				new PlainDocument());
+		
+		try {
+			cmd.perform();
+			
+			Assert.assertFalse(cmd.isSuccess());
+			Assert.assertEquals(ReloadFileCmd.ERROR_FILE_NOT_FOUND, cmd.getMessage());
+			
+		} catch (CobblerException ex) {
+			// should not get here
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void watch_fileChangedByAnotherProgram_listenerTold() {
+		File file = new File(RELOADFILECMDTEST_DIRECTORY + File.separator + "Watched_ACTUAL.cob");
+		CountDownLatch changed = new CountDownLatch(1);
+		FileWatcher watcher = new FileWatcher(changed::countDown);
+		
+		try {
+			Files.copy(new File(RELOADFILECMDTEST_DIRECTORY + File.separator + "LoopTest.cob").toPath(), 
+					file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			watcher.watch(file);
+			Assert.assertFalse(watcher.hasChanged());
+			
+			Files.write(file.toPath(), "      * CHANGED\n".getBytes(StandardCharsets.UTF_8));
+			
+			Assert.assertTrue(changed.await(10, TimeUnit.SECONDS));
+			Assert.assertTrue(watcher.hasChanged());
+			
+			watcher.acknowledge();
+			Assert.assertFalse(watcher.hasChanged());
+			
+		} catch (IOException | InterruptedException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			watcher.close();
+			file.delete();
+		}
+	}
+	
+	/**
+	 * Returns a few lines drawn from a small set, so that two draws share some lines, 
+	 * with or without a line terminator after the last line. 
+	 * @param random Random
+	 * @return String
+	 */
+	private static String randomText(Random random) {
+		StringBuilder text = new StringBuilder();
+		int count = random.nextInt(30);
+		for (int i = 0; i < count; i++) {
+			text.append("       MOVE ").append(random.nextInt(8)).append(" TO WS-COUNT.\n");
+		}
+		if (text.length() > 0 && random.nextBoolean()) {
+			text.setLength(text.length() - 1);
+		}
+		return text.toString();
+	}
+
+}
@@ -0,0 +1,347 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.cobbler.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
+import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.horvath.cobbler.application.CobblerState;
+import com.horvath.cobbler.application.DocumentState;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.EditJournal;
+
+/**
+ * Tests operations of the ReplayJournalCmd class.
+ * @author jhorvath
+ */
+public class ReplayJournalCmdTest {
+	
+	public static final String REPLAYJOURNALCMDTEST_DIRECTORY = LoadFileCmdTest.RESOURCES_DIRECTORY 
+			+ File.separator + "ReplayJournalCmdTest";
+	
+	/**
+	 * Keystroke to paint latency the journal is measured against, one frame at 60 Hz.
+	 */
+	private static final long TYPING_LATENCY_NANOS = 16000000L;
+	
+	@Test
+	public void perform_journaledEditsToFile_replayedOverFile() {
+		File baseFile = new File(REPLAYJOURNALCMDTEST_DIRECTORY + File.separator + "LoopTest_ACTUAL.cob");
+		File journalFile = new File(REPLAYJOURNALCMDTEST_DIRECTORY + File.separator + "Journal_ACTUAL.journal");
+		EditJournal journal = new EditJournal(journalFile);
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			Files.copy(new File(REPLAYJOURNALCMDTEST_DIRECTORY + File.separator + "LoopTest.cob").toPath(), 
+					baseFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			
+			PlainDocument document = new PlainDocument();
+			new LoadFileCmd(baseFile, document).perform();
+			journalEdits(document, journal);
+			journal.start(baseFile, document);
+			
+			document.insertString(0, "      * RECOVERED 😀\n", null);
+			document.remove(40, 25);
+			document.insertString(document.getLength(), "       STOP RUN.\n", null);
+			journal.sync();
+			
+			// the application stops here without shutting down cleanly
+			final String expected = document.getText(0, document.getLength());
+			EditJournal.Recovery recovery = EditJournal.read(journalFile);
+			
+			PlainDocument recovered = new PlainDocument();
+			ReplayJournalCmd cmd = new ReplayJournalCmd(recovery, recovered);
+			cmd.perform();
+			
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertEquals(expected, recovered.getText(0, recovered.getLength()));
+			Assert.assertEquals(baseFile.getAbsolutePath(), state.getFile().getAbsolutePath());
+			Assert.assertSame(recovered, state.getDocument());
+			Assert.assertTrue(state.isDirty());
+			
+			// a clean shutdown deletes the journal
+			journal.close();
+			Assert.assertFalse(journalFile.exists());
+			
+		} catch (CobblerException | BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			journal.close();
+			state.setDocument(null);
+			state.setFileFormat(null);
+			state.setDirty(false);
+			baseFile.delete();
+			journalFile.delete();
+		}
+	}
+	
+	@Test
+	public void perform_fileChangedSinceJournaled_errorMessage() {
+		File baseFile = new File(REPLAYJOURNALCMDTEST_DIRECTORY + File.separator + "Changed_ACTUAL.cob");
+		File journalFile = new File(REPLAYJOURNALCMDTEST_DIRECTORY + File.separator + "Changed_ACTUAL.journal");
+		EditJournal journal = new EditJournal(journalFile);
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			Files.copy(new File(REPLAYJOURNALCMDTEST_DIRECTORY + File.separator + "LoopTest.cob").toPath(), 
+					baseFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			
+			PlainDocument document = new PlainDocument();
+			new LoadFileCmd(baseFile, document).perform();
+			journalEdits(document, journal);
+			journal.start(baseFile, document);
+			document.insertString(0, "      * EDITED\n", null);
+			journal.sync();
+			
+			// the file is changed by another program before the edits are recovered
+			Files.write(baseFile.toPath(), "      * CHANGED\n".getBytes(), StandardOpenOption.APPEND);
+			
+			ReplayJournalCmd cmd = new ReplayJournalCmd(EditJournal.read(journalFile), new PlainDocument());
+			cmd.perform();
+			
+			Assert.assertFalse(cmd.isSuccess());
+			Assert.assertEquals(ReplayJournalCmd.ERROR_FILE_CHANGED, cmd.getMessage());
+			
+		} catch (CobblerException | BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			journal.close();
+			state.setDocument(null);
+			state.setFileFormat(null);
+			baseFile.delete();
+			journalFile.delete();
+		}
+	}
+	
+	@Test
+	public void perform_manyEditsToUnnamedDocument_journalCompactedAndReplayed() {
+		File journalFile = new File(REPLAYJOURNALCMDTEST_DIRECTORY + File.separator + "Compact_ACTUAL.journal");
+		EditJournal journal = new EditJournal(journalFile);
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			PlainDocument document = new PlainDocument();
+			document.insertString(0, "       IDENTIFICATION DIVISION.\n", null);
+			journalEdits(document, journal);
+			journal.start(null, document);
+			
+			// about 6 MB of journaled edits to a document that stays small
+			final String line = "       DISPLAY 'THIS LINE IS TYPED AND THEN DELETED AGAIN'.\n";
+			for (int i = 0; i < 48 * 1024; i++) {
+				document.insertString(document.getLength(), line, null);
+				document.remove(document.getLength() - line.length(), line.length());
+				if (i % 1024 == 0) {
+					document.insertString(document.getLength(), "      * " + i + "\n", null);
+				}
+			}
+			journal.sync();
+			
+			Assert.assertTrue(journalFile.length() < 3 * 1024 * 1024);
+			
+			PlainDocument recovered = new PlainDocument();
+			ReplayJournalCmd cmd = new ReplayJournalCmd(EditJournal.read(journalFile), recovered);
+			cmd.perform();
+			
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertEquals(document.getText(0, document.getLength()), recovered.getText(0, recovered.getLength()));
+			Assert.assertEquals("", state.getFile().getPath());
+			
+		} catch (CobblerException | BadLocationException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			journal.close();
+			state.setDocument(null);
+			state.setDirty(false);
+			journalFile.delete();
+		}
+	}
+	
+	@Test
+	public void perform_emptyJournal_errorMessage() {
+		try {
+			ReplayJournalCmd cmd = new ReplayJournalCmd(null, new PlainDocument());
+			cmd.perform();
+			
+			Assert.assertFalse(cmd.isSuccess());
+			Assert.assertEquals(ReplayJournalCmd.ERROR_NO_EDITS, cmd.getMessage());
+			
+		} catch (CobblerException ex) {
+			// should not get here
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void getJournal_twoDocuments_eachKeepsItsOwnJournal() {
+		File journalFile = new File(REPLAYJOURNALCMDTEST_DIRECTORY + File.separator + "Documents_ACTUAL.journal");
+		CobblerState state = CobblerState.getInstance();
+		DocumentState first = state.getCurrentDocument();
+		DocumentState second = new DocumentState();
+		
+		try {
+			state.setJournalFile(journalFile);
+			PlainDocument firstDocument = new PlainDocument();
+			EditJournal firstJournal = state.getJournal();
+			journalEdits(firstDocument, firstJournal);
+			firstJournal.start(null, firstDocument);
+			
+			state.setCurrentDocument(second);
+			PlainDocument secondDocument = new PlainDocument();
+			EditJournal secondJournal = state.getJournal();
+			journalEdits(secondDocument, secondJournal);
+			secondJournal.start(null, secondDocument);
+			
+			Assert.assertNotSame(firstJournal, secondJournal);
+			Assert.assertSame(secondJournal, state.getJournal());
+			
+			// edits to a document that is not viewed still go to its own journal
+			firstDocument.insertString(0, "       DISPLAY 'FIRST'.\n", null);
+			secondDocument.insertString(0, "       DISPLAY 'SECOND'.\n", null);
+			firstJournal.sync();
+			secondJournal.sync();
+			
+			Assert.assertEquals(2, EditJournal.list(journalFile).size());
+			Assert.assertEquals(EditJournal.getFile(journalFile, 1), EditJournal.list(journalFile).get(1));
+			
+			// closing one document leaves the journal of the other to be recovered
+			state.closeJournal(second);
+			Assert.assertFalse(EditJournal.getFile(journalFile, 1).exists());
+			Assert.assertTrue(journalFile.exists());
+			
+			PlainDocument recovered = new PlainDocument();
+			EditJournal.read(journalFile).apply(recovered);
+			Assert.assertEquals("       DISPLAY 'FIRST'.\n", recovered.getText(0, recovered.getLength()));
+			
+		} catch (CobblerException | BadLocationException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.closeJournal(second);
+			state.closeJournal(first);
+			state.setJournalFile(null);
+			state.setCurrentDocument(first);
+			journalFile.delete();
+			EditJournal.getFile(journalFile, 1).delete();
+		}
+	}
+	
+	@Test
+	public void recordInsert_typing_overheadUnderOnePercentOfTypingLatency() {
+		File journalFile = new File(REPLAYJOURNALCMDTEST_DIRECTORY + File.separator + "Typing_ACTUAL.journal");
+		EditJournal journal = new EditJournal(journalFile);
+		final int keystrokes = 100000;
+		
+		try {
+			// warm up both paths before they are timed
+			RSyntaxDocument warmUp = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+			journalEdits(warmUp, journal);
+			journal.start(null, warmUp);
+			type(warmUp, keystrokes);
+			
+			RSyntaxDocument plain = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+			long start = System.nanoTime();
+			type(plain, keystrokes);
+			final long withoutJournal = System.nanoTime() - start;
+			
+			RSyntaxDocument journaled = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+			journalEdits(journaled, journal);
+			journal.start(null, journaled);
+			start = System.nanoTime();
+			type(journaled, keystrokes);
+			final long withJournal = System.nanoTime() - start;
+			
+			final long overhead = Math.max(0, withJournal - withoutJournal) / keystrokes;
+			Assert.assertTrue(overhead < TYPING_LATENCY_NANOS / 100);
+			
+		} catch (CobblerException | BadLocationException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			journal.close();
+			journalFile.delete();
+		}
+	}
+	
+	/**
+	 * Types characters into a document one at a time, with a backspace every few keystrokes. 
+	 * @param document AbstractDocument
+	 * @param keystrokes int
+	 * @throws BadLocationException
+	 */
+	private static void type(AbstractDocument document, int keystrokes) throws BadLocationException {
+		for (int i = 0; i < keystrokes; i++) {
+			if (i % 10 == 9) {
+				document.remove(document.getLength() - 1, 1);
+			} else {
+				document.insertString(document.getLength(), i % 60 == 0 ? "\n" : "X", null);
+			}
+		}
+	}
+	
+	/**
+	 * Records the edits to a document in a journal, the way the text area does. 
+	 * @param document AbstractDocument
+	 * @param journal EditJournal
+	 */
+	private static void journalEdits(AbstractDocument document, EditJournal journal) {
+		document.addDocumentListener(new DocumentListener() {
+
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				journal.recordInsert(e);
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				journal.recordRemove(e);
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e) { }
+		});
+	}
+
+}
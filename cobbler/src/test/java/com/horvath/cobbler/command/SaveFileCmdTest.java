@@ -24,12 +24,24 @@
 package com.horvath.cobbler.command;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.horvath.cobbler.application.CobblerState;
 import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.AutosaveService;
+import com.horvath.cobbler.io.EbcdicCodePage;
+import com.horvath.cobbler.io.FileWatcher;
+import com.horvath.cobbler.io.RecordFormat;
 import com.horvath.cobbler.io.TextFileReader;
 
 /**
@@ -87,6 +99,10 @@ public class SaveFileCmdTest {
 		
 		Assert.assertFalse(actualFile.exists());
 		
+		// a document named but not saved yet
+		state.setFile(new File(file.getName()));
+		Assert.assertFalse(state.getCurrentDocument().isOnDisk());
+		
 		SaveFileCmd saveCmd = new SaveFileCmd(actualFile);
 		try {
 			saveCmd.perform();
@@ -94,6 +110,7 @@ public class SaveFileCmdTest {
 			Assert.assertTrue(saveCmd.isSuccess());
 			Assert.assertEquals(state.getFile().getAbsolutePath(), actualFile.getAbsolutePath());
 			Assert.assertTrue(actualFile.exists());
+			Assert.assertTrue(state.getCurrentDocument().isOnDisk());
 			
 			// compare files on disk
 			try {
@@ -121,5 +138,426 @@ public class SaveFileCmdTest {
 			Assert.fail();
 		}
 	}
+	
+	@Test
+	public void perform_documentBackedState_documentStreamedToFile() {
+		File actualFile = new File(SAVEFILECMDTEST_DIRECTORY + File.separator + "Document_ACTUAL.cob");
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			final String text = "       IDENTIFICATION DIVISION.\n       PROGRAM-ID. SAVE-TEST.\n";
+			PlainDocument document = new PlainDocument();
+			document.insertString(0, text, null);
+			
+			state.setDocument(document);
+			state.setData("stale data that must not be written");
+			
+			SaveFileCmd cmd = new SaveFileCmd(actualFile);
+			cmd.perform();
+			
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertFalse(state.isDirty());
+			Assert.assertEquals(text, new String(Files.readAllBytes(actualFile.toPath()), StandardCharsets.UTF_8));
+			
+		} catch (CobblerException | BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+			state.setFileFormat(null);
+			actualFile.delete();
+		}
+	}
+	
+	@Test
+	public void perform_unchangedDocument_fileNotWritten() {
+		File actualFile = new File(SAVEFILECMDTEST_DIRECTORY + File.separator + "Unchanged_ACTUAL.cob");
+		CobblerState state = CobblerState.getInstance();
+		FileWatcher watcher = new FileWatcher(() -> { });
+		
+		try {
+			final String text = "       IDENTIFICATION DIVISION.\n       PROGRAM-ID. SAVE-TEST.\n";
+			PlainDocument document = new PlainDocument();
+			document.insertString(0, text, null);
+			state.setDocument(document);
+			state.setFileWatcher(watcher);
+			
+			SaveFileCmd cmd = new SaveFileCmd(actualFile);
+			cmd.perform();
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertTrue(actualFile.setLastModified(1000000000000L));
+			watcher.watch(actualFile);
+			
+			// an edit that was taken back leaves nothing to write
+			document.insertString(0, "*", null);
+			document.remove(0, 1);
+			
+			cmd = new SaveFileCmd(actualFile);
+			cmd.perform();
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertEquals(SaveFileCmd.MESSAGE_UNCHANGED, cmd.getMessage());
+			Assert.assertEquals(1000000000000L, actualFile.lastModified());
+			
+			// a real edit is written
+			document.insertString(0, "*", null);
+			cmd = new SaveFileCmd(actualFile);
+			cmd.perform();
+			Assert.assertTrue(cmd.isSuccess());
+			Assert.assertNotEquals(SaveFileCmd.MESSAGE_UNCHANGED, cmd.getMessage());
+			Assert.assertEquals("*" + text, new String(Files.readAllBytes(actualFile.toPath()), StandardCharsets.UTF_8));
+			
+		} catch (CobblerException | BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			watcher.close();
+			state.setFileWatcher(null);
+			state.setDocument(null);
+			state.setFileFormat(null);
+			state.setFile(null);
+			actualFile.delete();
+		}
+	}
+	
+	@Test
+	public void perform_failedWrite_originalFileUntouched() {
+		File actualFile = new File(SAVEFILECMDTEST_DIRECTORY + File.separator + "Original_ACTUAL.cob");
+		CobblerState state = CobblerState.getInstance();
+		final String original = "       IDENTIFICATION DIVISION.\n";
+		
+		try {
+			Files.write(actualFile.toPath(), original.getBytes(StandardCharsets.UTF_8));
+			
+			// a lone surrogate cannot be encoded, so the write fails part way through
+			PlainDocument document = new PlainDocument();
+			document.insertString(0, "       PROGRAM-ID. BROKEN.\uD800\n", null);
+			state.setDocument(document);
+			
+			boolean exceptionCaught = false;
+			try {
+				new SaveFileCmd(actualFile).perform();
+			} catch (CobblerException ex) {
+				exceptionCaught = true;
+			}
+			
+			Assert.assertTrue(exceptionCaught);
+			Assert.assertEquals(original, new String(Files.readAllBytes(actualFile.toPath()), StandardCharsets.UTF_8));
+			
+			// no temporary files are left behind
+			File[] leftovers = new File(SAVEFILECMDTEST_DIRECTORY).listFiles((dir, name) -> name.endsWith(".tmp"));
+			Assert.assertEquals(0, leftovers.length);
+			
+		} catch (BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+			state.setFileFormat(null);
+			actualFile.delete();
+		}
+	}
+	
+	@Test
+	public void perform_editedCrlfFileWithByteOrderMark_formatPreserved() {
+		File actualFile = new File(SAVEFILECMDTEST_DIRECTORY + File.separator + "Crlf_ACTUAL.cob");
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			final String original = "\uFEFF       IDENTIFICATION DIVISION.\r\n       PROGRAM-ID. OLD.\r\n";
+			Files.write(actualFile.toPath(), original.getBytes(StandardCharsets.UTF_8));
+			
+			PlainDocument document = new PlainDocument();
+			new LoadFileCmd(actualFile, document).perform();
+			Assert.assertEquals("       IDENTIFICATION DIVISION.\n       PROGRAM-ID. OLD.\n", 
+					document.getText(0, document.getLength()));
+			
+			// replace the program name and add a line
+			document.remove(document.getLength() - 5, 3);
+			document.insertString(document.getLength() - 2, "NEW", null);
+			document.insertString(document.getLength(), "       PROCEDURE DIVISION.\n", null);
+			
+			SaveFileCmd cmd = new SaveFileCmd(actualFile);
+			cmd.perform();
+			
+			Assert.assertTrue(cmd.isSuccess());
+			final String expected = 
+					"\uFEFF       IDENTIFICATION DIVISION.\r\n       PROGRAM-ID. NEW.\r\n       PROCEDURE DIVISION.\r\n";
+			Assert.assertEquals(expected, new String(Files.readAllBytes(actualFile.toPath()), StandardCharsets.UTF_8));
+			
+		} catch (CobblerException | BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+			state.setFileFormat(null);
+			actualFile.delete();
+		}
+	}
+	
+	@Test
+	public void perform_largeMixedLineEndingFile_unchangedRegionsByteExact() {
+		File sourceFile = new File(SAVEFILECMDTEST_DIRECTORY + File.separator + "Mixed_ACTUAL.cob");
+		File actualFile = new File(SAVEFILECMDTEST_DIRECTORY + File.separator + "MixedSaved_ACTUAL.cob");
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			// mostly CRLF with some bare LF and CR lines, spread over many checkpoints
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; sb.length() < 3 * 1024 * 1024; i++) {
+				sb.append(String.format("%06d", i)).append(" DISPLAY '\u00C4NDERUNG'.");
+				sb.append(i % 97 == 0 ? "\n" : i % 89 == 0 ? "\r" : "\r\n");
+			}
+			final byte[] original = sb.toString().getBytes(StandardCharsets.UTF_8);
+			Files.write(sourceFile.toPath(), original);
+			
+			PlainDocument document = new PlainDocument();
+			new LoadFileCmd(sourceFile, document).perform();
+			
+			// an unedited document is saved byte for byte
+			new SaveFileCmd(actualFile).perform();
+			Assert.assertTrue(Arrays.equals(original, Files.readAllBytes(actualFile.toPath())));
+			
+			// an edit in the middle only changes the edited bytes
+			final int offset = document.getLength() / 2;
+			document.insertString(offset, "EDIT", null);
+			new SaveFileCmd(actualFile).perform();
+			
+			final int byteOffset = sb.substring(0, sourceIndex(sb, offset)).getBytes(StandardCharsets.UTF_8).length;
+			byte[] actual = Files.readAllBytes(actualFile.toPath());
+			
+			Assert.assertEquals(original.length + 4, actual.length);
+			Assert.assertTrue(Arrays.equals(Arrays.copyOfRange(original, 0, byteOffset), 
+					Arrays.copyOfRange(actual, 0, byteOffset)));
+			Assert.assertEquals("EDIT", new String(actual, byteOffset, 4, StandardCharsets.UTF_8));
+			Assert.assertTrue(Arrays.equals(Arrays.copyOfRange(original, byteOffset, original.length), 
+					Arrays.copyOfRange(actual, byteOffset + 4, actual.length)));
+			
+		} catch (CobblerException | BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+			state.setFileFormat(null);
+			sourceFile.delete();
+			actualFile.delete();
+		}
+	}
+	
+	@Test
+	public void perform_editsAroundMixedLineEndings_linesBetweenKeepTerminators() {
+		File sourceFile = new File(SAVEFILECMDTEST_DIRECTORY + File.separator + "MixedEdits_ACTUAL.cob");
+		File actualFile = new File(SAVEFILECMDTEST_DIRECTORY + File.separator + "MixedEditsSaved_ACTUAL.cob");
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 200; i++) {
+				sb.append(String.format("%06d", i)).append(" DISPLAY 'LINE'.");
+				sb.append(i % 7 == 0 ? "\n" : i % 5 == 0 ? "\r" : "\r\n");
+			}
+			Files.write(sourceFile.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+			
+			PlainDocument document = new PlainDocument();
+			new LoadFileCmd(sourceFile, document).perform();
+			
+			// from the end back, so all offsets are those of the loaded text: edits near both
+			// ends, and a line between them replaced by a new line
+			final int last = document.getLength() - 5;
+			final int lineStart = document.getDefaultRootElement().getElement(100).getStartOffset();
+			final int lineEnd = document.getDefaultRootElement().getElement(100).getEndOffset();
+			document.insertString(last, "LAST", null);
+			document.remove(lineStart, lineEnd - lineStart);
+			document.insertString(lineStart, "000100 DISPLAY 'ADDED'.\n", null);
+			document.insertString(10, "FIRST", null);
+			new SaveFileCmd(actualFile).perform();
+			
+			// the expected file has the same edits, the added line ends with the dominant CRLF
+			StringBuilder expected = new StringBuilder(sb);
+			expected.insert(sourceIndex(sb, last), "LAST");
+			expected.replace(sourceIndex(sb, lineStart), sourceIndex(sb, lineEnd), "000100 DISPLAY 'ADDED'.\r\n");
+			expected.insert(10, "FIRST");
+			
+			Assert.assertEquals(expected.toString(),
+					new String(Files.readAllBytes(actualFile.toPath()), StandardCharsets.UTF_8));
+			
+			// the saved file keeps the terminators for the next save
+			document.insertString(0, "X", null);
+			new SaveFileCmd(actualFile).perform();
+			Assert.assertEquals("X" + expected.toString(),
+					new String(Files.readAllBytes(actualFile.toPath()), StandardCharsets.UTF_8));
+			
+		} catch (CobblerException | BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+			state.setFileFormat(null);
+			sourceFile.delete();
+			actualFile.delete();
+		}
+	}
+	
+	@Test
+	public void perform_lineLongerThanRecord_exceptionAndFileUntouched() {
+		File actualFile = new File(SAVEFILECMDTEST_DIRECTORY + File.separator + "Records_ACTUAL.cob");
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			Files.write(actualFile.toPath(), new byte[] { 0x40, 0x40 });
+			
+			PlainDocument document = new PlainDocument();
+			document.insertString(0, "       DISPLAY 'LINE 2 DOES NOT FIT'.\n       DISPLAY 'TOO LONG'.", null);
+			state.setDocument(document);
+			state.setRecordFormat(new RecordFormat(RecordFormat.Type.FB, 30, EbcdicCodePage.IBM037));
+			
+			String message = null;
+			try {
+				new SaveFileCmd(actualFile).perform();
+			} catch (CobblerException ex) {
+				message = ex.getMessage();
+			}
+			
+			Assert.assertNotNull(message);
+			Assert.assertTrue(message, message.contains("Line 1"));
+			Assert.assertTrue(Arrays.equals(new byte[] { 0x40, 0x40 }, Files.readAllBytes(actualFile.toPath())));
+			
+		} catch (BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+			state.setRecordFormat(null);
+			actualFile.delete();
+		}
+	}
+	
+	@Test
+	public void perform_fixedRecordsHoldingNlAndLf_recordsRoundTripped() {
+		File sourceFile = new File(SAVEFILECMDTEST_DIRECTORY + File.separator + "RecordsNlLf_ACTUAL.cob");
+		File actualFile = new File(SAVEFILECMDTEST_DIRECTORY + File.separator + "RecordsNlLfSaved_ACTUAL.cob");
+		CobblerState state = CobblerState.getInstance();
+		RecordFormat format = new RecordFormat(RecordFormat.Type.FB, 20, EbcdicCodePage.IBM037);
+		
+		try {
+			// NL and LF in the middle of the first record are data, not line ends
+			byte[] data = new byte[40];
+			Arrays.fill(data, (byte) 0x40);
+			byte[] first = "A12".getBytes(Charset.forName("IBM037"));
+			System.arraycopy(first, 0, data, 0, first.length);
+			data[1] = 0x15;
+			data[2] = 0x25;
+			byte[] second = "SECOND".getBytes(Charset.forName("IBM037"));
+			System.arraycopy(second, 0, data, 20, second.length);
+			Files.write(sourceFile.toPath(), data);
+			
+			PlainDocument document = new PlainDocument();
+			LoadFileCmd loadCmd = new LoadFileCmd(sourceFile, document, format);
+			loadCmd.perform();
+			
+			Assert.assertTrue(loadCmd.isSuccess());
+			Assert.assertEquals(2, document.getDefaultRootElement().getElementCount() - 1);
+			Assert.assertEquals("A\u0085\u2424\nSECOND\n", document.getText(0, document.getLength()));
+			
+			SaveFileCmd saveCmd = new SaveFileCmd(actualFile);
+			saveCmd.perform();
+			
+			Assert.assertTrue(saveCmd.isSuccess());
+			Assert.assertTrue(Arrays.equals(data, Files.readAllBytes(actualFile.toPath())));
+			
+		} catch (CobblerException | BadLocationException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			state.setDocument(null);
+			state.setFileFormat(null);
+			state.setRecordFormat(null);
+			sourceFile.delete();
+			actualFile.delete();
+		}
+	}
+	
+	@Test
+	public void autosave_burstOfEdits_oneSnapshotWrittenInFileFormat() {
+		File sourceFile = new File(SAVEFILECMDTEST_DIRECTORY + File.separator + "Autosave_ACTUAL.cob");
+		File folder = new File(SAVEFILECMDTEST_DIRECTORY + File.separator + "Autosave_ACTUAL");
+		AutosaveService autosave = new AutosaveService(folder);
+		File sidecar = autosave.getSidecar(sourceFile);
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			Files.write(sourceFile.toPath(), "       IDENTIFICATION DIVISION.\r\n       PROGRAM-ID. AUTOSAVE.\r\n"
+					.getBytes(StandardCharsets.UTF_8));
+			
+			PlainDocument document = new PlainDocument();
+			new LoadFileCmd(sourceFile, document).perform();
+			autosave.setEnabled(true, 0);
+			autosave.start(sourceFile, state.getCurrentDocument().getSnapshotTracker(), state.getFileFormat(), null);
+			
+			// a burst of typing is saved once, after it stops
+			for (int i = 0; i < 50; i++) {
+				document.insertString(document.getLength(), "X", null);
+				autosave.documentChanged(document);
+			}
+			document.insertString(document.getLength(), "\n", null);
+			autosave.documentChanged(document);
+			
+			final long deadline = System.currentTimeMillis() + 10000;
+			while (autosave.getWriteCount() == 0 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(100);
+			}
+			Thread.sleep(500);
+			
+			Assert.assertEquals(1, autosave.getWriteCount());
+			
+			// the sidecar is kept under the settings, not next to the file
+			Assert.assertEquals(folder, sidecar.getParentFile());
+			Assert.assertEquals(document.getText(0, document.getLength()).replace("\n", "\r\n"), 
+					new String(Files.readAllBytes(sidecar.toPath()), StandardCharsets.UTF_8));
+			
+			// the original file is not touched
+			Assert.assertEquals("       IDENTIFICATION DIVISION.\r\n       PROGRAM-ID. AUTOSAVE.\r\n", 
+					new String(Files.readAllBytes(sourceFile.toPath()), StandardCharsets.UTF_8));
+			
+			// stopping discards the sidecar
+			autosave.close();
+			Assert.assertFalse(sidecar.exists());
+			
+		} catch (CobblerException | BadLocationException | IOException | InterruptedException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			autosave.close();
+			state.setDocument(null);
+			state.setFileFormat(null);
+			sourceFile.delete();
+			sidecar.delete();
+			folder.delete();
+		}
+	}
+	
+	/**
+	 * Returns the index in the source text of the given document offset, where
+	 * each CRLF pair in the source is a single document character.
+	 * @param source CharSequence
+	 * @param offset int
+	 * @return int
+	 */
+	private int sourceIndex(CharSequence source, int offset) {
+		int index = 0;
+		for (int chars = 0; chars < offset; chars++) {
+			boolean pair = source.charAt(index) == '\r' && index + 1 < source.length() && source.charAt(index + 1) == '\n';
+			index += pair ? 2 : 1;
+		}
+		return index;
+	}
 
 }
@@ -40,6 +40,7 @@ import org.junit.Test;
 import com.horvath.cobbler.application.CobblerState;
 import com.horvath.cobbler.exception.CobblerException;
 import com.horvath.cobbler.gui.syntax.GuiTheme;
+import com.horvath.cobbler.io.EbcdicCodePage;
 
 /**
  * Tests operations of the SaveSettingsCmd class.
@@ -90,12 +91,16 @@ public class SaveSettingsCmdTest {
 		
 		// load into state
 		state.setCurrentTheme(testTheme);
-		state.getRecentFilesList().clear();
+		state.getRecentFiles().clear();
 		state.updateRecentFiles(file1);
 		state.updateRecentFiles(file2);
+		state.setRecentFileCodePage(file1, EbcdicCodePage.IBM1140);
 		state.setSpellcheckOn(false);
 		state.setShowInvisibleCharacters(true);
 		state.setMaxNumOfRecentFiles(maxRecentFiles);
+		state.setAutosaveOn(false);
+		state.setAutosaveInterval(120);
+		state.setUndoMemoryLimit(64);
 		
 		try {
 			// run the command we are here to test
@@ -117,6 +122,13 @@ public class SaveSettingsCmdTest {
 			Assert.assertTrue(actualContent.contains(AbstractSettingsCmd.FIELD_SPELL_CHECK_ON + "=false"));
 			Assert.assertTrue(actualContent.contains(AbstractSettingsCmd.FIELD_SHOW_INVISIBLES + "=true"));
 			Assert.assertTrue(actualContent.contains(AbstractSettingsCmd.FIELD_RECENT_FILES_MAX + "=" + maxRecentFiles));
+			Assert.assertTrue(actualContent.contains(AbstractSettingsCmd.FIELD_AUTOSAVE_ON + "=false"));
+			Assert.assertTrue(actualContent.contains(AbstractSettingsCmd.FIELD_AUTOSAVE_INTERVAL + "=120"));
+			Assert.assertTrue(actualContent.contains(AbstractSettingsCmd.FIELD_UNDO_MEMORY_LIMIT + "=64"));
+			Assert.assertTrue(actualContent.contains(AbstractSettingsCmd.FIELD_RECENT_FILE_CODE_PAGE + "1=IBM1140"));
+			Assert.assertFalse(actualContent.contains(AbstractSettingsCmd.FIELD_RECENT_FILE_CODE_PAGE + "0="));
+			
+			state.setRecentFileCodePage(file1, null);
 			
 			// perform cleanup 
 			if (userProperties != null) {
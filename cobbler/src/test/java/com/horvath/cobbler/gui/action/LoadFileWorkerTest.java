@@ -0,0 +1,168 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.gui.action;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.horvath.cobbler.application.CobblerState;
+import com.horvath.cobbler.application.DocumentState;
+import com.horvath.cobbler.command.SaveFileCmdTest;
+import com.horvath.cobbler.gui.CobblerWindow;
+import com.horvath.cobbler.gui.syntax.CobSyntaxTextArea;
+import com.horvath.cobbler.io.AutosaveService;
+import com.horvath.cobbler.io.TextFileFormat;
+import com.horvath.cobbler.io.TextFileReader;
+import com.horvath.cobbler.io.TextFileWriter;
+
+/**
+ * Tests operations of the LoadFileWorker class.
+ * @author jhorvath
+ */
+public class LoadFileWorkerTest {
+	
+	private static final String FILE_TEXT = "       IDENTIFICATION DIVISION.\r\n       PROGRAM-ID. RECOVER.\r\n" 
+			+ "       PROCEDURE DIVISION.\r\n";
+	private static final String RECOVERED_TEXT = "       IDENTIFICATION DIVISION.\n       PROGRAM-ID. RECOVER.\n" 
+			+ "       PROCEDURE DIVISION.\n           DISPLAY 'RECOVERED'.\n";
+	
+	@Test
+	public void recoverAutosave_openedFile_recoveredWorkDirtyAndUndoable() {
+		File file = new File(SaveFileCmdTest.SAVEFILECMDTEST_DIRECTORY + File.separator + "WorkerRecover_ACTUAL.cob");
+		File folder = new File(SaveFileCmdTest.SAVEFILECMDTEST_DIRECTORY + File.separator + "WorkerRecover_ACTUAL");
+		File sidecar = new AutosaveService(folder).getSidecar(file);
+		
+		try {
+			writeFileAndSidecar(file, folder, sidecar);
+			
+			// the file as the worker leaves it: loaded, clean and with nothing to undo
+			DocumentState owner = new DocumentState();
+			CobSyntaxTextArea textArea = new CobSyntaxTextArea(10, 80, owner);
+			TextFileReader reader = new TextFileReader(file);
+			reader.read(textArea.getDocument());
+			owner.setFileFormat(reader.getFormat());
+			owner.getFileFormat().attach(textArea.getDocument());
+			owner.setFile(file);
+			textArea.discardAllEdits();
+			owner.setDirty(false);
+			
+			Assert.assertNull(LoadFileWorker.recoverAutosave(textArea, sidecar));
+			Assert.assertEquals(RECOVERED_TEXT, textArea.getText());
+			Assert.assertTrue(owner.isDirty());
+			Assert.assertTrue(textArea.canUndo());
+			
+			// undoing the recovery goes back to the file as it was saved
+			textArea.undoLastAction();
+			Assert.assertEquals(FILE_TEXT.replace("\r\n", "\n"), textArea.getText());
+			Assert.assertFalse(owner.isDirty());
+			
+		} catch (Exception ex) {
+			Assert.fail(ex.getMessage());
+			
+		} finally {
+			sidecar.delete();
+			folder.delete();
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void done_sidecarNewerThanFile_recoveredWorkDirtyAndUndoable() {
+		File file = new File(SaveFileCmdTest.SAVEFILECMDTEST_DIRECTORY + File.separator + "WorkerDone_ACTUAL.cob");
+		File folder = new File(SaveFileCmdTest.SAVEFILECMDTEST_DIRECTORY + File.separator + "WorkerDone_ACTUAL");
+		AutosaveService autosave = new AutosaveService(folder);
+		File sidecar = autosave.getSidecar(file);
+		CobblerState state = CobblerState.getInstance();
+		
+		try {
+			writeFileAndSidecar(file, folder, sidecar);
+			state.setAutosave(autosave);
+			
+			// the whole load, from the worker thread to the open-file update on the event thread
+			CountDownLatch loaded = new CountDownLatch(1);
+			SwingUtilities.invokeAndWait(() -> {
+				LoadFileWorker worker = new LoadFileWorker(file, null, null);
+				worker.setRecoveryAnswer(true);
+				worker.setOnLoaded(loaded::countDown);
+				worker.start();
+			});
+			Assert.assertTrue(loaded.await(30, TimeUnit.SECONDS));
+			
+			SwingUtilities.invokeAndWait(() -> {
+				CobSyntaxTextArea textArea = CobblerWindow.getWindow().getTextArea();
+				Assert.assertEquals(RECOVERED_TEXT, textArea.getText());
+				Assert.assertTrue(state.isDirty());
+				Assert.assertTrue(textArea.canUndo());
+				
+				textArea.undoLastAction();
+				Assert.assertEquals(FILE_TEXT.replace("\r\n", "\n"), textArea.getText());
+				Assert.assertFalse(state.isDirty());
+			});
+			
+		} catch (Exception ex) {
+			Assert.fail(ex.getMessage());
+			
+		} finally {
+			state.setAutosave(null);
+			autosave.close();
+			sidecar.delete();
+			folder.delete();
+			file.delete();
+		}
+	}
+	
+	/**
+	 * Writes the file and the work autosaved for it before a crash, which is newer. 
+	 * @param file File
+	 * @param folder File - folder of the autosave sidecars
+	 * @param sidecar File
+	 * @throws Exception
+	 */
+	private static void writeFileAndSidecar(File file, File folder, File sidecar) throws Exception {
+		Files.write(file.toPath(), FILE_TEXT.getBytes(StandardCharsets.UTF_8));
+		
+		PlainDocument edited = new PlainDocument();
+		TextFileReader reader = new TextFileReader(file);
+		reader.read(edited);
+		TextFileFormat format = reader.getFormat();
+		format.attach(edited);
+		edited.insertString(edited.getLength(), "           DISPLAY 'RECOVERED'.\n", null);
+		
+		folder.mkdirs();
+		new TextFileWriter(edited, sidecar, format).write();
+		format.detach();
+		Assert.assertTrue(sidecar.setLastModified(file.lastModified() + 2000));
+	}
+
+}
@@ -0,0 +1,70 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.gui.syntax;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.fife.ui.rsyntaxtextarea.parser.Parser;
+import org.fife.ui.rsyntaxtextarea.spell.SpellingParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.horvath.cobbler.application.CobblerState;
+import com.horvath.cobbler.application.DocumentState;
+
+/**
+ * Tests operations of the CobSyntaxTextArea class.
+ * @author jhorvath
+ */
+public class CobSyntaxTextAreaTest {
+	
+	@Test
+	public void constructor_twoTextAreas_ownSpellingParsers() {
+		CobblerState state = CobblerState.getInstance();
+		final boolean spellcheckOn = state.isSpellcheckOn();
+		state.setSpellcheckOn(true);
+		
+		try {
+			List<Parser> parsers = new ArrayList<>();
+			for (int i = 0; i < 2; i++) {
+				CobSyntaxTextArea textArea = new CobSyntaxTextArea(10, 80, new DocumentState());
+				for (int k = 0; k < textArea.getParserCount(); k++) {
+					if (textArea.getParser(k) instanceof SpellingParser) {
+						parsers.add(textArea.getParser(k));
+					}
+				}
+			}
+			
+			// the notices of a parse are kept by the parser, so each document has one of its own
+			Assert.assertEquals(2, parsers.size());
+			Assert.assertNotSame(parsers.get(0), parsers.get(1));
+			
+		} finally {
+			state.setSpellcheckOn(spellcheckOn);
+		}
+	}
+
+}
@@ -0,0 +1,319 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.gui.syntax;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.ImageIcon;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
+import org.fife.ui.rtextarea.GutterIconInfo;
+import org.fife.ui.rtextarea.RTextScrollPane;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.horvath.cobbler.application.DocumentState;
+import com.horvath.cobbler.exception.CobblerException;
+import com.horvath.cobbler.io.LineDiff;
+
+/**
+ * Tests keeping the undo history within its memory limit.
+ * @author jhorvath
+ */
+public class CobUndoManagerTest {
+	
+	private static final String[] VERBS = {"MOVE", "ADD", "COMPUTE", "DISPLAY", "PERFORM", "IF", "SUBTRACT"};
+	
+	@Test
+	public void replaceText_renumberedProgram_undoRedoWithoutCopies() {
+		StringBuilder oldText = new StringBuilder();
+		StringBuilder newText = new StringBuilder();
+		for (int i = 0; i < 40000; i++) {
+			final String line = " " + VERBS[i % VERBS.length] + " WS-FIELD-" + (i % 97) + " TO WS-TOTAL-" + (i % 13) + ".\n";
+			oldText.append(String.format("%06d", i * 100)).append(line);
+			newText.append(String.format("%06d", (i + 1) * 10)).append(line);
+		}
+		
+		RSyntaxTextArea textArea = new RSyntaxTextArea();
+		Document document = textArea.getDocument();
+		CobUndoManager undoManager = new CobUndoManager(textArea, 32L * 1024 * 1024);
+		
+		try {
+			document.insertString(0, oldText.toString(), null);
+			undoManager.discardAllEdits();
+			document.addUndoableEditListener(undoManager);
+			
+			undoManager.replaceText(document, newText.toString());
+			Assert.assertEquals(newText.toString(), document.getText(0, document.getLength()));
+			Assert.assertEquals(1, undoManager.getEditCount());
+			
+			// a copy of the old and the new text would take four bytes a character
+			final long usage = undoManager.getMemoryUsage();
+			Assert.assertTrue(usage < document.getLength() / 2);
+			
+			undoManager.undo();
+			Assert.assertEquals(oldText.toString(), document.getText(0, document.getLength()));
+			Assert.assertEquals(1, undoManager.getEditCount());
+			
+			undoManager.redo();
+			Assert.assertEquals(newText.toString(), document.getText(0, document.getLength()));
+			
+		} catch (CobblerException | BadLocationException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void replaceText_fewLinesChanged_onlyThoseReplaced() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append("       ").append(VERBS[i % VERBS.length]).append(" WS-").append(i).append(".\n");
+		}
+		final String oldText = sb.toString();
+		final String newText = oldText.replace(" WS-500.", " WS-FIVE-HUNDRED.").replace(" WS-10.", " WS-TEN.");
+		
+		RSyntaxTextArea textArea = new RSyntaxTextArea();
+		Document document = textArea.getDocument();
+		CobUndoManager undoManager = new CobUndoManager(textArea, 32L * 1024 * 1024);
+		
+		try {
+			document.insertString(0, oldText, null);
+			document.addUndoableEditListener(undoManager);
+			
+			final int[] changed = new int[1];
+			document.addDocumentListener(new javax.swing.event.DocumentListener() {
+				@Override
+				public void insertUpdate(javax.swing.event.DocumentEvent e) {
+					changed[0] += e.getLength();
+				}
+				@Override
+				public void removeUpdate(javax.swing.event.DocumentEvent e) {
+					changed[0] += e.getLength();
+				}
+				@Override
+				public void changedUpdate(javax.swing.event.DocumentEvent e) { }
+			});
+			
+			undoManager.replaceText(document, newText);
+			Assert.assertEquals(newText, document.getText(0, document.getLength()));
+			Assert.assertEquals(100, changed[0]);
+			
+			undoManager.undo();
+			Assert.assertEquals(oldText, document.getText(0, document.getLength()));
+			
+		} catch (CobblerException | BadLocationException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void replaceRanges_numberOfEveryLine_onlyRangesChanged() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			sb.append(String.format("%06d", i * 100)).append(" ").append(VERBS[i % VERBS.length]).append(" WS-").append(i).append(".\n");
+		}
+		final String oldText = sb.toString();
+		
+		// the sequence number of every line, then one far after the others
+		List<LineDiff.Hunk> ranges = new ArrayList<>();
+		StringBuilder expected = new StringBuilder(oldText);
+		int offset = 0;
+		for (int i = 0; i < 10000; i++) {
+			final String number = String.format("%06d", (i + 1) * 10);
+			ranges.add(new LineDiff.Hunk(offset, 6, number));
+			expected.replace(offset, offset + 6, number);
+			offset = oldText.indexOf('\n', offset) + 1;
+		}
+		final int far = oldText.length() - 20;
+		ranges.add(new LineDiff.Hunk(far, 3, "FAR"));
+		expected.replace(far, far + 3, "FAR");
+		
+		RSyntaxTextArea textArea = new RSyntaxTextArea();
+		Document document = textArea.getDocument();
+		CobUndoManager undoManager = new CobUndoManager(textArea, 32L * 1024 * 1024);
+		
+		try {
+			document.insertString(0, oldText, null);
+			document.addUndoableEditListener(undoManager);
+			
+			final int[] changes = new int[1];
+			final int[] longest = new int[1];
+			document.addDocumentListener(new javax.swing.event.DocumentListener() {
+				@Override
+				public void insertUpdate(javax.swing.event.DocumentEvent e) {
+					changes[0]++;
+					longest[0] = Math.max(longest[0], e.getLength());
+				}
+				@Override
+				public void removeUpdate(javax.swing.event.DocumentEvent e) {
+					changes[0]++;
+					longest[0] = Math.max(longest[0], e.getLength());
+				}
+				@Override
+				public void changedUpdate(javax.swing.event.DocumentEvent e) { }
+			});
+			
+			// each range is replaced on its own, the text between them is not rewritten
+			undoManager.replaceRanges(document, ranges);
+			Assert.assertEquals(expected.toString(), document.getText(0, document.getLength()));
+			Assert.assertEquals(2 * ranges.size(), changes[0]);
+			Assert.assertEquals(6, longest[0]);
+			
+			undoManager.undo();
+			Assert.assertEquals(oldText, document.getText(0, document.getLength()));
+			
+		} catch (CobblerException | BadLocationException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void replaceRanges_renumberAroundBookmark_bookmarkKept() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			sb.append(String.format("%06d", i * 100)).append(" ").append(VERBS[i % VERBS.length]).append(" WS-").append(i).append(".\n");
+		}
+		final String oldText = sb.toString();
+		
+		// the sequence number of every line except the one bookmarked
+		final int bookmarked = 120;
+		List<LineDiff.Hunk> ranges = new ArrayList<>();
+		int offset = 0;
+		for (int i = 0; i < 200; i++) {
+			if (i != bookmarked) {
+				ranges.add(new LineDiff.Hunk(offset, 6, String.format("%06d", (i + 1) * 10)));
+			}
+			offset = oldText.indexOf('\n', offset) + 1;
+		}
+		
+		CobSyntaxTextArea textArea = new CobSyntaxTextArea(10, 80, new DocumentState());
+		RTextScrollPane scrollPane = new RTextScrollPane(textArea);
+		
+		try {
+			textArea.setText(oldText);
+			textArea.discardAllEdits();
+			final int lineStart = textArea.getLineStartOffset(bookmarked);
+			final int column = 10;
+			GutterIconInfo bookmark = scrollPane.getGutter().addOffsetTrackingIcon(lineStart + column, 
+					new ImageIcon(new BufferedImage(8, 8, BufferedImage.TYPE_INT_ARGB)));
+			
+			textArea.replaceRanges(ranges);
+			Assert.assertEquals(lineStart + column, bookmark.getMarkedOffset());
+			Assert.assertEquals(bookmarked, textArea.getLineOfOffset(bookmark.getMarkedOffset()));
+			
+			textArea.undoLastAction();
+			Assert.assertEquals(oldText, textArea.getText());
+			Assert.assertEquals(lineStart + column, bookmark.getMarkedOffset());
+			
+		} catch (CobblerException | BadLocationException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void replaceRanges_longestLineShortened_widthMeasuredAgain() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			sb.append(String.format("%06d", i * 100)).append(" ").append(VERBS[i % VERBS.length]).append(" WS-").append(i).append(".\n");
+		}
+		final String padding = "                                                            *> NOTE";
+		final int longLine = 40;
+		
+		CobSyntaxTextArea textArea = new CobSyntaxTextArea(10, 1, new DocumentState());
+		
+		try {
+			textArea.setText(sb.toString());
+			final int width = textArea.getPreferredSize().width;
+			
+			final int lineEnd = textArea.getLineEndOffset(longLine) - 1;
+			textArea.getDocument().insertString(lineEnd, padding, null);
+			final int longWidth = textArea.getPreferredSize().width;
+			Assert.assertTrue(longWidth > width);
+			
+			// the width is worked out once the ranges are replaced, not for each of them
+			List<LineDiff.Hunk> ranges = new ArrayList<>();
+			ranges.add(new LineDiff.Hunk(textArea.getLineStartOffset(10), 6, "000010"));
+			ranges.add(new LineDiff.Hunk(lineEnd, padding.length(), ""));
+			ranges.add(new LineDiff.Hunk(textArea.getLineStartOffset(90), 6, "000090"));
+			textArea.replaceRanges(ranges);
+			Assert.assertEquals(width, textArea.getPreferredSize().width);
+			
+			textArea.undoLastAction();
+			Assert.assertEquals(longWidth, textArea.getPreferredSize().width);
+			
+		} catch (CobblerException | BadLocationException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void edits_overMemoryLimit_oldestDiscarded() {
+		final long limit = 64 * 1024;
+		
+		RSyntaxTextArea textArea = new RSyntaxTextArea();
+		Document document = textArea.getDocument();
+		CobUndoManager undoManager = new CobUndoManager(textArea, limit);
+		undoManager.setLimit(1000);
+		document.addUndoableEditListener(undoManager);
+		
+		StringBuilder chunk = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			chunk.append('X');
+		}
+		
+		try {
+			for (int i = 0; i < 200; i++) {
+				// each atomic edit is its own entry in the history
+				undoManager.beginInternalAtomicEdit();
+				document.insertString(document.getLength(), chunk.toString(), null);
+				undoManager.endInternalAtomicEdit();
+				
+				Assert.assertTrue(undoManager.getMemoryUsage() <= limit);
+			}
+			
+			final int kept = undoManager.getEditCount();
+			Assert.assertTrue(kept > 1 && kept < 200);
+			
+			// undoing everything that is kept leaves the edits that were discarded
+			while (undoManager.canUndo()) {
+				undoManager.undo();
+			}
+			Assert.assertEquals((200 - kept) * 1000, document.getLength());
+			
+			// lowering the limit discards more of the history
+			undoManager.setMemoryLimit(limit / 4);
+			Assert.assertTrue(undoManager.getEditCount() < kept);
+			Assert.assertTrue(undoManager.getMemoryUsage() <= limit / 4);
+			
+		} catch (BadLocationException ex) {
+			Assert.fail();
+		}
+	}
+
+}
@@ -0,0 +1,144 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.horvath.cobbler.command.LoadFileCmdTest;
+import com.horvath.cobbler.exception.CobblerException;
+
+/**
+ * Tests keeping the session between runs of the application.
+ * @author jhorvath
+ */
+public class SessionFileTest {
+	
+	public static final String SESSIONFILETEST_DIRECTORY = LoadFileCmdTest.RESOURCES_DIRECTORY 
+			+ File.separator + "LoadFileCmdTest";
+	
+	@Test
+	public void write_sessionReadBack_documentsAndSearchRestored() {
+		File file = new File(SESSIONFILETEST_DIRECTORY + File.separator + "Cobbler_ACTUAL.session");
+		
+		try {
+			Session session = new Session();
+			session.addEntry(new Session.Entry(new File("first.cob").getAbsoluteFile(), 120, 4, 0));
+			session.addEntry(new Session.Entry(new File("second.cob").getAbsoluteFile(), 9876, 310, 48));
+			session.setSelected(1);
+			session.setSearch("WS-TOTAL", "WS-SUM", Session.MATCH_CASE | Session.MARK_ALL);
+			
+			SessionFile.write(session, file);
+			Session read = SessionFile.read(file);
+			
+			Assert.assertNotNull(read);
+			Assert.assertEquals(2, read.getEntries().size());
+			Assert.assertEquals(1, read.getSelected());
+			Assert.assertEquals("WS-TOTAL", read.getSearchFor());
+			Assert.assertEquals("WS-SUM", read.getReplaceWith());
+			Assert.assertEquals(Session.MATCH_CASE | Session.MARK_ALL, read.getSearchOptions());
+			
+			Session.Entry entry = read.getEntries().get(1);
+			Assert.assertEquals(new File("second.cob").getAbsoluteFile(), entry.getFile());
+			Assert.assertEquals(9876, entry.getCaret());
+			Assert.assertEquals(310, entry.getTopLine());
+			Assert.assertEquals(48, entry.getScrollX());
+			
+			// a few bytes a document
+			Assert.assertTrue(file.length() < 200);
+			
+		} catch (CobblerException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void save_burstOfChanges_writtenOnceInBackground() {
+		File file = new File(SESSIONFILETEST_DIRECTORY + File.separator + "Burst_ACTUAL.session");
+		SessionFile sessionFile = new SessionFile(file);
+		
+		try {
+			for (int caret = 0; caret < 50; caret++) {
+				Session session = new Session();
+				session.addEntry(new Session.Entry(new File("burst.cob").getAbsoluteFile(), caret, 0, 0));
+				sessionFile.save(session);
+			}
+			sessionFile.close();
+			
+			Assert.assertEquals(1, sessionFile.getWriteCount());
+			Assert.assertEquals(49, SessionFile.read(file).getEntries().get(0).getCaret());
+			
+		} catch (CobblerException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void read_damagedOrForeignFile_noSession() {
+		File file = new File(SESSIONFILETEST_DIRECTORY + File.separator + "Damaged_ACTUAL.session");
+		
+		try {
+			Assert.assertNull(SessionFile.read(file));
+			
+			Files.write(file.toPath(), "recent=first.cob".getBytes());
+			Assert.assertNull(SessionFile.read(file));
+			
+			// a session cut short by a crash is not restored
+			Session session = new Session();
+			session.addEntry(new Session.Entry(new File("cut.cob").getAbsoluteFile(), 1, 2, 3));
+			SessionFile.write(session, file);
+			byte[] bytes = Files.readAllBytes(file.toPath());
+			Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 5));
+			
+			try {
+				SessionFile.read(file);
+				Assert.fail();
+			} catch (CobblerException ex) {
+				Assert.assertNotNull(ex.getMessage());
+			}
+			
+		} catch (CobblerException | IOException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			file.delete();
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+/* MIT License
+ * 
+ * Copyright (c) 2024 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.horvath.cobbler.io;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests tracking the line terminators of a file with mixed line endings through edits.
+ * @author jhorvath
+ */
+public class TextFileFormatTest {
+	
+	@Test
+	public void insertRemove_randomEdits_terminatorsMoveWithTheirLines() {
+		Random random = new Random(3);
+		PlainDocument document = new PlainDocument();
+		TextFileFormat format = new TextFileFormat(null, StandardCharsets.UTF_8, false, "\r\n");
+		
+		// the terminator of each '\n' in the document, as a plain list
+		List<String> expected = new ArrayList<>();
+		
+		try {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 2000; i++) {
+				sb.append(String.format("%06d", i)).append(" DISPLAY 'LINE'.\n");
+				final int kind = random.nextInt(TextFileFormat.LINE_SEPARATORS.length);
+				format.addLineTerminator(sb.length() - 1, kind);
+				expected.add(TextFileFormat.LINE_SEPARATORS[kind]);
+			}
+			document.insertString(0, sb.toString(), null);
+			format.attach(document);
+			
+			for (int edit = 0; edit < 3000; edit++) {
+				// runs of typing in one place, now and then somewhere else
+				final int offset = random.nextInt(document.getLength());
+				if (random.nextInt(3) > 0) {
+					final String text = random.nextInt(5) == 0 ? "ADDED.\n" : "X";
+					expected.addAll(newlinesBefore(document, offset), newLines(text, "\r\n"));
+					document.insertString(offset, text, null);
+				} else {
+					final int length = Math.min(random.nextInt(60), document.getLength() - offset);
+					final int first = newlinesBefore(document, offset);
+					expected.subList(first, newlinesBefore(document, offset + length)).clear();
+					document.remove(offset, length);
+				}
+			}
+			
+			final String text = document.getText(0, document.getLength());
+			int line = 0;
+			for (int i = 0; i < text.length(); i++) {
+				if (text.charAt(i) == '\n') {
+					final int index = format.terminatorAtOrAfter(i);
+					final boolean recorded = index < format.getTerminatorCount() && format.getTerminatorOffset(index) == i;
+					Assert.assertEquals(expected.get(line), recorded ? format.getTerminator(index) : "\r\n");
+					line++;
+				}
+			}
+			Assert.assertEquals(expected.size(), line);
+			
+		} catch (BadLocationException ex) {
+			// should not get here
+			Assert.fail();
+			
+		} finally {
+			format.detach();
+		}
+	}
+	
+	/**
+	 * Returns the number of '\n' characters in the document before the offset. 
+	 * @param document PlainDocument
+	 * @param offset int
+	 * @return int
+	 */
+	private static int newlinesBefore(PlainDocument document, int offset) {
+		return document.getDefaultRootElement().getElementIndex(offset);
+	}
+	
+	/**
+	 * Returns one terminator for each '\n' in the text. 
+	 * @param text String
+	 * @param terminator String
+	 * @return List
+	 */
+	private static List<String> newLines(String text, String terminator) {
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) == '\n') {
+				lines.add(terminator);
+			}
+		}
+		return lines;
+	}
+
+}